@@ -0,0 +1,56 @@
+package com.ime.gbt32960.benchmarks;
+
+import com.ime.gbt32960.codec.ReportDecoder;
+import com.ime.gbt32960.protocol.alarm.AlarmEngine;
+import com.ime.iov.gbt32960.RealTimeReport;
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 报警规则求值的吞吐量，目标为单线程不低于每秒 10 万帧；
+ * decodeAndEvaluate 包含实时信息的完整解析，即解析路径上的实际开销
+ *
+ * @author Qingxi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlarmBenchmark {
+
+    private static final int REPORTS = 256;
+
+    private final AlarmEngine engine = new AlarmEngine(AlarmEngine.defaultRules(4.3f, 2.5f, 60, -30));
+
+    private ByteBuf[] payloads;
+    private RealTimeReport[] reports;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SyntheticFrames frames = new SyntheticFrames(32960);
+        payloads = new ByteBuf[REPORTS];
+        reports = new RealTimeReport[REPORTS];
+        for (int i = 0; i < REPORTS; i++) {
+            payloads[i] = frames.realTimePayload(SyntheticFrames.BASE_TIME + i * 10, 96, 32);
+            reports[i] = ReportDecoder.decodeFully(payloads[i].duplicate(), true).build();
+        }
+    }
+
+    @Benchmark
+    public long evaluate() {
+        next = (next + 1) & (REPORTS - 1);
+        return engine.evaluate(reports[next]);
+    }
+
+    @Benchmark
+    public long decodeAndEvaluate() {
+        next = (next + 1) & (REPORTS - 1);
+        return engine.evaluate(ReportDecoder.decodeFully(payloads[next].duplicate(), true).build());
+    }
+
+}
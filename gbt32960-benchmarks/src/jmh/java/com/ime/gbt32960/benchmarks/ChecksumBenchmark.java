@@ -0,0 +1,65 @@
+package com.ime.gbt32960.benchmarks;
+
+import com.ime.gbt32960.codec.CheckCodes;
+import com.ime.gbt32960.codec.FrameHeader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCC 校验码（头部与数据单元逐字节异或）：逐字节的 ByteProcessor 与按 8 字节异或的 {@link CheckCodes}，
+ * 堆内与直接内存，offset 用于覆盖未对齐的情况
+ *
+ * @author Qingxi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChecksumBenchmark {
+
+    /**
+     * 心跳、登入、96 串和 192 串电池的实时信息大致的校验长度
+     */
+    @Param({"22", "64", "400", "800"})
+    public int length;
+
+    @Param({"heap", "direct"})
+    public String memory;
+
+    @Param({"0", "3"})
+    public int offset;
+
+    private ByteBuf buffer;
+
+    @Setup
+    public void setup() {
+        byte[] bytes = new byte[offset + length];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        buffer = "heap".equals(memory) ? Unpooled.buffer(bytes.length) : Unpooled.directBuffer(bytes.length);
+        buffer.writeBytes(bytes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.release();
+    }
+
+    @Benchmark
+    public byte byteProcessor() throws Exception {
+        FrameHeader.CheckCodeProcessor processor = new FrameHeader.CheckCodeProcessor();
+        buffer.forEachByte(offset, length, processor);
+        return processor.getCheckCode();
+    }
+
+    @Benchmark
+    public byte checkCodes() {
+        return CheckCodes.checkCode(buffer, offset, length);
+    }
+
+}
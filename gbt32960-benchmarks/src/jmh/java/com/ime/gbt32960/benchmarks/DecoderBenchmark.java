@@ -0,0 +1,71 @@
+package com.ime.gbt32960.benchmarks;
+
+import com.ime.gbt32960.codec.GBT32960Decoder;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拆帧和解析的吞吐量：整帧到达与随机分段到达，按长度拆帧与旧的 ReplayingDecoder 对照。
+ * 每次调用送入 {@value #FRAMES} 帧，结果按帧计
+ *
+ * @author Qingxi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecoderBenchmark {
+
+    static final int FRAMES = 1000;
+
+    @Param({"length", "replaying"})
+    public String decoder;
+
+    /**
+     * whole：每次读到一整帧；fragmented：按 1 ~ 64 字节随机分段
+     */
+    @Param({"whole", "fragmented"})
+    public String arrival;
+
+    @Param({"96"})
+    public int cells;
+
+    private List<byte[]> chunks;
+
+    private EmbeddedChannel channel;
+
+    @Setup
+    public void setup() {
+        SyntheticFrames frames = new SyntheticFrames(32960);
+        List<byte[]> whole = frames.frames(FRAMES, 100, cells, 32);
+        chunks = "fragmented".equals(arrival) ? frames.fragment(SyntheticFrames.concat(whole), 1, 64) : whole;
+        ChannelHandler handler = "length".equals(decoder) ? new GBT32960Decoder() : new ReplayingFrameDecoder();
+        channel = new EmbeddedChannel(handler);
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void decode(Blackhole blackhole) {
+        for (byte[] chunk : chunks) {
+            channel.writeInbound(Unpooled.wrappedBuffer(chunk));
+        }
+        Object message;
+        while ((message = channel.readInbound()) != null) {
+            blackhole.consume(message);
+        }
+    }
+
+}
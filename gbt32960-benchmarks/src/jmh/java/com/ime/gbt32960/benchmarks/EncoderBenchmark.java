@@ -0,0 +1,103 @@
+package com.ime.gbt32960.benchmarks;
+
+import com.ime.gbt32960.codec.GBT32960Encoder;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.ResponseMessage;
+import com.ime.gbt32960.codec.ResponseTag;
+import com.ime.iov.gbt32960.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下行帧编码，覆盖 PlatformMessage 的每一种消息
+ *
+ * @author Qingxi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncoderBenchmark {
+
+    @Param({"CONFIG_QUERY", "CONFIG_SETUP", "UPGRADE", "WARNING", "CONTROL",
+            "CLOCK_CORRECT", "EMPTY_RESPONSE", "PROTO_RESPONSE"})
+    public PlatformMessage.MessageCase messageCase;
+
+    private ResponseMessage response;
+
+    private EmbeddedChannel channel;
+
+    @Setup
+    public void setup() {
+        response = new ResponseMessage(SyntheticFrames.vin(1), message(messageCase, SyntheticFrames.BASE_TIME));
+        channel = new EmbeddedChannel(new GBT32960Encoder());
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encode() {
+        channel.writeOutbound(response);
+        ByteBuf frame = channel.readOutbound();
+        int length = frame.readableBytes();
+        frame.release();
+        return length;
+    }
+
+    static PlatformMessage message(PlatformMessage.MessageCase messageCase, long time) {
+        PlatformMessage.Builder builder = PlatformMessage.newBuilder();
+        switch (messageCase) {
+            case CONFIG_QUERY:
+                return builder.setConfigQuery(ConfigQueryRequest.newBuilder()
+                        .setQueryTime(time)
+                        .addParameterIds(1).addParameterIds(2).addParameterIds(3).addParameterIds(9)).build();
+            case CONFIG_SETUP:
+                return builder.setConfigSetup(ConfigSetupRequest.newBuilder()
+                        .setSetupTime(time)
+                        .addParameters(Parameter.newBuilder().setStoragePeriod(1000))
+                        .addParameters(Parameter.newBuilder().setNormalReportInterval(10))
+                        .addParameters(Parameter.newBuilder().setManagementPlatformDomainLength(15))
+                        .addParameters(Parameter.newBuilder().setManagementPlatformDomain("gbt32960.ime.cn"))
+                        .addParameters(Parameter.newBuilder().setManagementPlatformPort(32960))
+                        .addParameters(Parameter.newBuilder().setHearbeatInterval(30))).build();
+            case UPGRADE:
+                return builder.setUpgrade(RemoteUpgradeCommand.newBuilder()
+                        .setRequestTime(time)
+                        .setDialName("CMNET").setDialAccount("gbt").setDialPassword("32960")
+                        .setAddress("10.0.0.1").setPort(21)
+                        .setTerminalManufacturerId("IME").setHardwareVersion("H1.00").setFirmwareVersion("F2.01")
+                        .setUpgradeUrl("ftp://10.0.0.1/firmware/F2.01.bin").setUpgradeTimeLimit(30)).build();
+            case WARNING:
+                return builder.setWarning(Warning.newBuilder()
+                        .setRequestTime(time).setLevel(2).setContent("电池温度过高，请尽快停车检查")).build();
+            case CONTROL:
+                return builder.setControl(ControlCommand.newBuilder()
+                        .setRequestTime(time).setCommand(CommandType.TERMINAL_RESET)).build();
+            case CLOCK_CORRECT:
+                return builder.setClockCorrect(TerminalClockCorrect.newBuilder().setSystemTime(time)).build();
+            case EMPTY_RESPONSE:
+                return builder.setEmptyResponse(EmptyResponse.newBuilder()
+                        .setMesssageType(RequestType.HEARTBEAT.getValue())
+                        .setResult(ResponseTag.SUCCESS.getValue())).build();
+            case PROTO_RESPONSE:
+                return builder.setProtoResponse(ProtoResponse.newBuilder()
+                        .setMesssageType(RequestType.LOGIN.getValue())
+                        .setResult(ResponseTag.SUCCESS.getValue())
+                        .setLogin(LoginRequest.newBuilder()
+                                .setRecordTime(time).setLoginDaySeq(1)
+                                .setIccid("89860000000000000001")
+                                .setSystemCodeLength(4).addChargeableSubsystemCode("BAT1"))).build();
+            default:
+                throw new IllegalArgumentException(messageCase.name());
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.ime.gbt32960.benchmarks;
+
+import com.ime.gbt32960.codec.RealTimeType;
+import com.ime.gbt32960.codec.RequestType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命令标识、信息类型的查表与按 values() 线性查找的对照
+ *
+ * @author Qingxi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnumLookupBenchmark {
+
+    /**
+     * 实际报文中常见的命令标识和信息类型，控制命令位于枚举末尾
+     */
+    private final byte[] requestCodes = {0x02, 0x02, 0x07, 0x03, 0x02, (byte) 0x82, 0x01, 0x04};
+    private final byte[] blockCodes = {0x01, 0x02, 0x05, 0x06, 0x07, 0x08, 0x09};
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public int requestTypeTable() {
+        int sum = 0;
+        for (byte code : requestCodes) {
+            sum += RequestType.lookup(code).ordinal();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public int requestTypeScan() {
+        int sum = 0;
+        for (byte code : requestCodes) {
+            for (RequestType type : RequestType.values()) {
+                if (type.getValue() == code) {
+                    sum += type.ordinal();
+                    break;
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(7)
+    public int realTimeTypeTable() {
+        int sum = 0;
+        for (byte code : blockCodes) {
+            sum += RealTimeType.lookup(code).ordinal();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(7)
+    public int realTimeTypeScan() {
+        int sum = 0;
+        for (byte code : blockCodes) {
+            for (RealTimeType type : RealTimeType.values()) {
+                if (type.getValue() == code) {
+                    sum += type.ordinal();
+                    break;
+                }
+            }
+        }
+        return sum;
+    }
+
+}
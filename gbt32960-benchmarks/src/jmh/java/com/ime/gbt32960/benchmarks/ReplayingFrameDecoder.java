@@ -0,0 +1,70 @@
+package com.ime.gbt32960.benchmarks;
+
+import com.ime.gbt32960.codec.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ReplayingDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static com.ime.gbt32960.codec.FrameHeader.HEADER_LENGTH;
+import static com.ime.gbt32960.codec.GBT32960Message.START_SYMBOL;
+
+/**
+ * 改为按长度拆帧之前基于 ReplayingDecoder 的拆帧方式，仅作为 {@link DecoderBenchmark} 的对照：
+ * 半包时抛出信号、下次从头重放头部解析，每次调用都对内部缓冲区做十六进制转储。
+ * 数据单元同样交给 {@link PayloadDecoder}，两者的差别只在拆帧
+ *
+ * @author Qingxi
+ */
+public class ReplayingFrameDecoder extends ReplayingDecoder<Void> {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplayingFrameDecoder.class);
+
+    private final PayloadDecoder payloadDecoder = new PayloadDecoder(false);
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        checkpoint();
+        log.info("帧消息: {}", ByteBufUtil.hexDump(internalBuffer()));
+
+        if (in.readShort() != START_SYMBOL) {
+            in.skipBytes(actualReadableBytes());
+            ctx.close();
+            return;
+        }
+
+        int startIndex = in.readerIndex();
+        FrameHeader frameHeader = FrameHeader.builder()
+                .requestType(RequestType.valueOf(in.readByte()))
+                .responseTag(ResponseTag.valueOf(in.readByte()))
+                .vin(in.readCharSequence(17, GBT32960Message.ASCII_CHARSET).toString())
+                .encryptionType(EncryptionType.valueOf(in.readByte()))
+                .payloadLength(in.readUnsignedShort())
+                .build();
+
+        int payloadLength = frameHeader.getPayloadLength();
+        FrameHeader.CheckCodeProcessor processor = new FrameHeader.CheckCodeProcessor();
+        in.forEachByte(startIndex, HEADER_LENGTH + payloadLength, processor);
+        byte checkCodeInMsg = in.getByte(in.readerIndex() + payloadLength);
+        if (processor.getCheckCode() != checkCodeInMsg) {
+            in.skipBytes(payloadLength + 1);
+            return;
+        }
+
+        ByteBuf payload = in.readRetainedSlice(payloadLength);
+        try {
+            out.add(GBT32960Message.builder()
+                    .header(frameHeader)
+                    .payload(payloadDecoder.decode(payload, frameHeader))
+                    .build());
+        } finally {
+            payload.release();
+        }
+        in.skipBytes(1);
+    }
+
+}
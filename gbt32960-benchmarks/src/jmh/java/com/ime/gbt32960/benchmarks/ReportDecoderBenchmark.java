@@ -0,0 +1,56 @@
+package com.ime.gbt32960.benchmarks;
+
+import com.ime.gbt32960.codec.ReportDecoder;
+import com.ime.gbt32960.codec.ReportView;
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实时信息数据单元的解析：完整解析为 protobuf（单体展开或只保存原始值），
+ * 以及只读取少数字段的 {@link ReportView}
+ *
+ * @author Qingxi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportDecoderBenchmark {
+
+    @Param({"96", "192"})
+    public int cells;
+
+    private ByteBuf payload;
+
+    private final ReportView view = new ReportView();
+
+    @Setup
+    public void setup() {
+        payload = new SyntheticFrames(32960).realTimePayload(SyntheticFrames.BASE_TIME, cells, cells / 3);
+    }
+
+    @Benchmark
+    public Object decodeFully() {
+        return ReportDecoder.decodeFully(payload.duplicate(), false).build();
+    }
+
+    @Benchmark
+    public Object decodeFullyPacked() {
+        return ReportDecoder.decodeFully(payload.duplicate(), true).build();
+    }
+
+    @Benchmark
+    public void view(Blackhole blackhole) {
+        view.wrap(payload);
+        blackhole.consume(view.getRecordTime());
+        blackhole.consume(view.getSpeed());
+        blackhole.consume(view.getMaxVoltage());
+        blackhole.consume(view.getMinVoltage());
+    }
+
+}
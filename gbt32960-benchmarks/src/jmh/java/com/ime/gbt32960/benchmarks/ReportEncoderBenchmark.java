@@ -0,0 +1,53 @@
+package com.ime.gbt32960.benchmarks;
+
+import com.ime.gbt32960.codec.ReportDecoder;
+import com.ime.gbt32960.codec.UplinkEncoder;
+import com.ime.iov.gbt32960.RealTimeReport;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上行实时信息帧的编码，报文由合成数据单元解析得到，单体展开或只保存原始值
+ *
+ * @author Qingxi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportEncoderBenchmark {
+
+    @Param({"96", "192"})
+    public int cells;
+
+    @Param({"false", "true"})
+    public boolean packedCells;
+
+    private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+
+    private final String vin = SyntheticFrames.vin(1);
+
+    private RealTimeReport report;
+
+    @Setup
+    public void setup() {
+        ByteBuf payload = new SyntheticFrames(32960).realTimePayload(SyntheticFrames.BASE_TIME, cells, cells / 3);
+        report = ReportDecoder.decodeFully(payload, packedCells).build();
+        payload.release();
+    }
+
+    @Benchmark
+    public int encode() {
+        ByteBuf frame = UplinkEncoder.report(alloc, vin, report);
+        int length = frame.readableBytes();
+        frame.release();
+        return length;
+    }
+
+}
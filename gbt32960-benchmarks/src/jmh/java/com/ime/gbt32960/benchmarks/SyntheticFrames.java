@@ -0,0 +1,217 @@
+package com.ime.gbt32960.benchmarks;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RealTimeType;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.ResponseTag;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static com.ime.gbt32960.codec.GBT32960Message.ASCII_CHARSET;
+
+/**
+ * 基准测试用的合成报文。
+ * <p>
+ * 实时信息包含整车、驱动电机、位置、极值、报警、单体电压和探针温度，数值在合理范围内随机游走；
+ * 固定种子，同样的参数每次生成相同的字节。
+ *
+ * @author Qingxi
+ */
+public class SyntheticFrames {
+
+    /**
+     * 2019-01-01 08:00:00 +08:00
+     */
+    public static final long BASE_TIME = 1546300800L;
+
+    private final Random random;
+
+    public SyntheticFrames(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static String vin(int index) {
+        return String.format("LSYN%013d", index);
+    }
+
+    /**
+     * 实时信息数据单元
+     * @param time 数据采集时间，epoch 秒
+     * @param cells 单体电池数，每个子系统最多 200 个
+     * @param probes 探针数
+     * @return 数据单元
+     */
+    public ByteBuf realTimePayload(long time, int cells, int probes) {
+        ByteBuf out = Unpooled.buffer(64 + cells * 2 + probes);
+        GBT32960Message.writeTime(out, time);
+
+        out.writeByte(RealTimeType.VEHICLE.getValue());
+        out.writeByte(1).writeByte(3).writeByte(1);
+        out.writeShort(between(0, 1200));
+        out.writeInt(between(10_000, 2_000_000));
+        out.writeShort(between(3200, 4000));
+        out.writeShort(10_000 + between(-500, 2000));
+        out.writeByte(between(20, 100));
+        out.writeByte(1).writeByte(0x0E);
+        out.writeShort(between(2000, 9000));
+        out.writeByte(between(0, 100)).writeByte(0);
+
+        out.writeByte(RealTimeType.MOTOR.getValue());
+        out.writeByte(2);
+        for (int i = 1; i <= 2; i++) {
+            out.writeByte(i).writeByte(1).writeByte(between(60, 110));
+            out.writeShort(20_000 + between(0, 8000));
+            out.writeShort(20_000 + between(-500, 1500));
+            out.writeByte(between(60, 120));
+            out.writeShort(between(3200, 4000));
+            out.writeShort(10_000 + between(-500, 2000));
+        }
+
+        out.writeByte(RealTimeType.LOCATION.getValue());
+        out.writeByte(0).writeInt(between(116_000_000, 117_000_000)).writeInt(between(39_500_000, 40_500_000));
+
+        int subsystems = (cells + 199) / 200;
+        int[] voltages = new int[cells];
+        int voltage = between(3700, 4000);
+        for (int i = 0; i < cells; i++) {
+            voltage = Math.max(3000, Math.min(4250, voltage + between(-8, 8)));
+            voltages[i] = voltage;
+        }
+        int[] temperatures = new int[probes];
+        int temperature = between(20, 35);
+        for (int i = 0; i < probes; i++) {
+            temperature = Math.max(-20, Math.min(55, temperature + between(-1, 1)));
+            temperatures[i] = temperature;
+        }
+        int maxCell = 0, minCell = 0, maxProbe = 0, minProbe = 0;
+        for (int i = 1; i < cells; i++) {
+            maxCell = voltages[i] > voltages[maxCell] ? i : maxCell;
+            minCell = voltages[i] < voltages[minCell] ? i : minCell;
+        }
+        for (int i = 1; i < probes; i++) {
+            maxProbe = temperatures[i] > temperatures[maxProbe] ? i : maxProbe;
+            minProbe = temperatures[i] < temperatures[minProbe] ? i : minProbe;
+        }
+
+        out.writeByte(RealTimeType.EXTREMUM.getValue());
+        out.writeByte(maxCell / 200 + 1).writeByte(maxCell % 200 + 1).writeShort(voltages[maxCell]);
+        out.writeByte(minCell / 200 + 1).writeByte(minCell % 200 + 1).writeShort(voltages[minCell]);
+        out.writeByte(1).writeByte(maxProbe + 1).writeByte(temperatures[maxProbe] + 40);
+        out.writeByte(1).writeByte(minProbe + 1).writeByte(temperatures[minProbe] + 40);
+
+        out.writeByte(RealTimeType.ALARM.getValue());
+        boolean alarm = random.nextInt(100) == 0;
+        out.writeByte(alarm ? between(1, 3) : 0).writeInt(alarm ? 1 << between(0, 18) : 0);
+        out.writeByte(0).writeByte(0).writeByte(0).writeByte(0);
+
+        out.writeByte(RealTimeType.BATTERY_VOLTAGE.getValue());
+        out.writeByte(subsystems);
+        for (int s = 0; s < subsystems; s++) {
+            int first = s * 200;
+            int count = Math.min(200, cells - first);
+            out.writeByte(s + 1).writeShort(between(3200, 4000)).writeShort(10_000 + between(-500, 2000));
+            out.writeShort(cells).writeShort(first + 1).writeByte(count);
+            for (int i = first; i < first + count; i++) {
+                out.writeShort(voltages[i]);
+            }
+        }
+
+        out.writeByte(RealTimeType.BATTERY_TEMPERATURE.getValue());
+        out.writeByte(1).writeByte(1).writeShort(probes);
+        for (int t : temperatures) {
+            out.writeByte(t + 40);
+        }
+        return out;
+    }
+
+    /**
+     * 完整帧
+     * @return 帧字节
+     */
+    public static byte[] frame(String vin, RequestType type, ResponseTag tag, Consumer<ByteBuf> payloadEncoder) {
+        ByteBuf out = Unpooled.buffer();
+        GBT32960Message.encodeMessage(out, vin, type, tag, payloadEncoder);
+        return ByteBufUtil.getBytes(out);
+    }
+
+    public byte[] realTimeFrame(String vin, long time, int cells, int probes) {
+        ByteBuf payload = realTimePayload(time, cells, probes);
+        return frame(vin, RequestType.REAL_TIME, ResponseTag.COMMAND, out -> out.writeBytes(payload));
+    }
+
+    public static byte[] loginFrame(String vin, long time, int seq) {
+        return frame(vin, RequestType.LOGIN, ResponseTag.COMMAND, out -> {
+            GBT32960Message.writeTime(out, time);
+            out.writeShort(seq);
+            out.writeBytes("89860000000000000001".getBytes(ASCII_CHARSET));
+            out.writeByte(1).writeByte(4).writeBytes("BAT1".getBytes(ASCII_CHARSET));
+        });
+    }
+
+    public static byte[] heartbeatFrame(String vin) {
+        return frame(vin, RequestType.HEARTBEAT, ResponseTag.COMMAND, out -> { });
+    }
+
+    /**
+     * 多辆车交替上报的帧，每 10 帧夹一个心跳
+     * @param frames 帧数
+     * @param vehicles 车辆数
+     * @param cells 单体电池数
+     * @param probes 探针数
+     * @return 按顺序的各帧字节
+     */
+    public List<byte[]> frames(int frames, int vehicles, int cells, int probes) {
+        List<byte[]> list = new ArrayList<>(frames);
+        for (int i = 0; i < frames; i++) {
+            String vin = vin(i % vehicles);
+            if (i % 10 == 9) {
+                list.add(heartbeatFrame(vin));
+            } else {
+                list.add(realTimeFrame(vin, BASE_TIME + i / vehicles * 10, cells, probes));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 把各帧首尾相连成一个字节流
+     * @param frames 各帧字节
+     * @return 字节流
+     */
+    public static byte[] concat(List<byte[]> frames) {
+        ByteBuf out = Unpooled.buffer();
+        frames.forEach(out::writeBytes);
+        return ByteBufUtil.getBytes(out);
+    }
+
+    /**
+     * 按随机长度切分字节流，模拟 TCP 分段，帧头和数据单元都可能被切开
+     * @param stream 字节流
+     * @param minChunk 最小分段
+     * @param maxChunk 最大分段
+     * @return 分段
+     */
+    public List<byte[]> fragment(byte[] stream, int minChunk, int maxChunk) {
+        List<byte[]> chunks = new ArrayList<>();
+        int offset = 0;
+        while (offset < stream.length) {
+            int length = Math.min(stream.length - offset, between(minChunk, maxChunk));
+            byte[] chunk = new byte[length];
+            System.arraycopy(stream, offset, chunk, 0, length);
+            chunks.add(chunk);
+            offset += length;
+        }
+        return chunks;
+    }
+
+    private int between(int min, int max) {
+        return min + random.nextInt(max - min + 1);
+    }
+
+}
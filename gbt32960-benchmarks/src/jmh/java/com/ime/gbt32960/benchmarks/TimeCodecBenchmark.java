@@ -0,0 +1,83 @@
+package com.ime.gbt32960.benchmarks;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static com.ime.gbt32960.codec.GBT32960Message.ZONE_UTC8;
+
+/**
+ * 报文时间的读写：同一天内（命中日期缓存）与跨天交替，以及经由 ZonedDateTime 的对照
+ *
+ * @author Qingxi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeCodecBenchmark {
+
+    /**
+     * sameDay：相邻两次时间在同一天；alternateDay：每次在两天之间切换
+     */
+    @Param({"sameDay", "alternateDay"})
+    public String pattern;
+
+    private ByteBuf[] encoded;
+    private long[] times;
+    private ByteBuf out;
+    private int next;
+
+    @Setup
+    public void setup() {
+        long step = "sameDay".equals(pattern) ? 10 : 86400 + 10;
+        times = new long[]{SyntheticFrames.BASE_TIME + 3600, SyntheticFrames.BASE_TIME + 3600 + step};
+        encoded = new ByteBuf[times.length];
+        for (int i = 0; i < times.length; i++) {
+            encoded[i] = Unpooled.buffer(GBT32960Message.TIME_LENGTH);
+            GBT32960Message.writeTime(encoded[i], times[i]);
+        }
+        out = Unpooled.buffer(GBT32960Message.TIME_LENGTH);
+    }
+
+    private int nextIndex() {
+        next ^= 1;
+        return next;
+    }
+
+    @Benchmark
+    public long readTime() {
+        return GBT32960Message.getTime(encoded[nextIndex()], 0);
+    }
+
+    @Benchmark
+    public ByteBuf writeTime() {
+        out.clear();
+        GBT32960Message.writeTime(out, times[nextIndex()]);
+        return out;
+    }
+
+    @Benchmark
+    public long readTimeZoned() {
+        ByteBuf in = encoded[nextIndex()];
+        return ZonedDateTime.of(in.getByte(0) + 2000, in.getByte(1), in.getByte(2),
+                in.getByte(3), in.getByte(4), in.getByte(5), 0, ZONE_UTC8).toEpochSecond();
+    }
+
+    @Benchmark
+    public ByteBuf writeTimeZoned() {
+        ZonedDateTime time = ZonedDateTime.ofInstant(Instant.ofEpochSecond(times[nextIndex()]), ZONE_UTC8);
+        out.clear();
+        out.writeByte(time.getYear() - 2000).writeByte(time.getMonthValue()).writeByte(time.getDayOfMonth())
+                .writeByte(time.getHour()).writeByte(time.getMinute()).writeByte(time.getSecond());
+        return out;
+    }
+
+}
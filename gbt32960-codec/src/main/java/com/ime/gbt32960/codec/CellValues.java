@@ -0,0 +1,121 @@
+package com.ime.gbt32960.codec;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.netty.buffer.ByteBuf;
+
+import java.util.Arrays;
+
+/**
+ * 单体电池电压、探针温度的原始值与基本类型数组之间的转换。
+ * <p>
+ * 电压原始值每个单体 2 字节无符号大端（单位 mV），温度原始值每个探针 1 字节无符号（偏移量 40），
+ * 与报文中的编码一致，可以直接从数据单元中整段拷贝，避免逐个装箱。
+ *
+ * @author Qingxi
+ */
+public final class CellValues {
+
+    public static final int VOLTAGE_BYTES = 2;
+    public static final int TEMPERATURE_OFFSET = 40;
+
+    private CellValues() {
+    }
+
+    /**
+     * 读取 count 个单体电压的原始值
+     * @param in ByteBuf
+     * @param count 单体个数
+     * @return 原始值
+     */
+    public static ByteString readRawVoltages(ByteBuf in, int count) {
+        return readRaw(in, count * VOLTAGE_BYTES);
+    }
+
+    /**
+     * 读取 count 个探针温度的原始值
+     * @param in ByteBuf
+     * @param count 探针个数
+     * @return 原始值
+     */
+    public static ByteString readRawTemperatures(ByteBuf in, int count) {
+        return readRaw(in, count);
+    }
+
+    private static ByteString readRaw(ByteBuf in, int length) {
+        byte[] raw = new byte[length];
+        in.readBytes(raw);
+        // raw 不会再被修改，直接包装以省去 ByteString 的再次拷贝
+        return UnsafeByteOperations.unsafeWrap(raw);
+    }
+
+    /**
+     * 从 index 开始读取 count 个单体电压（V）到 dst
+     * @param in ByteBuf
+     * @param index 开始位置
+     * @param count 单体个数
+     * @param dst 目标数组，长度不小于 count
+     */
+    public static void getVoltages(ByteBuf in, int index, int count, float[] dst) {
+        for (int i = 0; i < count; i++) {
+            dst[i] = in.getUnsignedShort(index + i * VOLTAGE_BYTES) / 1000.0f;
+        }
+    }
+
+    /**
+     * 从 index 开始读取 count 个探针温度（℃）到 dst
+     * @param in ByteBuf
+     * @param index 开始位置
+     * @param count 探针个数
+     * @param dst 目标数组，长度不小于 count
+     */
+    public static void getTemperatures(ByteBuf in, int index, int count, short[] dst) {
+        for (int i = 0; i < count; i++) {
+            dst[i] = (short) (in.getUnsignedByte(index + i) - TEMPERATURE_OFFSET);
+        }
+    }
+
+    /**
+     * 把电压原始值展开到 dst
+     * @param raw battery_voltage_raw
+     * @param dst 目标数组，长度不小于单体个数
+     * @return 单体个数
+     */
+    public static int voltages(ByteString raw, float[] dst) {
+        int count = raw.size() / VOLTAGE_BYTES;
+        for (int i = 0; i < count; i++) {
+            int value = (raw.byteAt(i * VOLTAGE_BYTES) & 0xFF) << 8 | raw.byteAt(i * VOLTAGE_BYTES + 1) & 0xFF;
+            dst[i] = value / 1000.0f;
+        }
+        return count;
+    }
+
+    /**
+     * 把温度原始值展开到 dst
+     * @param raw probe_temperature_raw
+     * @param dst 目标数组，长度不小于探针个数
+     * @return 探针个数
+     */
+    public static int temperatures(ByteString raw, short[] dst) {
+        int count = raw.size();
+        for (int i = 0; i < count; i++) {
+            dst[i] = (short) ((raw.byteAt(i) & 0xFF) - TEMPERATURE_OFFSET);
+        }
+        return count;
+    }
+
+    /**
+     * 按需扩容可复用的数组
+     * @param array 当前数组
+     * @param length 需要的长度
+     * @return 长度足够的数组
+     */
+    public static float[] ensureCapacity(float[] array, int length) {
+        return array.length >= length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));
+    }
+
+    public static short[] ensureCapacity(short[] array, int length) {
+        return array.length >= length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.ime.gbt32960.codec;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * BCC 校验码：头部与数据单元逐字节异或。
+ * <p>
+ * 异或满足交换律，按 8 字节一组读取 long 累加异或，最后把 8 个字节折叠成 1 个，
+ * 与逐字节异或的结果相同，与字节序无关；不足 8 字节的尾部逐字节处理。
+ * 单段的 ByteBuf（堆内或直接内存）通过 nioBuffer 读取，ByteBuffer.getLong 由 JIT 内联为一次非对齐读，
+ * 避免 ByteBuf 每次访问的可访问性和边界检查；复合缓冲区退回 getLongLE。
+ *
+ * @author Qingxi
+ */
+public final class CheckCodes {
+
+    private CheckCodes() {
+    }
+
+    /**
+     * 计算校验码
+     * @param in ByteBuf
+     * @param index 开始位置
+     * @param length 长度
+     * @return 校验码，length 为 0 时返回 0
+     */
+    public static byte checkCode(ByteBuf in, int index, int length) {
+        if (in.nioBufferCount() == 1) {
+            return checkCode(in.nioBuffer(index, length).order(ByteOrder.LITTLE_ENDIAN));
+        }
+        int end = index + length;
+        int i = index;
+        long acc = 0;
+        for (; i <= end - Long.BYTES; i += Long.BYTES) {
+            acc ^= in.getLongLE(i);
+        }
+        byte code = fold(acc);
+        for (; i < end; i++) {
+            code ^= in.getByte(i);
+        }
+        return code;
+    }
+
+    /**
+     * 计算 buffer 中 position 到 limit 之间的校验码，不改变 position
+     * @param buffer ByteBuffer，任意字节序，小端序在 x86 上不需要字节反转
+     * @return 校验码
+     */
+    public static byte checkCode(ByteBuffer buffer) {
+        int end = buffer.limit();
+        int i = buffer.position();
+        long acc = 0;
+        for (; i <= end - Long.BYTES; i += Long.BYTES) {
+            acc ^= buffer.getLong(i);
+        }
+        byte code = fold(acc);
+        for (; i < end; i++) {
+            code ^= buffer.get(i);
+        }
+        return code;
+    }
+
+    private static byte fold(long acc) {
+        acc ^= acc >>> 32;
+        acc ^= acc >>> 16;
+        acc ^= acc >>> 8;
+        return (byte) acc;
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.ime.gbt32960.codec;
+
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据单元解析线程。
+ * <p>
+ * 由若干条单线程的车道组成，同一 VIN 总是落在同一车道上，因此同一辆车的帧按到达顺序解析。
+ * 车道积压超过高水位时暂停提交方连接的 autoRead，降到低水位后恢复，以此限制积压而不丢帧。
+ * <p>
+ * 补发信息走另一组低优先级车道，终端集中补发时不占用实时信息的解析线程。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class DecodeExecutor implements Closeable {
+
+    private final Lane[] lanes;
+    private final Lane[] reissueLanes;
+    private final int highWaterMark;
+    private final int lowWaterMark;
+
+    public DecodeExecutor(int threads, int highWaterMark, int lowWaterMark) {
+        this(threads, 1, highWaterMark, lowWaterMark);
+    }
+
+    /**
+     * @param threads 车道数
+     * @param reissueThreads 补发信息的车道数
+     * @param highWaterMark 单条车道积压达到此值时暂停读取
+     * @param lowWaterMark 单条车道积压降到此值时恢复读取
+     */
+    public DecodeExecutor(int threads, int reissueThreads, int highWaterMark, int lowWaterMark) {
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = lowWaterMark;
+        this.lanes = newLanes(threads, new DefaultThreadFactory("gbt32960-decode", true));
+        this.reissueLanes = newLanes(reissueThreads,
+                new DefaultThreadFactory("gbt32960-decode-reissue", true, Thread.MIN_PRIORITY));
+    }
+
+    private Lane[] newLanes(int count, DefaultThreadFactory threadFactory) {
+        Lane[] result = new Lane[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new Lane(threadFactory);
+        }
+        return result;
+    }
+
+    /**
+     * 在 VIN 对应的车道上执行任务，积压过高时暂停 channel 的读取
+     * @param vin VIN
+     * @param channel 提交任务的连接
+     * @param task 任务
+     */
+    public void execute(String vin, Channel channel, Runnable task) {
+        execute(lanes, vin, channel, task);
+    }
+
+    /**
+     * 在 VIN 对应的补发车道上执行任务
+     * @param vin VIN
+     * @param channel 提交任务的连接
+     * @param task 任务
+     */
+    public void executeReissue(String vin, Channel channel, Runnable task) {
+        execute(reissueLanes, vin, channel, task);
+    }
+
+    private void execute(Lane[] group, String vin, Channel channel, Runnable task) {
+        Lane lane = group[(vin.hashCode() & Integer.MAX_VALUE) % group.length];
+        lane.executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                lane.resumeIfDrained();
+            }
+        });
+        if (lane.executor.getQueue().size() >= highWaterMark && channel.config().isAutoRead()) {
+            // 先登记再暂停：车道线程此后的 afterTask 一定能看到这个连接
+            lane.paused.add(channel);
+            channel.config().setAutoRead(false);
+            log.debug("解析队列积压，暂停读取 {}", channel.remoteAddress());
+            // 登记之前车道可能已经降到低水位并执行完最后一个任务，不会再有 afterTask 来恢复
+            lane.resumeIfDrained();
+        }
+    }
+
+    /**
+     * @return 所有车道的积压任务数
+     */
+    public int queueSize() {
+        int size = 0;
+        for (Lane lane : lanes) {
+            size += lane.executor.getQueue().size();
+        }
+        for (Lane lane : reissueLanes) {
+            size += lane.executor.getQueue().size();
+        }
+        return size;
+    }
+
+    @Override
+    public void close() {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+        for (Lane lane : reissueLanes) {
+            lane.executor.shutdown();
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        for (Lane lane : reissueLanes) {
+            try {
+                lane.executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private final class Lane {
+        private final ThreadPoolExecutor executor;
+        private final ConcurrentLinkedQueue<Channel> paused = new ConcurrentLinkedQueue<>();
+
+        private Lane(DefaultThreadFactory threadFactory) {
+            // 队列本身不设上限，积压由高低水位暂停/恢复读取来约束，避免拒绝任务导致丢帧或乱序
+            this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory);
+        }
+
+        private void resumeIfDrained() {
+            if (!paused.isEmpty() && executor.getQueue().size() <= lowWaterMark) {
+                Channel channel;
+                while ((channel = paused.poll()) != null) {
+                    channel.config().setAutoRead(true);
+                }
+            }
+        }
+    }
+
+}
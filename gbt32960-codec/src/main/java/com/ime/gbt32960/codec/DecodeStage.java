@@ -0,0 +1,79 @@
+package com.ime.gbt32960.codec;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+/**
+ * 把 {@link GBT32960Decoder} 交出的 {@link RawFrame} 放到 {@link DecodeExecutor} 上解析，
+ * 解析结果再回到连接的 EventLoop 上继续向后传递，I/O 线程只负责拆帧和校验。
+ * <p>
+ * 有帧正在解析时，其后的其他消息也经同一车道排队，保证同一连接上的消息顺序不变。
+ * 补发信息在低优先级车道上解析，不参与排序，也不会让其后的实时信息等待。
+ * 每个连接一个实例。
+ *
+ * @author Qingxi
+ */
+public class DecodeStage extends ChannelInboundHandlerAdapter {
+
+    private final DecodeExecutor executor;
+    private final PayloadDecoder payloadDecoder;
+
+    /**
+     * 已交给解析线程、尚未回到 EventLoop 的消息数，只在 EventLoop 上读写
+     */
+    private int inFlight;
+
+    public DecodeStage(DecodeExecutor executor, PayloadDecoder payloadDecoder) {
+        this.executor = executor;
+        this.payloadDecoder = payloadDecoder;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof RawFrame && ((RawFrame) msg).getHeader().getRequestType() == RequestType.REISSUE) {
+            RawFrame frame = (RawFrame) msg;
+            executor.executeReissue(frame.getHeader().getVin(), ctx.channel(), () -> decode(ctx, frame, false));
+        } else if (msg instanceof RawFrame) {
+            RawFrame frame = (RawFrame) msg;
+            inFlight++;
+            executor.execute(frame.getHeader().getVin(), ctx.channel(), () -> decode(ctx, frame, true));
+        } else if (inFlight > 0 && msg instanceof GBT32960Message) {
+            inFlight++;
+            executor.execute(((GBT32960Message) msg).getHeader().getVin(), ctx.channel(),
+                    () -> ctx.executor().execute(() -> complete(ctx, msg, null, true)));
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    private void decode(ChannelHandlerContext ctx, RawFrame frame, boolean ordered) {
+        Object message = null;
+        Throwable cause = null;
+        try {
+            Object payload = payloadDecoder.decode(frame.content(), frame.getHeader());
+            message = GBT32960Message.builder()
+                    .header(frame.getHeader())
+                    .payload(payload)
+                    .build();
+        } catch (Throwable e) {
+            cause = e;
+        } finally {
+            frame.release();
+        }
+        Object decoded = message;
+        Throwable error = cause;
+        ctx.executor().execute(() -> complete(ctx, decoded, error, ordered));
+    }
+
+    private void complete(ChannelHandlerContext ctx, Object message, Throwable cause, boolean ordered) {
+        if (ordered) {
+            inFlight--;
+        }
+        if (cause != null) {
+            ctx.fireExceptionCaught(cause);
+        } else {
+            ctx.fireChannelRead(message);
+        }
+    }
+
+}
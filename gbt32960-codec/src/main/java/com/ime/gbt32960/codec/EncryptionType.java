@@ -26,13 +26,29 @@ public enum EncryptionType {
 
     private final byte value;
 
-    public static EncryptionType valueOf(byte type) {
+    private static final EncryptionType[] TABLE = new EncryptionType[256];
+
+    static {
         for (EncryptionType t : values()) {
-            if (t.value == type) {
-                return t;
-            }
+            TABLE[t.value & 0xFF] = t;
+        }
+    }
+
+    /**
+     * 查表取得编码对应的类型
+     * @param type 编码
+     * @return 类型，未知编码返回 null
+     */
+    public static EncryptionType lookup(byte type) {
+        return TABLE[type & 0xFF];
+    }
+
+    public static EncryptionType valueOf(byte type) {
+        EncryptionType t = TABLE[type & 0xFF];
+        if (t == null) {
+            throw new IllegalArgumentException("Unknown message type : " + type);
         }
-        throw new IllegalArgumentException("Unknown message type : " + type);
+        return t;
     }
 
 }
@@ -0,0 +1,38 @@
+package com.ime.gbt32960.codec;
+
+/**
+ * 帧准入检查，由 {@link GBT32960Decoder} 在 I/O 线程上、校验通过之后且解析数据单元之前调用；
+ * 被拒绝的帧不写帧日志、不转发、也不解析。
+ *
+ * @author Qingxi
+ */
+public interface FrameAdmission {
+
+    FrameAdmission DISABLED = header -> Decision.ACCEPT;
+
+    static FrameAdmission disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @param header 已解析的头部
+     * @return 处理方式
+     */
+    Decision admit(FrameHeader header);
+
+    enum Decision {
+
+        ACCEPT,
+
+        /**
+         * 丢弃这一帧
+         */
+        DROP,
+
+        /**
+         * 帧留在累积缓冲区中暂不解码，实现负责暂停读取并在恢复后重新触发解码
+         */
+        DEFER
+    }
+
+}
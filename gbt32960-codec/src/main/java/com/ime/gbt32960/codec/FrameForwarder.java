@@ -0,0 +1,29 @@
+package com.ime.gbt32960.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 校验通过的原始帧的转发出口，由 {@link GBT32960Decoder} 在 I/O 线程上调用，
+ * 调用时帧仍在解码器的累积缓冲区中，实现需要保留时自行 retainedSlice，不能修改读写位置
+ *
+ * @author Qingxi
+ */
+public interface FrameForwarder {
+
+    FrameForwarder DISABLED = (header, frame, frameIndex, length) -> {
+    };
+
+    static FrameForwarder disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * 转发一帧
+     * @param header 已解析的头部
+     * @param frame 帧所在的 ByteBuf
+     * @param frameIndex 帧开始位置（起始符）
+     * @param length 帧长度（含校验位）
+     */
+    void forward(FrameHeader header, ByteBuf frame, int frameIndex, int length);
+
+}
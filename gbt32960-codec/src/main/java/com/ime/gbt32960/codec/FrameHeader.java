@@ -21,6 +21,9 @@ public class FrameHeader {
     private EncryptionType encryptionType;
     private int payloadLength;
 
+    /**
+     * 逐字节计算校验码，解码和编码已改用 {@link CheckCodes}
+     */
     public static final class CheckCodeProcessor implements ByteProcessor {
 
         @Getter
@@ -1,262 +1,246 @@
 package com.ime.gbt32960.codec;
 
-import com.ime.iov.gbt32960.*;
+import com.ime.gbt32960.codec.capture.CaptureFormat;
+import com.ime.gbt32960.codec.capture.FrameCapture;
+import com.ime.gbt32960.codec.crypto.PayloadCipher;
+import com.ime.gbt32960.codec.journal.FrameJournal;
+import com.ime.gbt32960.codec.metrics.GatewayMetrics;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ReplayingDecoder;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import lombok.extern.slf4j.Slf4j;
 
-import java.time.Instant;
-import java.time.ZonedDateTime;
 import java.util.List;
 
 import static com.ime.gbt32960.codec.FrameHeader.HEADER_LENGTH;
 import static com.ime.gbt32960.codec.GBT32960Message.*;
 
 /**
+ * 按长度拆帧的解码器：先窥视起始符和头部中的数据单元长度，收齐整帧后再解析，
+ * 不会像 ReplayingDecoder 那样在半包时反复重放头部解析；
+ * 起始符错误或校验失败时跳到下一个 0x2323 重新同步，而不是关闭连接。
+ *
  * @author Qingxi
  */
 
 @Slf4j
-public class GBT32960Decoder extends ReplayingDecoder<Void> {
+public class GBT32960Decoder extends ByteToMessageDecoder {
+
+    /**
+     * 数据单元长度字段相对于起始符的偏移
+     */
+    private static final int PAYLOAD_LENGTH_OFFSET = START_SYMBOL_LENGTH + HEADER_LENGTH - 2;
+
+    /**
+     * 起始符 + 头部 + 校验位，即一帧的最小长度
+     */
+    private static final int MIN_FRAME_LENGTH = START_SYMBOL_LENGTH + HEADER_LENGTH + 1;
+
+    private static final byte START_BYTE = (byte) (START_SYMBOL >> 8);
+
+    private final PayloadDecoder payloadDecoder;
+
+    /**
+     * 为 true 时实时/补发信息不在 I/O 线程上解析，而是以 {@link RawFrame} 交给后面的 {@link DecodeStage}
+     */
+    private final boolean staged;
+
+    private final FrameCapture capture;
+
+    private final FrameJournal journal;
+
+    private final GatewayMetrics metrics;
+
+    private final FrameForwarder forwarder;
+
+    private final FrameAdmission admission;
 
     public GBT32960Decoder() {
-        super();
+        this(false);
+    }
+
+    public GBT32960Decoder(boolean packedCells) {
+        this(packedCells, FrameCapture.disabled());
+    }
+
+    public GBT32960Decoder(boolean packedCells, FrameCapture capture) {
+        this(new PayloadDecoder(packedCells), false, capture);
+    }
+
+    public GBT32960Decoder(PayloadDecoder payloadDecoder, boolean staged, FrameCapture capture) {
+        this(payloadDecoder, staged, capture, FrameJournal.disabled());
     }
 
-    private FrameHeader frameHeader;
+    public GBT32960Decoder(PayloadDecoder payloadDecoder, boolean staged, FrameCapture capture, FrameJournal journal) {
+        this(payloadDecoder, staged, capture, journal, GatewayMetrics.disabled());
+    }
+
+    public GBT32960Decoder(PayloadDecoder payloadDecoder, boolean staged, FrameCapture capture, FrameJournal journal,
+                           GatewayMetrics metrics) {
+        this(payloadDecoder, staged, capture, journal, metrics, FrameForwarder.disabled());
+    }
+
+    public GBT32960Decoder(PayloadDecoder payloadDecoder, boolean staged, FrameCapture capture, FrameJournal journal,
+                           GatewayMetrics metrics, FrameForwarder forwarder) {
+        this(payloadDecoder, staged, capture, journal, metrics, forwarder, FrameAdmission.disabled());
+    }
+
+    public GBT32960Decoder(PayloadDecoder payloadDecoder, boolean staged, FrameCapture capture, FrameJournal journal,
+                           GatewayMetrics metrics, FrameForwarder forwarder, FrameAdmission admission) {
+        super();
+        this.payloadDecoder = payloadDecoder;
+        this.staged = staged;
+        this.capture = capture;
+        this.journal = journal;
+        this.metrics = metrics;
+        this.forwarder = forwarder;
+        this.admission = admission;
+    }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        log.debug("gbt32960 inbound");
-        checkpoint();
-        log.info("帧消息: {}", ByteBufUtil.hexDump(internalBuffer()));
-
-        if (in.readShort() != START_SYMBOL) {
-            in.skipBytes(actualReadableBytes());
-            ctx.close();
+        if (in.readableBytes() < START_SYMBOL_LENGTH) {
             return;
         }
 
         int startIndex = in.readerIndex();
-        frameHeader = decodeFrameHeader(in);
+        if (in.getShort(startIndex) != START_SYMBOL) {
+            resync(in, startIndex + 1);
+            return;
+        }
+        if (in.readableBytes() < MIN_FRAME_LENGTH) {
+            return;
+        }
+        int headerIndex = startIndex + START_SYMBOL_LENGTH;
+        if (!isValidHeader(in, headerIndex)) {
+            // 起始符是误判（例如错位的 0x23），不等待按错误长度收包
+            resync(in, startIndex + 1);
+            return;
+        }
 
-        int payloadLength = frameHeader.getPayloadLength();
-        byte checkCode = checkCode(in, startIndex, HEADER_LENGTH + payloadLength);
-        byte checkCodeInMsg = in.getByte(in.readerIndex() + payloadLength);
+        int payloadLength = in.getUnsignedShort(startIndex + PAYLOAD_LENGTH_OFFSET);
+        int frameLength = MIN_FRAME_LENGTH + payloadLength;
+        if (in.readableBytes() < frameLength) {
+            return;
+        }
 
+        byte checkCode = CheckCodes.checkCode(in, headerIndex, HEADER_LENGTH + payloadLength);
+        byte checkCodeInMsg = in.getByte(startIndex + frameLength - 1);
         if (checkCode != checkCodeInMsg) {
-            in.skipBytes(payloadLength + 1);
             log.info("消息校验位验证失败: {} vs {}", String.format("%02X", checkCode),
                     String.format("%02X", checkCodeInMsg));
+            metrics.checksumFailure();
+            skipCorruptFrame(in, startIndex, frameLength);
             return;
         }
 
-        Object payload = decodePayload(in, frameHeader);
+        if (log.isDebugEnabled()) {
+            log.debug("帧消息: {}", ByteBufUtil.hexDump(in, startIndex, frameLength));
+        }
+        FrameHeader frameHeader = decodeFrameHeader(in.slice(headerIndex, HEADER_LENGTH));
+        FrameAdmission.Decision decision = admission.admit(frameHeader);
+        if (decision == FrameAdmission.Decision.DEFER) {
+            // 读位置不动，ByteToMessageDecoder 见输入未消耗即停止本轮解码
+            return;
+        }
+        in.readerIndex(startIndex + frameLength);
+        if (decision == FrameAdmission.Decision.DROP) {
+            return;
+        }
+        journal.append(in, startIndex, frameLength);
+        metrics.frameIn(frameHeader.getRequestType(), frameHeader.getVin(), frameLength);
+        capture.capture(frameHeader.getVin(), in, startIndex, frameLength, CaptureFormat.INBOUND);
+        forwarder.forward(frameHeader, in, startIndex, frameLength);
+        // 下行帧按终端最近使用的加密方式加密
+        PayloadCipher.track(ctx.channel(), frameHeader.getEncryptionType());
+        if (staged && isReport(frameHeader.getRequestType())) {
+            out.add(new RawFrame(frameHeader, in.retainedSlice(headerIndex + HEADER_LENGTH, payloadLength)));
+            return;
+        }
+
+        Object payload = payloadDecoder.decode(in.slice(headerIndex + HEADER_LENGTH, payloadLength), frameHeader);
         GBT32960Message message = GBT32960Message.builder()
                 .header(frameHeader)
                 .payload(payload)
                 .build();
         out.add(message);
-        // 校验位
-        in.skipBytes(1);
     }
 
-    private Object decodePayload(ByteBuf in, FrameHeader header) {
-        switch (header.getRequestType()) {
-
-            case REAL_TIME:
-            case REISSUE:
-                ByteBuf fullBody = in.readRetainedSlice(header.getPayloadLength());
-                RealTimeReport.Builder report = ReportDecoder.decodeFully(fullBody);
-                fullBody.release();
-                report.setReissue(header.getRequestType() == RequestType.REISSUE);
-                RealTimeReport timeReport = report.build();
-                log.info("实时信息：\n数据采集时间:{}\n{}", ZonedDateTime.ofInstant(Instant.ofEpochSecond(timeReport.getRecordTime()), ZONE_UTC8), timeReport);
-                return timeReport;
-
-            case LOGIN:
-                LoginRequest loginRequest = decodeLogin(in);
-                log.info("登入信息: \n数据采集时间:{}\n{}", ZonedDateTime.ofInstant(Instant.ofEpochSecond(loginRequest.getRecordTime()), ZONE_UTC8), loginRequest);
-                return loginRequest;
-
-            case CONFIG_SETUP:
-                return readTime(in);
-
-            case CONFIG_QUERY:
-                return decodeConfigResponse(in);
-
-            case CONTROL:
-                return decodeControl(in);
-
-            case CLOCK_CORRECT:
-            case HEARTBEAT:
-                return null;
-            case LOGOUT:
-                LogoutRequest logout = LogoutRequest.newBuilder()
-                        .setRecordTime(readTime(in))
-                        .setLogoutDaySeq(in.readUnsignedShort()).build();
-                log.info("登出消息: \n数据采集时间:{}\n{}", ZonedDateTime.ofInstant(Instant.ofEpochSecond(logout.getRecordTime()), ZONE_UTC8),logout);
-                return logout;
-
-                default:
-                    throw new Error();
-        }
+    static boolean isReport(RequestType type) {
+        return type == RequestType.REAL_TIME || type == RequestType.REISSUE;
     }
 
     /**
-     * 解析控制报文
+     * 检查头部中的命令标识、应答标志和加密方式是否可识别
      * @param in ByteBuf
-     * @return 控制报文
+     * @param headerIndex 头部开始位置
+     * @return 是否为合法头部
      */
-    private ControlCommand decodeControl(ByteBuf in) {
-        return ControlCommand.newBuilder()
-                .setRequestTime(readTime(in))
-                .setCommandValue(in.readByte())
-                .build();
+    private boolean isValidHeader(ByteBuf in, int headerIndex) {
+        return RequestType.lookup(in.getByte(headerIndex)) != null
+                && ResponseTag.lookup(in.getByte(headerIndex + 1)) != null
+                && EncryptionType.lookup(in.getByte(headerIndex + HEADER_LENGTH - 3)) != null;
     }
 
     /**
-     * 解析参数查询应答报文
+     * 校验失败时，若长度字段指向的下一帧起始符成立（或恰好到缓冲区末尾），说明只是内容损坏，整帧丢弃；
+     * 否则长度字段本身可能已损坏，只跳过起始符重新同步
      * @param in ByteBuf
-     * @return 参数查询应答报文
+     * @param startIndex 帧开始位置
+     * @param frameLength 按长度字段计算的帧长度
      */
-    private ConfigQueryResponse decodeConfigResponse(ByteBuf in) {
-        ConfigQueryResponse.Builder builder = ConfigQueryResponse.newBuilder();
-        builder.setResponseTime(readTime(in));
-        int parameterCount = in.readByte();
-        int manageDomainLength = 0, publicDomainLength = 0;
-        for (int i = 0; i < parameterCount; i++) {
-            Parameter.ParameterCase parameterCase = Parameter.ParameterCase.forNumber(in.readByte());
-            Parameter.Builder parameterBuilder = Parameter.newBuilder();
-            switch (parameterCase) {
-                case STORAGE_PERIOD:
-                    parameterBuilder.setStoragePeriod(in.readShort());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case NORMAL_REPORT_INTERVAL:
-                    parameterBuilder.setNormalReportInterval(in.readShort());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case ALARM_REPORT_INTERVAL:
-                    parameterBuilder.setAlarmReportInterval(in.readShort());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case MANAGEMENT_PLATFORM_DOMAIN_LENGTH:
-                    manageDomainLength = in.readByte();
-                    parameterBuilder.setManagementPlatformDomainLength(manageDomainLength);
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case MANAGEMENT_PLATFORM_DOMAIN:
-                    parameterBuilder.setManagementPlatformDomain(in.readCharSequence(manageDomainLength, CHINESE_CHARSET).toString());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case MANAGEMENT_PLATFORM_PORT:
-                    parameterBuilder.setManagementPlatformPort(in.readShort());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case PUBLIC_PLATFORM_DOMAIN_LENGTH:
-                    publicDomainLength = in.readByte();
-                    parameterBuilder.setPublicPlatformDomainLength(publicDomainLength);
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case PUBLIC_PLATFORM_DOMAIN:
-                    parameterBuilder.setPublicPlatformDomain(in.readCharSequence(publicDomainLength, CHINESE_CHARSET).toString());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case PUBLIC_PLATFORM_PORT:
-                    parameterBuilder.setPublicPlatformPort(in.readShort());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case HARDWARE_VERSION:
-                    parameterBuilder.setHardwareVersion(in.readCharSequence(5, ASCII_CHARSET).toString());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case FIRMWARE_VERSION:
-                    parameterBuilder.setFirmwareVersion(in.readCharSequence(5, ASCII_CHARSET).toString());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case HEARBEAT_INTERVAL:
-                    parameterBuilder.setHearbeatInterval(in.readByte());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case TERMINAL_RESPONSE_TIMEOUT:
-                    parameterBuilder.setTerminalResponseTimeout(in.readShort());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case PLATFORM_RESPONSE_TIMEOUT:
-                    parameterBuilder.setPlatformResponseTimeout(in.readShort());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case LOGIN_RETRY_INTERVAL:
-                    parameterBuilder.setLoginRetryInterval(in.readByte());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                case SAMPLING:
-                    parameterBuilder.setSamplingValue(in.readByte());
-                    builder.addParameters(parameterBuilder.build());
-                    break;
-                    default:
-                        log.error("解析未处理的参数类型: {}", parameterCase);
-
-            }
+    private void skipCorruptFrame(ByteBuf in, int startIndex, int frameLength) {
+        int nextIndex = startIndex + frameLength;
+        int remaining = in.writerIndex() - nextIndex;
+        if (remaining == 0 || (remaining >= START_SYMBOL_LENGTH && in.getShort(nextIndex) == START_SYMBOL)) {
+            in.readerIndex(nextIndex);
+        } else {
+            resync(in, startIndex + 1);
         }
-        return builder.build();
     }
 
-
     /**
-     * 解析 登入数据
+     * 从 fromIndex 开始查找下一个起始符并丢弃之前的字节，
+     * 找不到时只保留可能是半个起始符的最后一个字节
      * @param in ByteBuf
-     * @return 登入数据
+     * @param fromIndex 查找开始位置
      */
-    private LoginRequest decodeLogin(ByteBuf in) {
-        LoginRequest.Builder builder = LoginRequest.newBuilder()
-                .setRecordTime(readTime(in))
-                .setLoginDaySeq(in.readUnsignedShort())
-                .setIccid(in.readCharSequence(20, ASCII_CHARSET).toString());
-        int count = in.readByte();
-        int length = in.readByte();
-        builder.setSystemCodeLength(length);
-        for (int i = 0; i < count; i++) {
-            builder.addChargeableSubsystemCode(
-                    in.readCharSequence(length, ASCII_CHARSET).toString());
+    private void resync(ByteBuf in, int fromIndex) {
+        int readerIndex = in.readerIndex();
+        int writerIndex = in.writerIndex();
+        int index = fromIndex;
+        while (index < writerIndex) {
+            index = in.indexOf(index, writerIndex, START_BYTE);
+            if (index < 0 || index == writerIndex - 1) {
+                break;
+            }
+            if (in.getByte(index + 1) == START_BYTE) {
+                log.debug("跳过 {} 字节后重新同步", index - readerIndex);
+                in.readerIndex(index);
+                metrics.resync(index - readerIndex);
+                return;
+            }
+            index++;
         }
-        return builder.build();
+        int keep = in.getByte(writerIndex - 1) == START_BYTE ? 1 : 0;
+        in.readerIndex(writerIndex - keep);
+        metrics.resync(writerIndex - keep - readerIndex);
     }
 
-
     /**
      * 解析头部数据
      * @param in ByteBuf
      * @return 头部数据
      */
     private FrameHeader decodeFrameHeader(ByteBuf in) {
-        frameHeader = FrameHeader.builder()
+        return FrameHeader.builder()
                 .requestType(RequestType.valueOf(in.readByte()))
                 .responseTag(ResponseTag.valueOf(in.readByte()))
                 .vin(in.readCharSequence(17, GBT32960Message.ASCII_CHARSET).toString())
                 .encryptionType(EncryptionType.valueOf(in.readByte()))
                 .payloadLength(in.readUnsignedShort())
                 .build();
-        return frameHeader;
-    }
-
-    /**
-     * 计算校验码
-     * @param in ByteBuf
-     * @param start 开始位置
-     * @param length 长度
-     * @return 校验码
-     */
-    private byte checkCode(ByteBuf in, int start, int length) {
-        if (length == 0) {
-            return 0;
-        }
-        FrameHeader.CheckCodeProcessor processor = new FrameHeader.CheckCodeProcessor();
-        in.forEachByte(start, length, processor);
-        return processor.getCheckCode();
     }
 
 }
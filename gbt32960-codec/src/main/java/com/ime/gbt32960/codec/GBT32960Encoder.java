@@ -1,6 +1,10 @@
 package com.ime.gbt32960.codec;
 
 import com.google.common.base.Preconditions;
+import com.ime.gbt32960.codec.capture.CaptureFormat;
+import com.ime.gbt32960.codec.capture.FrameCapture;
+import com.ime.gbt32960.codec.crypto.PayloadCipher;
+import com.ime.gbt32960.codec.metrics.GatewayMetrics;
 import com.ime.iov.gbt32960.*;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
@@ -8,44 +12,70 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 import lombok.extern.slf4j.Slf4j;
 
-
-import java.time.Instant;
+import java.util.function.Consumer;
 
 import static com.ime.gbt32960.codec.GBT32960Message.*;
 
 /**
+ * 下行帧编码；启用数据单元加密时，按终端在该连接上最近使用的加密方式加密数据单元
+ *
  * @author Qingxi
  */
 
 @Slf4j
 public class GBT32960Encoder extends MessageToByteEncoder<ResponseMessage> {
 
+    private final FrameCapture capture;
+
+    private final GatewayMetrics metrics;
+
+    private final PayloadCipher cipher;
+
+    public GBT32960Encoder() {
+        this(FrameCapture.disabled());
+    }
+
+    public GBT32960Encoder(FrameCapture capture) {
+        this(capture, GatewayMetrics.disabled());
+    }
+
+    public GBT32960Encoder(FrameCapture capture, GatewayMetrics metrics) {
+        this(capture, metrics, PayloadCipher.disabled());
+    }
+
+    public GBT32960Encoder(FrameCapture capture, GatewayMetrics metrics, PayloadCipher cipher) {
+        this.capture = capture;
+        this.metrics = metrics;
+        this.cipher = cipher;
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, ResponseMessage response, ByteBuf out) {
         PlatformMessage message = response.getMessage();
+        EncryptionType encryption = cipher.isEnabled() ? PayloadCipher.encryption(ctx.channel()) : EncryptionType.PLAIN;
         switch (message.getMessageCase()) {
             case CONFIG_QUERY:
-                encodeCommand(out, response.getVin(), RequestType.CONFIG_QUERY, buf -> encodeConfigQuery(message.getConfigQuery(), buf));
+                command(out, response.getVin(), encryption, RequestType.CONFIG_QUERY, buf -> encodeConfigQuery(message.getConfigQuery(), buf));
                 break;
             case CONFIG_SETUP:
-                encodeCommand(out, response.getVin(), RequestType.CONFIG_SETUP, buf -> encodeConfigSetup(message.getConfigSetup(), buf));
+                command(out, response.getVin(), encryption, RequestType.CONFIG_SETUP, buf -> encodeConfigSetup(message.getConfigSetup(), buf));
                 break;
             case CONTROL:
-                encodeCommand(out, response.getVin(), RequestType.CONTROL, buf -> encodeControl(message.getControl(), buf));
+                command(out, response.getVin(), encryption, RequestType.CONTROL, buf -> encodeControl(message.getControl(), buf));
                 break;
             case UPGRADE:
-                encodeCommand(out, response.getVin(), RequestType.CONTROL, buf -> encodeUpgrade(message.getUpgrade(), buf));
+                command(out, response.getVin(), encryption, RequestType.CONTROL, buf -> encodeUpgrade(message.getUpgrade(), buf));
                 break;
             case WARNING:
-                encodeCommand(out, response.getVin(), RequestType.CONTROL, buf -> encodeWarning(message.getWarning(), buf));
+                command(out, response.getVin(), encryption, RequestType.CONTROL, buf -> encodeWarning(message.getWarning(), buf));
                 break;
             case CLOCK_CORRECT:
-                encodeMessage(out, response.getVin(), RequestType.CLOCK_CORRECT, ResponseTag.SUCCESS,
+                frame(out, response.getVin(), encryption, RequestType.CLOCK_CORRECT, ResponseTag.SUCCESS,
                         buf -> writeTime(buf, message.getClockCorrect().getSystemTime()));
                 break;
             case EMPTY_RESPONSE:
                 EmptyResponse emptyResponse = message.getEmptyResponse();
-                encodeMessage(out, response.getVin(), RequestType.valueOf((byte) emptyResponse.getMesssageType()),
+                frame(out, response.getVin(), encryption, RequestType.valueOf((byte) emptyResponse.getMesssageType()),
                         ResponseTag.valueOf((byte) emptyResponse.getResult()), buf -> {
                             if (emptyResponse.getHasTime()) {
                                 writeTime(buf, emptyResponse.getTime());
@@ -55,7 +85,7 @@ public class GBT32960Encoder extends MessageToByteEncoder<ResponseMessage> {
             case PROTO_RESPONSE:
                 ProtoResponse protoResponse = message.getProtoResponse();
                 LoginRequest login = protoResponse.getLogin();
-                encodeMessage(out, response.getVin(), RequestType.valueOf((byte) protoResponse.getMesssageType()),
+                frame(out, response.getVin(), encryption, RequestType.valueOf((byte) protoResponse.getMesssageType()),
                         ResponseTag.valueOf((byte) protoResponse.getResult()), buf -> {
                             encodeLoginWithCurrentTime(login, buf);
                         });
@@ -64,11 +94,31 @@ public class GBT32960Encoder extends MessageToByteEncoder<ResponseMessage> {
                     log.error("未处理的平台消息类型: {}", message.getMessageCase());
                     break;
         }
-        log.info("应答帧: {}", ByteBufUtil.hexDump(out));
+        if (out.isReadable()) {
+            metrics.frameOut(out.readableBytes());
+            capture.capture(response.getVin(), out, out.readerIndex(), out.readableBytes(), CaptureFormat.OUTBOUND);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("应答帧: {}", ByteBufUtil.hexDump(out));
+        }
+    }
+
+    private void command(ByteBuf out, String vin, EncryptionType encryption, RequestType type,
+                         Consumer<ByteBuf> payloadEncoder) {
+        frame(out, vin, encryption, type, ResponseTag.COMMAND, payloadEncoder);
+    }
+
+    private void frame(ByteBuf out, String vin, EncryptionType encryption, RequestType type, ResponseTag tag,
+                       Consumer<ByteBuf> payloadEncoder) {
+        if (!PayloadCipher.isEncrypted(encryption)) {
+            encodeMessage(out, vin, type, tag, payloadEncoder);
+            return;
+        }
+        encodeMessage(out, vin, type, tag, encryption, buf -> cipher.encrypt(vin, encryption, payloadEncoder, buf));
     }
 
     private void encodeLoginWithCurrentTime(LoginRequest request, ByteBuf out) {
-        writeTime(out, Instant.now());
+        writeTime(out, System.currentTimeMillis() / 1000);
         out.writeShort(request.getLoginDaySeq());
         out.writeBytes(request.getIccid().getBytes(ASCII_CHARSET));
         out.writeByte(request.getChargeableSubsystemCodeCount());
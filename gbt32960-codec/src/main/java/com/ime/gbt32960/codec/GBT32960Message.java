@@ -1,5 +1,6 @@
 package com.ime.gbt32960.codec;
 
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Charsets;
 import com.ime.iov.gbt32960.EmptyResponse;
 import com.ime.iov.gbt32960.PlatformMessage;
@@ -13,7 +14,6 @@ import sun.nio.cs.ext.GB18030;
 import java.nio.charset.Charset;
 import java.time.Instant;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.util.function.Consumer;
 
 /**
@@ -29,42 +29,40 @@ public class GBT32960Message {
 
     public static final int MAX_LENGTH = Short.MAX_VALUE * 2 + 25;
 
+    /**
+     * VIN 中允许的字符；VIN 来自报文，用于拼接文件路径之前须检查，避免拼出目录之外的路径
+     */
+    public static final CharMatcher VIN_CHARS = CharMatcher.inRange('0', '9')
+            .or(CharMatcher.inRange('A', 'Z'))
+            .or(CharMatcher.inRange('a', 'z'));
+
     public static final byte EXCEPTION_MARK = (byte) 0xFE;
     public static final byte INVALID_MARK = (byte) 0xFF;
 
     public static final short START_SYMBOL = 0x2323;
     public static final int START_SYMBOL_LENGTH = 2;
+    public static final int TIME_LENGTH = 6;
 
     public static final ZoneId ZONE_UTC8 = ZoneId.of("UTC+8");
     public static final Charset ASCII_CHARSET = Charsets.US_ASCII;
     public static final Charset CHINESE_CHARSET = new GB18030();
 
     public static long readTime(ByteBuf in) {
-        return ZonedDateTime.of(in.readByte() + 2000,
-                in.readByte(),
-                in.readByte(),
-                in.readByte(),
-                in.readByte(),
-                in.readByte(),
-                0, ZONE_UTC8).toEpochSecond();
+        long time = getTime(in, in.readerIndex());
+        in.skipBytes(TIME_LENGTH);
+        return time;
     }
 
-    public static void writeTime(ByteBuf out, Long epochSecond) {
-        writeTime(out, Instant.ofEpochSecond(epochSecond));
+    public static long getTime(ByteBuf in, int index) {
+        return TimeCodec.getTime(in, index);
     }
 
-    public static void writeTime(ByteBuf out, Instant instant) {
-        ZonedDateTime time = instant.atZone(ZONE_UTC8);
-        writeTime(out, time);
+    public static void writeTime(ByteBuf out, long epochSecond) {
+        TimeCodec.writeTime(out, epochSecond);
     }
 
-    private static void writeTime(ByteBuf out, ZonedDateTime time) {
-        out.writeByte(time.getYear() - 2000);
-        out.writeByte(time.getMonthValue());
-        out.writeByte(time.getDayOfMonth());
-        out.writeByte(time.getHour());
-        out.writeByte(time.getMinute());
-        out.writeByte(time.getSecond());
+    public static void writeTime(ByteBuf out, Instant instant) {
+        TimeCodec.writeTime(out, instant.getEpochSecond());
     }
 
     public static void encodeCommand(ByteBuf out, String vin, RequestType type, Consumer<ByteBuf> payloadEncoder) {
@@ -73,12 +71,21 @@ public class GBT32960Message {
 
     public static void encodeMessage(ByteBuf out, String vin, RequestType type,
                                       ResponseTag tag, Consumer<ByteBuf> payloadEncoder) {
+        encodeMessage(out, vin, type, tag, EncryptionType.PLAIN, payloadEncoder);
+    }
+
+    /**
+     * 编码整帧
+     * @param encryption 头部中的加密方式，payloadEncoder 写入的须是按此加密后的数据单元
+     */
+    public static void encodeMessage(ByteBuf out, String vin, RequestType type, ResponseTag tag,
+                                     EncryptionType encryption, Consumer<ByteBuf> payloadEncoder) {
         out.writeShort(START_SYMBOL);
         int startIndex = out.writerIndex();
         out.writeByte(type.getValue());
         out.writeByte(tag.getValue());
         out.writeBytes(vin.getBytes(ASCII_CHARSET));
-        out.writeByte(EncryptionType.PLAIN.getValue());
+        out.writeByte(encryption.getValue());
         int lengthIndex = out.writerIndex();
         // 占位
         out.writeShort(0);
@@ -87,9 +94,7 @@ public class GBT32960Message {
         int payloadLength = out.writerIndex() - payloadBegin;
         // 回写长度
         out.setShort(lengthIndex, payloadLength);
-        FrameHeader.CheckCodeProcessor checkCodeProcessor = new FrameHeader.CheckCodeProcessor();
-        out.forEachByte(startIndex, FrameHeader.HEADER_LENGTH + payloadLength, checkCodeProcessor);
-        out.writeByte(checkCodeProcessor.getCheckCode());
+        out.writeByte(CheckCodes.checkCode(out, startIndex, FrameHeader.HEADER_LENGTH + payloadLength));
     }
 
     public static void emptyResponse(ChannelHandlerContext ctx, FrameHeader header, ResponseTag tag) {
@@ -0,0 +1,253 @@
+package com.ime.gbt32960.codec;
+
+import com.ime.gbt32960.codec.crypto.PayloadCipher;
+import com.ime.gbt32960.codec.metrics.GatewayMetrics;
+import com.ime.iov.gbt32960.*;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+
+import static com.ime.gbt32960.codec.GBT32960Message.*;
+
+/**
+ * 按命令标识解析数据单元，由 {@link GBT32960Decoder} 在 I/O 线程上调用，
+ * 或由 {@link DecodeStage} 在解析线程上调用；RSA / AES128 加密的数据单元先解密再解析
+ *
+ * @author Qingxi
+ */
+
+@Slf4j
+public class PayloadDecoder {
+
+    /**
+     * 单体电压、探针温度是否只保存原始值，见 {@link ReportDecoder#decodeFully(ByteBuf, boolean)}
+     */
+    private final boolean packedCells;
+
+    private final GatewayMetrics metrics;
+
+    private final PayloadCipher cipher;
+
+    public PayloadDecoder(boolean packedCells) {
+        this(packedCells, GatewayMetrics.disabled());
+    }
+
+    public PayloadDecoder(boolean packedCells, GatewayMetrics metrics) {
+        this(packedCells, metrics, PayloadCipher.disabled());
+    }
+
+    public PayloadDecoder(boolean packedCells, GatewayMetrics metrics, PayloadCipher cipher) {
+        this.packedCells = packedCells;
+        this.metrics = metrics;
+        this.cipher = cipher;
+    }
+
+    /**
+     * 解析数据单元，启用指标时记录按命令标识区分的解析耗时（含解密）
+     * @param in 数据单元
+     * @param header 头部
+     * @return 解析后的数据单元，没有数据单元的命令返回 null
+     */
+    public Object decode(ByteBuf in, FrameHeader header) {
+        if (!metrics.isEnabled()) {
+            return decryptAndDecode(in, header);
+        }
+        long start = System.nanoTime();
+        Object payload;
+        try {
+            payload = decryptAndDecode(in, header);
+        } catch (RuntimeException e) {
+            metrics.decodeError();
+            throw e;
+        }
+        metrics.decoded(header.getRequestType(), System.nanoTime() - start);
+        return payload;
+    }
+
+    private Object decryptAndDecode(ByteBuf in, FrameHeader header) {
+        if (!PayloadCipher.isEncrypted(header.getEncryptionType()) || !in.isReadable()) {
+            return decodePayload(in, header);
+        }
+        // 解析结果不引用缓冲区，解析完即可释放明文
+        ByteBuf plain = cipher.decrypt(header, in);
+        try {
+            return decodePayload(plain, header);
+        } finally {
+            plain.release();
+        }
+    }
+
+    private Object decodePayload(ByteBuf in, FrameHeader header) {
+        switch (header.getRequestType()) {
+
+            case REAL_TIME:
+            case REISSUE:
+                RealTimeReport.Builder report = ReportDecoder.decodeFully(in, packedCells);
+                report.setReissue(header.getRequestType() == RequestType.REISSUE);
+                RealTimeReport timeReport = report.build();
+                if (log.isDebugEnabled()) {
+                    log.debug("实时信息：\n数据采集时间:{}\n{}", ZonedDateTime.ofInstant(Instant.ofEpochSecond(timeReport.getRecordTime()), ZONE_UTC8), timeReport);
+                }
+                return timeReport;
+
+            case LOGIN:
+                LoginRequest loginRequest = decodeLogin(in);
+                if (log.isDebugEnabled()) {
+                    log.debug("登入信息: \n数据采集时间:{}\n{}", ZonedDateTime.ofInstant(Instant.ofEpochSecond(loginRequest.getRecordTime()), ZONE_UTC8), loginRequest);
+                }
+                return loginRequest;
+
+            case CONFIG_SETUP:
+                return readTime(in);
+
+            case CONFIG_QUERY:
+                return decodeConfigResponse(in);
+
+            case CONTROL:
+                return decodeControl(in);
+
+            case CLOCK_CORRECT:
+            case HEARTBEAT:
+                return null;
+            case PLATFORM_LOGIN:
+            case PLATFORM_LOGOUT:
+                // 上级平台的应答只看应答标志，数据单元不解析
+                return null;
+            case LOGOUT:
+                LogoutRequest logout = LogoutRequest.newBuilder()
+                        .setRecordTime(readTime(in))
+                        .setLogoutDaySeq(in.readUnsignedShort()).build();
+                if (log.isDebugEnabled()) {
+                    log.debug("登出消息: \n数据采集时间:{}\n{}", ZonedDateTime.ofInstant(Instant.ofEpochSecond(logout.getRecordTime()), ZONE_UTC8), logout);
+                }
+                return logout;
+
+                default:
+                    throw new Error();
+        }
+    }
+
+    /**
+     * 解析控制报文
+     * @param in ByteBuf
+     * @return 控制报文
+     */
+    private ControlCommand decodeControl(ByteBuf in) {
+        return ControlCommand.newBuilder()
+                .setRequestTime(readTime(in))
+                .setCommandValue(in.readByte())
+                .build();
+    }
+
+    /**
+     * 解析参数查询应答报文
+     * @param in ByteBuf
+     * @return 参数查询应答报文
+     */
+    private ConfigQueryResponse decodeConfigResponse(ByteBuf in) {
+        ConfigQueryResponse.Builder builder = ConfigQueryResponse.newBuilder();
+        builder.setResponseTime(readTime(in));
+        int parameterCount = in.readByte();
+        int manageDomainLength = 0, publicDomainLength = 0;
+        for (int i = 0; i < parameterCount; i++) {
+            Parameter.ParameterCase parameterCase = Parameter.ParameterCase.forNumber(in.readByte());
+            Parameter.Builder parameterBuilder = Parameter.newBuilder();
+            switch (parameterCase) {
+                case STORAGE_PERIOD:
+                    parameterBuilder.setStoragePeriod(in.readShort());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case NORMAL_REPORT_INTERVAL:
+                    parameterBuilder.setNormalReportInterval(in.readShort());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case ALARM_REPORT_INTERVAL:
+                    parameterBuilder.setAlarmReportInterval(in.readShort());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case MANAGEMENT_PLATFORM_DOMAIN_LENGTH:
+                    manageDomainLength = in.readByte();
+                    parameterBuilder.setManagementPlatformDomainLength(manageDomainLength);
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case MANAGEMENT_PLATFORM_DOMAIN:
+                    parameterBuilder.setManagementPlatformDomain(in.readCharSequence(manageDomainLength, CHINESE_CHARSET).toString());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case MANAGEMENT_PLATFORM_PORT:
+                    parameterBuilder.setManagementPlatformPort(in.readShort());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case PUBLIC_PLATFORM_DOMAIN_LENGTH:
+                    publicDomainLength = in.readByte();
+                    parameterBuilder.setPublicPlatformDomainLength(publicDomainLength);
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case PUBLIC_PLATFORM_DOMAIN:
+                    parameterBuilder.setPublicPlatformDomain(in.readCharSequence(publicDomainLength, CHINESE_CHARSET).toString());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case PUBLIC_PLATFORM_PORT:
+                    parameterBuilder.setPublicPlatformPort(in.readShort());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case HARDWARE_VERSION:
+                    parameterBuilder.setHardwareVersion(in.readCharSequence(5, ASCII_CHARSET).toString());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case FIRMWARE_VERSION:
+                    parameterBuilder.setFirmwareVersion(in.readCharSequence(5, ASCII_CHARSET).toString());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case HEARBEAT_INTERVAL:
+                    parameterBuilder.setHearbeatInterval(in.readByte());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case TERMINAL_RESPONSE_TIMEOUT:
+                    parameterBuilder.setTerminalResponseTimeout(in.readShort());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case PLATFORM_RESPONSE_TIMEOUT:
+                    parameterBuilder.setPlatformResponseTimeout(in.readShort());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case LOGIN_RETRY_INTERVAL:
+                    parameterBuilder.setLoginRetryInterval(in.readByte());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                case SAMPLING:
+                    parameterBuilder.setSamplingValue(in.readByte());
+                    builder.addParameters(parameterBuilder.build());
+                    break;
+                    default:
+                        log.error("解析未处理的参数类型: {}", parameterCase);
+
+            }
+        }
+        return builder.build();
+    }
+
+
+    /**
+     * 解析 登入数据
+     * @param in ByteBuf
+     * @return 登入数据
+     */
+    private LoginRequest decodeLogin(ByteBuf in) {
+        LoginRequest.Builder builder = LoginRequest.newBuilder()
+                .setRecordTime(readTime(in))
+                .setLoginDaySeq(in.readUnsignedShort())
+                .setIccid(in.readCharSequence(20, ASCII_CHARSET).toString());
+        int count = in.readByte();
+        int length = in.readByte();
+        builder.setSystemCodeLength(length);
+        for (int i = 0; i < count; i++) {
+            builder.addChargeableSubsystemCode(
+                    in.readCharSequence(length, ASCII_CHARSET).toString());
+        }
+        return builder.build();
+    }
+
+}
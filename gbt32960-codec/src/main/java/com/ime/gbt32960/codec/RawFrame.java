@@ -0,0 +1,27 @@
+package com.ime.gbt32960.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+import lombok.Getter;
+
+/**
+ * 已通过校验、尚未解析数据单元的帧，持有数据单元的引用计数
+ *
+ * @author Qingxi
+ */
+public class RawFrame extends DefaultByteBufHolder {
+
+    @Getter
+    private final FrameHeader header;
+
+    public RawFrame(FrameHeader header, ByteBuf payload) {
+        super(payload);
+        this.header = header;
+    }
+
+    @Override
+    public RawFrame replace(ByteBuf content) {
+        return new RawFrame(header, content);
+    }
+
+}
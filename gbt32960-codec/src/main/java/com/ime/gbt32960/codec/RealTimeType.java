@@ -33,13 +33,44 @@ public enum RealTimeType {
 
     private final byte value;
 
-    public static RealTimeType valueOf(byte type) {
+    /**
+     * 0x80 ~ 0xFE 为用户自定义信息类型，格式为 类型(1) + 长度(2) + 数据
+     */
+    public static final int CUSTOM_MIN = 0x80;
+    public static final int CUSTOM_MAX = 0xFE;
+
+    private static final RealTimeType[] TABLE = new RealTimeType[256];
+
+    static {
         for (RealTimeType t : values()) {
-            if (t.value == type) {
-                return t;
-            }
+            TABLE[t.value & 0xFF] = t;
+        }
+    }
+
+    /**
+     * 查表取得编码对应的类型
+     * @param type 编码
+     * @return 类型，未知编码返回 null
+     */
+    public static RealTimeType lookup(byte type) {
+        return TABLE[type & 0xFF];
+    }
+
+    /**
+     * @param type 编码
+     * @return 是否为带长度字段的用户自定义信息类型
+     */
+    public static boolean isCustom(byte type) {
+        int code = type & 0xFF;
+        return code >= CUSTOM_MIN && code <= CUSTOM_MAX;
+    }
+
+    public static RealTimeType valueOf(byte type) {
+        RealTimeType t = TABLE[type & 0xFF];
+        if (t == null) {
+            throw new IllegalArgumentException("Unknown message type : " + type);
         }
-        throw new IllegalArgumentException("Unknown message type : " + type);
+        return t;
     }
 
 }
@@ -14,11 +14,41 @@ import static com.ime.gbt32960.codec.GBT32960Message.*;
 public class ReportDecoder {
 
     public static RealTimeReport.Builder decodeFully(ByteBuf in) {
+        return decodeFully(in, false);
+    }
+
+    /**
+     * 解析实时信息
+     * @param in ByteBuf
+     * @param packedCells 为 true 时单体电压、探针温度只保存原始值
+     *                    （battery_voltage_raw / probe_temperature_raw），不逐个展开
+     * @return 实时信息
+     */
+    public static RealTimeReport.Builder decodeFully(ByteBuf in, boolean packedCells) {
+        return decodeFully(in, packedCells, ReportDecoder::skipUnknownBlock);
+    }
+
+    /**
+     * 解析实时信息
+     * @param in ByteBuf
+     * @param packedCells 是否只保存单体电压、探针温度的原始值
+     * @param unknownBlockHandler 遇到无法识别的信息类型时的处理
+     * @return 实时信息
+     */
+    public static RealTimeReport.Builder decodeFully(ByteBuf in, boolean packedCells,
+                                                     UnknownBlockHandler unknownBlockHandler) {
         RealTimeReport.Builder builder = RealTimeReport.newBuilder();
         long recordTime = readTime(in);
         builder.setRecordTime(recordTime);
         while (in.readableBytes() > 0) {
-            RealTimeType type = RealTimeType.valueOf(in.readByte());
+            byte code = in.readByte();
+            RealTimeType type = RealTimeType.lookup(code);
+            if (type == null) {
+                if (unknownBlockHandler.onUnknownBlock(code, in)) {
+                    continue;
+                }
+                break;
+            }
             switch (type) {
                 case VEHICLE:
                     builder.setVehicleState(decodeVehicleState(in));
@@ -48,14 +78,14 @@ public class ReportDecoder {
                 case BATTERY_VOLTAGE:
                     int elecCount = in.readByte();
                     for (int i = 0; i < elecCount; i++) {
-                        builder.addChargeSystemElectric(decodeChargeableSubsystemElectric(in));
+                        builder.addChargeSystemElectric(decodeChargeableSubsystemElectric(in, packedCells));
                     }
                     break;
                 case BATTERY_TEMPERATURE:
                     int tempCount = in.readByte();
                     ChargeableSubsystemTemperature temperature;
                     for (int i = 0; i < tempCount; i++) {
-                        builder.addChargeSystemTemperature(decodeChargeableSubsystemTemperature(in));
+                        builder.addChargeSystemTemperature(decodeChargeableSubsystemTemperature(in, packedCells));
                     }
                     break;
                     default:
@@ -67,6 +97,26 @@ public class ReportDecoder {
 
 
 
+    /**
+     * 默认的未知信息类型处理：用户自定义信息类型按长度字段跳过；
+     * 其余未知类型无法得知长度，丢弃剩余数据并停止解析
+     * @param type 信息类型编码
+     * @param in ByteBuf
+     * @return 是否可以继续解析
+     */
+    public static boolean skipUnknownBlock(byte type, ByteBuf in) {
+        if (RealTimeType.isCustom(type) && in.readableBytes() >= 2) {
+            int length = in.getUnsignedShort(in.readerIndex());
+            if (in.readableBytes() >= 2 + length) {
+                in.skipBytes(2 + length);
+                return true;
+            }
+        }
+        log.debug("未知的信息类型: {}, 丢弃剩余 {} 字节", type & 0xFF, in.readableBytes());
+        in.skipBytes(in.readableBytes());
+        return false;
+    }
+
     /**
      * 解析整车数据
      * @param in ByteBuf
@@ -170,18 +220,18 @@ public class ReportDecoder {
      */
     private static Extremum decodeExtremum(ByteBuf in) {
         Extremum.Builder builder = Extremum.newBuilder()
-                .setVoltageMaxSubsystem(in.readByte())
-                .setVoltageMaxBattery(in.readByte())
-                .setMaxVoltage(in.readShort() / 1000.0f)
-                .setVoltageMinSubsystem(in.readByte())
-                .setVoltageMinBattery(in.readByte())
-                .setMinVoltage(in.readShort() / 1000.0f)
-                .setTemperatureMaxSubsystem(in.readByte())
-                .setTemperatureMaxProbe(in.readByte())
-                .setMaxTemperature(in.readByte())
-                .setTemperatureMinSubsystem(in.readByte())
-                .setTemperatureMinProbe(in.readByte())
-                .setMinTemperature(in.readByte());
+                .setVoltageMaxSubsystem(in.readUnsignedByte())
+                .setVoltageMaxBattery(in.readUnsignedByte())
+                .setMaxVoltage(in.readUnsignedShort() / 1000.0f)
+                .setVoltageMinSubsystem(in.readUnsignedByte())
+                .setVoltageMinBattery(in.readUnsignedByte())
+                .setMinVoltage(in.readUnsignedShort() / 1000.0f)
+                .setTemperatureMaxSubsystem(in.readUnsignedByte())
+                .setTemperatureMaxProbe(in.readUnsignedByte())
+                .setMaxTemperature(in.readUnsignedByte())
+                .setTemperatureMinSubsystem(in.readUnsignedByte())
+                .setTemperatureMinProbe(in.readUnsignedByte())
+                .setMinTemperature(in.readUnsignedByte());
         return builder.build();
     }
 
@@ -229,9 +279,10 @@ public class ReportDecoder {
     /**
      * 解析单个可充电储能电压数据
      * @param in ByteBuf
+     * @param packed 是否只保存原始值
      * @return 单个可充电储能电压数据
      */
-    private static ChargeableSubsystemElectric decodeChargeableSubsystemElectric(ByteBuf in) {
+    private static ChargeableSubsystemElectric decodeChargeableSubsystemElectric(ByteBuf in, boolean packed) {
         ChargeableSubsystemElectric.Builder builder =
                 ChargeableSubsystemElectric.newBuilder()
                 .setChargeableSubSystemNumber(in.readByte())
@@ -239,9 +290,14 @@ public class ReportDecoder {
                 .setCurrent(in.readShort() / 10.0f - 1000)
                 .setBatteryTotalCount(in.readUnsignedShort())
                 .setFrameStartBatterySeq(in.readUnsignedShort());
-        int count = in.readByte();
-        for (int i = 0; i < count; i++) {
-            builder.addBatteryVoltage(in.readUnsignedShort() / 1000.0f);
+        // 本帧单体电池总数有效值 1~200，按无符号读取
+        int count = in.readUnsignedByte();
+        if (packed) {
+            builder.setBatteryVoltageRaw(CellValues.readRawVoltages(in, count));
+        } else {
+            for (int i = 0; i < count; i++) {
+                builder.addBatteryVoltage(in.readUnsignedShort() / 1000.0f);
+            }
         }
         return builder.build();
     }
@@ -249,15 +305,20 @@ public class ReportDecoder {
     /**
      * 解析单个可充电储能装置温度数据
      * @param in ByteBuf
+     * @param packed 是否只保存原始值
      * @return 单个可充电储能装置温度数据
      */
-    private static ChargeableSubsystemTemperature decodeChargeableSubsystemTemperature(ByteBuf in) {
+    private static ChargeableSubsystemTemperature decodeChargeableSubsystemTemperature(ByteBuf in, boolean packed) {
         ChargeableSubsystemTemperature.Builder builder =
                 ChargeableSubsystemTemperature.newBuilder()
                 .setSubSystemNumber(in.readByte());
         int count = in.readUnsignedShort();
-        for (int i = 0; i < count; i++) {
-            builder.addProbeTemperature(in.readByte() - 40);
+        if (packed) {
+            builder.setProbeTemperatureRaw(CellValues.readRawTemperatures(in, count));
+        } else {
+            for (int i = 0; i < count; i++) {
+                builder.addProbeTemperature(in.readUnsignedByte() - 40);
+            }
         }
         return builder.build();
     }
@@ -0,0 +1,348 @@
+package com.ime.gbt32960.codec;
+
+import com.google.protobuf.ByteString;
+import com.ime.iov.gbt32960.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.EncoderException;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static com.ime.gbt32960.codec.GBT32960Message.*;
+
+/**
+ * 实时信息编码，与 {@link ReportDecoder} 逐个信息类型对应：
+ * 只写入 report 中存在的信息类型，物理量按解码时的比例和偏移量还原为原始值。
+ * <p>
+ * {@link #payloadLength(RealTimeReport)} 给出的长度与 {@link #encode(RealTimeReport, ByteBuf)} 写入的字节数严格一致，
+ * 调用方可以按此一次分配足够的缓冲区。
+ * 单字节的个数字段（驱动电机、子系统、本帧单体电池、故障代码）超出范围时抛出 {@link EncoderException}，
+ * 不会截断后写出与实际数据不符的帧；单体过多时应由调用方拆分为多帧。
+ *
+ * @author Qingxi
+ */
+public final class ReportEncoder {
+
+    private static final int VEHICLE_LENGTH = 20;
+    private static final int MOTOR_LENGTH = 12;
+    private static final int ENGINE_LENGTH = 5;
+    private static final int LOCATION_LENGTH = 9;
+    private static final int EXTREMUM_LENGTH = 14;
+
+    /**
+     * 单字节个数字段的最大值
+     */
+    private static final int MAX_BYTE_COUNT = 0xFF;
+
+    /**
+     * 故障个数 0xFE、0xFF 表示异常、无效
+     */
+    private static final int MAX_FAULT_COUNT = 0xFD;
+
+    private ReportEncoder() {
+    }
+
+    /**
+     * 计算实时信息数据单元的长度
+     * @param report 实时信息
+     * @return 数据单元字节数
+     */
+    public static int payloadLength(RealTimeReport report) {
+        int length = TIME_LENGTH;
+        if (report.hasVehicleState()) {
+            length += 1 + VEHICLE_LENGTH;
+        }
+        if (report.getMotorCount() > 0) {
+            length += 2 + report.getMotorCount() * MOTOR_LENGTH;
+        }
+        if (report.hasFuelCell()) {
+            length += 1 + fuelCellLength(report.getFuelCell());
+        }
+        if (report.hasEngine()) {
+            length += 1 + ENGINE_LENGTH;
+        }
+        if (report.hasLocation()) {
+            length += 1 + LOCATION_LENGTH;
+        }
+        if (report.hasExtremum()) {
+            length += 1 + EXTREMUM_LENGTH;
+        }
+        if (report.hasAlarm()) {
+            length += 1 + alarmLength(report.getAlarm());
+        }
+        if (report.getChargeSystemElectricCount() > 0) {
+            length += 2;
+            for (ChargeableSubsystemElectric electric : report.getChargeSystemElectricList()) {
+                length += 10 + voltageCount(electric) * CellValues.VOLTAGE_BYTES;
+            }
+        }
+        if (report.getChargeSystemTemperatureCount() > 0) {
+            length += 2;
+            for (ChargeableSubsystemTemperature temperature : report.getChargeSystemTemperatureList()) {
+                length += 3 + temperatureCount(temperature);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 写入实时信息数据单元
+     * @param report 实时信息
+     * @param out ByteBuf，可写空间不小于 {@link #payloadLength(RealTimeReport)}
+     */
+    public static void encode(RealTimeReport report, ByteBuf out) {
+        writeTime(out, report.getRecordTime());
+        if (report.hasVehicleState()) {
+            out.writeByte(RealTimeType.VEHICLE.getValue());
+            encodeVehicleState(report.getVehicleState(), out);
+        }
+        if (report.getMotorCount() > 0) {
+            out.writeByte(RealTimeType.MOTOR.getValue());
+            out.writeByte(checkCount(report.getMotorCount(), MAX_BYTE_COUNT, "驱动电机"));
+            for (MotorState motor : report.getMotorList()) {
+                encodeMotor(motor, out);
+            }
+        }
+        if (report.hasFuelCell()) {
+            out.writeByte(RealTimeType.FUEL_CELL.getValue());
+            encodeFuelCell(report.getFuelCell(), out);
+        }
+        if (report.hasEngine()) {
+            out.writeByte(RealTimeType.ENGINE.getValue());
+            encodeEngine(report.getEngine(), out);
+        }
+        if (report.hasLocation()) {
+            out.writeByte(RealTimeType.LOCATION.getValue());
+            encodeVehicleLocation(report.getLocation(), out);
+        }
+        if (report.hasExtremum()) {
+            out.writeByte(RealTimeType.EXTREMUM.getValue());
+            encodeExtremum(report.getExtremum(), out);
+        }
+        if (report.hasAlarm()) {
+            out.writeByte(RealTimeType.ALARM.getValue());
+            encodeAlarm(report.getAlarm(), out);
+        }
+        if (report.getChargeSystemElectricCount() > 0) {
+            out.writeByte(RealTimeType.BATTERY_VOLTAGE.getValue());
+            out.writeByte(checkCount(report.getChargeSystemElectricCount(), MAX_BYTE_COUNT, "可充电储能子系统"));
+            for (ChargeableSubsystemElectric electric : report.getChargeSystemElectricList()) {
+                encodeChargeableSubsystemElectric(electric, out);
+            }
+        }
+        if (report.getChargeSystemTemperatureCount() > 0) {
+            out.writeByte(RealTimeType.BATTERY_TEMPERATURE.getValue());
+            out.writeByte(checkCount(report.getChargeSystemTemperatureCount(), MAX_BYTE_COUNT, "可充电储能子系统"));
+            for (ChargeableSubsystemTemperature temperature : report.getChargeSystemTemperatureList()) {
+                encodeChargeableSubsystemTemperature(temperature, out);
+            }
+        }
+    }
+
+    /**
+     * 编码整车数据
+     * @param state 整车数据
+     * @param out ByteBuf
+     */
+    private static void encodeVehicleState(VehicleState state, ByteBuf out) {
+        out.writeByte(state.getOperatingStateValue());
+        out.writeByte(state.getChargingStateValue());
+        out.writeByte(state.getOperationModeValue());
+        out.writeShort(Math.round(state.getSpeed() * 10));
+        out.writeInt((int) Math.round(state.getMileage() * 10));
+        out.writeShort(Math.round(state.getVoltage() * 10));
+        out.writeShort(Math.round((state.getCurrent() + 1000) * 10));
+        out.writeByte(state.getStateOfCharge());
+        out.writeByte(state.getDcInverterStateValue());
+        out.writeByte(state.getGearPosition());
+        out.writeShort(state.getInsulance());
+        out.writeByte(state.getAcceleratorTravel());
+        out.writeByte(state.getBrakeTravel());
+    }
+
+    /**
+     * 编码驱动电机数据
+     * @param motor 驱动电机数据
+     * @param out ByteBuf
+     */
+    private static void encodeMotor(MotorState motor, ByteBuf out) {
+        out.writeByte((int) motor.getMotorSeq());
+        out.writeByte(motor.getStatusValue());
+        out.writeByte(motor.getControllerTemperature() + 40);
+        out.writeShort(motor.getMotorSpeed() + 20000);
+        out.writeShort(Math.round((motor.getMotorTorque() + 2000) * 10));
+        out.writeByte(motor.getMotorTemperature() + 40);
+        out.writeShort(Math.round(motor.getControllerVoltage() * 10));
+        out.writeShort(Math.round((motor.getControllerCurrent() + 1000) * 10));
+    }
+
+    private static int fuelCellLength(FuelCell fuelCell) {
+        return 18 + fuelCell.getProbeTemperatureValueCount();
+    }
+
+    /**
+     * 编码燃料电池数据，探针总数取实际的探针温度个数
+     * @param fuelCell 燃料电池数据
+     * @param out ByteBuf
+     */
+    private static void encodeFuelCell(FuelCell fuelCell, ByteBuf out) {
+        out.writeShort((int) Math.round(fuelCell.getFuelCellVoltage() * 10));
+        out.writeShort((int) Math.round(fuelCell.getFuelCellCurrent() * 10));
+        out.writeShort((int) Math.round(fuelCell.getFuelConsumptionRate() * 100));
+        out.writeShort(fuelCell.getProbeTemperatureValueCount());
+        for (int i = 0; i < fuelCell.getProbeTemperatureValueCount(); i++) {
+            out.writeByte(fuelCell.getProbeTemperatureValue(i) + 40);
+        }
+        out.writeShort((int) Math.round((fuelCell.getHighestTempOfHydrogenSystem() + 40) * 10));
+        out.writeByte(fuelCell.getHighestTempProbeCodeOfHydSys());
+        out.writeShort(fuelCell.getHighestConOfHydrogen());
+        out.writeByte(fuelCell.getHighestHyConSensorCode());
+        out.writeShort((int) Math.round(fuelCell.getHydrogenMaxPressure() * 10));
+        out.writeByte(fuelCell.getHydrogenMaxPressureSensorCode());
+        out.writeByte(fuelCell.getHighVoltageDcStateValue());
+    }
+
+    /**
+     * 编码发动机数据
+     * @param engine 发动机数据
+     * @param out ByteBuf
+     */
+    private static void encodeEngine(Engine engine, ByteBuf out) {
+        out.writeByte(engine.getEngineStateValue());
+        out.writeShort(engine.getCrankshaftSpeed());
+        out.writeShort((int) Math.round(engine.getFuelConsumptionRate() * 100));
+    }
+
+    /**
+     * 编码车辆位置数据，状态位 0 为无效定位，位 1 为南纬，位 2 为西经
+     * @param location 车辆位置数据
+     * @param out ByteBuf
+     */
+    private static void encodeVehicleLocation(VehicleLocation location, ByteBuf out) {
+        int mark = (location.getIsValid() ? 0 : 1)
+                | (location.getLatitude() < 0 ? 1 << 1 : 0)
+                | (location.getLongitude() < 0 ? 1 << 2 : 0);
+        out.writeByte(mark);
+        out.writeInt((int) Math.round(Math.abs(location.getLongitude()) * 1000000));
+        out.writeInt((int) Math.round(Math.abs(location.getLatitude()) * 1000000));
+    }
+
+    /**
+     * 编码极值数据，温度按原始值写入，与解码一致
+     * @param extremum 极值数据
+     * @param out ByteBuf
+     */
+    private static void encodeExtremum(Extremum extremum, ByteBuf out) {
+        out.writeByte(extremum.getVoltageMaxSubsystem());
+        out.writeByte(extremum.getVoltageMaxBattery());
+        out.writeShort(Math.round(extremum.getMaxVoltage() * 1000));
+        out.writeByte(extremum.getVoltageMinSubsystem());
+        out.writeByte(extremum.getVoltageMinBattery());
+        out.writeShort(Math.round(extremum.getMinVoltage() * 1000));
+        out.writeByte(extremum.getTemperatureMaxSubsystem());
+        out.writeByte(extremum.getTemperatureMaxProbe());
+        out.writeByte(extremum.getMaxTemperature());
+        out.writeByte(extremum.getTemperatureMinSubsystem());
+        out.writeByte(extremum.getTemperatureMinProbe());
+        out.writeByte(extremum.getMinTemperature());
+    }
+
+    private static int alarmLength(Alarm alarm) {
+        return 9 + (alarm.getBatteryFaultDataCount() + alarm.getMotorFaultDataCount()
+                + alarm.getEngineFaultDataCount() + alarm.getOtherFaultDataCount()) * 4;
+    }
+
+    /**
+     * 编码报警数据，故障总数取实际的故障代码个数
+     * @param alarm 报警数据
+     * @param out ByteBuf
+     */
+    private static void encodeAlarm(Alarm alarm, ByteBuf out) {
+        out.writeByte(alarm.getMaxAlarmLevel());
+        out.writeInt(alarm.getAlarmBitIdentify());
+        writeFaults(alarm.getBatteryFaultDataList(), out);
+        writeFaults(alarm.getMotorFaultDataList(), out);
+        writeFaults(alarm.getEngineFaultDataList(), out);
+        writeFaults(alarm.getOtherFaultDataList(), out);
+    }
+
+    private static void writeFaults(List<Integer> faults, ByteBuf out) {
+        out.writeByte(checkCount(faults.size(), MAX_FAULT_COUNT, "故障代码"));
+        for (int i = 0; i < faults.size(); i++) {
+            out.writeInt(faults.get(i));
+        }
+    }
+
+    /**
+     * 本帧单体个数，有原始值时以原始值为准；计算长度时就检查，超出时不会分配缓冲区
+     */
+    private static int voltageCount(ChargeableSubsystemElectric electric) {
+        ByteString raw = electric.getBatteryVoltageRaw();
+        int count = raw.isEmpty() ? electric.getBatteryVoltageCount() : raw.size() / CellValues.VOLTAGE_BYTES;
+        return checkCount(count, MAX_BYTE_COUNT, "本帧单体电池");
+    }
+
+    private static int checkCount(int count, int max, String name) {
+        if (count > max) {
+            throw new EncoderException(name + "个数 " + count + " 超出个数字段的范围 " + max);
+        }
+        return count;
+    }
+
+    /**
+     * 编码单个可充电储能电压数据
+     * @param electric 单个可充电储能电压数据
+     * @param out ByteBuf
+     */
+    private static void encodeChargeableSubsystemElectric(ChargeableSubsystemElectric electric, ByteBuf out) {
+        out.writeByte(electric.getChargeableSubSystemNumber());
+        out.writeShort(Math.round(electric.getVoltage() * 10));
+        out.writeShort(Math.round((electric.getCurrent() + 1000) * 10));
+        out.writeShort((int) electric.getBatteryTotalCount());
+        out.writeShort((int) electric.getFrameStartBatterySeq());
+        int count = voltageCount(electric);
+        out.writeByte(count);
+        ByteString raw = electric.getBatteryVoltageRaw();
+        if (!raw.isEmpty()) {
+            writeRaw(raw, count * CellValues.VOLTAGE_BYTES, out);
+        } else {
+            for (int i = 0; i < count; i++) {
+                out.writeShort(Math.round(electric.getBatteryVoltage(i) * 1000));
+            }
+        }
+    }
+
+    private static int temperatureCount(ChargeableSubsystemTemperature temperature) {
+        ByteString raw = temperature.getProbeTemperatureRaw();
+        return raw.isEmpty() ? temperature.getProbeTemperatureCount() : raw.size();
+    }
+
+    /**
+     * 编码单个可充电储能装置温度数据
+     * @param temperature 单个可充电储能装置温度数据
+     * @param out ByteBuf
+     */
+    private static void encodeChargeableSubsystemTemperature(ChargeableSubsystemTemperature temperature, ByteBuf out) {
+        out.writeByte(temperature.getSubSystemNumber());
+        int count = temperatureCount(temperature);
+        out.writeShort(count);
+        ByteString raw = temperature.getProbeTemperatureRaw();
+        if (!raw.isEmpty()) {
+            writeRaw(raw, count, out);
+        } else {
+            for (int i = 0; i < count; i++) {
+                out.writeByte(temperature.getProbeTemperature(i) + CellValues.TEMPERATURE_OFFSET);
+            }
+        }
+    }
+
+    /**
+     * 原始值整段写入，ByteString 由单个数组支撑时不会拷贝
+     */
+    private static void writeRaw(ByteString raw, int length, ByteBuf out) {
+        ByteBuffer buffer = raw.asReadOnlyByteBuffer();
+        buffer.limit(buffer.position() + length);
+        out.writeBytes(buffer);
+    }
+
+}
@@ -0,0 +1,453 @@
+package com.ime.gbt32960.codec;
+
+import com.ime.iov.gbt32960.RealTimeReport;
+import io.netty.buffer.ByteBuf;
+
+import java.util.Arrays;
+
+import static com.ime.gbt32960.codec.GBT32960Message.TIME_LENGTH;
+import static com.ime.gbt32960.codec.GBT32960Message.getTime;
+
+/**
+ * 实时信息数据单元的享元视图。
+ * <p>
+ * {@link #wrap(ByteBuf)} 只扫描一遍数据单元，记下每种信息类型所在的位置，
+ * 各字段在读取时才从 ByteBuf 中按绝对位置取值，换算规则与 {@link ReportDecoder} 一致；
+ * 需要完整的 protobuf 消息时再调用 {@link #toReport()}。
+ * <p>
+ * 同一个视图可以反复 wrap，不会为每帧分配对象；视图不持有 ByteBuf 的引用计数，
+ * 使用期间由调用方保证 ByteBuf 未被释放。
+ *
+ * @author Qingxi
+ */
+public final class ReportView {
+
+    private static final int ABSENT = -1;
+
+    private static final int VEHICLE_LENGTH = 20;
+    private static final int MOTOR_LENGTH = 12;
+    private static final int ENGINE_LENGTH = 5;
+    private static final int LOCATION_LENGTH = 9;
+    private static final int EXTREMUM_LENGTH = 14;
+
+    private ByteBuf buf;
+    private int start;
+    private int end;
+    private long recordTime;
+    private boolean complete;
+
+    /**
+     * 各信息类型数据（不含类型字节）的开始位置，按 {@link RealTimeType#ordinal()} 下标
+     */
+    private final int[] blockIndex = new int[RealTimeType.values().length];
+
+    /**
+     * 每个可充电储能子系统电压、温度数据的开始位置，数组按需扩容后复用
+     */
+    private int[] voltageIndex = new int[4];
+    private int voltageCount;
+    private int[] temperatureIndex = new int[4];
+    private int temperatureCount;
+
+    /**
+     * 绑定一个实时信息数据单元（从数据采集时间开始，到数据单元末尾结束）并建立索引
+     * @param payload 数据单元，读写位置不会被修改
+     * @return this
+     */
+    public ReportView wrap(ByteBuf payload) {
+        this.buf = payload;
+        this.start = payload.readerIndex();
+        this.end = payload.writerIndex();
+        this.recordTime = getTime(payload, start);
+        this.complete = true;
+        Arrays.fill(blockIndex, ABSENT);
+        voltageCount = 0;
+        temperatureCount = 0;
+
+        int index = start + TIME_LENGTH;
+        while (index < end) {
+            byte code = buf.getByte(index);
+            RealTimeType type = RealTimeType.lookup(code);
+            if (type == null) {
+                if (RealTimeType.isCustom(code) && index + 3 <= end) {
+                    // 用户自定义信息按长度字段跳过
+                    index += 3 + buf.getUnsignedShort(index + 1);
+                    continue;
+                }
+                // 无法得知未知类型的长度，之后的数据不再索引
+                complete = false;
+                break;
+            }
+            index++;
+            blockIndex[type.ordinal()] = index;
+            index += blockLength(type, index);
+        }
+        if (index > end) {
+            complete = false;
+        }
+        return this;
+    }
+
+    private int blockLength(RealTimeType type, int index) {
+        switch (type) {
+            case VEHICLE:
+                return VEHICLE_LENGTH;
+            case MOTOR:
+                return 1 + count(buf.getByte(index)) * MOTOR_LENGTH;
+            case FUEL_CELL:
+                return 8 + count(buf.getShort(index + 6)) + 10;
+            case ENGINE:
+                return ENGINE_LENGTH;
+            case LOCATION:
+                return LOCATION_LENGTH;
+            case EXTREMUM:
+                return EXTREMUM_LENGTH;
+            case ALARM:
+                int alarmIndex = index + 5;
+                for (int i = 0; i < 4; i++) {
+                    alarmIndex += 1 + count(buf.getByte(alarmIndex)) * 4;
+                }
+                return alarmIndex - index;
+            case BATTERY_VOLTAGE:
+                int subsystems = count(buf.getByte(index));
+                int voltage = index + 1;
+                for (int i = 0; i < subsystems; i++) {
+                    voltageIndex = append(voltageIndex, voltageCount++, voltage);
+                    voltage += 10 + buf.getUnsignedByte(voltage + 9) * 2;
+                }
+                return voltage - index;
+            case BATTERY_TEMPERATURE:
+                int probes = count(buf.getByte(index));
+                int temperature = index + 1;
+                for (int i = 0; i < probes; i++) {
+                    temperatureIndex = append(temperatureIndex, temperatureCount++, temperature);
+                    temperature += 3 + buf.getUnsignedShort(temperature + 1);
+                }
+                return temperature - index;
+            default:
+                return 0;
+        }
+    }
+
+    private static int count(int value) {
+        return Math.max(value, 0);
+    }
+
+    private static int[] append(int[] array, int position, int value) {
+        if (position == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[position] = value;
+        return array;
+    }
+
+    /**
+     * 按需解析出完整的 protobuf 消息
+     * @return 实时信息
+     */
+    public RealTimeReport.Builder toReport() {
+        return ReportDecoder.decodeFully(buf.slice(start, end - start));
+    }
+
+    /**
+     * @return 所有信息类型都已被识别并完整索引
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public boolean has(RealTimeType type) {
+        return blockIndex[type.ordinal()] != ABSENT;
+    }
+
+    private int offset(RealTimeType type) {
+        int index = blockIndex[type.ordinal()];
+        if (index == ABSENT) {
+            throw new IllegalStateException("No " + type + " data in report");
+        }
+        return index;
+    }
+
+    public long getRecordTime() {
+        return recordTime;
+    }
+
+    // 整车数据
+
+    public int getOperatingStateValue() {
+        return buf.getByte(offset(RealTimeType.VEHICLE));
+    }
+
+    public int getChargingStateValue() {
+        return buf.getByte(offset(RealTimeType.VEHICLE) + 1);
+    }
+
+    public int getOperationModeValue() {
+        return buf.getByte(offset(RealTimeType.VEHICLE) + 2);
+    }
+
+    public float getSpeed() {
+        return buf.getShort(offset(RealTimeType.VEHICLE) + 3) / 10.0f;
+    }
+
+    public double getMileage() {
+        return buf.getInt(offset(RealTimeType.VEHICLE) + 5) / 10.0;
+    }
+
+    public float getVoltage() {
+        return buf.getShort(offset(RealTimeType.VEHICLE) + 9) / 10.0f;
+    }
+
+    public float getCurrent() {
+        return buf.getShort(offset(RealTimeType.VEHICLE) + 11) / 10.0f - 1000;
+    }
+
+    public int getStateOfCharge() {
+        return buf.getByte(offset(RealTimeType.VEHICLE) + 13);
+    }
+
+    public int getDcInverterStateValue() {
+        return buf.getByte(offset(RealTimeType.VEHICLE) + 14);
+    }
+
+    public int getGearPosition() {
+        return buf.getByte(offset(RealTimeType.VEHICLE) + 15);
+    }
+
+    public int getInsulance() {
+        return buf.getShort(offset(RealTimeType.VEHICLE) + 16);
+    }
+
+    public int getAcceleratorTravel() {
+        return buf.getByte(offset(RealTimeType.VEHICLE) + 18);
+    }
+
+    public int getBrakeTravel() {
+        return buf.getByte(offset(RealTimeType.VEHICLE) + 19);
+    }
+
+    // 驱动电机数据
+
+    public int getMotorCount() {
+        return has(RealTimeType.MOTOR) ? count(buf.getByte(offset(RealTimeType.MOTOR))) : 0;
+    }
+
+    private int motor(int i) {
+        return offset(RealTimeType.MOTOR) + 1 + i * MOTOR_LENGTH;
+    }
+
+    public int getMotorSeq(int i) {
+        return buf.getByte(motor(i));
+    }
+
+    public int getMotorStatusValue(int i) {
+        return buf.getByte(motor(i) + 1);
+    }
+
+    public int getMotorControllerTemperature(int i) {
+        return buf.getByte(motor(i) + 2) - 40;
+    }
+
+    public int getMotorSpeed(int i) {
+        return buf.getUnsignedShort(motor(i) + 3) - 20000;
+    }
+
+    public float getMotorTorque(int i) {
+        return buf.getUnsignedShort(motor(i) + 5) / 10.0f - 2000;
+    }
+
+    public int getMotorTemperature(int i) {
+        return buf.getByte(motor(i) + 7) - 40;
+    }
+
+    public float getMotorControllerVoltage(int i) {
+        return buf.getUnsignedShort(motor(i) + 8) / 10.0f;
+    }
+
+    public float getMotorControllerCurrent(int i) {
+        return buf.getShort(motor(i) + 10) / 10.0f - 1000;
+    }
+
+    // 发动机数据
+
+    public int getEngineStateValue() {
+        return buf.getByte(offset(RealTimeType.ENGINE));
+    }
+
+    public int getCrankshaftSpeed() {
+        return buf.getShort(offset(RealTimeType.ENGINE) + 1);
+    }
+
+    public double getEngineFuelConsumptionRate() {
+        return buf.getShort(offset(RealTimeType.ENGINE) + 3) / 100.0;
+    }
+
+    // 车辆位置数据
+
+    public boolean isLocationValid() {
+        return (buf.getByte(offset(RealTimeType.LOCATION)) & 1) == 0;
+    }
+
+    public double getLongitude() {
+        int index = offset(RealTimeType.LOCATION);
+        byte mark = buf.getByte(index);
+        return buf.getUnsignedInt(index + 1) / 1000000.0 * ((mark >> 2 & 1) == 1 ? -1 : 1);
+    }
+
+    public double getLatitude() {
+        int index = offset(RealTimeType.LOCATION);
+        byte mark = buf.getByte(index);
+        return buf.getUnsignedInt(index + 5) / 1000000.0 * ((mark >> 1 & 1) == 1 ? -1 : 1);
+    }
+
+    // 极值数据
+
+    public int getVoltageMaxSubsystem() {
+        return buf.getUnsignedByte(offset(RealTimeType.EXTREMUM));
+    }
+
+    public int getVoltageMaxBattery() {
+        return buf.getUnsignedByte(offset(RealTimeType.EXTREMUM) + 1);
+    }
+
+    public float getMaxVoltage() {
+        return buf.getUnsignedShort(offset(RealTimeType.EXTREMUM) + 2) / 1000.0f;
+    }
+
+    public int getVoltageMinSubsystem() {
+        return buf.getUnsignedByte(offset(RealTimeType.EXTREMUM) + 4);
+    }
+
+    public int getVoltageMinBattery() {
+        return buf.getUnsignedByte(offset(RealTimeType.EXTREMUM) + 5);
+    }
+
+    public float getMinVoltage() {
+        return buf.getUnsignedShort(offset(RealTimeType.EXTREMUM) + 6) / 1000.0f;
+    }
+
+    public int getTemperatureMaxSubsystem() {
+        return buf.getUnsignedByte(offset(RealTimeType.EXTREMUM) + 8);
+    }
+
+    public int getTemperatureMaxProbe() {
+        return buf.getUnsignedByte(offset(RealTimeType.EXTREMUM) + 9);
+    }
+
+    public int getMaxTemperature() {
+        return buf.getUnsignedByte(offset(RealTimeType.EXTREMUM) + 10);
+    }
+
+    public int getTemperatureMinSubsystem() {
+        return buf.getUnsignedByte(offset(RealTimeType.EXTREMUM) + 11);
+    }
+
+    public int getTemperatureMinProbe() {
+        return buf.getUnsignedByte(offset(RealTimeType.EXTREMUM) + 12);
+    }
+
+    public int getMinTemperature() {
+        return buf.getUnsignedByte(offset(RealTimeType.EXTREMUM) + 13);
+    }
+
+    // 报警数据
+
+    public int getMaxAlarmLevel() {
+        return buf.getByte(offset(RealTimeType.ALARM));
+    }
+
+    public int getAlarmBitIdentify() {
+        return buf.getInt(offset(RealTimeType.ALARM) + 1);
+    }
+
+    // 可充电储能装置电压数据
+
+    public int getVoltageSubsystemCount() {
+        return voltageCount;
+    }
+
+    public int getSubsystemNumber(int subsystem) {
+        return buf.getByte(voltageIndex(subsystem));
+    }
+
+    public float getSubsystemVoltage(int subsystem) {
+        return buf.getShort(voltageIndex(subsystem) + 1) / 10.0f;
+    }
+
+    public float getSubsystemCurrent(int subsystem) {
+        return buf.getShort(voltageIndex(subsystem) + 3) / 10.0f - 1000;
+    }
+
+    public int getBatteryTotalCount(int subsystem) {
+        return buf.getUnsignedShort(voltageIndex(subsystem) + 5);
+    }
+
+    public int getFrameStartBatterySeq(int subsystem) {
+        return buf.getUnsignedShort(voltageIndex(subsystem) + 7);
+    }
+
+    public int getCellCount(int subsystem) {
+        return buf.getUnsignedByte(voltageIndex(subsystem) + 9);
+    }
+
+    public float getCellVoltage(int subsystem, int cell) {
+        return buf.getUnsignedShort(voltageIndex(subsystem) + 10 + cell * 2) / 1000.0f;
+    }
+
+    /**
+     * 把一个子系统本帧的全部单体电压读到可复用的数组中
+     * @param subsystem 子系统下标
+     * @param dst 目标数组，长度不小于 {@link #getCellCount(int)}
+     * @return 单体个数
+     */
+    public int getCellVoltages(int subsystem, float[] dst) {
+        int count = getCellCount(subsystem);
+        CellValues.getVoltages(buf, voltageIndex(subsystem) + 10, count, dst);
+        return count;
+    }
+
+    private int voltageIndex(int subsystem) {
+        if (subsystem >= voltageCount) {
+            throw new IndexOutOfBoundsException("subsystem: " + subsystem + ", count: " + voltageCount);
+        }
+        return voltageIndex[subsystem];
+    }
+
+    // 可充电储能装置温度数据
+
+    public int getTemperatureSubsystemCount() {
+        return temperatureCount;
+    }
+
+    public int getTemperatureSubsystemNumber(int subsystem) {
+        return buf.getByte(temperatureIndex(subsystem));
+    }
+
+    public int getProbeCount(int subsystem) {
+        return buf.getUnsignedShort(temperatureIndex(subsystem) + 1);
+    }
+
+    public int getProbeTemperature(int subsystem, int probe) {
+        return buf.getUnsignedByte(temperatureIndex(subsystem) + 3 + probe) - 40;
+    }
+
+    /**
+     * 把一个子系统的全部探针温度读到可复用的数组中
+     * @param subsystem 子系统下标
+     * @param dst 目标数组，长度不小于 {@link #getProbeCount(int)}
+     * @return 探针个数
+     */
+    public int getProbeTemperatures(int subsystem, short[] dst) {
+        int count = getProbeCount(subsystem);
+        CellValues.getTemperatures(buf, temperatureIndex(subsystem) + 3, count, dst);
+        return count;
+    }
+
+    private int temperatureIndex(int subsystem) {
+        if (subsystem >= temperatureCount) {
+            throw new IndexOutOfBoundsException("subsystem: " + subsystem + ", count: " + temperatureCount);
+        }
+        return temperatureIndex[subsystem];
+    }
+
+}
@@ -19,7 +19,10 @@ public enum RequestType {
     REISSUE((byte) 0x03),
     // 车辆登出
     LOGOUT((byte) 0x04),
-
+    // 平台登入，向上级平台转发时使用
+    PLATFORM_LOGIN((byte) 0x05),
+    // 平台登出
+    PLATFORM_LOGOUT((byte) 0x06),
     // 心跳
     HEARTBEAT((byte) 0x07),
     // 终端校时
@@ -33,13 +36,29 @@ public enum RequestType {
 
     private final byte value;
 
-    public static RequestType valueOf(byte type) {
+    private static final RequestType[] TABLE = new RequestType[256];
+
+    static {
         for (RequestType t : values()) {
-            if (t.value == type) {
-                return t;
-            }
+            TABLE[t.value & 0xFF] = t;
+        }
+    }
+
+    /**
+     * 查表取得编码对应的类型
+     * @param type 编码
+     * @return 类型，未知编码返回 null
+     */
+    public static RequestType lookup(byte type) {
+        return TABLE[type & 0xFF];
+    }
+
+    public static RequestType valueOf(byte type) {
+        RequestType t = TABLE[type & 0xFF];
+        if (t == null) {
+            throw new IllegalArgumentException("Unknown message type : " + type);
         }
-        throw new IllegalArgumentException("Unknown message type : " + type);
+        return t;
     }
 
 }
@@ -24,13 +24,29 @@ public enum ResponseTag {
     private final byte value;
 
 
-    public static ResponseTag valueOf(byte type) {
+    private static final ResponseTag[] TABLE = new ResponseTag[256];
+
+    static {
         for (ResponseTag t : values()) {
-            if (t.value == type) {
-                return t;
-            }
+            TABLE[t.value & 0xFF] = t;
+        }
+    }
+
+    /**
+     * 查表取得编码对应的类型
+     * @param type 编码
+     * @return 类型，未知编码返回 null
+     */
+    public static ResponseTag lookup(byte type) {
+        return TABLE[type & 0xFF];
+    }
+
+    public static ResponseTag valueOf(byte type) {
+        ResponseTag t = TABLE[type & 0xFF];
+        if (t == null) {
+            throw new IllegalArgumentException("Unknown message type : " + type);
         }
-        throw new IllegalArgumentException("Unknown message type : " + type);
+        return t;
     }
 
 }
@@ -0,0 +1,149 @@
+package com.ime.gbt32960.codec;
+
+import io.netty.buffer.ByteBuf;
+
+import java.time.DateTimeException;
+
+/**
+ * 报文时间（年-2000、月、日、时、分、秒各 1 字节，东八区）与 epoch 秒之间的换算。
+ * <p>
+ * 东八区没有夏令时，偏移固定，因此直接按公历算术换算，不经过 ZonedDateTime；
+ * 同一天内的报文占绝大多数，最近一次换算的日期会被缓存，命中时只需计算时分秒。
+ *
+ * @author Qingxi
+ */
+public final class TimeCodec {
+
+    private static final int OFFSET_SECONDS = 8 * 3600;
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final int BASE_YEAR = 2000;
+
+    /**
+     * 最近一次换算的日期，不可变对象，整体替换
+     */
+    private static volatile Day lastDay = Day.of(0);
+
+    private TimeCodec() {
+    }
+
+    /**
+     * 从 index 处读取报文时间
+     * @param in ByteBuf
+     * @param index 开始位置
+     * @return epoch 秒
+     * @throws DateTimeException 年月日时分秒超出范围
+     */
+    public static long getTime(ByteBuf in, int index) {
+        return toEpochSecond(in.getByte(index) + BASE_YEAR,
+                in.getByte(index + 1),
+                in.getByte(index + 2),
+                in.getByte(index + 3),
+                in.getByte(index + 4),
+                in.getByte(index + 5));
+    }
+
+    /**
+     * 写入报文时间
+     * @param out ByteBuf
+     * @param epochSecond epoch 秒
+     */
+    public static void writeTime(ByteBuf out, long epochSecond) {
+        long local = epochSecond + OFFSET_SECONDS;
+        long epochDay = Math.floorDiv(local, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(local, SECONDS_PER_DAY);
+        Day day = lastDay;
+        if (day.epochDay != epochDay) {
+            day = Day.of(epochDay);
+            lastDay = day;
+        }
+        out.writeByte(day.year - BASE_YEAR);
+        out.writeByte(day.month);
+        out.writeByte(day.dayOfMonth);
+        out.writeByte(secondOfDay / 3600);
+        out.writeByte(secondOfDay / 60 % 60);
+        out.writeByte(secondOfDay % 60);
+    }
+
+    /**
+     * 东八区的年月日时分秒换算为 epoch 秒
+     * @throws DateTimeException 字段超出范围
+     */
+    public static long toEpochSecond(int year, int month, int dayOfMonth, int hour, int minute, int second) {
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            throw new DateTimeException(String.format("Invalid time: %02d:%02d:%02d", hour, minute, second));
+        }
+        Day day = lastDay;
+        long epochDay;
+        if (day.year == year && day.month == month && day.dayOfMonth == dayOfMonth) {
+            epochDay = day.epochDay;
+        } else {
+            if (month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > lengthOfMonth(year, month)) {
+                throw new DateTimeException(String.format("Invalid date: %d-%02d-%02d", year, month, dayOfMonth));
+            }
+            epochDay = toEpochDay(year, month, dayOfMonth);
+            lastDay = new Day(epochDay, year, month, dayOfMonth);
+        }
+        return epochDay * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second - OFFSET_SECONDS;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * 公历日期换算为 epoch 日，算法见 http://howardhinnant.github.io/date_algorithms.html
+     */
+    private static long toEpochDay(int year, int month, int dayOfMonth) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static final class Day {
+        private final long epochDay;
+        private final int year;
+        private final int month;
+        private final int dayOfMonth;
+
+        private Day(long epochDay, int year, int month, int dayOfMonth) {
+            this.epochDay = epochDay;
+            this.year = year;
+            this.month = month;
+            this.dayOfMonth = dayOfMonth;
+        }
+
+        /**
+         * epoch 日换算为公历日期，toEpochDay 的逆运算
+         */
+        private static Day of(long epochDay) {
+            long z = epochDay + 719468;
+            long era = (z >= 0 ? z : z - 146096) / 146097;
+            int dayOfEra = (int) (z - era * 146097);
+            int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+            int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+            int mp = (5 * dayOfYear + 2) / 153;
+            int dayOfMonth = dayOfYear - (153 * mp + 2) / 5 + 1;
+            int month = mp < 10 ? mp + 3 : mp - 9;
+            int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+            return new Day(epochDay, year, month, dayOfMonth);
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.ime.gbt32960.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 处理实时信息中无法识别的信息类型，避免一个未知的信息块使整帧解析失败，
+ * 默认实现见 {@link ReportDecoder#skipUnknownBlock(byte, ByteBuf)}
+ *
+ * @author Qingxi
+ */
+@FunctionalInterface
+public interface UnknownBlockHandler {
+
+    /**
+     * @param type 信息类型编码
+     * @param in 读位置在类型编码之后
+     * @return true 表示已跳过该信息块，可以继续解析；false 表示停止解析剩余数据
+     */
+    boolean onUnknownBlock(byte type, ByteBuf in);
+
+}
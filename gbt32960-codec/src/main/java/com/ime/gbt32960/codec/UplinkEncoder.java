@@ -0,0 +1,166 @@
+package com.ime.gbt32960.codec;
+
+import com.ime.iov.gbt32960.LoginRequest;
+import com.ime.iov.gbt32960.LogoutRequest;
+import com.ime.iov.gbt32960.RealTimeReport;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import static com.ime.gbt32960.codec.GBT32960Message.*;
+
+/**
+ * 终端侧上行帧编码：实时/补发信息、车辆登入、登出和心跳，{@link GBT32960Decoder} 的逆过程。
+ * 用于构造测试数据、向上级平台转发以及终端模拟。
+ * <p>
+ * 编码前先算出整帧长度，按此从池化分配器一次取得容量恰好的缓冲区（最大容量同为该长度），
+ * 写入过程中不会扩容；长度计算与写入不一致时会因越界而立即失败。
+ *
+ * @author Qingxi
+ */
+public class UplinkEncoder extends MessageToByteEncoder<GBT32960Message> {
+
+    /**
+     * 起始符 + 头部 + 校验位
+     */
+    public static final int FRAME_OVERHEAD = START_SYMBOL_LENGTH + FrameHeader.HEADER_LENGTH + 1;
+
+    private static final int ICCID_LENGTH = 20;
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, GBT32960Message msg, boolean preferDirect) {
+        int length = frameLength(msg.getHeader().getRequestType(), msg.getPayload());
+        return preferDirect ? ctx.alloc().ioBuffer(length, length) : ctx.alloc().heapBuffer(length, length);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, GBT32960Message msg, ByteBuf out) {
+        FrameHeader header = msg.getHeader();
+        ResponseTag tag = header.getResponseTag() != null ? header.getResponseTag() : ResponseTag.COMMAND;
+        encodeFrame(out, header.getVin(), header.getRequestType(), tag, msg.getPayload());
+    }
+
+    /**
+     * 编码实时信息帧，按 report 的 reissue 标志选择实时或补发
+     * @param alloc 分配器
+     * @param vin VIN
+     * @param report 实时信息
+     * @return 整帧
+     */
+    public static ByteBuf report(ByteBufAllocator alloc, String vin, RealTimeReport report) {
+        return frame(alloc, vin, report.getReissue() ? RequestType.REISSUE : RequestType.REAL_TIME, report);
+    }
+
+    public static ByteBuf login(ByteBufAllocator alloc, String vin, LoginRequest login) {
+        return frame(alloc, vin, RequestType.LOGIN, login);
+    }
+
+    public static ByteBuf logout(ByteBufAllocator alloc, String vin, LogoutRequest logout) {
+        return frame(alloc, vin, RequestType.LOGOUT, logout);
+    }
+
+    public static ByteBuf heartbeat(ByteBufAllocator alloc, String vin) {
+        return frame(alloc, vin, RequestType.HEARTBEAT, null);
+    }
+
+    private static ByteBuf frame(ByteBufAllocator alloc, String vin, RequestType type, Object payload) {
+        int length = frameLength(type, payload);
+        ByteBuf out = alloc.buffer(length, length);
+        try {
+            encodeFrame(out, vin, type, ResponseTag.COMMAND, payload);
+            return out;
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 计算整帧长度
+     * @param type 命令标识
+     * @param payload 数据单元
+     * @return 字节数
+     * @throws EncoderException 不支持的命令或数据单元
+     */
+    public static int frameLength(RequestType type, Object payload) {
+        return FRAME_OVERHEAD + payloadLength(type, payload);
+    }
+
+    private static int payloadLength(RequestType type, Object payload) {
+        switch (type) {
+            case REAL_TIME:
+            case REISSUE:
+                return ReportEncoder.payloadLength(cast(payload, RealTimeReport.class));
+            case LOGIN:
+                LoginRequest login = cast(payload, LoginRequest.class);
+                return TIME_LENGTH + 2 + ICCID_LENGTH + 2
+                        + login.getChargeableSubsystemCodeCount() * login.getSystemCodeLength();
+            case LOGOUT:
+                cast(payload, LogoutRequest.class);
+                return TIME_LENGTH + 2;
+            case HEARTBEAT:
+                return 0;
+            default:
+                throw new EncoderException("不支持的上行命令: " + type);
+        }
+    }
+
+    private static void encodeFrame(ByteBuf out, String vin, RequestType type, ResponseTag tag, Object payload) {
+        switch (type) {
+            case REAL_TIME:
+            case REISSUE:
+                encodeMessage(out, vin, type, tag, buf -> ReportEncoder.encode((RealTimeReport) payload, buf));
+                break;
+            case LOGIN:
+                encodeMessage(out, vin, type, tag, buf -> encodeLogin((LoginRequest) payload, buf));
+                break;
+            case LOGOUT:
+                encodeMessage(out, vin, type, tag, buf -> encodeLogout((LogoutRequest) payload, buf));
+                break;
+            case HEARTBEAT:
+                encodeMessage(out, vin, type, tag, buf -> { });
+                break;
+            default:
+                throw new EncoderException("不支持的上行命令: " + type);
+        }
+    }
+
+    /**
+     * 编码登入数据，可充电储能系统编码按 system_code_length 定长写入
+     * @param login 登入数据
+     * @param out ByteBuf
+     */
+    private static void encodeLogin(LoginRequest login, ByteBuf out) {
+        writeTime(out, login.getRecordTime());
+        out.writeShort(login.getLoginDaySeq());
+        writeFixed(out, login.getIccid(), ICCID_LENGTH);
+        out.writeByte(login.getChargeableSubsystemCodeCount());
+        out.writeByte(login.getSystemCodeLength());
+        for (int i = 0; i < login.getChargeableSubsystemCodeCount(); i++) {
+            writeFixed(out, login.getChargeableSubsystemCode(i), login.getSystemCodeLength());
+        }
+    }
+
+    private static void encodeLogout(LogoutRequest logout, ByteBuf out) {
+        writeTime(out, logout.getRecordTime());
+        out.writeShort((int) logout.getLogoutDaySeq());
+    }
+
+    /**
+     * 写入定长 ASCII 字段，过长截断，不足补 0
+     */
+    private static void writeFixed(ByteBuf out, String value, int length) {
+        int written = out.writeCharSequence(value.length() > length ? value.substring(0, length) : value, ASCII_CHARSET);
+        out.writeZero(length - written);
+    }
+
+    private static <T> T cast(Object payload, Class<T> type) {
+        if (!type.isInstance(payload)) {
+            throw new EncoderException("数据单元应为 " + type.getSimpleName() + ": " + payload);
+        }
+        return type.cast(payload);
+    }
+
+}
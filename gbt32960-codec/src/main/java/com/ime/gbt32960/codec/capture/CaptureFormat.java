@@ -0,0 +1,45 @@
+package com.ime.gbt32960.codec.capture;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 抓包文件格式（大端）：
+ * <pre>
+ * 文件头: magic(4) "GBTC" | version(2)
+ * 记录:   接收/发送时间 epoch 毫秒(8) | 方向(1) | VIN(17, 不足补 0) | 帧长度(4) | 原始帧
+ * </pre>
+ *
+ * @author Qingxi
+ */
+public final class CaptureFormat {
+
+    public static final int MAGIC = 0x47425443;
+    public static final short VERSION = 1;
+
+    public static final byte INBOUND = 1;
+    public static final byte OUTBOUND = 2;
+
+    public static final int VIN_LENGTH = 17;
+    public static final int RECORD_HEADER_LENGTH = 8 + 1 + VIN_LENGTH + 4;
+
+    private CaptureFormat() {
+    }
+
+    static void writeFileHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    static void readFileHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a frame capture file");
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported capture version: " + version);
+        }
+    }
+
+}
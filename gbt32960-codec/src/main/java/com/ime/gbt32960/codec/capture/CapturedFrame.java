@@ -0,0 +1,22 @@
+package com.ime.gbt32960.codec.capture;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 抓包文件中的一条记录
+ *
+ * @author Qingxi
+ */
+@Getter
+@AllArgsConstructor
+public class CapturedFrame {
+    private final long time;
+    private final byte direction;
+    private final String vin;
+    private final byte[] frame;
+
+    public boolean isInbound() {
+        return direction == CaptureFormat.INBOUND;
+    }
+}
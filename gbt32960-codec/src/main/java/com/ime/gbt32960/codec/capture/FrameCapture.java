@@ -0,0 +1,186 @@
+package com.ime.gbt32960.codec.capture;
+
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.ime.gbt32960.codec.GBT32960Message.ASCII_CHARSET;
+
+/**
+ * 原始帧抓取：按 VIN 采样，把上下行的原始帧写入二进制抓包文件。
+ * <p>
+ * 调用线程只做采样判断和一次拷贝，记录放入有界队列后由后台线程写盘；
+ * 队列满时直接丢弃并计数，不会阻塞 I/O 线程。文件格式见 {@link CaptureFormat}，
+ * 可以用 {@link FrameCaptureReader} 离线还原成十六进制文本。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class FrameCapture implements Closeable {
+
+    private static final FrameCapture DISABLED = new FrameCapture();
+
+    /**
+     * close() 放入队列唤醒写线程的空记录
+     */
+    private static final byte[] STOP = new byte[0];
+
+    private final boolean enabled;
+    private final double defaultRate;
+    private final Map<String, Double> vinRates = new ConcurrentHashMap<>();
+    private final BlockingQueue<byte[]> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final DataOutputStream output;
+    private final Thread writer;
+    private volatile boolean running;
+
+    private FrameCapture() {
+        this.enabled = false;
+        this.defaultRate = 0;
+        this.queue = null;
+        this.output = null;
+        this.writer = null;
+    }
+
+    /**
+     * @param file 抓包文件
+     * @param defaultRate 默认采样率，0 ~ 1
+     * @param queueCapacity 待写记录队列容量
+     * @throws IOException 创建文件失败
+     */
+    public FrameCapture(Path file, double defaultRate, int queueCapacity) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.enabled = true;
+        this.defaultRate = defaultRate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        CaptureFormat.writeFileHeader(output);
+        this.running = true;
+        this.writer = new Thread(this::drain, "frame-capture");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        log.info("原始帧抓取文件: {}, 默认采样率: {}", file, defaultRate);
+    }
+
+    public static FrameCapture disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置单个 VIN 的采样率，覆盖默认值
+     * @param vin VIN
+     * @param rate 采样率，0 ~ 1
+     */
+    public void setSampleRate(String vin, double rate) {
+        vinRates.put(vin, rate);
+    }
+
+    public void removeSampleRate(String vin) {
+        vinRates.remove(vin);
+    }
+
+    /**
+     * @return 因队列已满而丢弃的记录数
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private boolean sample(String vin) {
+        double rate = vinRates.isEmpty() ? defaultRate : vinRates.getOrDefault(vin, defaultRate);
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * 按采样率抓取一帧
+     * @param vin VIN
+     * @param frame 帧所在的 ByteBuf，读写位置不会被修改
+     * @param index 帧开始位置（起始符）
+     * @param length 帧长度（含校验位）
+     * @param direction {@link CaptureFormat#INBOUND} 或 {@link CaptureFormat#OUTBOUND}
+     */
+    public void capture(String vin, ByteBuf frame, int index, int length, byte direction) {
+        if (!enabled || !running || !sample(vin)) {
+            return;
+        }
+        byte[] record = new byte[CaptureFormat.RECORD_HEADER_LENGTH + length];
+        ByteBuffer header = ByteBuffer.wrap(record);
+        header.putLong(System.currentTimeMillis());
+        header.put(direction);
+        byte[] vinBytes = vin.getBytes(ASCII_CHARSET);
+        header.put(vinBytes, 0, Math.min(vinBytes.length, CaptureFormat.VIN_LENGTH));
+        header.position(CaptureFormat.RECORD_HEADER_LENGTH - 4);
+        header.putInt(length);
+        frame.getBytes(index, record, CaptureFormat.RECORD_HEADER_LENGTH, length);
+        if (!queue.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        List<byte[]> batch = new ArrayList<>(256);
+        while (running || !queue.isEmpty()) {
+            try {
+                byte[] first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, 255);
+                for (byte[] record : batch) {
+                    output.write(record);
+                }
+                batch.clear();
+                if (queue.isEmpty()) {
+                    output.flush();
+                }
+            } catch (InterruptedException e) {
+                // close() 不中断写线程，中断会使 FileChannel 关闭；被其他代码中断时退出
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.error("写入抓包文件失败", e);
+                batch.clear();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!enabled || !running) {
+            return;
+        }
+        running = false;
+        // 空记录唤醒等待中的写线程，写出时不产生任何字节；队列已满时写线程本就不会等待
+        queue.offer(STOP);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        output.close();
+    }
+
+}
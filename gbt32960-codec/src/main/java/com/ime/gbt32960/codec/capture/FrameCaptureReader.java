@@ -0,0 +1,87 @@
+package com.ime.gbt32960.codec.capture;
+
+import io.netty.buffer.ByteBufUtil;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+import static com.ime.gbt32960.codec.GBT32960Message.ASCII_CHARSET;
+import static com.ime.gbt32960.codec.GBT32960Message.ZONE_UTC8;
+
+/**
+ * 抓包文件的离线读取工具，用法：
+ * <pre>
+ * java -cp gbt32960-codec.jar com.ime.gbt32960.codec.capture.FrameCaptureReader capture.bin [VIN]
+ * </pre>
+ * 每条记录输出一行：时间、方向、VIN、帧的十六进制
+ *
+ * @author Qingxi
+ */
+public class FrameCaptureReader implements Closeable {
+
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZONE_UTC8);
+
+    private final DataInputStream in;
+
+    public FrameCaptureReader(Path file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+        CaptureFormat.readFileHeader(in);
+    }
+
+    /**
+     * @return 下一条记录，文件结束（或最后一条记录不完整）时返回 null
+     * @throws IOException 读取失败
+     */
+    public CapturedFrame next() throws IOException {
+        try {
+            long time = in.readLong();
+            byte direction = in.readByte();
+            byte[] vin = new byte[CaptureFormat.VIN_LENGTH];
+            in.readFully(vin);
+            byte[] frame = new byte[in.readInt()];
+            in.readFully(frame);
+            int vinLength = 0;
+            while (vinLength < vin.length && vin[vinLength] != 0) {
+                vinLength++;
+            }
+            return new CapturedFrame(time, direction, new String(vin, 0, vinLength, ASCII_CHARSET), frame);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: FrameCaptureReader <capture file> [VIN]");
+            System.exit(1);
+        }
+        String vinFilter = args.length > 1 ? args[1] : null;
+        try (FrameCaptureReader reader = new FrameCaptureReader(Paths.get(args[0]))) {
+            CapturedFrame frame;
+            while ((frame = reader.next()) != null) {
+                if (vinFilter != null && !vinFilter.equals(frame.getVin())) {
+                    continue;
+                }
+                System.out.println(TIME_FORMAT.format(Instant.ofEpochMilli(frame.getTime()))
+                        + (frame.isInbound() ? " 上行 " : " 下行 ")
+                        + frame.getVin() + " "
+                        + ByteBufUtil.hexDump(frame.getFrame()));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.ime.gbt32960.codec.crypto;
+
+import static com.ime.gbt32960.codec.GBT32960Message.VIN_CHARS;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * 从目录读取各车辆的密钥：{VIN}.aes 为 16 字节的 AES128 密钥原文，{VIN}.pub 为 X.509 DER 编码的终端 RSA 公钥；
+ * 平台 RSA 私钥为 PKCS#8 DER 编码，所有车辆共用。文件不存在时返回 null。
+ *
+ * @author Qingxi
+ */
+public class DirectoryKeyResolver implements KeyResolver {
+
+    public static final String AES_SUFFIX = ".aes";
+
+    public static final String PUBLIC_KEY_SUFFIX = ".pub";
+
+    private static final int AES_KEY_LENGTH = 16;
+
+    private final Path dir;
+
+    private final PrivateKey platformKey;
+
+    /**
+     * @param dir 车辆密钥目录
+     * @param platformKeyFile 平台 RSA 私钥文件，为 null 时不支持 RSA 上行
+     */
+    public DirectoryKeyResolver(Path dir, Path platformKeyFile) throws IOException, GeneralSecurityException {
+        this.dir = dir;
+        this.platformKey = platformKeyFile == null ? null : KeyFactory.getInstance("RSA")
+                .generatePrivate(new PKCS8EncodedKeySpec(Files.readAllBytes(platformKeyFile)));
+    }
+
+    @Override
+    public SecretKey aesKey(String vin) {
+        byte[] bytes = read(vin, AES_SUFFIX);
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length != AES_KEY_LENGTH) {
+            throw new IllegalStateException(vin + AES_SUFFIX + " 长度为 " + bytes.length + "，应为 " + AES_KEY_LENGTH);
+        }
+        return new SecretKeySpec(bytes, "AES");
+    }
+
+    @Override
+    public PrivateKey rsaPrivateKey(String vin) {
+        return platformKey;
+    }
+
+    @Override
+    public PublicKey rsaPublicKey(String vin) {
+        byte[] bytes = read(vin, PUBLIC_KEY_SUFFIX);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(bytes));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(vin + PUBLIC_KEY_SUFFIX + " 不是有效的 RSA 公钥", e);
+        }
+    }
+
+    private byte[] read(String vin, String suffix) {
+        if (!VIN_CHARS.matchesAllOf(vin)) {
+            return null;
+        }
+        Path file = dir.resolve(vin + suffix);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.ime.gbt32960.codec.crypto;
+
+import javax.crypto.SecretKey;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+/**
+ * 按 VIN 查找数据单元加解密所用的密钥，结果由 {@link PayloadCipher} 缓存，实现不必自己缓存。
+ * 没有对应密钥时返回 null。
+ *
+ * @author Qingxi
+ */
+public interface KeyResolver {
+
+    /**
+     * @param vin VIN
+     * @return 终端与平台共用的 AES128 密钥
+     */
+    SecretKey aesKey(String vin);
+
+    /**
+     * @param vin VIN
+     * @return 解密终端上行 RSA 数据单元的平台私钥，通常所有车辆共用一把
+     */
+    PrivateKey rsaPrivateKey(String vin);
+
+    /**
+     * @param vin VIN
+     * @return 加密下行 RSA 数据单元的终端公钥
+     */
+    PublicKey rsaPublicKey(String vin);
+
+}
@@ -0,0 +1,292 @@
+package com.ime.gbt32960.codec.crypto;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.ime.gbt32960.codec.EncryptionType;
+import com.ime.gbt32960.codec.FrameHeader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.EncoderException;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.RSAKey;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 数据单元的 RSA / AES128 加解密。
+ * <p>
+ * Cipher 创建开销大且不是线程安全的，每个线程（EventLoop、解析线程）各持有一个，放在 FastThreadLocal 中，
+ * 连续使用同一把密钥时不重新 init。各车辆的密钥经 {@link KeyResolver} 查到后缓存，数量和时长有上限，
+ * 密钥轮换最迟在缓存过期后生效，也可以调用 {@link #invalidate(String)} 立即生效。
+ * 解密结果写入池化的直接内存。
+ * <p>
+ * 标准没有规定分组模式和填充方式，这里按多数终端的做法：AES/ECB/PKCS5Padding、RSA/ECB/PKCS1Padding；
+ * RSA 按密钥长度分块，每块单独加密后顺序拼接。
+ *
+ * @author Qingxi
+ */
+public class PayloadCipher {
+
+    public static final String AES_TRANSFORMATION = "AES/ECB/PKCS5Padding";
+
+    public static final String RSA_TRANSFORMATION = "RSA/ECB/PKCS1Padding";
+
+    /**
+     * 连接上终端最近一帧的加密方式，下行帧按此加密
+     */
+    public static final AttributeKey<EncryptionType> ENCRYPTION = AttributeKey.valueOf("gbt32960.encryption");
+
+    /**
+     * PKCS#1 v1.5 填充占用的字节数
+     */
+    private static final int RSA_PADDING_LENGTH = 11;
+
+    private static final PayloadCipher DISABLED = new PayloadCipher();
+
+    private final boolean enabled;
+
+    private final LoadingCache<String, VehicleKeys> keys;
+
+    private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+
+    private final FastThreadLocal<CipherContext> aesContext = contextLocal(AES_TRANSFORMATION);
+
+    private final FastThreadLocal<CipherContext> rsaContext = contextLocal(RSA_TRANSFORMATION);
+
+    private PayloadCipher() {
+        this.enabled = false;
+        this.keys = null;
+    }
+
+    /**
+     * @param resolver 密钥来源
+     * @param maxVehicles 最多缓存多少辆车的密钥
+     * @param expireMinutes 密钥缓存的分钟数
+     */
+    public PayloadCipher(KeyResolver resolver, long maxVehicles, long expireMinutes) {
+        this.enabled = true;
+        this.keys = CacheBuilder.newBuilder()
+                .maximumSize(maxVehicles)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .build(CacheLoader.from(vin -> new VehicleKeys(
+                        resolver.aesKey(vin), resolver.rsaPrivateKey(vin), resolver.rsaPublicKey(vin))));
+    }
+
+    public static PayloadCipher disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return 是否为需要加解密的加密方式，异常和无效按明文处理
+     */
+    public static boolean isEncrypted(EncryptionType type) {
+        return type == EncryptionType.RSA || type == EncryptionType.AES128;
+    }
+
+    /**
+     * 记录连接上终端使用的加密方式，一直是明文的连接不创建属性
+     * @param channel 终端连接
+     * @param type 上行帧的加密方式
+     */
+    public static void track(Channel channel, EncryptionType type) {
+        if (type == EncryptionType.PLAIN ? !channel.hasAttr(ENCRYPTION) : !isEncrypted(type)) {
+            return;
+        }
+        Attribute<EncryptionType> attr = channel.attr(ENCRYPTION);
+        if (attr.get() != type) {
+            attr.set(type);
+        }
+    }
+
+    /**
+     * @param channel 终端连接
+     * @return 下行帧应使用的加密方式，终端未发过加密帧时为明文
+     */
+    public static EncryptionType encryption(Channel channel) {
+        EncryptionType type = channel.hasAttr(ENCRYPTION) ? channel.attr(ENCRYPTION).get() : null;
+        return type != null ? type : EncryptionType.PLAIN;
+    }
+
+    /**
+     * 解密上行数据单元
+     * @param header 头部，按其中的加密方式和 VIN 选择密钥
+     * @param in 密文，读写位置不变
+     * @return 明文，调用方负责释放
+     * @throws DecoderException 未启用、没有密钥或密文无法解密
+     */
+    public ByteBuf decrypt(FrameHeader header, ByteBuf in) {
+        EncryptionType type = header.getEncryptionType();
+        String vin = header.getVin();
+        if (!enabled) {
+            throw new DecoderException("未启用数据单元解密，无法解析 " + type + " 加密帧: " + vin);
+        }
+        if (!in.isReadable()) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+        VehicleKeys vehicle = keys.getUnchecked(vin);
+        Key key = type == EncryptionType.RSA ? vehicle.rsaPrivateKey : vehicle.aesKey;
+        if (key == null) {
+            throw new DecoderException("没有 " + vin + " 的 " + type + " 解密密钥");
+        }
+        int length = in.readableBytes();
+        int blockLength = type == EncryptionType.RSA ? modulusLength(key) : length;
+        if (length % blockLength != 0) {
+            throw new DecoderException(vin + " 的 RSA 密文长度 " + length + " 不是密钥长度的整数倍");
+        }
+        ByteBuf out = alloc.directBuffer(length);
+        try {
+            process(context(type), Cipher.DECRYPT_MODE, key, in, blockLength, out);
+            return out;
+        } catch (GeneralSecurityException e) {
+            out.release();
+            throw new DecoderException(vin + " 的数据单元解密失败", e);
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 加密下行数据单元，明文为空时不写入
+     * @param vin VIN
+     * @param type RSA 或 AES128
+     * @param payloadEncoder 写入明文
+     * @param out 密文写入位置
+     * @throws EncoderException 没有密钥或加密失败
+     */
+    public void encrypt(String vin, EncryptionType type, Consumer<ByteBuf> payloadEncoder, ByteBuf out) {
+        ByteBuf plain = alloc.directBuffer();
+        try {
+            payloadEncoder.accept(plain);
+            if (!plain.isReadable()) {
+                return;
+            }
+            VehicleKeys vehicle = keys.getUnchecked(vin);
+            Key key = type == EncryptionType.RSA ? vehicle.rsaPublicKey : vehicle.aesKey;
+            if (key == null) {
+                throw new EncoderException("没有 " + vin + " 的 " + type + " 加密密钥");
+            }
+            int blockLength = type == EncryptionType.RSA
+                    ? modulusLength(key) - RSA_PADDING_LENGTH : plain.readableBytes();
+            process(context(type), Cipher.ENCRYPT_MODE, key, plain, blockLength, out);
+        } catch (GeneralSecurityException e) {
+            throw new EncoderException(vin + " 的数据单元加密失败", e);
+        } finally {
+            plain.release();
+        }
+    }
+
+    /**
+     * 丢弃缓存的密钥，下次使用时重新查找
+     * @param vin VIN
+     */
+    public void invalidate(String vin) {
+        if (enabled) {
+            keys.invalidate(vin);
+        }
+    }
+
+    private CipherContext context(EncryptionType type) {
+        return type == EncryptionType.RSA ? rsaContext.get() : aesContext.get();
+    }
+
+    /**
+     * 按 blockLength 分块，每块一次 doFinal，直接在两个缓冲区的内存上处理，不经过 byte[]
+     */
+    private static void process(CipherContext context, int mode, Key key, ByteBuf in, int blockLength, ByteBuf out)
+            throws GeneralSecurityException {
+        try {
+            Cipher cipher = context.init(mode, key);
+            int index = in.readerIndex();
+            int end = in.writerIndex();
+            int blocks = (end - index + blockLength - 1) / blockLength;
+            out.ensureWritable(blocks * cipher.getOutputSize(blockLength));
+            for (; index < end; index += blockLength) {
+                int length = Math.min(blockLength, end - index);
+                int written = cipher.doFinal(in.nioBuffer(index, length),
+                        out.nioBuffer(out.writerIndex(), out.writableBytes()));
+                out.writerIndex(out.writerIndex() + written);
+            }
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // 失败后 Cipher 的状态不确定，下次重新 init
+            context.reset();
+            throw e;
+        }
+    }
+
+    private static int modulusLength(Key key) {
+        return (((RSAKey) key).getModulus().bitLength() + 7) / 8;
+    }
+
+    private static FastThreadLocal<CipherContext> contextLocal(String transformation) {
+        return new FastThreadLocal<CipherContext>() {
+            @Override
+            protected CipherContext initialValue() throws Exception {
+                return new CipherContext(Cipher.getInstance(transformation));
+            }
+        };
+    }
+
+    /**
+     * 线程独占的 Cipher 及其当前的模式和密钥
+     */
+    private static final class CipherContext {
+
+        private final Cipher cipher;
+        private int mode;
+        private Key key;
+
+        CipherContext(Cipher cipher) {
+            this.cipher = cipher;
+        }
+
+        Cipher init(int mode, Key key) throws GeneralSecurityException {
+            if (key != this.key || mode != this.mode) {
+                this.key = null;
+                cipher.init(mode, key);
+                this.mode = mode;
+                this.key = key;
+            }
+            return cipher;
+        }
+
+        void reset() {
+            key = null;
+        }
+    }
+
+    /**
+     * 一辆车的密钥，没有的为 null
+     */
+    private static final class VehicleKeys {
+
+        private final SecretKey aesKey;
+        private final PrivateKey rsaPrivateKey;
+        private final PublicKey rsaPublicKey;
+
+        VehicleKeys(SecretKey aesKey, PrivateKey rsaPrivateKey, PublicKey rsaPublicKey) {
+            this.aesKey = aesKey;
+            this.rsaPrivateKey = rsaPrivateKey;
+            this.rsaPublicKey = rsaPublicKey;
+        }
+    }
+
+}
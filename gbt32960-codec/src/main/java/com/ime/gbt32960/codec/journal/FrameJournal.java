@@ -0,0 +1,438 @@
+package com.ime.gbt32960.codec.journal;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.FastThreadLocal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 只追加的原始帧日志：校验通过的每一帧连同接收时间写入按固定大小内存映射的段文件，
+ * 段写满后滚动到新段，旧段在后台线程上压缩为 gzip。格式见 {@link JournalFormat}。
+ * <p>
+ * 写入只是一次内存拷贝，由操作系统负责落盘，进程崩溃不会丢失已写入的记录。
+ * 每个写入线程（EventLoop）写自己的段，线程之间不竞争锁；同一连接的帧总在同一个线程上，
+ * 在段内保持接收顺序，不同线程的段按创建顺序编号、时间上互相交错。
+ * 新段由后台线程预先创建并映射，滚动时直接换上，旧段的刷盘和关闭也在后台线程上执行，
+ * I/O 线程不会等待磁盘。VIN 索引同样写入映射的索引文件，写入后即对读取方可见，封存时才补上结尾索引。
+ * <p>
+ * 作为转发溢写时，由 {@link #roll()} 封存各线程的当前段，再由 {@link #sealedSegments()} 取出可以重发、删除的段，
+ * 日志本身一直保持打开。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class FrameJournal implements Closeable {
+
+    private static final FrameJournal DISABLED = new FrameJournal();
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean compress;
+
+    /**
+     * 创建新段、封存旧段
+     */
+    private final ExecutorService roller;
+    private final ExecutorService compressor;
+    private final LongAdder appended = new LongAdder();
+    private final AtomicLong segmentSeq;
+
+    private final FastThreadLocal<Lane> lane;
+    private final List<Lane> lanes = new CopyOnWriteArrayList<>();
+
+    /**
+     * 已创建、尚未封存（需要压缩时尚未压缩完）的段，{@link #sealedSegments()} 不包含它们
+     */
+    private final Set<Path> open = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 预先创建好的下一个段，任何线程滚动时取走并立即准备下一个
+     */
+    private final Object spareLock = new Object();
+    private Future<Segment> spare;
+
+    private volatile boolean closed;
+
+    private FrameJournal() {
+        this.enabled = false;
+        this.dir = null;
+        this.segmentBytes = 0;
+        this.compress = false;
+        this.roller = null;
+        this.compressor = null;
+        this.segmentSeq = null;
+        this.lane = null;
+    }
+
+    /**
+     * @param dir 日志目录，已有的段不会被改写，新段序号接在已有段之后
+     * @param segmentBytes 段文件大小，不小于 1 MB
+     * @param compress 滚动后是否压缩旧段
+     * @throws IOException 创建段文件失败
+     */
+    public FrameJournal(Path dir, int segmentBytes, boolean compress) throws IOException {
+        if (segmentBytes < 1024 * 1024) {
+            throw new IllegalArgumentException("segmentBytes < 1MB");
+        }
+        Files.createDirectories(dir);
+        this.enabled = true;
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.compress = compress;
+        this.roller = Executors.newSingleThreadExecutor(new DefaultThreadFactory("frame-journal-roll", true));
+        this.compressor = Executors.newSingleThreadExecutor(new DefaultThreadFactory("frame-journal-compress", true));
+        this.segmentSeq = new AtomicLong(nextSegmentSeq(dir));
+        this.lane = new FastThreadLocal<Lane>() {
+            @Override
+            protected Lane initialValue() {
+                Lane lane = new Lane();
+                lanes.add(lane);
+                return lane;
+            }
+        };
+        // 第一个段同步创建，目录不可写时在构造时就失败
+        this.spare = CompletableFuture.completedFuture(openSegment());
+        log.info("原始帧日志目录: {}, 段大小: {}", dir, segmentBytes);
+    }
+
+    public static FrameJournal disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return 已写入的帧数
+     */
+    public long getAppended() {
+        return appended.sum();
+    }
+
+    /**
+     * 追加一帧
+     * @param frame 帧所在的 ByteBuf，读写位置不会被修改
+     * @param frameIndex 帧开始位置（起始符）
+     * @param length 帧长度（含校验位）
+     * @return 是否已写入；未启用、已关闭或写入失败时为 false
+     */
+    public boolean append(ByteBuf frame, int frameIndex, int length) {
+        if (!enabled) {
+            return false;
+        }
+        long receivedAt = System.currentTimeMillis();
+        Lane current = lane.get();
+        // 只有 close() 和 roll() 会与写入线程竞争这把锁，持锁期间都不做磁盘 I/O
+        synchronized (current) {
+            if (closed) {
+                return false;
+            }
+            try {
+                Segment segment = current.segment;
+                if (segment == null || segment.remaining() < JournalFormat.RECORD_HEADER_LENGTH + length + 4) {
+                    segment = current.roll();
+                }
+                segment.append(frame, frameIndex, length, receivedAt);
+                appended.increment();
+                return true;
+            } catch (IOException e) {
+                log.error("写入原始帧日志失败", e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 封存所有写入线程的当前段并等待封存完成，写入线程下一次追加时换用预先创建的新段。
+     * 封存在后台线程上执行，调用线程只等待，不应在 I/O 线程上调用
+     * @throws IOException 等待时被中断
+     */
+    public void roll() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        for (Lane current : lanes) {
+            synchronized (current) {
+                if (closed) {
+                    return;
+                }
+                Segment old = current.segment;
+                if (old != null) {
+                    current.segment = null;
+                    roller.execute(() -> seal(old));
+                }
+            }
+        }
+        try {
+            // 单线程执行，之前提交的封存都已完成
+            roller.submit(() -> { }).get();
+        } catch (RejectedExecutionException | ExecutionException e) {
+            log.debug("原始帧日志已关闭", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待封存原始帧日志段时被中断", e);
+        }
+    }
+
+    /**
+     * 先列目录再排除未封存的段：段在创建文件之前登记，封存完成后才注销，
+     * 列出的段要么仍在登记中，要么已封存完毕
+     * @return 已封存的段，按序号排列；正在写入、等待封存或压缩的段不在其中
+     * @throws IOException 读取目录失败
+     */
+    public List<Path> sealedSegments() throws IOException {
+        if (!enabled) {
+            return new ArrayList<>();
+        }
+        List<Path> segments = FrameJournalReader.segments(dir);
+        segments.removeIf(open::contains);
+        return segments;
+    }
+
+    private static long nextSegmentSeq(Path dir) throws IOException {
+        long max = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "journal-*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int end = name.indexOf('.');
+                try {
+                    max = Math.max(max, Long.parseLong(name.substring("journal-".length(), end < 0 ? name.length() : end)));
+                } catch (NumberFormatException e) {
+                    // 忽略无关文件
+                }
+            }
+        }
+        return max + 1;
+    }
+
+    private Segment openSegment() throws IOException {
+        String name = JournalFormat.segmentName(segmentSeq.getAndIncrement());
+        Path path = dir.resolve(name + JournalFormat.SEGMENT_SUFFIX);
+        open.add(path);
+        try {
+            return new Segment(dir, name, segmentBytes);
+        } catch (IOException e) {
+            open.remove(path);
+            throw e;
+        }
+    }
+
+    /**
+     * 取走预先创建的段并在后台准备下一个；后台还没创建好时等待
+     */
+    private Segment takeSpare() throws IOException {
+        Future<Segment> next;
+        synchronized (spareLock) {
+            next = spare;
+            spare = roller.submit(this::openSegment);
+        }
+        try {
+            return next.get();
+        } catch (ExecutionException e) {
+            log.warn("预先创建原始帧日志段失败，重新创建", e.getCause());
+            return openSegment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待原始帧日志段时被中断", e);
+        }
+    }
+
+    /**
+     * 刷盘、关闭，需要时压缩
+     */
+    private void seal(Segment segment) {
+        try {
+            segment.seal();
+        } catch (IOException e) {
+            log.error("封存原始帧日志段 {} 失败", segment.path, e);
+            open.remove(segment.path);
+            return;
+        }
+        if (compress) {
+            compressor.execute(() -> {
+                compressSegment(segment.path);
+                open.remove(segment.path);
+            });
+        } else {
+            open.remove(segment.path);
+        }
+    }
+
+    /**
+     * 压缩段文件，未写到的 0 填充部分压缩后几乎不占空间
+     */
+    private static void compressSegment(Path segment) {
+        String name = segment.getFileName().toString();
+        String base = name.substring(0, name.length() - JournalFormat.SEGMENT_SUFFIX.length());
+        Path compressed = segment.resolveSibling(base + JournalFormat.COMPRESSED_SUFFIX);
+        Path temp = segment.resolveSibling(base + JournalFormat.COMPRESSED_SUFFIX + ".tmp");
+        try {
+            try (InputStream in = Files.newInputStream(segment);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+            }
+            Files.move(temp, compressed, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(segment);
+        } catch (IOException e) {
+            log.error("压缩原始帧日志段 {} 失败", segment, e);
+        }
+    }
+
+    /**
+     * 封存所有段并等待后台任务完成，返回后段文件都已刷盘，可以读取
+     */
+    @Override
+    public void close() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        synchronized (spareLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        for (Lane current : lanes) {
+            synchronized (current) {
+                if (current.segment != null) {
+                    seal(current.segment);
+                    current.segment = null;
+                }
+            }
+        }
+        awaitTermination(roller);
+        // 没有用上的预备段
+        try {
+            Segment unused = spare.get();
+            unused.delete();
+            open.remove(unused.path);
+        } catch (ExecutionException | InterruptedException e) {
+            log.debug("预备段未创建", e);
+        }
+        awaitTermination(compressor);
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 一个写入线程当前的段
+     */
+    private final class Lane {
+
+        private Segment segment;
+
+        private Segment roll() throws IOException {
+            Segment next = takeSpare();
+            Segment old = segment;
+            segment = next;
+            if (old != null) {
+                roller.execute(() -> seal(old));
+            }
+            return next;
+        }
+    }
+
+    /**
+     * 一个映射中的段文件及其映射中的 VIN 索引
+     */
+    private static final class Segment {
+
+        private final Path path;
+        private final Path indexPath;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final FileChannel indexChannel;
+        private final MappedByteBuffer index;
+
+        private Segment(Path dir, String name, int segmentBytes) throws IOException {
+            this.path = dir.resolve(name + JournalFormat.SEGMENT_SUFFIX);
+            this.indexPath = dir.resolve(name + JournalFormat.INDEX_SUFFIX);
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            JournalFormat.writeSegmentHeader(buffer);
+            this.indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, JournalFormat.indexBytes(segmentBytes));
+        }
+
+        private int remaining() {
+            return buffer.remaining();
+        }
+
+        private void append(ByteBuf frame, int frameIndex, int length, long receivedAt) {
+            int offset = buffer.position();
+            buffer.putInt(length);
+            buffer.putLong(receivedAt);
+            ByteBuffer target = buffer.slice();
+            target.limit(length);
+            frame.getBytes(frameIndex, target);
+            buffer.position(offset + JournalFormat.RECORD_HEADER_LENGTH + length);
+            for (int i = 0; i < JournalFormat.VIN_LENGTH; i++) {
+                index.put(frame.getByte(frameIndex + JournalFormat.VIN_OFFSET + i));
+            }
+            // 偏移最后写入，读取方读到非 0 的偏移时这条索引已完整
+            index.putInt(offset);
+        }
+
+        /**
+         * 补上结尾索引，刷盘后截掉索引文件未用的部分
+         */
+        private void seal() throws IOException {
+            buffer.force();
+            channel.close();
+            index.put(new byte[JournalFormat.VIN_LENGTH]);
+            index.putInt(buffer.position());
+            index.force();
+            indexChannel.truncate(index.position());
+            indexChannel.close();
+        }
+
+        private void delete() throws IOException {
+            channel.close();
+            indexChannel.close();
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(indexPath);
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+package com.ime.gbt32960.codec.journal;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static com.ime.gbt32960.codec.GBT32960Message.ASCII_CHARSET;
+
+/**
+ * 顺序读取一个帧日志段，段可以是未压缩的 .seg 或压缩后的 .seg.gz
+ *
+ * @author Qingxi
+ */
+public class FrameJournalReader implements Closeable {
+
+    private final DataInputStream in;
+
+    /**
+     * 下一条记录在段内的偏移
+     */
+    private int offset = JournalFormat.SEGMENT_HEADER_LENGTH;
+
+    private long receivedAt;
+
+    public FrameJournalReader(Path segment) throws IOException {
+        InputStream file = Files.newInputStream(segment);
+        if (segment.getFileName().toString().endsWith(JournalFormat.COMPRESSED_SUFFIX)) {
+            file = new GZIPInputStream(file, 64 * 1024);
+        }
+        this.in = new DataInputStream(new BufferedInputStream(file, 256 * 1024));
+        JournalFormat.readSegmentHeader(in);
+    }
+
+    /**
+     * 读取下一帧追加到 dst
+     * @param dst 目标 ByteBuf
+     * @return 帧长度，段结束（或最后一条记录不完整）时返回 -1
+     * @throws IOException 读取失败
+     */
+    public int readFrame(ByteBuf dst) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0) {
+                return -1;
+            }
+            receivedAt = in.readLong();
+            dst.ensureWritable(length);
+            for (int remaining = length; remaining > 0; ) {
+                int n = dst.writeBytes(in, remaining);
+                if (n <= 0) {
+                    return -1;
+                }
+                remaining -= n;
+            }
+            offset += JournalFormat.RECORD_HEADER_LENGTH + length;
+            return length;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 跳过下一帧
+     * @return 是否还有记录
+     * @throws IOException 读取失败
+     */
+    public boolean skipFrame() throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0) {
+                return false;
+            }
+            int skip = 8 + length;
+            while (skip > 0) {
+                int n = in.skipBytes(skip);
+                if (n <= 0) {
+                    return false;
+                }
+                skip -= n;
+            }
+            offset += JournalFormat.RECORD_HEADER_LENGTH + length;
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return 下一条记录在段内的偏移
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return 最近一次 readFrame 读到的帧的接收时间，epoch 毫秒
+     */
+    public long getReceivedAt() {
+        return receivedAt;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * 按序号列出目录下的所有段
+     * @param dir 日志目录
+     * @return 段文件
+     * @throws IOException 读取目录失败
+     */
+    public static List<Path> segments(Path dir) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "journal-*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(JournalFormat.SEGMENT_SUFFIX) || name.endsWith(JournalFormat.COMPRESSED_SUFFIX)) {
+                    segments.add(file);
+                }
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * 从段的 VIN 索引中查出该 VIN 所有记录的偏移，以及索引覆盖到的位置
+     * @param segment 段文件
+     * @param vin VIN
+     * @return 索引不存在时返回 null
+     * @throws IOException 读取失败
+     */
+    public static VinOffsets offsets(Path segment, String vin) throws IOException {
+        String name = segment.getFileName().toString();
+        Path indexFile = segment.resolveSibling(name.substring(0, name.indexOf('.')) + JournalFormat.INDEX_SUFFIX);
+        if (!Files.exists(indexFile)) {
+            return null;
+        }
+        byte[] target = Arrays.copyOf(vin.getBytes(ASCII_CHARSET), JournalFormat.VIN_LENGTH);
+        byte[] entryVin = new byte[JournalFormat.VIN_LENGTH];
+        byte[] end = new byte[JournalFormat.VIN_LENGTH];
+        int[] offsets = new int[16];
+        int count = 0;
+        int coveredEnd = 0;
+        boolean sealed = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 64 * 1024))) {
+            while (true) {
+                in.readFully(entryVin);
+                int offset = in.readInt();
+                if (offset == 0) {
+                    // 写入中的索引未写到的部分
+                    break;
+                }
+                if (Arrays.equals(entryVin, end)) {
+                    coveredEnd = offset;
+                    sealed = true;
+                    break;
+                }
+                coveredEnd = offset + 1;
+                if (Arrays.equals(entryVin, target)) {
+                    if (count == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, count * 2);
+                    }
+                    offsets[count++] = offset;
+                }
+            }
+        } catch (EOFException e) {
+            // 索引结束
+        }
+        return new VinOffsets(Arrays.copyOf(offsets, count), coveredEnd, sealed);
+    }
+
+    /**
+     * 一个 VIN 在段索引中的记录偏移。段仍在写入或进程崩溃时索引可能落后于段，
+     * 偏移不小于 {@link #getCoveredEnd()} 的记录不在索引中，需要逐帧比较头部的 VIN
+     */
+    public static final class VinOffsets {
+
+        private final int[] offsets;
+        private final int coveredEnd;
+        private final boolean sealed;
+
+        private VinOffsets(int[] offsets, int coveredEnd, boolean sealed) {
+            this.offsets = offsets;
+            this.coveredEnd = coveredEnd;
+            this.sealed = sealed;
+        }
+
+        /**
+         * @return 升序的偏移
+         */
+        public int[] getOffsets() {
+            return offsets;
+        }
+
+        /**
+         * @return 索引覆盖的记录范围的结束偏移（不含）
+         */
+        public int getCoveredEnd() {
+            return coveredEnd;
+        }
+
+        /**
+         * @return 段已封存，索引覆盖整个段
+         */
+        public boolean isSealed() {
+            return sealed;
+        }
+
+        /**
+         * @param offset 记录偏移
+         * @return 该记录是否在索引覆盖的范围内
+         */
+        public boolean covers(int offset) {
+            return offset < coveredEnd;
+        }
+
+        /**
+         * @param offset 记录偏移
+         * @return 该记录是否属于这个 VIN；不在覆盖范围内时无法判断，返回 false
+         */
+        public boolean contains(int offset) {
+            return Arrays.binarySearch(offsets, offset) >= 0;
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.ime.gbt32960.codec.journal;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 帧日志段文件格式（大端）：
+ * <pre>
+ * 段头:   magic(4) "GBTJ" | version(2)
+ * 记录:   帧长度(4) | 接收时间 epoch 毫秒(8) | 原始帧（起始符到校验位）
+ * </pre>
+ * 段文件预先按固定大小映射，未写到的部分为 0，读到帧长度为 0 即为段结束。
+ * <p>
+ * 每个段有一个同名的 VIN 索引文件，每条索引：VIN(17) | 记录在段内的偏移(4)。
+ * 索引文件同样预先映射，未写到的部分为 0，读到偏移为 0 即为索引结束；
+ * 段封存时追加一条 VIN 全为 0 的结尾索引，偏移为记录结束位置，表示索引覆盖了整个段。
+ * 没有结尾索引（写入中或进程崩溃）时，只有最后一条索引及之前的记录被覆盖，其后的记录需要逐帧比较头部的 VIN。
+ *
+ * @author Qingxi
+ */
+public final class JournalFormat {
+
+    public static final int MAGIC = 0x4742544A;
+    public static final short VERSION = 1;
+
+    public static final int SEGMENT_HEADER_LENGTH = 4 + 2;
+    public static final int RECORD_HEADER_LENGTH = 4 + 8;
+
+    public static final int VIN_LENGTH = 17;
+    public static final int INDEX_ENTRY_LENGTH = VIN_LENGTH + 4;
+
+    /**
+     * 最短的帧：起始符(2) | 命令(1) | 应答(1) | VIN(17) | 加密方式(1) | 数据单元长度(2) | 校验码(1)
+     */
+    public static final int MIN_FRAME_LENGTH = 2 + 1 + 1 + VIN_LENGTH + 1 + 2 + 1;
+
+    /**
+     * VIN 相对于帧开始位置（起始符）的偏移
+     */
+    public static final int VIN_OFFSET = 2 + 1 + 1;
+
+    public static final String SEGMENT_SUFFIX = ".seg";
+    public static final String COMPRESSED_SUFFIX = ".seg.gz";
+    public static final String INDEX_SUFFIX = ".idx";
+
+    private JournalFormat() {
+    }
+
+    static void writeSegmentHeader(ByteBuffer out) {
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+    }
+
+    static void readSegmentHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a frame journal segment");
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported frame journal version: " + version);
+        }
+    }
+
+    /**
+     * @param segmentBytes 段文件大小
+     * @return 能容纳段内所有记录及结尾索引的索引文件大小
+     */
+    static int indexBytes(int segmentBytes) {
+        int maxRecords = (segmentBytes - SEGMENT_HEADER_LENGTH) / (RECORD_HEADER_LENGTH + MIN_FRAME_LENGTH);
+        return (maxRecords + 1) * INDEX_ENTRY_LENGTH;
+    }
+
+    /**
+     * @param seq 段序号
+     * @return 段文件名（不含后缀）
+     */
+    static String segmentName(long seq) {
+        return String.format("journal-%010d", seq);
+    }
+
+}
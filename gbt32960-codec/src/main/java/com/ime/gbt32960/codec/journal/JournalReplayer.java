@@ -0,0 +1,123 @@
+package com.ime.gbt32960.codec.journal;
+
+import com.ime.gbt32960.codec.GBT32960Decoder;
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.PayloadDecoder;
+import com.ime.gbt32960.codec.capture.FrameCapture;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.ime.gbt32960.codec.GBT32960Message.ASCII_CHARSET;
+
+/**
+ * 把帧日志重新送入 {@link GBT32960Decoder}，用于补数据和重新处理。
+ * <p>
+ * 帧按顺序攒成大块后一次写入解码器，不经过网络和事件循环，速度只受磁盘读取和解析限制。
+ *
+ * @author Qingxi
+ */
+public class JournalReplayer {
+
+    private static final int CHUNK_BYTES = 1024 * 1024;
+
+    private final PayloadDecoder payloadDecoder;
+
+    public JournalReplayer(PayloadDecoder payloadDecoder) {
+        this.payloadDecoder = payloadDecoder;
+    }
+
+    /**
+     * 按序号回放目录下的所有段；同一连接的帧保持接收顺序，不同 EventLoop 写入的段之间按段交错
+     * @param dir 日志目录
+     * @param consumer 解析后的消息
+     * @return 回放的帧数
+     * @throws IOException 读取失败
+     */
+    public long replayAll(Path dir, Consumer<GBT32960Message> consumer) throws IOException {
+        long frames = 0;
+        for (Path segment : FrameJournalReader.segments(dir)) {
+            frames += replay(segment, null, consumer);
+        }
+        return frames;
+    }
+
+    /**
+     * 回放一个段
+     * @param segment 段文件
+     * @param vin 只回放该 VIN 的帧，null 表示全部；索引覆盖的记录按索引跳过其他帧，
+     *            没有索引或索引尚未覆盖（段仍在写入）的记录逐帧比较头部的 VIN
+     * @param consumer 解析后的消息
+     * @return 回放的帧数
+     * @throws IOException 读取失败
+     */
+    public long replay(Path segment, String vin, Consumer<GBT32960Message> consumer) throws IOException {
+        FrameJournalReader.VinOffsets index = vin == null ? null : FrameJournalReader.offsets(segment, vin);
+        if (index != null && index.isSealed() && index.getOffsets().length == 0) {
+            return 0;
+        }
+        byte[] target = vin != null ? Arrays.copyOf(vin.getBytes(ASCII_CHARSET), JournalFormat.VIN_LENGTH) : null;
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new GBT32960Decoder(payloadDecoder, false, FrameCapture.disabled(), FrameJournal.disabled()));
+        long frames = 0;
+        ByteBuf chunk = Unpooled.buffer(CHUNK_BYTES + 64 * 1024);
+        try (FrameJournalReader reader = new FrameJournalReader(segment)) {
+            while (true) {
+                int offset = reader.getOffset();
+                boolean indexed = index != null && index.covers(offset);
+                if (indexed && !index.contains(offset)) {
+                    if (!reader.skipFrame()) {
+                        break;
+                    }
+                    continue;
+                }
+                int start = chunk.writerIndex();
+                if (reader.readFrame(chunk) < 0) {
+                    break;
+                }
+                if (target != null && !indexed && !vinMatches(chunk, start, target)) {
+                    chunk.writerIndex(start);
+                    continue;
+                }
+                frames++;
+                if (chunk.readableBytes() >= CHUNK_BYTES) {
+                    channel.writeInbound(chunk);
+                    drain(channel, consumer);
+                    chunk = Unpooled.buffer(CHUNK_BYTES + 64 * 1024);
+                }
+            }
+            if (chunk.isReadable()) {
+                channel.writeInbound(chunk);
+            } else {
+                chunk.release();
+            }
+            drain(channel, consumer);
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+        return frames;
+    }
+
+    private static boolean vinMatches(ByteBuf frame, int frameIndex, byte[] vin) {
+        for (int i = 0; i < vin.length; i++) {
+            if (frame.getByte(frameIndex + JournalFormat.VIN_OFFSET + i) != vin[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void drain(EmbeddedChannel channel, Consumer<GBT32960Message> consumer) {
+        Object message;
+        while ((message = channel.readInbound()) != null) {
+            consumer.accept((GBT32960Message) message);
+        }
+    }
+
+}
@@ -0,0 +1,360 @@
+package com.ime.gbt32960.codec.metrics;
+
+import com.google.common.collect.Ordering;
+import com.ime.gbt32960.codec.RequestType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 网关各环节的计数与延迟。
+ * <p>
+ * 计数器都是 {@link LongAdder}，多个 I/O 线程并发累加时各自落在不同的分段上；
+ * 解析耗时按命令标识分别记入 HdrHistogram 的 {@link Recorder}，记录过程无锁、不分配对象。
+ * 延迟分布和上报最频繁的终端按窗口统计：读取时若当前窗口已满，就切换到新窗口，
+ * 读到的始终是最近一个完整窗口的结果。
+ *
+ * @author Qingxi
+ */
+public class GatewayMetrics {
+
+    /**
+     * 可记录的最大解析耗时，超过的按此值记录
+     */
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final RequestType[] TYPES = RequestType.values();
+
+    private static final GatewayMetrics DISABLED = new GatewayMetrics();
+
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int topN;
+
+    private final LongAdder[] framesIn = new LongAdder[TYPES.length];
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder checksumFailures = new LongAdder();
+    private final LongAdder resyncBytes = new LongAdder();
+    private final LongAdder decodeErrors = new LongAdder();
+    private final LongAdder framesOut = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsClosed = new LongAdder();
+    private final LongAdder logins = new LongAdder();
+    private final LongAdder logouts = new LongAdder();
+    private final LongAdder idleCloses = new LongAdder();
+    private final LongAdder errorCloses = new LongAdder();
+
+    private final Map<String, LongSupplier> counters = new LinkedHashMap<>();
+    private final Map<String, LongSupplier> gauges = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private final Recorder[] decodeNanos = new Recorder[TYPES.length];
+
+    /**
+     * 自启动以来的解析次数和总耗时，Prometheus summary 的 _count / _sum 需要单调递增
+     */
+    private final LongAdder[] decodeCount = new LongAdder[TYPES.length];
+    private final LongAdder[] decodeTotalNanos = new LongAdder[TYPES.length];
+
+    /**
+     * 当前窗口内每个 VIN 的上行帧数，切换窗口时整体替换；切换瞬间的少量计数可能落入旧窗口
+     */
+    private volatile ConcurrentHashMap<String, LongAdder> vinFrames = new ConcurrentHashMap<>();
+
+    // 以下为最近一个完整窗口的结果，由 this 保护
+    private long windowStart;
+    private final Histogram[] windowNanos = new Histogram[TYPES.length];
+    private List<VinCount> noisyTerminals = Collections.emptyList();
+
+    private GatewayMetrics() {
+        this.enabled = false;
+        this.windowMillis = 0;
+        this.topN = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            framesIn[i] = new LongAdder();
+            decodeCount[i] = new LongAdder();
+            decodeTotalNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param windowMillis 延迟分布和上报排行的统计窗口（毫秒）
+     * @param topN 上报排行保留的终端数
+     */
+    public GatewayMetrics(long windowMillis, int topN) {
+        this.enabled = true;
+        this.windowMillis = windowMillis;
+        this.topN = topN;
+        for (int i = 0; i < TYPES.length; i++) {
+            framesIn[i] = new LongAdder();
+            decodeCount[i] = new LongAdder();
+            decodeTotalNanos[i] = new LongAdder();
+            decodeNanos[i] = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+            windowNanos[i] = decodeNanos[i].getIntervalHistogram();
+        }
+        this.windowStart = System.currentTimeMillis();
+        counters.put("gbt32960.frames.in", () -> sum(framesIn));
+        counters.put("gbt32960.bytes.in", bytesIn::sum);
+        counters.put("gbt32960.checksum.failures", checksumFailures::sum);
+        counters.put("gbt32960.resync.bytes", resyncBytes::sum);
+        counters.put("gbt32960.decode.errors", decodeErrors::sum);
+        counters.put("gbt32960.frames.out", framesOut::sum);
+        counters.put("gbt32960.bytes.out", bytesOut::sum);
+        counters.put("gbt32960.connections.opened", connectionsOpened::sum);
+        counters.put("gbt32960.connections.closed", connectionsClosed::sum);
+        counters.put("gbt32960.logins", logins::sum);
+        counters.put("gbt32960.logouts", logouts::sum);
+        counters.put("gbt32960.idle.closes", idleCloses::sum);
+        counters.put("gbt32960.error.closes", errorCloses::sum);
+    }
+
+    public static GatewayMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 一帧通过校验
+     * @param type 命令标识
+     * @param vin VIN
+     * @param length 帧长度
+     */
+    public void frameIn(RequestType type, String vin, int length) {
+        if (!enabled) {
+            return;
+        }
+        framesIn[type.ordinal()].increment();
+        bytesIn.add(length);
+        Map<String, LongAdder> frames = vinFrames;
+        LongAdder counter = frames.get(vin);
+        if (counter == null) {
+            counter = frames.computeIfAbsent(vin, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    public void checksumFailure() {
+        if (enabled) {
+            checksumFailures.increment();
+        }
+    }
+
+    /**
+     * 重新同步时丢弃的字节数
+     */
+    public void resync(int skippedBytes) {
+        if (enabled && skippedBytes > 0) {
+            resyncBytes.add(skippedBytes);
+        }
+    }
+
+    /**
+     * 记录一次数据单元解析耗时
+     * @param type 命令标识
+     * @param nanos 耗时（纳秒）
+     */
+    public void decoded(RequestType type, long nanos) {
+        if (enabled) {
+            long value = Math.min(Math.max(nanos, 0), HIGHEST_TRACKABLE_NANOS);
+            decodeNanos[type.ordinal()].recordValue(value);
+            decodeCount[type.ordinal()].increment();
+            decodeTotalNanos[type.ordinal()].add(value);
+        }
+    }
+
+    public void decodeError() {
+        if (enabled) {
+            decodeErrors.increment();
+        }
+    }
+
+    /**
+     * 一帧下行数据编码完成
+     * @param length 帧长度
+     */
+    public void frameOut(int length) {
+        if (enabled) {
+            framesOut.increment();
+            bytesOut.add(length);
+        }
+    }
+
+    public void connectionOpened() {
+        if (enabled) {
+            connectionsOpened.increment();
+        }
+    }
+
+    public void connectionClosed() {
+        if (enabled) {
+            connectionsClosed.increment();
+        }
+    }
+
+    public void login() {
+        if (enabled) {
+            logins.increment();
+        }
+    }
+
+    public void logout() {
+        if (enabled) {
+            logouts.increment();
+        }
+    }
+
+    public void idleClosed() {
+        if (enabled) {
+            idleCloses.increment();
+        }
+    }
+
+    public void errorClosed() {
+        if (enabled) {
+            errorCloses.increment();
+        }
+    }
+
+    /**
+     * 登记一个瞬时值，例如队列深度，读取时调用 supplier
+     * @param name 名称
+     * @param supplier 取值函数，需线程安全
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        if (enabled) {
+            gauges.put(name, supplier);
+        }
+    }
+
+    /**
+     * @return 计数器名称到取值函数，按登记顺序
+     */
+    public Map<String, LongSupplier> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    /**
+     * @return 瞬时值名称到取值函数的副本，按登记顺序
+     */
+    public Map<String, LongSupplier> getGauges() {
+        synchronized (gauges) {
+            return new LinkedHashMap<>(gauges);
+        }
+    }
+
+    public long getFramesIn(RequestType type) {
+        return framesIn[type.ordinal()].sum();
+    }
+
+    /**
+     * @return 上报排行保留的终端数
+     */
+    public int getTopN() {
+        return topN;
+    }
+
+    /**
+     * @param type 命令标识
+     * @return 自启动以来的解析次数
+     */
+    public long getDecodeCount(RequestType type) {
+        return decodeCount[type.ordinal()].sum();
+    }
+
+    /**
+     * @param type 命令标识
+     * @return 自启动以来的解析总耗时（纳秒）
+     */
+    public long getDecodeTotalNanos(RequestType type) {
+        return decodeTotalNanos[type.ordinal()].sum();
+    }
+
+    /**
+     * @param type 命令标识
+     * @return 最近一个完整窗口内的解析耗时分布
+     */
+    public synchronized Latency getDecodeLatency(RequestType type) {
+        rollIfDue();
+        Histogram histogram = windowNanos[type.ordinal()];
+        if (histogram == null || histogram.getTotalCount() == 0) {
+            return Latency.EMPTY;
+        }
+        return new Latency(histogram.getTotalCount(), histogram.getMean(),
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9),
+                histogram.getMaxValue());
+    }
+
+    /**
+     * @return 最近一个完整窗口内上行帧数最多的终端，按帧数降序
+     */
+    public synchronized List<VinCount> getNoisyTerminals() {
+        rollIfDue();
+        return noisyTerminals;
+    }
+
+    private void rollIfDue() {
+        long now = System.currentTimeMillis();
+        if (!enabled || now - windowStart < windowMillis) {
+            return;
+        }
+        windowStart = now;
+        for (int i = 0; i < TYPES.length; i++) {
+            windowNanos[i] = decodeNanos[i].getIntervalHistogram(windowNanos[i]);
+        }
+        Map<String, LongAdder> frames = vinFrames;
+        vinFrames = new ConcurrentHashMap<>(Math.max(16, frames.size()));
+        List<VinCount> counts = new ArrayList<>(frames.size());
+        frames.forEach((vin, counter) -> counts.add(new VinCount(vin, counter.sum())));
+        noisyTerminals = Collections.unmodifiableList(
+                Ordering.natural().onResultOf(VinCount::getFrames).greatestOf(counts, topN));
+    }
+
+    private static long sum(LongAdder[] adders) {
+        long sum = 0;
+        for (LongAdder adder : adders) {
+            sum += adder.sum();
+        }
+        return sum;
+    }
+
+    /**
+     * 解析耗时分布，单位纳秒
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Latency {
+
+        static final Latency EMPTY = new Latency(0, 0, 0, 0, 0, 0, 0);
+
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class VinCount {
+        private final String vin;
+        private final long frames;
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.ime.gbt32960.codec.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.*;
+
+/**
+ * 没有 Spring Boot Actuator 时提供指标的 HTTP 端点，GET /metrics 返回 {@link MetricsText} 文本，
+ * 放在 HttpServerCodec 和 HttpObjectAggregator 之后
+ *
+ * @author Qingxi
+ */
+@ChannelHandler.Sharable
+public class MetricsHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+    public static final String PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final GatewayMetrics metrics;
+
+    public MetricsHttpHandler(GatewayMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+        FullHttpResponse response;
+        String path = new QueryStringDecoder(request.uri()).path();
+        if (request.method() != HttpMethod.GET) {
+            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.METHOD_NOT_ALLOWED);
+        } else if (!PATH.equals(path)) {
+            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND);
+        } else {
+            ByteBuf content = ByteBufUtil.writeUtf8(ctx.alloc(), MetricsText.render(metrics));
+            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE);
+        }
+        HttpUtil.setContentLength(response, response.content().readableBytes());
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        HttpUtil.setKeepAlive(response, keepAlive);
+        if (keepAlive) {
+            ctx.writeAndFlush(response);
+        } else {
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        ctx.close();
+    }
+
+}
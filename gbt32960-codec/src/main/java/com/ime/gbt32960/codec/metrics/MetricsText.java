@@ -0,0 +1,103 @@
+package com.ime.gbt32960.codec.metrics;
+
+import com.ime.gbt32960.codec.RequestType;
+
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * 把 {@link GatewayMetrics} 输出为 Prometheus 文本格式，名称中的点换成下划线。
+ * 解析耗时的分位数取最近一个完整窗口，_count / _sum 为自启动以来的累计值
+ *
+ * @author Qingxi
+ */
+public final class MetricsText {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private MetricsText() {
+    }
+
+    public static String render(GatewayMetrics metrics) {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, LongSupplier> counter : metrics.getCounters().entrySet()) {
+            String name = name(counter.getKey());
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(counter.getValue().getAsLong()).append('\n');
+        }
+
+        out.append("# TYPE gbt32960_frames_in_by_type counter\n");
+        for (RequestType type : RequestType.values()) {
+            out.append("gbt32960_frames_in_by_type{type=\"");
+            labelValue(out, type.name()).append("\"} ").append(metrics.getFramesIn(type)).append('\n');
+        }
+
+        for (Map.Entry<String, LongSupplier> gauge : metrics.getGauges().entrySet()) {
+            String name = name(gauge.getKey());
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            out.append(name).append(' ').append(gauge.getValue().getAsLong()).append('\n');
+        }
+
+        out.append("# TYPE gbt32960_decode_latency_seconds summary\n");
+        for (RequestType type : RequestType.values()) {
+            long count = metrics.getDecodeCount(type);
+            if (count == 0) {
+                continue;
+            }
+            GatewayMetrics.Latency latency = metrics.getDecodeLatency(type);
+            if (latency.getCount() > 0) {
+                quantile(out, type, "0.5", latency.getP50());
+                quantile(out, type, "0.9", latency.getP90());
+                quantile(out, type, "0.99", latency.getP99());
+                quantile(out, type, "0.999", latency.getP999());
+                quantile(out, type, "1", latency.getMax());
+            }
+            out.append("gbt32960_decode_latency_seconds_count{type=\"");
+            labelValue(out, type.name()).append("\"} ").append(count).append('\n');
+            out.append("gbt32960_decode_latency_seconds_sum{type=\"");
+            labelValue(out, type.name()).append("\"} ")
+                    .append(metrics.getDecodeTotalNanos(type) / NANOS_PER_SECOND).append('\n');
+        }
+
+        out.append("# TYPE gbt32960_noisy_terminal_frames gauge\n");
+        for (GatewayMetrics.VinCount count : metrics.getNoisyTerminals()) {
+            out.append("gbt32960_noisy_terminal_frames{vin=\"");
+            labelValue(out, count.getVin()).append("\"} ").append(count.getFrames()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void quantile(StringBuilder out, RequestType type, String quantile, long nanos) {
+        out.append("gbt32960_decode_latency_seconds{type=\"");
+        labelValue(out, type.name()).append("\",quantile=\"").append(quantile).append("\"} ")
+                .append(nanos / NANOS_PER_SECOND).append('\n');
+    }
+
+    /**
+     * 标签值中的反斜杠、双引号和换行需要转义，VIN 来自终端，可能含任意字符
+     */
+    private static StringBuilder labelValue(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+        return out;
+    }
+
+    private static String name(String name) {
+        return name.replace('.', '_');
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.ime.gbt32960.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 与逐字节计算的 {@link FrameHeader.CheckCodeProcessor} 对照
+ *
+ * @author Qingxi
+ */
+class CheckCodesTest {
+
+    private static final int SIZE = 1200;
+
+    private final byte[] data = new byte[SIZE];
+
+    CheckCodesTest() {
+        new Random(32960).nextBytes(data);
+    }
+
+    private static byte expected(ByteBuf buf, int index, int length) {
+        FrameHeader.CheckCodeProcessor processor = new FrameHeader.CheckCodeProcessor();
+        buf.forEachByte(index, length, processor);
+        return processor.getCheckCode();
+    }
+
+    /**
+     * 所有开始位置 0 ~ 15 与长度 0 ~ 80，以及若干跨越多组 8 字节的长度
+     */
+    private static void assertMatches(ByteBuf buf) {
+        for (int index = 0; index < 16; index++) {
+            for (int length = 0; length <= 80; length++) {
+                assertEquals(expected(buf, index, length), CheckCodes.checkCode(buf, index, length),
+                        "index " + index + ", length " + length);
+            }
+            for (int length : new int[]{127, 128, 129, 1000, buf.capacity() - index}) {
+                assertEquals(expected(buf, index, length), CheckCodes.checkCode(buf, index, length),
+                        "index " + index + ", length " + length);
+            }
+        }
+    }
+
+    @Test
+    void heapBuffer() {
+        assertMatches(Unpooled.wrappedBuffer(data));
+    }
+
+    @Test
+    void heapBufferWithArrayOffset() {
+        // 切片的 arrayOffset 不为 0
+        ByteBuf slice = Unpooled.wrappedBuffer(new byte[3], data).copy(0, SIZE + 3).slice(3, SIZE);
+        assertTrue(slice.hasArray());
+        assertMatches(slice);
+    }
+
+    @Test
+    void directBuffer() {
+        ByteBuf buf = Unpooled.directBuffer(SIZE).writeBytes(data);
+        try {
+            assertFalse(buf.hasArray());
+            assertMatches(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    void compositeBuffer() {
+        // 分段长度不是 8 的倍数，8 字节一组的读取会跨越分段
+        CompositeByteBuf buf = Unpooled.compositeBuffer();
+        int offset = 0;
+        int[] parts = {1, 7, 13, 64, 3, 500};
+        for (int i = 0; offset < SIZE; i++) {
+            int length = Math.min(parts[i % parts.length], SIZE - offset);
+            ByteBuf part = i % 2 == 0 ? Unpooled.wrappedBuffer(data, offset, length)
+                    : Unpooled.directBuffer(length).writeBytes(data, offset, length);
+            buf.addComponent(true, part);
+            offset += length;
+        }
+        try {
+            assertTrue(buf.nioBufferCount() > 1);
+            assertMatches(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    void byteBufferKeepsPosition() {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ByteBuffer buffer = ByteBuffer.wrap(data).order(order);
+            for (int position = 0; position < 16; position++) {
+                for (int limit = position; limit <= position + 80; limit++) {
+                    buffer.limit(limit).position(position);
+                    assertEquals(expected(Unpooled.wrappedBuffer(data), position, limit - position),
+                            CheckCodes.checkCode(buffer));
+                    assertEquals(position, buffer.position());
+                }
+            }
+        }
+    }
+
+}
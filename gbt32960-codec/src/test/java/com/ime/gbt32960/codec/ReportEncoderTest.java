@@ -0,0 +1,228 @@
+package com.ime.gbt32960.codec;
+
+import com.google.protobuf.ByteString;
+import com.ime.iov.gbt32960.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.EncoderException;
+import org.junit.jupiter.api.Test;
+
+import static com.ime.gbt32960.codec.GBT32960Message.START_SYMBOL_LENGTH;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ReportEncoder} / {@link UplinkEncoder} 与 {@link ReportDecoder} 的往返。
+ * 物理量都取解码结果能精确表示的值，解码后应与原报文相等
+ *
+ * @author Qingxi
+ */
+class ReportEncoderTest {
+
+    private static final String VIN = "LSIM0000000000001";
+
+    private static final UnpooledByteBufAllocator ALLOC = UnpooledByteBufAllocator.DEFAULT;
+
+    private static RealTimeReport.Builder fullReport(int cells, int probes) {
+        RealTimeReport.Builder report = RealTimeReport.newBuilder()
+                .setRecordTime(1_600_000_000L)
+                .setVehicleState(VehicleState.newBuilder()
+                        .setOperatingStateValue(1)
+                        .setChargingStateValue(3)
+                        .setOperationModeValue(1)
+                        .setSpeed(605 / 10.0f)
+                        .setMileage(1234567 / 10.0)
+                        .setVoltage(3501 / 10.0f)
+                        .setCurrent(9876 / 10.0f - 1000)
+                        .setStateOfCharge(87)
+                        .setDcInverterStateValue(1)
+                        .setGearPosition(0x0E)
+                        .setInsulance(5000)
+                        .setAcceleratorTravel(20)
+                        .setBrakeTravel(0))
+                .addMotor(MotorState.newBuilder()
+                        .setMotorSeq(1)
+                        .setStatusValue(1)
+                        .setControllerTemperature(45)
+                        .setMotorSpeed(3200)
+                        .setMotorTorque(20150 / 10.0f - 2000)
+                        .setMotorTemperature(-5)
+                        .setControllerVoltage(3490 / 10.0f)
+                        .setControllerCurrent(10500 / 10.0f - 1000))
+                .addMotor(MotorState.newBuilder()
+                        .setMotorSeq(2)
+                        .setStatusValue(4)
+                        .setControllerTemperature(30)
+                        .setMotorSpeed(-150)
+                        .setMotorTorque(19800 / 10.0f - 2000)
+                        .setMotorTemperature(60)
+                        .setControllerVoltage(3480 / 10.0f)
+                        .setControllerCurrent(9900 / 10.0f - 1000))
+                .setFuelCell(FuelCell.newBuilder()
+                        .setFuelCellVoltage(3200 / 10.0)
+                        .setFuelCellCurrent(1500 / 10.0)
+                        .setFuelConsumptionRate(125 / 100.0)
+                        .addProbeTemperatureValue(25)
+                        .addProbeTemperatureValue(-10)
+                        .addProbeTemperatureValue(70)
+                        .setHighestTempOfHydrogenSystem(650 / 10.0 - 40)
+                        .setHighestTempProbeCodeOfHydSys(3)
+                        .setHighestConOfHydrogen(12000)
+                        .setHighestHyConSensorCode(2)
+                        .setHydrogenMaxPressure(350 / 10.0)
+                        .setHydrogenMaxPressureSensorCode(1)
+                        .setHighVoltageDcStateValue(1))
+                .setEngine(Engine.newBuilder()
+                        .setEngineStateValue(1)
+                        .setCrankshaftSpeed(1800)
+                        .setFuelConsumptionRate(450 / 100.0))
+                .setLocation(VehicleLocation.newBuilder()
+                        .setIsValid(true)
+                        .setLongitude(116397128 / 1000000.0)
+                        .setLatitude(39916527 / 1000000.0 * -1))
+                .setExtremum(Extremum.newBuilder()
+                        .setVoltageMaxSubsystem(1)
+                        .setVoltageMaxBattery(200)
+                        .setMaxVoltage(4150 / 1000.0f)
+                        .setVoltageMinSubsystem(1)
+                        .setVoltageMinBattery(17)
+                        .setMinVoltage(3100 / 1000.0f)
+                        .setTemperatureMaxSubsystem(1)
+                        .setTemperatureMaxProbe(150)
+                        .setMaxTemperature(0x80)
+                        .setTemperatureMinSubsystem(1)
+                        .setTemperatureMinProbe(2)
+                        .setMinTemperature(45))
+                .setAlarm(Alarm.newBuilder()
+                        .setMaxAlarmLevel(2)
+                        .setAlarmBitIdentify(0x0000_0401)
+                        .addBatteryFaultData(0x01020304)
+                        .addBatteryFaultData(0x7F000001)
+                        .addOtherFaultData(42));
+        ChargeableSubsystemElectric.Builder electric = ChargeableSubsystemElectric.newBuilder()
+                .setChargeableSubSystemNumber(1)
+                .setVoltage(3501 / 10.0f)
+                .setCurrent(9876 / 10.0f - 1000)
+                .setBatteryTotalCount(cells)
+                .setFrameStartBatterySeq(1);
+        for (int i = 0; i < cells; i++) {
+            // 含最高位为 1 的原始值
+            electric.addBatteryVoltage((i % 2 == 0 ? 3000 + i : 0xFFFE - i) / 1000.0f);
+        }
+        ChargeableSubsystemTemperature.Builder temperature = ChargeableSubsystemTemperature.newBuilder()
+                .setSubSystemNumber(1);
+        for (int i = 0; i < probes; i++) {
+            temperature.addProbeTemperature(i % 256 - 40);
+        }
+        return report.addChargeSystemElectric(electric)
+                .addChargeSystemElectric(ChargeableSubsystemElectric.newBuilder()
+                        .setChargeableSubSystemNumber(2)
+                        .setVoltage(3400 / 10.0f)
+                        .setCurrent(10000 / 10.0f - 1000)
+                        .setBatteryTotalCount(2)
+                        .setFrameStartBatterySeq(1)
+                        .addBatteryVoltage(3300 / 1000.0f)
+                        .addBatteryVoltage(3301 / 1000.0f))
+                .addChargeSystemTemperature(temperature);
+    }
+
+    /**
+     * 取出整帧中的数据单元并解析
+     */
+    private static RealTimeReport decode(ByteBuf frame, boolean packed) {
+        int payloadStart = START_SYMBOL_LENGTH + FrameHeader.HEADER_LENGTH;
+        ByteBuf payload = frame.slice(payloadStart, frame.readableBytes() - payloadStart - 1);
+        return ReportDecoder.decodeFully(payload, packed).build();
+    }
+
+    private static void assertFrame(ByteBuf frame, RealTimeReport report) {
+        assertEquals(UplinkEncoder.frameLength(RequestType.REAL_TIME, report), frame.readableBytes());
+        int payloadLength = frame.getUnsignedShort(START_SYMBOL_LENGTH + FrameHeader.HEADER_LENGTH - 2);
+        assertEquals(ReportEncoder.payloadLength(report), payloadLength);
+        assertEquals(CheckCodes.checkCode(frame, START_SYMBOL_LENGTH, frame.readableBytes() - START_SYMBOL_LENGTH - 1),
+                frame.getByte(frame.readableBytes() - 1));
+    }
+
+    @Test
+    void expandedRoundTrip() {
+        RealTimeReport report = fullReport(200, 300).build();
+        ByteBuf frame = UplinkEncoder.report(ALLOC, VIN, report);
+        try {
+            assertFrame(frame, report);
+            assertEquals(report, decode(frame, false));
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Test
+    void packedRoundTrip() {
+        RealTimeReport report = fullReport(200, 300).build();
+        ByteBuf expanded = UplinkEncoder.report(ALLOC, VIN, report);
+        ByteBuf packed = null;
+        try {
+            RealTimeReport packedReport = decode(expanded, true);
+            assertFalse(packedReport.getChargeSystemElectric(0).getBatteryVoltageRaw().isEmpty());
+            assertEquals(0, packedReport.getChargeSystemElectric(0).getBatteryVoltageCount());
+
+            // 原始值整段写回，帧逐字节相同
+            packed = UplinkEncoder.report(ALLOC, VIN, packedReport);
+            assertFrame(packed, packedReport);
+            assertEquals(ByteBufUtil.hexDump(expanded), ByteBufUtil.hexDump(packed));
+            assertEquals(report, decode(packed, false));
+        } finally {
+            expanded.release();
+            if (packed != null) {
+                packed.release();
+            }
+        }
+    }
+
+    @Test
+    void reissueUsesReissueCommand() {
+        RealTimeReport report = fullReport(2, 2).setReissue(true).build();
+        ByteBuf frame = UplinkEncoder.report(ALLOC, VIN, report);
+        try {
+            assertEquals(RequestType.REISSUE.getValue(), frame.getByte(START_SYMBOL_LENGTH));
+            assertEquals(report.toBuilder().setReissue(false).build(), decode(frame, false));
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Test
+    void fullByteCountOfCells() {
+        RealTimeReport report = fullReport(255, 2).build();
+        ByteBuf frame = UplinkEncoder.report(ALLOC, VIN, report);
+        try {
+            assertEquals(report, decode(frame, false));
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Test
+    void rejectsMoreCellsThanTheCountFieldHolds() {
+        // 单字节的本帧单体个数写成 300 & 0xFF = 44，解码时会错位
+        RealTimeReport report = fullReport(300, 2).build();
+        assertThrows(EncoderException.class, () -> ReportEncoder.payloadLength(report));
+        assertThrows(EncoderException.class, () -> UplinkEncoder.report(ALLOC, VIN, report));
+
+        ChargeableSubsystemElectric packed = ChargeableSubsystemElectric.newBuilder()
+                .setBatteryVoltageRaw(ByteString.copyFrom(new byte[300 * CellValues.VOLTAGE_BYTES]))
+                .build();
+        RealTimeReport packedReport = RealTimeReport.newBuilder().addChargeSystemElectric(packed).build();
+        assertThrows(EncoderException.class, () -> UplinkEncoder.report(ALLOC, VIN, packedReport));
+    }
+
+    @Test
+    void rejectsTooManyFaultCodes() {
+        Alarm.Builder alarm = Alarm.newBuilder();
+        for (int i = 0; i < 0xFE; i++) {
+            alarm.addEngineFaultData(i);
+        }
+        RealTimeReport report = RealTimeReport.newBuilder().setAlarm(alarm).build();
+        assertThrows(EncoderException.class, () -> UplinkEncoder.report(ALLOC, VIN, report));
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.ime.gbt32960.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 与 java.time 的换算结果对照
+ *
+ * @author Qingxi
+ */
+class TimeCodecTest {
+
+    private static final ZoneOffset ZONE = ZoneOffset.ofHours(8);
+
+    /**
+     * 2000-01-01T00:00:00+08:00 至 2127-12-31T23:59:59+08:00，年份字段不超过 127
+     */
+    private static final long MIN = LocalDateTime.of(2000, 1, 1, 0, 0).toEpochSecond(ZONE);
+    private static final long MAX = LocalDateTime.of(2127, 12, 31, 23, 59, 59).toEpochSecond(ZONE);
+
+    private static final int ROUNDS = 200_000;
+
+    @Test
+    void randomRoundTrip() {
+        Random random = new Random(32960);
+        ByteBuf buf = Unpooled.buffer(6);
+        for (int i = 0; i < ROUNDS; i++) {
+            long epochSecond = MIN + (long) (random.nextDouble() * (MAX - MIN + 1));
+            LocalDateTime expected = LocalDateTime.ofEpochSecond(epochSecond, 0, ZONE);
+
+            buf.clear();
+            TimeCodec.writeTime(buf, epochSecond);
+            assertEquals(expected.getYear() - 2000, buf.getByte(0), () -> "year of " + expected);
+            assertEquals(expected.getMonthValue(), buf.getByte(1), () -> "month of " + expected);
+            assertEquals(expected.getDayOfMonth(), buf.getByte(2), () -> "day of " + expected);
+            assertEquals(expected.getHour(), buf.getByte(3), () -> "hour of " + expected);
+            assertEquals(expected.getMinute(), buf.getByte(4), () -> "minute of " + expected);
+            assertEquals(expected.getSecond(), buf.getByte(5), () -> "second of " + expected);
+
+            assertEquals(epochSecond, TimeCodec.getTime(buf, 0), () -> "epoch second of " + expected);
+        }
+    }
+
+    @Test
+    void randomFieldsMatchJavaTime() {
+        Random random = new Random(2016);
+        for (int i = 0; i < ROUNDS; i++) {
+            int year = 2000 + random.nextInt(128);
+            int month = 1 + random.nextInt(12);
+            int day = 1 + random.nextInt(LocalDateTime.of(year, month, 1, 0, 0).toLocalDate().lengthOfMonth());
+            int hour = random.nextInt(24);
+            int minute = random.nextInt(60);
+            int second = random.nextInt(60);
+            long expected = LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(ZONE);
+            assertEquals(expected, TimeCodec.toEpochSecond(year, month, day, hour, minute, second));
+        }
+    }
+
+    @Test
+    void sameDayUsesCachedDate() {
+        long start = LocalDateTime.of(2018, 10, 1, 0, 0).toEpochSecond(ZONE);
+        for (int second = 0; second < 86400; second += 7) {
+            long expected = start + second;
+            assertEquals(expected, TimeCodec.toEpochSecond(2018, 10, 1, second / 3600, second / 60 % 60, second % 60));
+        }
+        // 缓存的日期之外的前后一天
+        assertEquals(start - 1, TimeCodec.toEpochSecond(2018, 9, 30, 23, 59, 59));
+        assertEquals(start + 86400, TimeCodec.toEpochSecond(2018, 10, 2, 0, 0, 0));
+    }
+
+    @Test
+    void leapYears() {
+        assertEquals(LocalDateTime.of(2000, 2, 29, 12, 0).toEpochSecond(ZONE),
+                TimeCodec.toEpochSecond(2000, 2, 29, 12, 0, 0));
+        assertEquals(LocalDateTime.of(2024, 2, 29, 12, 0).toEpochSecond(ZONE),
+                TimeCodec.toEpochSecond(2024, 2, 29, 12, 0, 0));
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2019, 2, 29, 0, 0, 0));
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2100, 2, 29, 0, 0, 0));
+    }
+
+    @Test
+    void rejectsInvalidFields() {
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2018, 0, 1, 0, 0, 0));
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2018, 13, 1, 0, 0, 0));
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2018, 1, 0, 0, 0, 0));
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2018, 1, 32, 0, 0, 0));
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2018, 4, 31, 0, 0, 0));
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2018, 1, 1, 24, 0, 0));
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2018, 1, 1, -1, 0, 0));
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2018, 1, 1, 0, 60, 0));
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2018, 1, 1, 0, 0, 60));
+    }
+
+    @Test
+    void rejectsInvalidTimeOnCachedDate() {
+        TimeCodec.toEpochSecond(2018, 6, 15, 8, 0, 0);
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2018, 6, 15, 8, 60, 0));
+        assertThrows(DateTimeException.class, () -> TimeCodec.toEpochSecond(2018, 6, 15, 8, 0, -1));
+    }
+
+    @Test
+    void rejectsInvalidFrameBytes() {
+        ByteBuf buf = Unpooled.wrappedBuffer(new byte[]{18, 2, 30, 10, 0, 0});
+        assertThrows(DateTimeException.class, () -> TimeCodec.getTime(buf, 0));
+        buf.setByte(2, 28);
+        buf.setByte(5, (byte) 0xFF);
+        assertThrows(DateTimeException.class, () -> TimeCodec.getTime(buf, 0));
+    }
+
+}
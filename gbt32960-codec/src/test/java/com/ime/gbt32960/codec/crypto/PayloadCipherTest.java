@@ -0,0 +1,159 @@
+package com.ime.gbt32960.codec.crypto;
+
+import com.ime.gbt32960.codec.EncryptionType;
+import com.ime.gbt32960.codec.FrameHeader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.EncoderException;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Qingxi
+ */
+class PayloadCipherTest {
+
+    private static final String VIN = "LJRNL000000000001";
+    private static final String UNKNOWN_VIN = "LJRNL000000000002";
+
+    /**
+     * 1024 位密钥：密文分块 128 字节，明文分块 117 字节
+     */
+    private static final KeyPair RSA_KEYS;
+
+    static {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(1024);
+            RSA_KEYS = generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final SecretKey AES_KEY = new SecretKeySpec(
+            new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16}, "AES");
+
+    /**
+     * 只有 {@link #VIN} 有密钥
+     */
+    private static final KeyResolver RESOLVER = new KeyResolver() {
+        @Override
+        public SecretKey aesKey(String vin) {
+            return VIN.equals(vin) ? AES_KEY : null;
+        }
+
+        @Override
+        public PrivateKey rsaPrivateKey(String vin) {
+            return VIN.equals(vin) ? RSA_KEYS.getPrivate() : null;
+        }
+
+        @Override
+        public PublicKey rsaPublicKey(String vin) {
+            return VIN.equals(vin) ? RSA_KEYS.getPublic() : null;
+        }
+    };
+
+    private final PayloadCipher cipher = new PayloadCipher(RESOLVER, 16, 10);
+
+    private static FrameHeader header(String vin, EncryptionType type) {
+        return FrameHeader.builder().vin(vin).encryptionType(type).build();
+    }
+
+    private static byte[] payload(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private ByteBuf encrypt(String vin, EncryptionType type, byte[] plain) {
+        ByteBuf out = Unpooled.buffer();
+        cipher.encrypt(vin, type, buf -> buf.writeBytes(plain), out);
+        return out;
+    }
+
+    private void assertRoundTrip(EncryptionType type, int length, int expectedCipherLength) {
+        byte[] plain = payload(length);
+        ByteBuf encrypted = encrypt(VIN, type, plain);
+        assertEquals(expectedCipherLength, encrypted.readableBytes(), type + " length " + length);
+        ByteBuf decrypted = cipher.decrypt(header(VIN, type), encrypted);
+        try {
+            assertEquals(0, encrypted.readerIndex());
+            assertArrayEquals(plain, ByteBufUtil.getBytes(decrypted), type + " length " + length);
+        } finally {
+            decrypted.release();
+            encrypted.release();
+        }
+    }
+
+    @Test
+    void aesRoundTrip() {
+        int[] lengths = {0, 1, 117, 118, 600};
+        for (int length : lengths) {
+            // PKCS5 总是补齐到下一个 16 字节，空明文不写入
+            assertRoundTrip(EncryptionType.AES128, length, length == 0 ? 0 : (length / 16 + 1) * 16);
+        }
+    }
+
+    @Test
+    void rsaRoundTripInChunks() {
+        int[] lengths = {0, 1, 117, 118, 600};
+        for (int length : lengths) {
+            // 每 117 字节明文加密为 128 字节
+            assertRoundTrip(EncryptionType.RSA, length, (length + 116) / 117 * 128);
+        }
+    }
+
+    @Test
+    void missingKey() {
+        ByteBuf out = Unpooled.buffer();
+        assertThrows(EncoderException.class,
+                () -> cipher.encrypt(UNKNOWN_VIN, EncryptionType.AES128, buf -> buf.writeByte(1), out));
+        assertThrows(EncoderException.class,
+                () -> cipher.encrypt(UNKNOWN_VIN, EncryptionType.RSA, buf -> buf.writeByte(1), out));
+        assertFalse(out.isReadable());
+
+        ByteBuf in = Unpooled.wrappedBuffer(new byte[128]);
+        assertThrows(DecoderException.class, () -> cipher.decrypt(header(UNKNOWN_VIN, EncryptionType.AES128), in));
+        assertThrows(DecoderException.class, () -> cipher.decrypt(header(UNKNOWN_VIN, EncryptionType.RSA), in));
+        assertEquals(0, in.readerIndex());
+    }
+
+    @Test
+    void invalidCiphertextLength() {
+        ByteBuf rsa = encrypt(VIN, EncryptionType.RSA, payload(200));
+        ByteBuf truncated = rsa.slice(0, rsa.readableBytes() - 1);
+        DecoderException e = assertThrows(DecoderException.class,
+                () -> cipher.decrypt(header(VIN, EncryptionType.RSA), truncated));
+        assertTrue(e.getMessage().contains("RSA"));
+        rsa.release();
+
+        ByteBuf aes = Unpooled.wrappedBuffer(new byte[17]);
+        e = assertThrows(DecoderException.class, () -> cipher.decrypt(header(VIN, EncryptionType.AES128), aes));
+        assertTrue(e.getCause() instanceof GeneralSecurityException);
+
+        // 失败后 Cipher 重新 init，之后的解密不受影响
+        assertRoundTrip(EncryptionType.AES128, 600, 608);
+        assertRoundTrip(EncryptionType.RSA, 600, 768);
+    }
+
+    @Test
+    void disabledCipherRejectsEncryptedFrames() {
+        ByteBuf in = Unpooled.wrappedBuffer(new byte[16]);
+        assertThrows(DecoderException.class,
+                () -> PayloadCipher.disabled().decrypt(header(VIN, EncryptionType.AES128), in));
+    }
+
+}
@@ -0,0 +1,264 @@
+package com.ime.gbt32960.codec.journal;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.PayloadDecoder;
+import com.ime.gbt32960.codec.UplinkEncoder;
+import com.ime.iov.gbt32960.LogoutRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Qingxi
+ */
+class FrameJournalTest {
+
+    private static final int SEGMENT_BYTES = 1024 * 1024;
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("frame-journal");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static String vin(int i) {
+        return String.format("LJRNL%012d", i);
+    }
+
+    private static ByteBuf frame(String vin, int seq) {
+        return UplinkEncoder.logout(ByteBufAllocator.DEFAULT, vin, LogoutRequest.newBuilder()
+                .setRecordTime(1_540_000_000L)
+                .setLogoutDaySeq(seq)
+                .build());
+    }
+
+    private static void append(FrameJournal journal, ByteBuf frame) {
+        try {
+            journal.append(frame, frame.readerIndex(), frame.readableBytes());
+        } finally {
+            frame.release();
+        }
+    }
+
+    private List<GBT32960Message> replayAll() throws IOException {
+        List<GBT32960Message> messages = new ArrayList<>();
+        new JournalReplayer(new PayloadDecoder(false)).replayAll(dir, messages::add);
+        return messages;
+    }
+
+    private static int seq(GBT32960Message message) {
+        return (int) ((LogoutRequest) message.getPayload()).getLogoutDaySeq();
+    }
+
+    @Test
+    void threadsAppendToTheirOwnSegments() throws Exception {
+        int threads = 4;
+        int perThread = 50_000;
+        FrameJournal journal = new FrameJournal(dir, SEGMENT_BYTES, false);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String vin = vin(t);
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    append(journal, frame(vin, i));
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        journal.close();
+
+        assertEquals((long) threads * perThread, journal.getAppended());
+        List<Path> segments = FrameJournalReader.segments(dir);
+        assertTrue(segments.size() > threads, "segments rolled: " + segments.size());
+
+        // 同一线程（同一连接）的帧保持顺序
+        Map<String, Integer> next = new HashMap<>();
+        List<GBT32960Message> messages = replayAll();
+        assertEquals(threads * perThread, messages.size());
+        for (GBT32960Message message : messages) {
+            String vin = message.getHeader().getVin();
+            int expected = next.getOrDefault(vin, 0);
+            assertEquals(expected, seq(message), vin);
+            next.put(vin, expected + 1);
+        }
+    }
+
+    @Test
+    void closeRemovesUnusedSpareSegment() throws Exception {
+        FrameJournal journal = new FrameJournal(dir, SEGMENT_BYTES, false);
+        append(journal, frame(vin(0), 0));
+        journal.close();
+        append(journal, frame(vin(0), 1));
+
+        assertEquals(1, FrameJournalReader.segments(dir).size());
+        assertEquals(1, replayAll().size());
+    }
+
+    @Test
+    void rollSealsCurrentSegmentsAndKeepsWriting() throws Exception {
+        FrameJournal journal = new FrameJournal(dir, SEGMENT_BYTES, false);
+        for (int i = 0; i < 3; i++) {
+            append(journal, frame(vin(0), i));
+        }
+        // 当前段和预备段都未封存
+        assertTrue(journal.sealedSegments().isEmpty());
+
+        journal.roll();
+        List<Path> sealed = journal.sealedSegments();
+        assertEquals(1, sealed.size());
+        assertEquals(3, new JournalReplayer(new PayloadDecoder(false)).replay(sealed.get(0), vin(0), m -> { }));
+
+        append(journal, frame(vin(0), 3));
+        assertEquals(sealed, journal.sealedSegments());
+        journal.close();
+        assertEquals(2, journal.sealedSegments().size());
+        assertEquals(4, replayAll().size());
+
+        ByteBuf late = frame(vin(0), 4);
+        assertFalse(journal.append(late, late.readerIndex(), late.readableBytes()));
+        late.release();
+    }
+
+    @Test
+    void compressedSegmentsReplay() throws Exception {
+        FrameJournal journal = new FrameJournal(dir, SEGMENT_BYTES, true);
+        int total = 30_000;
+        for (int i = 0; i < total; i++) {
+            append(journal, frame(vin(0), i));
+        }
+        journal.close();
+
+        List<Path> segments = FrameJournalReader.segments(dir);
+        assertTrue(segments.size() > 1);
+        assertTrue(segments.stream().allMatch(s -> s.toString().endsWith(JournalFormat.COMPRESSED_SUFFIX)));
+        assertEquals(total, replayAll().size());
+    }
+
+    @Test
+    void vinReplayWithoutIndexChecksHeaders() throws Exception {
+        FrameJournal journal = new FrameJournal(dir, SEGMENT_BYTES, false);
+        for (int i = 0; i < 100; i++) {
+            append(journal, frame(vin(i % 3), i));
+        }
+        journal.close();
+        Path segment = FrameJournalReader.segments(dir).get(0);
+        JournalReplayer replayer = new JournalReplayer(new PayloadDecoder(false));
+
+        List<GBT32960Message> indexed = new ArrayList<>();
+        assertEquals(33, replayer.replay(segment, vin(1), indexed::add));
+
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path index : files.filter(f -> f.toString().endsWith(JournalFormat.INDEX_SUFFIX))
+                    .collect(Collectors.toList())) {
+                Files.delete(index);
+            }
+        }
+        assertNull(FrameJournalReader.offsets(segment, vin(1)));
+        List<GBT32960Message> scanned = new ArrayList<>();
+        assertEquals(33, replayer.replay(segment, vin(1), scanned::add));
+        assertEquals(33, scanned.size());
+        for (int i = 0; i < scanned.size(); i++) {
+            assertEquals(vin(1), scanned.get(i).getHeader().getVin());
+            assertEquals(seq(indexed.get(i)), seq(scanned.get(i)));
+        }
+        assertEquals(0, replayer.replay(segment, vin(7), scanned::add));
+    }
+
+    @Test
+    void vinReplayOfOpenSegmentSeesEveryFrame() throws Exception {
+        FrameJournal journal = new FrameJournal(dir, SEGMENT_BYTES, false);
+        for (int i = 0; i < 100; i++) {
+            append(journal, frame(vin(i % 3), i));
+        }
+        JournalReplayer replayer = new JournalReplayer(new PayloadDecoder(false));
+        long frames = 0;
+        for (Path segment : FrameJournalReader.segments(dir)) {
+            frames += replayer.replay(segment, vin(1), m -> assertEquals(vin(1), m.getHeader().getVin()));
+        }
+        assertEquals(33, frames);
+        journal.close();
+    }
+
+    @Test
+    void vinReplayScansRecordsPastTheIndex() throws Exception {
+        FrameJournal journal = new FrameJournal(dir, SEGMENT_BYTES, false);
+        for (int i = 0; i < 100; i++) {
+            append(journal, frame(vin(i % 3), i));
+        }
+        journal.close();
+        Path segment = FrameJournalReader.segments(dir).get(0);
+        FrameJournalReader.VinOffsets sealed = FrameJournalReader.offsets(segment, vin(1));
+        assertTrue(sealed.isSealed());
+        assertEquals(33, sealed.getOffsets().length);
+
+        // 模拟崩溃：索引只写到前 10 条，没有结尾索引
+        Path index = segment.resolveSibling(segment.getFileName().toString()
+                .replace(JournalFormat.SEGMENT_SUFFIX, JournalFormat.INDEX_SUFFIX));
+        byte[] entries = Files.readAllBytes(index);
+        Files.write(index, Arrays.copyOf(entries, 10 * JournalFormat.INDEX_ENTRY_LENGTH));
+        FrameJournalReader.VinOffsets partial = FrameJournalReader.offsets(segment, vin(1));
+        assertFalse(partial.isSealed());
+        assertEquals(3, partial.getOffsets().length);
+
+        List<Integer> seqs = new ArrayList<>();
+        assertEquals(33, new JournalReplayer(new PayloadDecoder(false)).replay(segment, vin(1), m -> seqs.add(seq(m))));
+        for (int i = 0; i < seqs.size(); i++) {
+            assertEquals(3 * i + 1, (int) seqs.get(i));
+        }
+        assertEquals(0, new JournalReplayer(new PayloadDecoder(false)).replay(segment, vin(7), m -> { }));
+    }
+
+    @Test
+    void appendsFrameAtNonZeroIndex() throws Exception {
+        ByteBuf frame = frame(vin(0), 0);
+        ByteBuf padded = Unpooled.buffer().writeZero(5).writeBytes(frame);
+        frame.release();
+        FrameJournal journal = new FrameJournal(dir, SEGMENT_BYTES, false);
+        journal.append(padded, 5, padded.readableBytes() - 5);
+        padded.release();
+        journal.close();
+
+        assertEquals(1, new JournalReplayer(new PayloadDecoder(false))
+                .replay(FrameJournalReader.segments(dir).get(0), vin(0), m -> { }));
+    }
+
+}
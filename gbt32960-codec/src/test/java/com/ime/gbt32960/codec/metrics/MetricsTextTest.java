@@ -0,0 +1,48 @@
+package com.ime.gbt32960.codec.metrics;
+
+import com.ime.gbt32960.codec.RequestType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Qingxi
+ */
+class MetricsTextTest {
+
+    @Test
+    void escapesLabelValues() throws InterruptedException {
+        GatewayMetrics metrics = new GatewayMetrics(1, 10);
+        metrics.frameIn(RequestType.REAL_TIME, "A\"B\\C\nD", 100);
+        // 等窗口结束，排行才包含这个 VIN
+        Thread.sleep(5);
+        String text = MetricsText.render(metrics);
+        assertTrue(text.contains("gbt32960_noisy_terminal_frames{vin=\"A\\\"B\\\\C\\nD\"} 1\n"), text);
+        for (String line : text.split("\n")) {
+            assertTrue(line.startsWith("#") || line.matches("[a-z0-9_]+(\\{.*})? \\S+"), line);
+        }
+    }
+
+    @Test
+    void summaryCountAndSumAreCumulative() throws InterruptedException {
+        GatewayMetrics metrics = new GatewayMetrics(1, 10);
+        metrics.decoded(RequestType.REAL_TIME, 1_000_000);
+        metrics.decoded(RequestType.REAL_TIME, 3_000_000);
+        Thread.sleep(5);
+        String first = MetricsText.render(metrics);
+        assertTrue(first.contains("gbt32960_decode_latency_seconds_count{type=\"REAL_TIME\"} 2\n"), first);
+        assertTrue(first.contains("gbt32960_decode_latency_seconds_sum{type=\"REAL_TIME\"} 0.004\n"), first);
+
+        // 下一个窗口没有样本，分位数不再输出，累计值不变
+        Thread.sleep(5);
+        String second = MetricsText.render(metrics);
+        assertFalse(second.contains("gbt32960_decode_latency_seconds{type=\"REAL_TIME\""), second);
+        assertTrue(second.contains("gbt32960_decode_latency_seconds_count{type=\"REAL_TIME\"} 2\n"), second);
+
+        metrics.decoded(RequestType.REAL_TIME, 2_000_000);
+        String third = MetricsText.render(metrics);
+        assertTrue(third.contains("gbt32960_decode_latency_seconds_count{type=\"REAL_TIME\"} 3\n"), third);
+        assertTrue(third.contains("gbt32960_decode_latency_seconds_sum{type=\"REAL_TIME\"} 0.006\n"), third);
+    }
+
+}
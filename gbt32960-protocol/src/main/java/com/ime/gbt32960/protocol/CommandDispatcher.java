@@ -0,0 +1,228 @@
+package com.ime.gbt32960.protocol;
+
+import com.ime.gbt32960.codec.FrameHeader;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.ResponseMessage;
+import com.ime.gbt32960.codec.ResponseTag;
+import com.ime.iov.gbt32960.ConfigQueryResponse;
+import com.ime.iov.gbt32960.PlatformMessage;
+import com.ime.iov.gbt32960.TerminalResponse;
+import io.netty.channel.Channel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.nio.channels.ClosedChannelException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 平台下发命令：把命令写给指定车辆，并与终端的应答配对。
+ * <p>
+ * 每辆车每种命令标识同一时间只有一条待应答命令（终端应答中没有流水号，只能按命令标识配对）；
+ * 超时由时间轮统一处理，不占用线程，向整个车队下发时只需逐个写出即可。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class CommandDispatcher implements Closeable {
+
+    private static final RequestType[] COMMAND_TYPES = {
+            RequestType.CONFIG_QUERY, RequestType.CONFIG_SETUP, RequestType.CONTROL};
+
+    private final SessionRegistry sessionRegistry;
+    private final Timer timer;
+    private final long timeoutMillis;
+    private final ConcurrentHashMap<PendingKey, Pending> pending = new ConcurrentHashMap<>();
+
+    /**
+     * @param sessionRegistry 会话表
+     * @param timeoutMillis 等待终端应答的超时时间
+     */
+    public CommandDispatcher(SessionRegistry sessionRegistry, long timeoutMillis) {
+        this.sessionRegistry = sessionRegistry;
+        this.timeoutMillis = timeoutMillis;
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("gbt32960-command-timeout", true),
+                100, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * 向一辆车下发命令
+     * @param vin VIN
+     * @param command 参数查询、参数设置、控制、远程升级或报警/预警命令
+     * @return 终端应答；车辆未登入、已有同类命令待应答、写失败或超时时以异常结束
+     */
+    public CompletableFuture<TerminalResponse> send(String vin, PlatformMessage command) {
+        CompletableFuture<TerminalResponse> future = new CompletableFuture<>();
+        RequestType type = commandType(command);
+        Channel channel = sessionRegistry.channel(vin);
+        if (channel == null) {
+            future.completeExceptionally(new IllegalStateException(vin + " is not logged in"));
+            return future;
+        }
+
+        PendingKey key = new PendingKey(VinKey.of(vin), type);
+        Pending entry = new Pending(future);
+        // 先挂上超时再登记，应答一旦能匹配到 entry，timeout 就已经存在
+        entry.timeout = timer.newTimeout(t -> {
+            if (pending.remove(key, entry)) {
+                future.completeExceptionally(new TimeoutException(vin + " " + type + " response timed out"));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        if (pending.putIfAbsent(key, entry) != null) {
+            entry.timeout.cancel();
+            future.completeExceptionally(new IllegalStateException(vin + " already has a pending " + type + " command"));
+            return future;
+        }
+
+        channel.writeAndFlush(new ResponseMessage(vin, command)).addListener(f -> {
+            if (!f.isSuccess() && pending.remove(key, entry)) {
+                entry.timeout.cancel();
+                future.completeExceptionally(f.cause());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 向多辆车下发命令，写出操作交给各连接的 EventLoop，调用线程不会等待
+     * @param vins VIN 列表
+     * @param commandFactory 按 VIN 生成命令
+     * @return 按 VIN 的终端应答
+     */
+    public Map<String, CompletableFuture<TerminalResponse>> sendAll(Collection<String> vins,
+                                                                     Function<String, PlatformMessage> commandFactory) {
+        Map<String, CompletableFuture<TerminalResponse>> futures = new LinkedHashMap<>(vins.size() * 2);
+        for (String vin : vins) {
+            futures.put(vin, send(vin, commandFactory.apply(vin)));
+        }
+        return futures;
+    }
+
+    /**
+     * 用终端应答完成对应的待应答命令
+     * @param header 应答帧头部
+     * @param payload 解析后的应答数据单元
+     * @return 是否有匹配的待应答命令
+     */
+    public boolean complete(FrameHeader header, Object payload) {
+        Pending entry = pending.remove(new PendingKey(VinKey.of(header.getVin()), header.getRequestType()));
+        if (entry == null) {
+            log.debug("{} 的 {} 应答没有对应的待应答命令", header.getVin(), header.getRequestType());
+            return false;
+        }
+        entry.timeout.cancel();
+        entry.future.complete(toTerminalResponse(header, payload));
+        return true;
+    }
+
+    /**
+     * 连接断开或车辆登出时结束该车所有待应答命令
+     * @param vin VIN
+     */
+    public void fail(VinKey vin) {
+        for (RequestType type : COMMAND_TYPES) {
+            Pending entry = pending.remove(new PendingKey(vin, type));
+            if (entry != null) {
+                entry.timeout.cancel();
+                entry.future.completeExceptionally(new ClosedChannelException());
+            }
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    private static TerminalResponse toTerminalResponse(FrameHeader header, Object payload) {
+        TerminalResponse.Builder builder = TerminalResponse.newBuilder().setVin(header.getVin());
+        boolean success = header.getResponseTag() == ResponseTag.SUCCESS;
+        switch (header.getRequestType()) {
+            case CONFIG_QUERY:
+                builder.setConfigQuery((ConfigQueryResponse) payload);
+                break;
+            case CONFIG_SETUP:
+                builder.setSetupSuccess(success);
+                break;
+            default:
+                builder.setControlSuccess(success);
+                break;
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param command 平台消息
+     * @return 编码后的命令标识，远程升级、报警/预警都以车载终端控制命令发出
+     */
+    private static RequestType commandType(PlatformMessage command) {
+        switch (command.getMessageCase()) {
+            case CONFIG_QUERY:
+                return RequestType.CONFIG_QUERY;
+            case CONFIG_SETUP:
+                return RequestType.CONFIG_SETUP;
+            case CONTROL:
+            case UPGRADE:
+            case WARNING:
+                return RequestType.CONTROL;
+            default:
+                throw new IllegalArgumentException("Not a command: " + command.getMessageCase());
+        }
+    }
+
+    /**
+     * 停止超时定时器，结束所有待应答命令
+     */
+    @Override
+    public void close() {
+        timer.stop();
+        pending.values().removeIf(entry -> {
+            entry.future.completeExceptionally(new ClosedChannelException());
+            return true;
+        });
+    }
+
+    private static final class PendingKey {
+        private final VinKey vin;
+        private final RequestType type;
+
+        private PendingKey(VinKey vin, RequestType type) {
+            this.vin = vin;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PendingKey)) {
+                return false;
+            }
+            PendingKey other = (PendingKey) o;
+            return type == other.type && vin.equals(other.vin);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(vin, type);
+        }
+    }
+
+    private static final class Pending {
+        private final CompletableFuture<TerminalResponse> future;
+        private Timeout timeout;
+
+        private Pending(CompletableFuture<TerminalResponse> future) {
+            this.future = future;
+        }
+    }
+
+}
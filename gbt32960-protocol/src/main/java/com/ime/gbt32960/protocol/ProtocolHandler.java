@@ -1,6 +1,7 @@
 package com.ime.gbt32960.protocol;
 
 import com.ime.gbt32960.codec.*;
+import com.ime.gbt32960.codec.metrics.GatewayMetrics;
 import com.ime.iov.gbt32960.LoginRequest;
 import com.ime.iov.gbt32960.PlatformMessage;
 import com.ime.iov.gbt32960.ProtoResponse;
@@ -26,19 +27,52 @@ import static com.ime.gbt32960.codec.GBT32960Message.emptyResponse;
 public class ProtocolHandler extends ChannelDuplexHandler {
 
     @Getter
-    private static final ProtocolHandler instance = new ProtocolHandler();
+    private final SessionRegistry sessionRegistry;
+
+    @Getter
+    private final CommandDispatcher commandDispatcher;
+
+    private final GatewayMetrics metrics;
+
+    public ProtocolHandler(SessionRegistry sessionRegistry, CommandDispatcher commandDispatcher) {
+        this(sessionRegistry, commandDispatcher, GatewayMetrics.disabled());
+    }
+
+    public ProtocolHandler(SessionRegistry sessionRegistry, CommandDispatcher commandDispatcher, GatewayMetrics metrics) {
+        this.sessionRegistry = sessionRegistry;
+        this.commandDispatcher = commandDispatcher;
+        this.metrics = metrics;
+    }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         GBT32960Message message = (GBT32960Message) msg;
         FrameHeader header = message.getHeader();
+        Session session = SessionRegistry.session(ctx.channel());
+        if (session != null) {
+            session.touch();
+        }
         switch (header.getRequestType()) {
             /*
             想要测试 登入不成功的情况，只需将 case LOGIN 这段代码注释掉
              */
             case LOGIN:
                 LoginRequest login = (LoginRequest) message.getPayload();
+                Session replaced = sessionRegistry.register(new Session(VinKey.of(header.getVin()), ctx.channel(), login));
+                if (replaced != null) {
+                    commandDispatcher.fail(replaced.getVin());
+                }
+                metrics.login();
                 loginResponse(ctx, header, ResponseTag.SUCCESS, login);
+                ctx.fireChannelRead(msg);
+                break;
+            case LOGOUT:
+                Session loggedOut = sessionRegistry.unregister(ctx.channel());
+                if (loggedOut != null) {
+                    commandDispatcher.fail(loggedOut.getVin());
+                }
+                metrics.logout();
+                ctx.fireChannelRead(msg);
                 break;
             case HEARTBEAT:
                 emptyResponse(ctx, header, ResponseTag.SUCCESS);
@@ -47,7 +81,17 @@ public class ProtocolHandler extends ChannelDuplexHandler {
                 PlatformMessage correctMsg = PlatformMessage.newBuilder()
                         .setClockCorrect(TerminalClockCorrect.newBuilder()
                                 .setSystemTime(Instant.now().getEpochSecond()).build()).build();
-                ctx.write(new ResponseMessage(header.getVin(), correctMsg));
+                ctx.writeAndFlush(new ResponseMessage(header.getVin(), correctMsg));
+                break;
+            case CONFIG_QUERY:
+            case CONFIG_SETUP:
+            case CONTROL:
+                // 终端对平台下发命令的应答
+                if (header.getResponseTag() != ResponseTag.COMMAND) {
+                    commandDispatcher.complete(header, message.getPayload());
+                } else {
+                    ctx.fireChannelRead(msg);
+                }
                 break;
                 default:
                     ctx.fireChannelRead(msg);
@@ -69,13 +113,32 @@ public class ProtocolHandler extends ChannelDuplexHandler {
                         .setLogin(loginRequest)
                         .build())
                 .build();
-        log.info("返回登入成功消息: \n数据采集时间:{}\n{}", ZonedDateTime.ofInstant(Instant.ofEpochSecond(message.getProtoResponse().getLogin().getRecordTime()), ZONE_UTC8),message);
+        if (log.isDebugEnabled()) {
+            log.debug("返回登入成功消息: \n数据采集时间:{}\n{}", ZonedDateTime.ofInstant(Instant.ofEpochSecond(message.getProtoResponse().getLogin().getRecordTime()), ZONE_UTC8), message);
+        }
         log.info("{} 登入成功!", header.getVin());
         ctx.writeAndFlush(new ResponseMessage(header.getVin(), message));
     }
 
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        metrics.connectionOpened();
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        metrics.connectionClosed();
+        Session session = sessionRegistry.unregister(ctx.channel());
+        if (session != null) {
+            commandDispatcher.fail(session.getVin());
+        }
+        ctx.fireChannelInactive();
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception{
+        metrics.errorClosed();
         ctx.close();
     }
 
@@ -84,6 +147,7 @@ public class ProtocolHandler extends ChannelDuplexHandler {
         if (evt instanceof IdleStateEvent) {
             IdleStateEvent e = (IdleStateEvent) evt;
             if (e.state() == IdleState.READER_IDLE) {
+                metrics.idleClosed();
                 ctx.close();
             }
         }
@@ -0,0 +1,123 @@
+package com.ime.gbt32960.protocol;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 (VIN, 数据采集时间) 识别重复的实时/补发信息。
+ * <p>
+ * 终端重新上线后会补发大量缓存的帧，并且常常重复补发。这里用若干代轮换的 Bloom 过滤器记录最近收到的报文，
+ * 每代写满 expectedInsertions 条或超过 generationMillis 后新开一代并丢弃最老的一代，
+ * 因此能识别最近 generations 代以内的重复，内存固定。
+ * <p>
+ * Bloom 过滤器有误判：约 fpp 比例的非重复报文会被当作重复，这些帧仍保留在原始帧日志中。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class ReportDeduplicator {
+
+    private static final Funnel<Key> KEY_FUNNEL = (key, sink) -> {
+        sink.putString(key.vin, StandardCharsets.US_ASCII);
+        sink.putLong(key.recordTime);
+    };
+
+    private final long expectedInsertions;
+    private final double fpp;
+    private final long generationMillis;
+
+    /**
+     * 下标 0 为当前写入的一代
+     */
+    private volatile Generation[] generations;
+
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * @param expectedInsertions 每代容纳的报文数
+     * @param fpp 每代的误判率
+     * @param generationMillis 每代最长时间
+     * @param generations 保留的代数
+     */
+    public ReportDeduplicator(long expectedInsertions, double fpp, long generationMillis, int generations) {
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.generationMillis = generationMillis;
+        this.generations = new Generation[generations];
+        this.generations[0] = newGeneration();
+    }
+
+    /**
+     * 检查并记录一条报文
+     * @param vin VIN
+     * @param recordTime 数据采集时间
+     * @return 最近已经收到过时返回 true
+     */
+    public boolean isDuplicate(String vin, long recordTime) {
+        Key key = new Key(vin, recordTime);
+        Generation[] current = generations;
+        for (Generation generation : current) {
+            if (generation != null && generation.filter.mightContain(key)) {
+                duplicates.increment();
+                return true;
+            }
+        }
+        Generation head = current[0];
+        head.filter.put(key);
+        head.inserted.increment();
+        if (head.inserted.sum() >= expectedInsertions || System.currentTimeMillis() - head.createdAt >= generationMillis) {
+            rotate(head);
+        }
+        return false;
+    }
+
+    private synchronized void rotate(Generation head) {
+        Generation[] current = generations;
+        if (current[0] != head) {
+            return;
+        }
+        Generation[] rotated = new Generation[current.length];
+        rotated[0] = newGeneration();
+        System.arraycopy(current, 0, rotated, 1, current.length - 1);
+        generations = rotated;
+        log.info("去重过滤器轮换，上一代 {} 条，持续 {} 秒", head.inserted.sum(),
+                TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - head.createdAt));
+    }
+
+    private Generation newGeneration() {
+        return new Generation(BloomFilter.create(KEY_FUNNEL, expectedInsertions, fpp));
+    }
+
+    /**
+     * @return 识别出的重复报文数
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    private static final class Generation {
+        private final BloomFilter<Key> filter;
+        private final LongAdder inserted = new LongAdder();
+        private final long createdAt = System.currentTimeMillis();
+
+        private Generation(BloomFilter<Key> filter) {
+            this.filter = filter;
+        }
+    }
+
+    private static final class Key {
+        private final String vin;
+        private final long recordTime;
+
+        private Key(String vin, long recordTime) {
+            this.vin = vin;
+            this.recordTime = recordTime;
+        }
+    }
+
+}
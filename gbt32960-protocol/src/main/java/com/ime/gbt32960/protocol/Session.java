@@ -0,0 +1,77 @@
+package com.ime.gbt32960.protocol;
+
+import com.ime.iov.gbt32960.LoginRequest;
+import io.netty.channel.Channel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.ime.gbt32960.codec.GBT32960Message.ASCII_CHARSET;
+
+/**
+ * 一辆车的登入会话。字符串字段按字节保存，每个会话只占用固定且很小的内存
+ *
+ * @author Qingxi
+ */
+public final class Session {
+
+    @Getter
+    private final VinKey vin;
+    @Getter
+    private final Channel channel;
+    @Getter
+    private final long loginTime;
+    @Getter
+    private final int loginDaySeq;
+    private final byte[] iccid;
+    /**
+     * 可充电储能系统编码，按 codeLength 等长拼接
+     */
+    private final byte[] subsystemCodes;
+    private final int codeLength;
+
+    @Getter
+    private volatile long lastActiveTime;
+
+    public Session(VinKey vin, Channel channel, LoginRequest login) {
+        this.vin = vin;
+        this.channel = channel;
+        this.loginTime = login.getRecordTime();
+        this.loginDaySeq = login.getLoginDaySeq();
+        this.iccid = login.getIccid().getBytes(ASCII_CHARSET);
+        this.codeLength = login.getSystemCodeLength();
+        this.subsystemCodes = new byte[codeLength * login.getChargeableSubsystemCodeCount()];
+        for (int i = 0; i < login.getChargeableSubsystemCodeCount(); i++) {
+            byte[] code = login.getChargeableSubsystemCode(i).getBytes(ASCII_CHARSET);
+            System.arraycopy(code, 0, subsystemCodes, i * codeLength, Math.min(code.length, codeLength));
+        }
+        this.lastActiveTime = System.currentTimeMillis();
+    }
+
+    public String getIccid() {
+        return new String(iccid, ASCII_CHARSET);
+    }
+
+    public List<String> getSubsystemCodes() {
+        if (codeLength == 0) {
+            return Collections.emptyList();
+        }
+        int count = subsystemCodes.length / codeLength;
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add(new String(subsystemCodes, i * codeLength, codeLength, ASCII_CHARSET));
+        }
+        return codes;
+    }
+
+    public void touch() {
+        lastActiveTime = System.currentTimeMillis();
+    }
+
+    public boolean isActive() {
+        return channel.isActive();
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.ime.gbt32960.protocol;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 按 VIN 索引的会话表，用于向指定车辆下发命令。
+ * <p>
+ * 会话分散在 2 的幂个 ConcurrentHashMap 分片中，查询不加锁；
+ * 分片减小了单个 Map 扩容时的停顿和写竞争。每个会话同时挂在自己的 Channel 上，断线时据此注销。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class SessionRegistry {
+
+    public static final AttributeKey<Session> SESSION = AttributeKey.valueOf("gbt32960.session");
+
+    private static final int DEFAULT_SHARDS = 64;
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final ConcurrentHashMap<VinKey, Session>[] shards;
+    private final int mask;
+
+    public SessionRegistry() {
+        this(DEFAULT_SHARDS, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param shards 分片数，向上取 2 的幂
+     * @param expectedSessions 预计会话数，用于预分配容量
+     */
+    @SuppressWarnings("unchecked")
+    public SessionRegistry(int shards, int expectedSessions) {
+        int size = shards <= 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        this.shards = new ConcurrentHashMap[size];
+        this.mask = size - 1;
+        int perShard = Math.max(16, expectedSessions / size);
+        for (int i = 0; i < size; i++) {
+            this.shards[i] = new ConcurrentHashMap<>(perShard);
+        }
+    }
+
+    private ConcurrentHashMap<VinKey, Session> shard(VinKey vin) {
+        int h = vin.hashCode();
+        return shards[(h ^ h >>> 16) & mask];
+    }
+
+    /**
+     * 登记会话；同一 VIN 已在其他连接上登入时，关闭旧连接；同一连接以另一个 VIN 重新登入时，注销原来的 VIN
+     * @param session 新会话
+     * @return 同一连接上被替换的其他 VIN 的会话，没有时返回 null
+     */
+    public Session register(Session session) {
+        Session current = session.getChannel().attr(SESSION).getAndSet(session);
+        Session replaced = null;
+        if (current != null && !current.getVin().equals(session.getVin())
+                && shard(current.getVin()).remove(current.getVin(), current)) {
+            log.info("{} 的连接以 {} 重新登入，注销 {}", current.getVin(), session.getVin(), current.getVin());
+            replaced = current;
+        }
+        Session previous = shard(session.getVin()).put(session.getVin(), session);
+        if (previous != null && previous.getChannel() != session.getChannel()) {
+            log.info("{} 在新连接上重新登入，关闭旧连接 {}", session.getVin(), previous.getChannel().remoteAddress());
+            previous.getChannel().attr(SESSION).set(null);
+            previous.getChannel().close();
+        }
+        return replaced;
+    }
+
+    /**
+     * 注销连接上的会话，会话已被新连接替换时不影响新会话
+     * @param channel 连接
+     * @return 被注销的会话，没有时返回 null
+     */
+    public Session unregister(Channel channel) {
+        Session session = channel.attr(SESSION).getAndSet(null);
+        if (session != null && shard(session.getVin()).remove(session.getVin(), session)) {
+            return session;
+        }
+        return null;
+    }
+
+    public Session get(VinKey vin) {
+        return shard(vin).get(vin);
+    }
+
+    public Session get(String vin) {
+        return get(VinKey.of(vin));
+    }
+
+    /**
+     * @param vin VIN
+     * @return 车辆当前的连接，未登入或已断开时返回 null
+     */
+    public Channel channel(String vin) {
+        Session session = get(vin);
+        return session != null && session.isActive() ? session.getChannel() : null;
+    }
+
+    public static Session session(Channel channel) {
+        return channel.attr(SESSION).get();
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<VinKey, Session> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public void forEach(Consumer<Session> action) {
+        for (ConcurrentHashMap<VinKey, Session> shard : shards) {
+            shard.values().forEach(action);
+        }
+    }
+
+}
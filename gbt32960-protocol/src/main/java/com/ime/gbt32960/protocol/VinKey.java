@@ -0,0 +1,66 @@
+package com.ime.gbt32960.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Arrays;
+
+import static com.ime.gbt32960.codec.GBT32960Message.ASCII_CHARSET;
+
+/**
+ * 以 17 字节保存的 VIN，用作会话等按车索引的键，比 String 少一半以上的内存
+ *
+ * @author Qingxi
+ */
+public final class VinKey {
+
+    public static final int LENGTH = 17;
+
+    private final byte[] bytes;
+    private final int hash;
+
+    private VinKey(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    public static VinKey of(String vin) {
+        byte[] bytes = new byte[LENGTH];
+        byte[] src = vin.getBytes(ASCII_CHARSET);
+        System.arraycopy(src, 0, bytes, 0, Math.min(src.length, LENGTH));
+        return new VinKey(bytes);
+    }
+
+    /**
+     * @param in ByteBuf
+     * @param index VIN 开始位置
+     * @return VinKey
+     */
+    public static VinKey of(ByteBuf in, int index) {
+        byte[] bytes = new byte[LENGTH];
+        in.getBytes(index, bytes);
+        return new VinKey(bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof VinKey)) {
+            return false;
+        }
+        VinKey other = (VinKey) o;
+        return hash == other.hash && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, ASCII_CHARSET);
+    }
+
+}
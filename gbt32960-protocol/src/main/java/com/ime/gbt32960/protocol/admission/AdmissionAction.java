@@ -0,0 +1,25 @@
+package com.ime.gbt32960.protocol.admission;
+
+/**
+ * 单车帧速率超限时的处理方式
+ *
+ * @author Qingxi
+ */
+public enum AdmissionAction {
+
+    /**
+     * 丢弃超限的帧
+     */
+    DROP,
+
+    /**
+     * 超限的帧留在缓冲区中，暂停读取连接直到重新取得许可，不丢帧，由 TCP 流控把速率压回终端
+     */
+    PAUSE,
+
+    /**
+     * 关闭连接，该 VIN 在冷却时间内再次登入或发送数据时同样关闭
+     */
+    CLOSE
+
+}
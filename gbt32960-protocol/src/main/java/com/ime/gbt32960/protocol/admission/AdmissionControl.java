@@ -0,0 +1,194 @@
+package com.ime.gbt32960.protocol.admission;
+
+import lombok.Getter;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 所有连接共用的准入状态：按 VIN 限制帧速率，按远端 IP 限制新建连接速率，两者都是 {@link RateTable}。
+ * 每个连接的登入状态和超限处理在 {@link AdmissionHandler} 中。
+ *
+ * @author Qingxi
+ */
+public class AdmissionControl {
+
+    @Getter
+    private final AdmissionOptions options;
+
+    private final RateTable vinRates;
+
+    /**
+     * 不限制 IP 时为 null
+     */
+    private final RateTable ipRates;
+
+    private final long cooldownMicros;
+
+    private final long epoch = System.nanoTime();
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder paused = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder unauthenticated = new LongAdder();
+    private final LongAdder refusedConnections = new LongAdder();
+    private final LongAdder overflow = new LongAdder();
+
+    public AdmissionControl(AdmissionOptions options) {
+        this.options = options;
+        this.vinRates = new RateTable(options.getTableSize(), options.getVinFramesPerSecond(), options.getVinBurst());
+        this.ipRates = options.getIpConnectionsPerSecond() > 0
+                ? new RateTable(options.getTableSize(), options.getIpConnectionsPerSecond(), options.getIpBurst()) : null;
+        this.cooldownMicros = TimeUnit.MILLISECONDS.toMicros(options.getCooldownMillis());
+    }
+
+    /**
+     * @return 新连接的处理器，每个连接一个
+     */
+    public AdmissionHandler newHandler() {
+        return new AdmissionHandler(this);
+    }
+
+    /**
+     * 为一帧取许可
+     * @param vin VIN
+     * @return 0 表示放行，大于 0 为还需等待的微秒数
+     */
+    long acquire(String vin) {
+        long wait = vinRates.tryAcquire(hash(vin), now());
+        if (wait < 0) {
+            overflow.increment();
+            return 0;
+        }
+        return wait;
+    }
+
+    /**
+     * VIN 进入冷却
+     */
+    void penalize(String vin) {
+        vinRates.penalize(hash(vin), now(), cooldownMicros);
+    }
+
+    /**
+     * 新连接是否放行；超限的 IP 在冷却时间内的新连接都被拒绝
+     * @param address 远端地址
+     */
+    boolean admitConnection(SocketAddress address) {
+        if (ipRates == null || !(address instanceof InetSocketAddress)) {
+            return true;
+        }
+        InetAddress ip = ((InetSocketAddress) address).getAddress();
+        if (ip == null) {
+            return true;
+        }
+        long hash = hash(ip.getAddress());
+        long now = now();
+        long wait = ipRates.tryAcquire(hash, now);
+        if (wait < 0) {
+            overflow.increment();
+        }
+        if (wait <= 0) {
+            return true;
+        }
+        ipRates.penalize(hash, now, cooldownMicros);
+        refusedConnections.increment();
+        return false;
+    }
+
+    /**
+     * @return 自创建以来的微秒数，从 1 开始
+     */
+    private long now() {
+        return (System.nanoTime() - epoch) / 1000 + 1;
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    void paused() {
+        paused.increment();
+    }
+
+    void closed() {
+        closed.increment();
+    }
+
+    void unauthenticated() {
+        unauthenticated.increment();
+    }
+
+    /**
+     * FNV-1a 后再做一次 64 位混合，使低位（槽位）和高位（指纹）都均匀
+     */
+    static long hash(String vin) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < vin.length(); i++) {
+            h ^= vin.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    static long hash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53ec3d5L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return 超限丢弃的帧数
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return 因超限暂停读取的次数
+     */
+    public long getPaused() {
+        return paused.sum();
+    }
+
+    /**
+     * @return 因超限或未登入关闭的连接数
+     */
+    public long getClosed() {
+        return closed.sum();
+    }
+
+    /**
+     * @return 未登入即发送而被丢弃的帧数
+     */
+    public long getUnauthenticated() {
+        return unauthenticated.sum();
+    }
+
+    public long getRefusedConnections() {
+        return refusedConnections.sum();
+    }
+
+    /**
+     * @return 状态表相邻槽位已满而直接放行的次数，持续增长时应调大 tableSize
+     */
+    public long getOverflow() {
+        return overflow.sum();
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.ime.gbt32960.protocol.admission;
+
+import com.ime.gbt32960.codec.FrameAdmission;
+import com.ime.gbt32960.codec.FrameHeader;
+import com.ime.gbt32960.codec.RequestType;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个连接的准入控制，放在 pipeline 最前面，同时作为 {@link FrameAdmission} 交给同一连接的解码器：
+ * <ul>
+ *     <li>连接建立时按远端 IP 限制新建连接速率</li>
+ *     <li>登入前只接受车辆登入，其余帧（包括实时信息）在解析数据单元之前丢弃；帧的 VIN 须与登入的 VIN 一致</li>
+ *     <li>按 VIN 限制帧速率，超限时按 {@link AdmissionAction} 处理</li>
+ * </ul>
+ * PAUSE 时关闭 autoRead 并拦下暂停期间的 read（解码器在无输出时补发的，或解析队列恢复 autoRead 时发出的），
+ * 恢复后补上被拦下的 read，并重新触发一次解码，把留在累积缓冲区中的帧交出去。
+ * <p>
+ * 所有方法都在连接的 EventLoop 上调用，状态不需要同步。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class AdmissionHandler extends ChannelDuplexHandler implements FrameAdmission {
+
+    private final AdmissionControl control;
+    private final AdmissionOptions options;
+
+    private ChannelHandlerContext ctx;
+
+    /**
+     * 本连接上已登入的 VIN
+     */
+    private String loginVin;
+
+    private int unauthenticated;
+
+    private boolean paused;
+
+    /**
+     * 恢复时是否打开 autoRead：暂停前已打开，或暂停期间被解析队列重新打开；
+     * 暂停时已被解析队列的背压关闭的，恢复交给解析队列
+     */
+    private boolean resumeAutoRead;
+
+    /**
+     * 暂停期间有 read 被拦下，恢复时补发
+     */
+    private boolean readPending;
+
+    private boolean closing;
+
+    AdmissionHandler(AdmissionControl control) {
+        this.control = control;
+        this.options = control.getOptions();
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        ctx.fireChannelActive();
+        if (!control.admitConnection(ctx.channel().remoteAddress())) {
+            log.info("{} 新建连接过于频繁，拒绝连接", ctx.channel().remoteAddress());
+            closing = true;
+            ctx.close();
+        }
+    }
+
+    @Override
+    public void read(ChannelHandlerContext ctx) {
+        if (paused) {
+            readPending = true;
+        } else {
+            ctx.read();
+        }
+    }
+
+    @Override
+    public Decision admit(FrameHeader header) {
+        if (closing) {
+            return Decision.DROP;
+        }
+        if (paused) {
+            ChannelConfig config = ctx.channel().config();
+            if (config.isAutoRead()) {
+                // 暂停期间解析队列的背压又打开了 autoRead，恢复时交还
+                resumeAutoRead = true;
+                config.setAutoRead(false);
+            }
+            return Decision.DEFER;
+        }
+        RequestType type = header.getRequestType();
+        String vin = header.getVin();
+        if (options.isLoginRequired() && type != RequestType.LOGIN && !vin.equals(loginVin)) {
+            control.unauthenticated();
+            if (++unauthenticated >= options.getMaxUnauthenticatedFrames()) {
+                close(vin, "未登入即发送数据");
+            } else {
+                log.debug("{} 未登入，丢弃 {}", vin, type);
+            }
+            return Decision.DROP;
+        }
+        long wait = control.acquire(vin);
+        if (wait > 0) {
+            return limit(vin, wait);
+        }
+        if (type == RequestType.LOGIN) {
+            loginVin = vin;
+            unauthenticated = 0;
+        } else if (type == RequestType.LOGOUT) {
+            loginVin = null;
+        }
+        return Decision.ACCEPT;
+    }
+
+    private Decision limit(String vin, long waitMicros) {
+        switch (options.getAction()) {
+            case PAUSE:
+                pause(waitMicros);
+                return Decision.DEFER;
+            case CLOSE:
+                control.penalize(vin);
+                close(vin, "帧速率超限");
+                return Decision.DROP;
+            case DROP:
+            default:
+                control.dropped();
+                return Decision.DROP;
+        }
+    }
+
+    private void pause(long waitMicros) {
+        paused = true;
+        control.paused();
+        ChannelConfig config = ctx.channel().config();
+        resumeAutoRead = config.isAutoRead();
+        config.setAutoRead(false);
+        long millis = Math.min(Math.max(1, TimeUnit.MICROSECONDS.toMillis(waitMicros + 999)), options.getMaxPauseMillis());
+        ctx.executor().schedule(this::resume, millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void resume() {
+        paused = false;
+        boolean read = readPending;
+        readPending = false;
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+        ChannelConfig config = ctx.channel().config();
+        if (resumeAutoRead && !config.isAutoRead()) {
+            // 打开 autoRead 时会发出 read
+            config.setAutoRead(true);
+        } else if (read || config.isAutoRead()) {
+            // 解析队列在暂停期间打开了 autoRead，它发出的 read 已被拦下
+            ctx.read();
+        }
+        // 空缓冲区让解码器重新处理累积缓冲区中被推迟的帧
+        ctx.fireChannelRead(Unpooled.EMPTY_BUFFER);
+        ctx.fireChannelReadComplete();
+    }
+
+    private void close(String vin, String reason) {
+        log.info("{} {}，关闭连接 {}", vin, reason, ctx.channel().remoteAddress());
+        closing = true;
+        control.closed();
+        // 正在解码器的 decode 之中，关闭放到下一轮执行，避免累积缓冲区在使用中被释放；之后的帧都丢弃
+        ctx.executor().execute(ctx::close);
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.ime.gbt32960.protocol.admission;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 准入控制设置
+ *
+ * @author Qingxi
+ */
+@Builder
+@Getter
+public class AdmissionOptions {
+
+    /**
+     * 单车每秒帧数；正常终端 10 秒一帧实时信息，补发时会在短时间内连续上传
+     */
+    @Builder.Default
+    private double vinFramesPerSecond = 20;
+
+    /**
+     * 单车突发容量，应能容纳一次重连后的补发
+     */
+    @Builder.Default
+    private int vinBurst = 600;
+
+    /**
+     * 单个 IP 每秒新建连接数，0 表示不限制；经运营商 NAT 接入时多辆车共用一个 IP，不宜过小
+     */
+    @Builder.Default
+    private double ipConnectionsPerSecond = 20;
+
+    @Builder.Default
+    private int ipBurst = 200;
+
+    @Builder.Default
+    private AdmissionAction action = AdmissionAction.PAUSE;
+
+    /**
+     * CLOSE 时 VIN 的冷却时间，以及 IP 新建连接超限后拒绝连接的时间
+     */
+    @Builder.Default
+    private long cooldownMillis = 60_000;
+
+    /**
+     * PAUSE 时单次暂停读取的上限
+     */
+    @Builder.Default
+    private long maxPauseMillis = 10_000;
+
+    /**
+     * 未登入的连接上只接受车辆登入，其余帧丢弃，不进入解析
+     */
+    @Builder.Default
+    private boolean loginRequired = true;
+
+    /**
+     * 未登入时丢弃的帧数达到该值后关闭连接
+     */
+    @Builder.Default
+    private int maxUnauthenticatedFrames = 10;
+
+    /**
+     * 每张状态表的槽位数，每个槽位 8 字节，应为车辆数的数倍
+     */
+    @Builder.Default
+    private int tableSize = 1 << 19;
+
+}
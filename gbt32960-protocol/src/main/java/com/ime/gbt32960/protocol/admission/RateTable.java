@@ -0,0 +1,135 @@
+package com.ime.gbt32960.protocol.admission;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按键限速的无锁状态表，每个槽位一个 long：高 16 位为键的指纹，低 48 位为 GCRA 的理论到达时间（微秒）。
+ * <p>
+ * GCRA 与令牌桶等价：每个许可把理论到达时间推后一个间隔，推后的量超出突发容量时拒绝。
+ * 理论到达时间不晚于当前时间的槽位与空槽位没有区别，任何键都可以占用，因此不需要清理。
+ * 键按哈希落在对齐的一组 {@value #PROBES} 个槽位内，全部被其他活跃的键占用时放行并计数；
+ * 指纹相同的两个键共用一个桶，概率约为 1/65536。
+ *
+ * @author Qingxi
+ */
+final class RateTable {
+
+    /**
+     * 探测的槽位数，一组 8 个 long 通常落在同一两条缓存行内
+     */
+    private static final int PROBES = 8;
+
+    private static final int TIME_BITS = 48;
+
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    /**
+     * 两个许可之间的间隔（微秒）
+     */
+    private final long interval;
+
+    /**
+     * 突发容量对应的时长（微秒）
+     */
+    private final long tolerance;
+
+    /**
+     * @param capacity 槽位数，向上取 2 的幂
+     * @param permitsPerSecond 每秒许可数
+     * @param burst 突发容量
+     */
+    RateTable(int capacity, double permitsPerSecond, int burst) {
+        Preconditions.checkArgument(permitsPerSecond > 0, "permitsPerSecond <= 0");
+        Preconditions.checkArgument(burst > 0, "burst <= 0");
+        int size = capacity <= PROBES ? PROBES : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.interval = Math.max(1, Math.round(1_000_000 / permitsPerSecond));
+        this.tolerance = interval * burst;
+    }
+
+    /**
+     * 取一个许可
+     * @param hash 键的 64 位哈希
+     * @param now 当前时间（微秒，大于 0）
+     * @return 0 表示取得；大于 0 为还需等待的微秒数；表已满时放行并返回 -1
+     */
+    long tryAcquire(long hash, long now) {
+        long fingerprint = hash >>> TIME_BITS;
+        int base = (int) hash & mask;
+        int group = base & -PROBES;
+        retry:
+        while (true) {
+            int free = -1;
+            long freeValue = 0;
+            for (int i = 0; i < PROBES; i++) {
+                int index = group | ((base + i) & (PROBES - 1));
+                long value = slots.get(index);
+                if (value != 0 && value >>> TIME_BITS == fingerprint) {
+                    long tat = Math.max(value & TIME_MASK, now) + interval;
+                    if (tat - now > tolerance) {
+                        return tat - now - tolerance;
+                    }
+                    if (slots.compareAndSet(index, value, fingerprint << TIME_BITS | tat)) {
+                        return 0;
+                    }
+                    // 与其他线程竞争同一个键，重新读取
+                    continue retry;
+                }
+                if (free < 0 && (value & TIME_MASK) <= now) {
+                    free = index;
+                    freeValue = value;
+                }
+            }
+            if (free < 0) {
+                return -1;
+            }
+            if (slots.compareAndSet(free, freeValue, fingerprint << TIME_BITS | (now + interval))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 让键在 duration 内取不到许可；已在惩罚期内的不延长，避免终端不断重试时永远无法恢复
+     * @param hash 键的 64 位哈希
+     * @param now 当前时间（微秒）
+     * @param duration 时长（微秒）
+     */
+    void penalize(long hash, long now, long duration) {
+        long fingerprint = hash >>> TIME_BITS;
+        long blocked = fingerprint << TIME_BITS | (now + duration + tolerance);
+        int base = (int) hash & mask;
+        int group = base & -PROBES;
+        retry:
+        while (true) {
+            int free = -1;
+            long freeValue = 0;
+            for (int i = 0; i < PROBES; i++) {
+                int index = group | ((base + i) & (PROBES - 1));
+                long value = slots.get(index);
+                if (value != 0 && value >>> TIME_BITS == fingerprint) {
+                    // 取得许可后理论到达时间最多超前 tolerance，再超前说明已在惩罚期
+                    if ((value & TIME_MASK) - now > tolerance
+                            || slots.compareAndSet(index, value, blocked)) {
+                        return;
+                    }
+                    continue retry;
+                }
+                if (free < 0 && (value & TIME_MASK) <= now) {
+                    free = index;
+                    freeValue = value;
+                }
+            }
+            if (free < 0 || slots.compareAndSet(free, freeValue, blocked)) {
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.ime.gbt32960.protocol.alarm;
+
+/**
+ * 通用报警标志位（GB/T 32960.3 表 18），第 n 位为 1 表示该报警发生
+ *
+ * @author Qingxi
+ */
+public final class AlarmBits {
+
+    public static final int TEMPERATURE_DIFFERENCE = 1;
+    public static final int BATTERY_HIGH_TEMPERATURE = 1 << 1;
+    public static final int STORAGE_OVER_VOLTAGE = 1 << 2;
+    public static final int STORAGE_UNDER_VOLTAGE = 1 << 3;
+    public static final int SOC_LOW = 1 << 4;
+    public static final int CELL_OVER_VOLTAGE = 1 << 5;
+    public static final int CELL_UNDER_VOLTAGE = 1 << 6;
+    public static final int SOC_HIGH = 1 << 7;
+    public static final int SOC_JUMP = 1 << 8;
+    public static final int STORAGE_MISMATCH = 1 << 9;
+    public static final int CELL_CONSISTENCY = 1 << 10;
+    public static final int INSULATION = 1 << 11;
+    public static final int DC_DC_TEMPERATURE = 1 << 12;
+    public static final int BRAKE_SYSTEM = 1 << 13;
+    public static final int DC_DC_STATE = 1 << 14;
+    public static final int MOTOR_CONTROLLER_TEMPERATURE = 1 << 15;
+    public static final int HIGH_VOLTAGE_INTERLOCK = 1 << 16;
+    public static final int MOTOR_TEMPERATURE = 1 << 17;
+    public static final int STORAGE_OVER_CHARGE = 1 << 18;
+
+    private AlarmBits() {
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.ime.gbt32960.protocol.alarm;
+
+import com.ime.gbt32960.codec.CellValues;
+import com.ime.iov.gbt32960.Alarm;
+import com.ime.iov.gbt32960.Extremum;
+import com.ime.iov.gbt32960.RealTimeReport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 报警规则求值。
+ * <p>
+ * 规则在构造时编译成按类型分组的基本类型数组，每帧只做位运算和比较，
+ * 结果是一个 long，第 n 位为 1 表示第 n 条规则触发，求值过程不分配对象。最多 64 条规则。
+ *
+ * @author Qingxi
+ */
+public class AlarmEngine {
+
+    public static final int MAX_RULES = 64;
+
+    private static final int INVALID_VOLTAGE = 0xFFFE;
+    private static final int INVALID_TEMPERATURE = 0xFE;
+
+    private final AlarmRule[] rules;
+
+    private final int[] bitRules;
+    private final int[] bitMasks;
+    private final boolean[] bitMatchAll;
+
+    private final int[] levelRules;
+    private final int[] minLevels;
+
+    private final int[] thresholdRules;
+    private final int[] thresholdFields;
+    private final boolean[] thresholdAbove;
+    private final float[] thresholds;
+
+    public AlarmEngine(List<AlarmRule> rules) {
+        if (rules.size() > MAX_RULES) {
+            throw new IllegalArgumentException("at most " + MAX_RULES + " rules");
+        }
+        this.rules = rules.toArray(new AlarmRule[0]);
+        List<Integer> bits = new ArrayList<>();
+        List<Integer> levels = new ArrayList<>();
+        List<Integer> extremes = new ArrayList<>();
+        for (int i = 0; i < this.rules.length; i++) {
+            switch (this.rules[i].getKind()) {
+                case ALARM_BITS:
+                    bits.add(i);
+                    break;
+                case ALARM_LEVEL:
+                    levels.add(i);
+                    break;
+                default:
+                    extremes.add(i);
+            }
+        }
+        bitRules = toArray(bits);
+        bitMasks = new int[bitRules.length];
+        bitMatchAll = new boolean[bitRules.length];
+        for (int i = 0; i < bitRules.length; i++) {
+            bitMasks[i] = this.rules[bitRules[i]].getMask();
+            bitMatchAll[i] = this.rules[bitRules[i]].isMatchAll();
+        }
+        levelRules = toArray(levels);
+        minLevels = new int[levelRules.length];
+        for (int i = 0; i < levelRules.length; i++) {
+            minLevels[i] = this.rules[levelRules[i]].getLevel();
+        }
+        thresholdRules = toArray(extremes);
+        thresholdFields = new int[thresholdRules.length];
+        thresholdAbove = new boolean[thresholdRules.length];
+        thresholds = new float[thresholdRules.length];
+        for (int i = 0; i < thresholdRules.length; i++) {
+            AlarmRule rule = this.rules[thresholdRules[i]];
+            thresholdFields[i] = rule.getField().ordinal();
+            thresholdAbove[i] = rule.getKind() == AlarmRule.Kind.ABOVE;
+            thresholds[i] = rule.getThreshold();
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 对一帧实时信息求值
+     * @param report 实时信息
+     * @return 触发的规则，第 n 位对应第 n 条规则
+     */
+    public long evaluate(RealTimeReport report) {
+        long fired = 0;
+        if (report.hasAlarm()) {
+            Alarm alarm = report.getAlarm();
+            int flags = alarm.getAlarmBitIdentify();
+            for (int i = 0; i < bitRules.length; i++) {
+                int hit = flags & bitMasks[i];
+                if (bitMatchAll[i] ? hit == bitMasks[i] : hit != 0) {
+                    fired |= 1L << bitRules[i];
+                }
+            }
+            int level = alarm.getMaxAlarmLevel();
+            for (int i = 0; i < levelRules.length; i++) {
+                if (level >= minLevels[i]) {
+                    fired |= 1L << levelRules[i];
+                }
+            }
+        }
+        if (report.hasExtremum() && thresholdRules.length > 0) {
+            Extremum extremum = report.getExtremum();
+            // 异常、无效值为 NaN，与任何阈值比较都不成立
+            float maxVoltage = voltage(extremum.getMaxVoltage());
+            float minVoltage = voltage(extremum.getMinVoltage());
+            float maxTemperature = temperature(extremum.getMaxTemperature());
+            float minTemperature = temperature(extremum.getMinTemperature());
+            for (int i = 0; i < thresholdRules.length; i++) {
+                float value;
+                switch (thresholdFields[i]) {
+                    case 0:
+                        value = maxVoltage;
+                        break;
+                    case 1:
+                        value = minVoltage;
+                        break;
+                    case 2:
+                        value = maxTemperature;
+                        break;
+                    default:
+                        value = minTemperature;
+                }
+                if (thresholdAbove[i] ? value > thresholds[i] : value < thresholds[i]) {
+                    fired |= 1L << thresholdRules[i];
+                }
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * @param value 极值数据中的单体电压（V）
+     * @return 原始值为 0xFFFE（异常）或 0xFFFF（无效）时返回 NaN
+     */
+    private static float voltage(float value) {
+        return Math.round(value * 1000) >= INVALID_VOLTAGE ? Float.NaN : value;
+    }
+
+    /**
+     * @param raw 极值数据中保留的报文原始值，偏移量 40
+     * @return 温度（℃），原始值为 0xFE（异常）或 0xFF（无效）时返回 NaN
+     */
+    private static float temperature(int raw) {
+        return raw >= INVALID_TEMPERATURE ? Float.NaN : raw - CellValues.TEMPERATURE_OFFSET;
+    }
+
+    public AlarmRule rule(int index) {
+        return rules[index];
+    }
+
+    public int ruleCount() {
+        return rules.length;
+    }
+
+    /**
+     * 默认规则：终端上报的 3 级报警、温差与高温同时出现、绝缘报警，以及单体电压和温度极值的阈值
+     * @param maxCellVoltage 单体电压上限（V）
+     * @param minCellVoltage 单体电压下限（V）
+     * @param maxTemperature 温度上限（℃）
+     * @param minTemperature 温度下限（℃）
+     */
+    public static List<AlarmRule> defaultRules(float maxCellVoltage, float minCellVoltage,
+                                               float maxTemperature, float minTemperature) {
+        List<AlarmRule> rules = new ArrayList<>();
+        rules.add(AlarmRule.alarmLevel("终端三级报警", 3));
+        rules.add(AlarmRule.alarmBits("热失控风险", 3,
+                AlarmBits.TEMPERATURE_DIFFERENCE | AlarmBits.BATTERY_HIGH_TEMPERATURE, true));
+        rules.add(AlarmRule.alarmBits("绝缘报警", 2, AlarmBits.INSULATION, false));
+        rules.add(AlarmRule.above("单体电压过高", 2, AlarmRule.Field.MAX_CELL_VOLTAGE, maxCellVoltage));
+        rules.add(AlarmRule.below("单体电压过低", 2, AlarmRule.Field.MIN_CELL_VOLTAGE, minCellVoltage));
+        rules.add(AlarmRule.above("电池温度过高", 3, AlarmRule.Field.MAX_TEMPERATURE, maxTemperature));
+        rules.add(AlarmRule.below("电池温度过低", 1, AlarmRule.Field.MIN_TEMPERATURE, minTemperature));
+        return rules;
+    }
+
+}
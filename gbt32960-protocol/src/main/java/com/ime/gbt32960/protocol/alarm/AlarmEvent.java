@@ -0,0 +1,39 @@
+package com.ime.gbt32960.protocol.alarm;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 报警的产生或解除
+ *
+ * @author Qingxi
+ */
+@Getter
+@AllArgsConstructor
+public class AlarmEvent {
+
+    private final String vin;
+
+    private final AlarmRule rule;
+
+    /**
+     * true 为产生，false 为解除
+     */
+    private final boolean raised;
+
+    /**
+     * 数据采集时间，epoch 秒
+     */
+    private final long recordTime;
+
+    /**
+     * 平台检出时间，epoch 毫秒
+     */
+    private final long detectedAt;
+
+    @Override
+    public String toString() {
+        return vin + (raised ? " 产生 " : " 解除 ") + rule + " 采集时间 " + recordTime;
+    }
+
+}
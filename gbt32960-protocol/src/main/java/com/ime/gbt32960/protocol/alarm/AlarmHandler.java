@@ -0,0 +1,114 @@
+package com.ime.gbt32960.protocol.alarm;
+
+import com.ime.gbt32960.codec.FrameHeader;
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.iov.gbt32960.RealTimeReport;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在解析后立即对实时信息求值报警规则，规则状态变化时（产生或解除）通知 {@link AlarmListener}。
+ * <p>
+ * 补发信息是历史数据，不参与求值；登出后清除该车的报警状态。消息继续向后传递。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+@ChannelHandler.Sharable
+public class AlarmHandler extends ChannelInboundHandlerAdapter {
+
+    private final AlarmEngine engine;
+    private final AlarmListener listener;
+
+    /**
+     * 每辆车当前处于触发状态的规则
+     */
+    private final Map<String, ActiveAlarms> active = new ConcurrentHashMap<>();
+
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder raised = new LongAdder();
+
+    public AlarmHandler(AlarmEngine engine, AlarmListener listener) {
+        this.engine = engine;
+        this.listener = listener;
+    }
+
+    /**
+     * 以 WARN 级别记录日志的接收方
+     */
+    public static AlarmListener loggingListener() {
+        return event -> log.warn("报警: {}", event);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof GBT32960Message) {
+            GBT32960Message message = (GBT32960Message) msg;
+            FrameHeader header = message.getHeader();
+            if (header.getRequestType() == RequestType.REAL_TIME) {
+                evaluate(header.getVin(), (RealTimeReport) message.getPayload());
+            } else if (header.getRequestType() == RequestType.LOGOUT) {
+                active.remove(header.getVin());
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    private void evaluate(String vin, RealTimeReport report) {
+        evaluated.increment();
+        long fired = engine.evaluate(report);
+        ActiveAlarms state = active.get(vin);
+        if (state == null) {
+            if (fired == 0) {
+                return;
+            }
+            state = active.computeIfAbsent(vin, key -> new ActiveAlarms());
+        }
+        long changed = fired ^ state.rules;
+        state.rules = fired;
+        if (changed == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        while (changed != 0) {
+            int index = Long.numberOfTrailingZeros(changed);
+            changed &= changed - 1;
+            boolean isRaised = (fired & 1L << index) != 0;
+            if (isRaised) {
+                raised.increment();
+            }
+            try {
+                listener.onAlarm(new AlarmEvent(vin, engine.rule(index), isRaised, report.getRecordTime(), now));
+            } catch (Exception e) {
+                log.error("处理报警事件失败", e);
+            }
+        }
+    }
+
+    public long getEvaluated() {
+        return evaluated.sum();
+    }
+
+    public long getRaised() {
+        return raised.sum();
+    }
+
+    /**
+     * @return 当前有报警的车辆数
+     */
+    public int getActiveVehicles() {
+        return active.size();
+    }
+
+    private static final class ActiveAlarms {
+        private volatile long rules;
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.ime.gbt32960.protocol.alarm;
+
+/**
+ * 报警事件的接收方，在 I/O 线程上调用，耗时的处理应转交给其他线程
+ *
+ * @author Qingxi
+ */
+@FunctionalInterface
+public interface AlarmListener {
+
+    void onAlarm(AlarmEvent event);
+
+}
@@ -0,0 +1,90 @@
+package com.ime.gbt32960.protocol.alarm;
+
+import lombok.Getter;
+
+/**
+ * 报警规则，由 {@link AlarmEngine} 编译成数组后逐帧求值
+ *
+ * @author Qingxi
+ */
+@Getter
+public final class AlarmRule {
+
+    public enum Kind {
+        /**
+         * 通用报警标志位命中掩码
+         */
+        ALARM_BITS,
+        /**
+         * 最高报警等级不低于阈值
+         */
+        ALARM_LEVEL,
+        /**
+         * 极值数据高于阈值
+         */
+        ABOVE,
+        /**
+         * 极值数据低于阈值
+         */
+        BELOW
+    }
+
+    /**
+     * 极值数据中可用于阈值判断的字段，电压单位 V，温度单位 ℃
+     */
+    public enum Field {
+        MAX_CELL_VOLTAGE,
+        MIN_CELL_VOLTAGE,
+        MAX_TEMPERATURE,
+        MIN_TEMPERATURE
+    }
+
+    private final String name;
+    private final int level;
+    private final Kind kind;
+    private final int mask;
+    private final boolean matchAll;
+    private final Field field;
+    private final float threshold;
+
+    private AlarmRule(String name, int level, Kind kind, int mask, boolean matchAll, Field field, float threshold) {
+        this.name = name;
+        this.level = level;
+        this.kind = kind;
+        this.mask = mask;
+        this.matchAll = matchAll;
+        this.field = field;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param name 规则名称
+     * @param level 触发时的报警等级
+     * @param mask 通用报警标志位掩码，位定义见 {@link AlarmBits}
+     * @param matchAll true 要求掩码中的位全部置位，false 任一置位即触发
+     */
+    public static AlarmRule alarmBits(String name, int level, int mask, boolean matchAll) {
+        return new AlarmRule(name, level, Kind.ALARM_BITS, mask, matchAll, null, 0);
+    }
+
+    /**
+     * 终端上报的最高报警等级不低于 minLevel 时触发，报警等级为 minLevel
+     */
+    public static AlarmRule alarmLevel(String name, int minLevel) {
+        return new AlarmRule(name, minLevel, Kind.ALARM_LEVEL, 0, false, null, minLevel);
+    }
+
+    public static AlarmRule above(String name, int level, Field field, float threshold) {
+        return new AlarmRule(name, level, Kind.ABOVE, 0, false, field, threshold);
+    }
+
+    public static AlarmRule below(String name, int level, Field field, float threshold) {
+        return new AlarmRule(name, level, Kind.BELOW, 0, false, field, threshold);
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + level + "级)";
+    }
+
+}
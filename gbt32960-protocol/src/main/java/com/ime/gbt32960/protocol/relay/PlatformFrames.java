@@ -0,0 +1,67 @@
+package com.ime.gbt32960.protocol.relay;
+
+import com.google.common.base.Strings;
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.ResponseTag;
+import com.ime.gbt32960.codec.UplinkEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import static com.ime.gbt32960.codec.GBT32960Message.*;
+
+/**
+ * 平台之间的登入、登出和心跳帧，VIN 位置为平台唯一识别码
+ *
+ * @author Qingxi
+ */
+final class PlatformFrames {
+
+    private static final int VIN_LENGTH = 17;
+    private static final int USERNAME_LENGTH = 12;
+    private static final int PASSWORD_LENGTH = 20;
+
+    private static final int LOGIN_LENGTH = TIME_LENGTH + 2 + USERNAME_LENGTH + PASSWORD_LENGTH + 1;
+    private static final int LOGOUT_LENGTH = TIME_LENGTH + 2;
+
+    private PlatformFrames() {
+    }
+
+    static String platformVin(String platformCode) {
+        return Strings.padEnd(platformCode, VIN_LENGTH, '0').substring(0, VIN_LENGTH);
+    }
+
+    static ByteBuf login(ByteBufAllocator alloc, RelayOptions options, long time, int seq) {
+        ByteBuf out = alloc.buffer(UplinkEncoder.FRAME_OVERHEAD + LOGIN_LENGTH);
+        GBT32960Message.encodeMessage(out, platformVin(options.getPlatformCode()), RequestType.PLATFORM_LOGIN,
+                ResponseTag.COMMAND, buf -> {
+                    writeTime(buf, time);
+                    buf.writeShort(seq);
+                    writeFixed(buf, options.getUsername(), USERNAME_LENGTH);
+                    writeFixed(buf, options.getPassword(), PASSWORD_LENGTH);
+                    buf.writeByte(options.getEncryptionRule());
+                });
+        return out;
+    }
+
+    static ByteBuf logout(ByteBufAllocator alloc, RelayOptions options, long time, int seq) {
+        ByteBuf out = alloc.buffer(UplinkEncoder.FRAME_OVERHEAD + LOGOUT_LENGTH);
+        GBT32960Message.encodeMessage(out, platformVin(options.getPlatformCode()), RequestType.PLATFORM_LOGOUT,
+                ResponseTag.COMMAND, buf -> {
+                    writeTime(buf, time);
+                    buf.writeShort(seq);
+                });
+        return out;
+    }
+
+    static ByteBuf heartbeat(ByteBufAllocator alloc, RelayOptions options) {
+        return UplinkEncoder.heartbeat(alloc, platformVin(options.getPlatformCode()));
+    }
+
+    private static void writeFixed(ByteBuf out, String value, int length) {
+        String fixed = Strings.nullToEmpty(value);
+        int written = out.writeCharSequence(fixed.length() > length ? fixed.substring(0, length) : fixed, ASCII_CHARSET);
+        out.writeZero(length - written);
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.ime.gbt32960.protocol.relay;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * 上级平台转发的连接、登入与溢写设置
+ *
+ * @author Qingxi
+ */
+@Builder
+@Getter
+public class RelayOptions {
+
+    private String host;
+
+    @Builder.Default
+    private int port = 32960;
+
+    /**
+     * 到上级平台的长连接数，同一 VIN 总是走同一连接，保持单车的帧顺序
+     */
+    @Builder.Default
+    private int connections = 2;
+
+    /**
+     * 平台唯一识别码，写在平台登入、登出和心跳帧的 VIN 位置，不足 17 位补 0
+     */
+    private String platformCode;
+
+    /**
+     * 平台用户名，12 字节
+     */
+    private String username;
+
+    /**
+     * 平台密码，20 字节
+     */
+    private String password;
+
+    /**
+     * 平台登入数据中的加密规则，0x01 为不加密
+     */
+    @Builder.Default
+    private int encryptionRule = 0x01;
+
+    /**
+     * 发出平台登入后等待应答的时间，超时断开重连
+     */
+    @Builder.Default
+    private long loginTimeoutMillis = 10_000;
+
+    /**
+     * 连接上无写出的时间达到该值时发送心跳
+     */
+    @Builder.Default
+    private int heartbeatSeconds = 30;
+
+    /**
+     * 重连退避的初始值与上限，登入成功后回到初始值
+     */
+    @Builder.Default
+    private long reconnectMinMillis = 1_000;
+
+    @Builder.Default
+    private long reconnectMaxMillis = 60_000;
+
+    /**
+     * 上级平台不可用或写缓冲已满时帧写入的溢写目录，为 null 时直接丢弃
+     */
+    private Path spillDir;
+
+    @Builder.Default
+    private int spillSegmentBytes = 64 * 1024 * 1024;
+
+}
@@ -0,0 +1,225 @@
+package com.ime.gbt32960.protocol.relay;
+
+import com.ime.gbt32960.codec.FrameHeader;
+import com.ime.gbt32960.codec.GBT32960Decoder;
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.ResponseTag;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 到上级平台的一条长连接：连接后先发平台登入，收到成功应答才开始转发；
+ * 空闲时发心跳，断开后按指数退避重连。
+ * <p>
+ * 转发来自各个终端连接的 I/O 线程，写入不立即 flush，而是向本连接的 EventLoop 提交一次 flush，
+ * 在它执行前到达的帧合并为一次写系统调用。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+class UpstreamConnection {
+
+    private final int id;
+    private final UpstreamRelay relay;
+    private final RelayOptions options;
+    private final Bootstrap bootstrap;
+
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+
+    private volatile Channel channel;
+    private volatile boolean ready;
+    private volatile boolean closed;
+    private volatile long backoffMillis;
+
+    UpstreamConnection(int id, UpstreamRelay relay, RelayOptions options, Bootstrap bootstrap) {
+        this.id = id;
+        this.relay = relay;
+        this.options = options;
+        this.backoffMillis = options.getReconnectMinMillis();
+        this.bootstrap = bootstrap.clone()
+                .remoteAddress(options.getHost(), options.getPort())
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline()
+                                .addLast(new IdleStateHandler(0, options.getHeartbeatSeconds(), 0))
+                                .addLast(new GBT32960Decoder())
+                                .addLast(new Handler());
+                    }
+                });
+    }
+
+    void connect() {
+        if (closed) {
+            return;
+        }
+        ChannelFuture future = bootstrap.connect();
+        channel = future.channel();
+        future.addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess()) {
+                log.warn("上级平台连接 {} 失败: {}", id, f.cause().toString());
+                scheduleReconnect();
+            }
+        });
+    }
+
+    private void scheduleReconnect() {
+        if (closed) {
+            return;
+        }
+        long delay = backoffMillis;
+        backoffMillis = Math.min(delay * 2, options.getReconnectMaxMillis());
+        bootstrap.config().group().schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    boolean isWritable() {
+        Channel ch = channel;
+        return ready && ch != null && ch.isWritable();
+    }
+
+    /**
+     * 已登入且写缓冲未满时写入帧的 retainedSlice
+     * @param frame 帧所在的 ByteBuf，读写位置不会被修改
+     * @param frameIndex 帧开始位置
+     * @param length 帧长度
+     * @return 是否已写入，false 时调用方负责溢写
+     */
+    boolean tryWrite(ByteBuf frame, int frameIndex, int length) {
+        Channel ch = channel;
+        if (!ready || ch == null || !ch.isWritable()) {
+            return false;
+        }
+        ch.write(frame.retainedSlice(frameIndex, length), ch.voidPromise());
+        scheduleFlush(ch);
+        return true;
+    }
+
+    /**
+     * 写入一个独立的帧，所有权交给连接
+     * @param frame 整帧
+     */
+    void write(ByteBuf frame) {
+        Channel ch = channel;
+        ch.write(frame, ch.voidPromise());
+        scheduleFlush(ch);
+    }
+
+    private void scheduleFlush(Channel ch) {
+        if (flushPending.compareAndSet(false, true)) {
+            ch.eventLoop().execute(() -> {
+                flushPending.set(false);
+                ch.flush();
+            });
+        }
+    }
+
+    /**
+     * 停止重连，已登入时先发平台登出再断开
+     * @return 关闭完成的 future，从未连接时为 null
+     */
+    ChannelFuture close() {
+        closed = true;
+        Channel ch = channel;
+        if (ch == null) {
+            return null;
+        }
+        if (ready && ch.isActive()) {
+            ready = false;
+            ch.writeAndFlush(PlatformFrames.logout(ch.alloc(), options, System.currentTimeMillis() / 1000,
+                    relay.nextLoginSeq())).addListener(ChannelFutureListener.CLOSE);
+            return ch.closeFuture();
+        }
+        return ch.close();
+    }
+
+    private final class Handler extends ChannelInboundHandlerAdapter {
+
+        private ScheduledFuture<?> loginTimeout;
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            log.info("上级平台连接 {} 已建立，发送平台登入", id);
+            ctx.writeAndFlush(PlatformFrames.login(ctx.alloc(), options, System.currentTimeMillis() / 1000,
+                    relay.nextLoginSeq()));
+            loginTimeout = ctx.executor().schedule(() -> {
+                log.warn("上级平台连接 {} 登入应答超时", id);
+                ctx.close();
+            }, options.getLoginTimeoutMillis(), TimeUnit.MILLISECONDS);
+            ctx.fireChannelActive();
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            try {
+                if (!(msg instanceof GBT32960Message)) {
+                    return;
+                }
+                FrameHeader header = ((GBT32960Message) msg).getHeader();
+                if (header.getRequestType() != RequestType.PLATFORM_LOGIN) {
+                    return;
+                }
+                loginTimeout.cancel(false);
+                if (header.getResponseTag() == ResponseTag.SUCCESS) {
+                    log.info("上级平台连接 {} 登入成功", id);
+                    backoffMillis = options.getReconnectMinMillis();
+                    ready = true;
+                    relay.onReady(UpstreamConnection.this);
+                } else {
+                    log.warn("上级平台连接 {} 登入被拒绝: {}", id, header.getResponseTag());
+                    ctx.close();
+                }
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent && ((IdleStateEvent) evt).state() == IdleState.WRITER_IDLE && ready) {
+                ctx.writeAndFlush(PlatformFrames.heartbeat(ctx.alloc(), options));
+            }
+            ctx.fireUserEventTriggered(evt);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            boolean wasReady = ready;
+            ready = false;
+            if (loginTimeout != null) {
+                loginTimeout.cancel(false);
+            }
+            if (!closed) {
+                log.warn("上级平台连接 {} 断开{}，{} 毫秒后重连", id, wasReady ? "" : "（未登入）", backoffMillis);
+                scheduleReconnect();
+            }
+            ctx.fireChannelInactive();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.warn("上级平台连接 {} 异常: {}", id, cause.toString());
+            ctx.close();
+        }
+    }
+
+}
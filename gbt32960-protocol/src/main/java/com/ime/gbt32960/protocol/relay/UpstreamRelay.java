@@ -0,0 +1,297 @@
+package com.ime.gbt32960.protocol.relay;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.ime.gbt32960.codec.FrameForwarder;
+import com.ime.gbt32960.codec.FrameHeader;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.journal.FrameJournal;
+import com.ime.gbt32960.codec.journal.FrameJournalReader;
+import com.ime.gbt32960.codec.journal.JournalFormat;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelFuture;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.ime.gbt32960.codec.GBT32960Message.ASCII_CHARSET;
+import static com.ime.gbt32960.codec.GBT32960Message.START_SYMBOL_LENGTH;
+import static com.ime.gbt32960.codec.GBT32960Message.ZONE_UTC8;
+
+/**
+ * 向上级平台（国家/地方监管平台）转发车辆数据：车辆登入、实时信息、补发信息和车辆登出。
+ * <p>
+ * 解码器校验通过的原始帧以 retainedSlice 写入上级连接，不重新编码也不拷贝；
+ * 按 VIN 选择连接池中的连接，同一车辆的帧保持顺序。
+ * 上级平台不可用或连接写缓冲已满时，帧写入溢写目录下的帧日志，
+ * 连接重新登入后由后台线程按段重发，实时信息改为补发信息；整段发完才删除，
+ * 重发途中再次断开时该段会整段重发，上级平台可能收到重复的补发信息。
+ * <p>
+ * 溢写日志在创建时打开、关闭时封存，I/O 线程各自写自己的段，不共用锁；
+ * 重发前由后台线程封存各线程的当前段，I/O 线程下一帧换用预先创建的新段，不等待磁盘。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class UpstreamRelay implements FrameForwarder, Closeable {
+
+    private static final Set<RequestType> FORWARDED =
+            EnumSet.of(RequestType.LOGIN, RequestType.REAL_TIME, RequestType.REISSUE, RequestType.LOGOUT);
+
+    /**
+     * 命令标识相对于帧开始位置的偏移
+     */
+    private static final int TYPE_OFFSET = START_SYMBOL_LENGTH;
+
+    private final RelayOptions options;
+    private final UpstreamConnection[] connections;
+    private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+    private final ExecutorService drainer;
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * 未设置溢写目录时为 null
+     */
+    private final FrameJournal spillJournal;
+
+    private LocalDate loginDay;
+    private int loginSeq;
+
+    private volatile boolean closed;
+
+    /**
+     * @param bootstrap 已设置 EventLoopGroup 和 Channel 类型的客户端 Bootstrap
+     * @param options 转发设置
+     * @throws IOException 创建溢写日志失败
+     */
+    public UpstreamRelay(Bootstrap bootstrap, RelayOptions options) throws IOException {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(options.getHost()), "未设置上级平台地址");
+        Preconditions.checkArgument(options.getConnections() > 0, "connections <= 0");
+        this.options = options;
+        this.connections = new UpstreamConnection[options.getConnections()];
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = new UpstreamConnection(i, this, options, bootstrap);
+        }
+        this.drainer = Executors.newSingleThreadExecutor(new DefaultThreadFactory("gbt32960-relay-drain", true));
+        // 启动时创建，目录和第一个段都在这里准备好，I/O 线程溢写时不做文件创建和映射
+        this.spillJournal = options.getSpillDir() != null
+                ? new FrameJournal(options.getSpillDir(), options.getSpillSegmentBytes(), false) : null;
+    }
+
+    public void start() {
+        log.info("向上级平台 {}:{} 转发，连接数 {}", options.getHost(), options.getPort(), connections.length);
+        for (UpstreamConnection connection : connections) {
+            connection.connect();
+        }
+    }
+
+    @Override
+    public void forward(FrameHeader header, ByteBuf frame, int frameIndex, int length) {
+        if (!FORWARDED.contains(header.getRequestType())) {
+            return;
+        }
+        if (connection(header.getVin()).tryWrite(frame, frameIndex, length)) {
+            forwarded.increment();
+        } else {
+            spill(frame, frameIndex, length);
+        }
+    }
+
+    private UpstreamConnection connection(String vin) {
+        return connections[Math.floorMod(vin.hashCode(), connections.length)];
+    }
+
+    private void spill(ByteBuf frame, int frameIndex, int length) {
+        if (spillJournal != null && !closed && spillJournal.append(frame, frameIndex, length)) {
+            spilled.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 连接登入成功时调用，溢写目录中有积压时启动重发
+     */
+    void onReady(UpstreamConnection connection) {
+        if (spillJournal == null || closed || !draining.compareAndSet(false, true)) {
+            return;
+        }
+        drainer.execute(() -> {
+            try {
+                drain();
+            } catch (IOException e) {
+                log.error("转发积压重发失败", e);
+            } finally {
+                draining.set(false);
+            }
+        });
+    }
+
+    /**
+     * 封存当前溢写段后逐段重发，直到没有积压或上级连接再次不可用
+     */
+    private void drain() throws IOException {
+        while (!closed) {
+            spillJournal.roll();
+            // 本轮之后 I/O 线程写入的段仍在写入中，不在其中
+            List<Path> segments = spillJournal.sealedSegments();
+            if (segments.isEmpty()) {
+                return;
+            }
+            log.info("开始重发转发积压，{} 个段", segments.size());
+            for (Path segment : segments) {
+                if (!replay(segment)) {
+                    log.warn("上级平台不可用，暂停重发积压");
+                    return;
+                }
+                deleteSegment(segment);
+            }
+        }
+    }
+
+    /**
+     * 重发一个段
+     * @return 是否整段发完
+     */
+    private boolean replay(Path segment) throws IOException {
+        try (FrameJournalReader reader = new FrameJournalReader(segment)) {
+            while (!closed) {
+                ByteBuf frame = alloc.buffer(256);
+                if (reader.readFrame(frame) < 0) {
+                    frame.release();
+                    return true;
+                }
+                String vin = frame.toString(JournalFormat.VIN_OFFSET, JournalFormat.VIN_LENGTH, ASCII_CHARSET);
+                UpstreamConnection connection = connection(vin);
+                if (!awaitWritable(connection)) {
+                    frame.release();
+                    return false;
+                }
+                asReissue(frame);
+                connection.write(frame);
+                replayed.increment();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 等待连接写缓冲回落，连接不再可用时返回 false
+     */
+    private boolean awaitWritable(UpstreamConnection connection) {
+        while (!connection.isWritable()) {
+            if (!connection.isReady() || closed) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /**
+     * 积压的实时信息改为补发信息；只改动命令标识一个字节，校验码按异或性质同步修正
+     */
+    private static void asReissue(ByteBuf frame) {
+        int typeIndex = frame.readerIndex() + TYPE_OFFSET;
+        if (frame.getByte(typeIndex) != RequestType.REAL_TIME.getValue()) {
+            return;
+        }
+        byte delta = (byte) (RequestType.REAL_TIME.getValue() ^ RequestType.REISSUE.getValue());
+        frame.setByte(typeIndex, RequestType.REISSUE.getValue());
+        int checkIndex = frame.writerIndex() - 1;
+        frame.setByte(checkIndex, frame.getByte(checkIndex) ^ delta);
+    }
+
+    private static void deleteSegment(Path segment) throws IOException {
+        String name = segment.getFileName().toString();
+        Files.deleteIfExists(segment);
+        Files.deleteIfExists(segment.resolveSibling(name.substring(0, name.indexOf('.')) + JournalFormat.INDEX_SUFFIX));
+    }
+
+    /**
+     * 平台登入/登出流水号，每天从 1 开始
+     */
+    synchronized int nextLoginSeq() {
+        LocalDate today = LocalDate.now(ZONE_UTC8);
+        if (!today.equals(loginDay)) {
+            loginDay = today;
+            loginSeq = 0;
+        }
+        return ++loginSeq;
+    }
+
+    public long getForwarded() {
+        return forwarded.sum();
+    }
+
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    public long getReplayed() {
+        return replayed.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return 已登入的连接数
+     */
+    public int getReadyConnections() {
+        int ready = 0;
+        for (UpstreamConnection connection : connections) {
+            if (connection.isReady()) {
+                ready++;
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * 各连接发送平台登出后断开，未发完的积压留在溢写目录中，下次启动后重发
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (UpstreamConnection connection : connections) {
+            ChannelFuture future = connection.close();
+            if (future != null) {
+                future.awaitUninterruptibly(5, TimeUnit.SECONDS);
+            }
+        }
+        drainer.shutdown();
+        try {
+            drainer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (spillJournal != null) {
+            spillJournal.close();
+        }
+    }
+
+}
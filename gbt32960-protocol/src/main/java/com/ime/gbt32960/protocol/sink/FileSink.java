@@ -0,0 +1,98 @@
+package com.ime.gbt32960.protocol.sink;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 把消息按 {@link SinkRecords} 格式顺序追加到本地文件，超过大小后滚动到新文件。
+ * 也用作 {@link SinkDispatcher} 的溢写文件。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class FileSink implements MessageSink {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final String name;
+    private final Path dir;
+    private final long maxFileBytes;
+
+    private DataOutputStream output;
+    private long fileBytes;
+    private int fileSeq;
+
+    /**
+     * @param name 出口名称，同时是文件名前缀
+     * @param dir 文件目录
+     * @param maxFileBytes 单个文件的大小上限
+     */
+    public FileSink(String name, Path dir, long maxFileBytes) {
+        this.name = name;
+        this.dir = dir;
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void write(List<GBT32960Message> batch) throws IOException {
+        for (GBT32960Message message : batch) {
+            if (output == null || fileBytes >= maxFileBytes) {
+                roll();
+            }
+            fileBytes += SinkRecords.write(output, message);
+        }
+        output.flush();
+    }
+
+    private void roll() throws IOException {
+        close();
+        Files.createDirectories(dir);
+        Path file = dir.resolve(name + "-" + LocalDateTime.now().format(FILE_TIME) + "-" + fileSeq++ + ".bin");
+        output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        SinkRecords.writeFileHeader(output);
+        fileBytes = SinkRecords.MAGIC.length + 1;
+        log.info("{} 写入文件: {}", name, file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (output != null) {
+            output.close();
+            output = null;
+        }
+    }
+
+    /**
+     * 读取 FileSink 或溢写文件中的全部消息，用于离线回放
+     * @param file 文件
+     * @param consumer 消息处理
+     * @throws IOException 读取失败
+     */
+    public static void read(Path file, Consumer<GBT32960Message> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            SinkRecords.readFileHeader(in);
+            GBT32960Message message;
+            while ((message = SinkRecords.read(in)) != null) {
+                consumer.accept(message);
+            }
+        }
+    }
+
+}
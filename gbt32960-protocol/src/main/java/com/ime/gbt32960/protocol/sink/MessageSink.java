@@ -0,0 +1,32 @@
+package com.ime.gbt32960.protocol.sink;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+
+import java.util.List;
+
+/**
+ * 解析后消息的下游出口，由 {@link SinkDispatcher} 在该出口专属的线程上成批调用。
+ * <p>
+ * write 抛出异常表示这一批未被接收，{@link SinkDispatcher} 会按配置重试，仍失败时溢写到磁盘或丢弃。
+ *
+ * @author Qingxi
+ */
+public interface MessageSink extends AutoCloseable {
+
+    /**
+     * @return 出口名称，用于日志和线程名
+     */
+    String name();
+
+    /**
+     * 写入一批消息，同一出口的调用总是串行的
+     * @param batch 消息，调用返回后列表会被复用，不能保留引用
+     * @throws Exception 写入失败
+     */
+    void write(List<GBT32960Message> batch) throws Exception;
+
+    @Override
+    default void close() throws Exception {
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.ime.gbt32960.protocol.sink;
+
+/**
+ * 出口队列已满时的处理方式
+ *
+ * @author Qingxi
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 丢弃新到的消息
+     */
+    DROP_NEWEST,
+
+    /**
+     * 丢弃队列中最早的消息，保留新到的消息
+     */
+    DROP_OLDEST,
+
+    /**
+     * 新到的消息放入同样大小的溢写队列，由溢写线程写入溢写文件，同时出口转入溢写：队列中积压的消息也顺序写入溢写文件，
+     * 积压降到一半以下后恢复写出口；写出口失败的批次也写入溢写文件。溢写队列已满或溢写文件写失败时才丢弃
+     */
+    SPILL
+
+}
@@ -0,0 +1,67 @@
+package com.ime.gbt32960.protocol.sink;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的批次队列，供同一进程中的消费者拉取，也可以在没有消息中间件时代替 broker 使用。
+ * <p>
+ * 队列已满时 write 最多等待 offerTimeoutMillis，仍放不进去则抛出异常，
+ * 由 {@link SinkDispatcher} 按出口的溢出策略处理，慢消费者因此不会拖住其他出口。
+ *
+ * @author Qingxi
+ */
+public class QueueSink implements MessageSink {
+
+    private final String name;
+    private final BlockingQueue<List<GBT32960Message>> batches;
+    private final long offerTimeoutMillis;
+
+    /**
+     * @param name 出口名称
+     * @param capacity 最多缓存的批次数
+     * @param offerTimeoutMillis 队列已满时的等待时间
+     */
+    public QueueSink(String name, int capacity, long offerTimeoutMillis) {
+        this.name = name;
+        this.batches = new ArrayBlockingQueue<>(capacity);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void write(List<GBT32960Message> batch) throws Exception {
+        if (!batches.offer(new ArrayList<>(batch), offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new IOException(name + " 队列已满");
+        }
+    }
+
+    /**
+     * 取出一批消息
+     * @param timeout 等待时间
+     * @param unit 时间单位
+     * @return 一批消息，超时返回 null
+     * @throws InterruptedException 等待时被中断
+     */
+    public List<GBT32960Message> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return batches.poll(timeout, unit);
+    }
+
+    /**
+     * @return 队列中的批次数
+     */
+    public int size() {
+        return batches.size();
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.ime.gbt32960.protocol.sink;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 把解析后的消息分发给多个 {@link MessageSink}。
+ * <p>
+ * 每个出口有自己的有界队列和写线程，publish 只做入队，不会阻塞 I/O 线程；
+ * 某个出口变慢或失败只影响它自己的队列，按该出口的 {@link OverflowPolicy} 丢弃或溢写。
+ *
+ * @author Qingxi
+ */
+public class SinkDispatcher implements Closeable {
+
+    private final List<SinkWorker> workers = new ArrayList<>();
+
+    /**
+     * 注册出口，须在开始 publish 之前完成
+     * @param sink 出口
+     * @param options 批量与溢出设置
+     * @return this
+     */
+    public SinkDispatcher register(MessageSink sink, SinkOptions options) {
+        workers.add(new SinkWorker(sink, options));
+        return this;
+    }
+
+    /**
+     * 把消息放入所有出口的队列
+     * @param message 消息
+     */
+    public void publish(GBT32960Message message) {
+        for (int i = 0; i < workers.size(); i++) {
+            workers.get(i).offer(message);
+        }
+    }
+
+    public boolean isEmpty() {
+        return workers.isEmpty();
+    }
+
+    /**
+     * @return 各出口的状态
+     */
+    public List<SinkWorker> getWorkers() {
+        return Collections.unmodifiableList(workers);
+    }
+
+    /**
+     * 停止接收并写完各出口队列中剩余的消息
+     */
+    @Override
+    public void close() {
+        for (SinkWorker worker : workers) {
+            worker.close();
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.ime.gbt32960.protocol.sink;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.protocol.ReportDeduplicator;
+import com.ime.iov.gbt32960.RealTimeReport;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+/**
+ * 放在 pipeline 末尾，把实时信息、补发信息、登入和登出消息交给 {@link SinkDispatcher}，
+ * 其他消息继续向后传递。设置了 {@link ReportDeduplicator} 时，重复的实时/补发信息直接丢弃。
+ *
+ * @author Qingxi
+ */
+@ChannelHandler.Sharable
+public class SinkHandler extends ChannelInboundHandlerAdapter {
+
+    private final SinkDispatcher dispatcher;
+
+    /**
+     * 为 null 时不去重
+     */
+    private final ReportDeduplicator deduplicator;
+
+    public SinkHandler(SinkDispatcher dispatcher) {
+        this(dispatcher, null);
+    }
+
+    public SinkHandler(SinkDispatcher dispatcher, ReportDeduplicator deduplicator) {
+        this.dispatcher = dispatcher;
+        this.deduplicator = deduplicator;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof GBT32960Message) {
+            GBT32960Message message = (GBT32960Message) msg;
+            switch (message.getHeader().getRequestType()) {
+                case REAL_TIME:
+                case REISSUE:
+                    if (deduplicator != null && deduplicator.isDuplicate(message.getHeader().getVin(),
+                            ((RealTimeReport) message.getPayload()).getRecordTime())) {
+                        return;
+                    }
+                    dispatcher.publish(message);
+                    return;
+                case LOGIN:
+                case LOGOUT:
+                    dispatcher.publish(message);
+                    return;
+                default:
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+}
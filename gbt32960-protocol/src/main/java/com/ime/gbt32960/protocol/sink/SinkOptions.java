@@ -0,0 +1,58 @@
+package com.ime.gbt32960.protocol.sink;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * 单个出口的批量、队列与溢出设置
+ *
+ * @author Qingxi
+ */
+@Builder
+@Getter
+public class SinkOptions {
+
+    /**
+     * 每批最多消息数
+     */
+    @Builder.Default
+    private int batchSize = 1000;
+
+    /**
+     * 一批从第一条消息入队起最多等待的毫秒数，未满也写出
+     */
+    @Builder.Default
+    private long maxDelayMillis = 100;
+
+    /**
+     * 出口队列容量（消息数），实时队列和补发队列各自按此容量
+     */
+    @Builder.Default
+    private int queueCapacity = 65536;
+
+    @Builder.Default
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    /**
+     * 一批写入失败后的重试次数
+     */
+    @Builder.Default
+    private int maxRetries = 3;
+
+    @Builder.Default
+    private long retryBackoffMillis = 100;
+
+    /**
+     * 溢写文件目录，{@link OverflowPolicy#SPILL} 时必须设置
+     */
+    private Path spillDir;
+
+    /**
+     * 单个溢写文件的大小上限
+     */
+    @Builder.Default
+    private long spillFileBytes = 256L * 1024 * 1024;
+
+}
@@ -0,0 +1,121 @@
+package com.ime.gbt32960.protocol.sink;
+
+import com.google.protobuf.MessageLite;
+import com.ime.gbt32960.codec.*;
+import com.ime.iov.gbt32960.LoginRequest;
+import com.ime.iov.gbt32960.LogoutRequest;
+import com.ime.iov.gbt32960.RealTimeReport;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.ime.gbt32960.codec.GBT32960Message.ASCII_CHARSET;
+
+/**
+ * {@link FileSink} 与溢写文件共用的记录格式。
+ * <p>
+ * 文件头：magic "GBTS"(4) + 版本(1)；
+ * 每条记录：命令标识(1) + 应答标志(1) + VIN(17) + 数据单元长度(4) + protobuf 编码的数据单元
+ *
+ * @author Qingxi
+ */
+public final class SinkRecords {
+
+    public static final byte[] MAGIC = "GBTS".getBytes(StandardCharsets.US_ASCII);
+    public static final byte VERSION = 1;
+    public static final int VIN_LENGTH = 17;
+
+    private SinkRecords() {
+    }
+
+    public static void writeFileHeader(DataOutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    public static void readFileHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        int version = in.readByte();
+        if (!Arrays.equals(magic, MAGIC) || version != VERSION) {
+            throw new IOException("不是有效的消息文件");
+        }
+    }
+
+    /**
+     * 写入一条记录
+     * @param out 输出流
+     * @param message 消息，数据单元须为 protobuf 消息或 null
+     * @return 写入的字节数
+     * @throws IOException 写入失败
+     */
+    public static int write(DataOutputStream out, GBT32960Message message) throws IOException {
+        FrameHeader header = message.getHeader();
+        byte[] payload = message.getPayload() == null
+                ? new byte[0] : ((MessageLite) message.getPayload()).toByteArray();
+        byte[] vin = new byte[VIN_LENGTH];
+        byte[] vinBytes = header.getVin().getBytes(ASCII_CHARSET);
+        System.arraycopy(vinBytes, 0, vin, 0, Math.min(vinBytes.length, VIN_LENGTH));
+        out.writeByte(header.getRequestType().getValue());
+        out.writeByte(header.getResponseTag().getValue());
+        out.write(vin);
+        out.writeInt(payload.length);
+        out.write(payload);
+        return 2 + VIN_LENGTH + 4 + payload.length;
+    }
+
+    /**
+     * 读取一条记录
+     * @param in 输入流
+     * @return 消息，文件结束时返回 null
+     * @throws IOException 读取失败或记录不完整
+     */
+    public static GBT32960Message read(DataInputStream in) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            return null;
+        }
+        try {
+            RequestType requestType = RequestType.valueOf((byte) type);
+            ResponseTag responseTag = ResponseTag.valueOf(in.readByte());
+            byte[] vin = new byte[VIN_LENGTH];
+            in.readFully(vin);
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            FrameHeader header = FrameHeader.builder()
+                    .requestType(requestType)
+                    .responseTag(responseTag)
+                    .vin(new String(vin, ASCII_CHARSET))
+                    .encryptionType(EncryptionType.PLAIN)
+                    .build();
+            return GBT32960Message.builder()
+                    .header(header)
+                    .payload(parsePayload(requestType, payload))
+                    .build();
+        } catch (EOFException e) {
+            throw new IOException("记录不完整", e);
+        }
+    }
+
+    private static Object parsePayload(RequestType type, byte[] payload) throws IOException {
+        if (payload.length == 0) {
+            return null;
+        }
+        switch (type) {
+            case REAL_TIME:
+            case REISSUE:
+                return RealTimeReport.parseFrom(payload);
+            case LOGIN:
+                return LoginRequest.parseFrom(payload);
+            case LOGOUT:
+                return LogoutRequest.parseFrom(payload);
+            default:
+                throw new IOException("不支持的消息类型: " + type);
+        }
+    }
+
+}
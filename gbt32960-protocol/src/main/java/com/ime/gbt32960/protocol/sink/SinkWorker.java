@@ -0,0 +1,288 @@
+package com.ime.gbt32960.protocol.sink;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RequestType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个出口的有界队列和写线程：按条数或等待时间攒批，失败重试，溢出时按 {@link OverflowPolicy} 处理。
+ * <p>
+ * 补发信息放在单独的低优先级队列中，只在实时队列为空时写出，终端集中补发时不会推迟实时数据。
+ * 溢出的消息放入有界的溢写队列，由单独的溢写线程写入文件，放入消息的 I/O 线程不做磁盘 I/O。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class SinkWorker {
+
+    private final MessageSink sink;
+    private final SinkOptions options;
+    private final BlockingQueue<GBT32960Message> queue;
+    private final BlockingQueue<GBT32960Message> reissueQueue;
+    private final FileSink spill;
+    private final Thread thread;
+
+    /**
+     * 队列已满时新到的消息，策略不是 SPILL 时为 null
+     */
+    private final BlockingQueue<GBT32960Message> spillQueue;
+    private final Thread spillThread;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    /**
+     * 为 true 时积压的消息直接写入溢写文件
+     */
+    private volatile boolean spilling;
+    private volatile boolean running = true;
+
+    SinkWorker(MessageSink sink, SinkOptions options) {
+        this.sink = sink;
+        this.options = options;
+        this.queue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+        this.reissueQueue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+        if (options.getOverflowPolicy() == OverflowPolicy.SPILL) {
+            if (options.getSpillDir() == null) {
+                throw new IllegalArgumentException(sink.name() + " 未设置溢写目录");
+            }
+            this.spill = new FileSink(sink.name() + "-spill", options.getSpillDir(), options.getSpillFileBytes());
+            this.spillQueue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+            this.spillThread = new Thread(this::runSpill, "sink-" + sink.name() + "-spill");
+            this.spillThread.setDaemon(true);
+        } else {
+            this.spill = null;
+            this.spillQueue = null;
+            this.spillThread = null;
+        }
+        this.thread = new Thread(this::run, "sink-" + sink.name());
+        this.thread.setDaemon(true);
+        this.thread.start();
+        if (spillThread != null) {
+            spillThread.start();
+        }
+    }
+
+    /**
+     * 放入一条消息，不阻塞；队列已满且策略为 SPILL 时放入溢写队列，溢写队列也满时丢弃
+     * @param message 消息
+     */
+    void offer(GBT32960Message message) {
+        BlockingQueue<GBT32960Message> target =
+                message.getHeader().getRequestType() == RequestType.REISSUE ? reissueQueue : queue;
+        if (target.offer(message)) {
+            return;
+        }
+        switch (options.getOverflowPolicy()) {
+            case DROP_OLDEST:
+                target.poll();
+                dropped.increment();
+                if (!target.offer(message)) {
+                    dropped.increment();
+                }
+                break;
+            case SPILL:
+                if (!spilling) {
+                    spilling = true;
+                    log.warn("{} 队列已满，转入溢写", sink.name());
+                }
+                if (!spillQueue.offer(message)) {
+                    dropped.increment();
+                }
+                break;
+            default:
+                dropped.increment();
+        }
+    }
+
+    private void run() {
+        int batchSize = options.getBatchSize();
+        List<GBT32960Message> batch = new ArrayList<>(batchSize);
+        boolean interrupted = false;
+        while (running || !queue.isEmpty() || !reissueQueue.isEmpty()) {
+            try {
+                if (queue.isEmpty() && reissueQueue.drainTo(batch, batchSize) > 0) {
+                    deliver(batch);
+                    batch.clear();
+                    continue;
+                }
+                GBT32960Message first = queue.poll(options.getMaxDelayMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getMaxDelayMillis());
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    GBT32960Message next = remaining > 0 && running ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // close() 不中断写线程，中断会使 FileChannel 关闭；被其他代码中断时写完已取出的消息后退出
+                interrupted = true;
+            }
+            if (!batch.isEmpty()) {
+                deliver(batch);
+                batch.clear();
+            }
+            if (interrupted) {
+                log.warn("{} 写线程被中断，剩余 {} 条消息未写出", sink.name(), getQueued());
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 溢写线程：把溢写队列中的消息按批写入溢写文件，关闭时写完剩余的消息
+     */
+    private void runSpill() {
+        List<GBT32960Message> batch = new ArrayList<>(options.getBatchSize());
+        while (running || !spillQueue.isEmpty()) {
+            try {
+                GBT32960Message first = spillQueue.poll(options.getMaxDelayMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                spillQueue.drainTo(batch, options.getBatchSize() - 1);
+                spill(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                log.warn("{} 溢写线程被中断，剩余 {} 条消息未写出", sink.name(), spillQueue.size());
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void deliver(List<GBT32960Message> batch) {
+        if (spilling) {
+            if (Math.max(queue.size(), reissueQueue.size()) > options.getQueueCapacity() / 2) {
+                spill(batch);
+                return;
+            }
+            spilling = false;
+            log.info("{} 积压已回落，恢复写出口", sink.name());
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                sink.write(batch);
+                delivered.add(batch.size());
+                return;
+            } catch (Exception e) {
+                if (attempt >= options.getMaxRetries() || !running) {
+                    failedBatches.increment();
+                    log.warn("{} 写入 {} 条消息失败: {}", sink.name(), batch.size(), e.toString());
+                    break;
+                }
+                sleep(options.getRetryBackoffMillis() << attempt);
+            }
+        }
+        if (spill != null) {
+            spill(batch);
+        } else {
+            dropped.add(batch.size());
+        }
+    }
+
+    /**
+     * 写线程和溢写线程都会溢写，互斥访问溢写文件
+     */
+    private void spill(List<GBT32960Message> batch) {
+        synchronized (spill) {
+            try {
+                spill.write(batch);
+                spilled.add(batch.size());
+            } catch (Exception e) {
+                log.error("{} 溢写失败", sink.name(), e);
+                dropped.add(batch.size());
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 置 running 为 false 后等待写线程写完队列中剩余的消息；不中断写线程，
+     * 取消息的等待不超过 maxDelayMillis
+     */
+    void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+            if (spillThread != null) {
+                spillThread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sink.close();
+            if (spill != null) {
+                synchronized (spill) {
+                    spill.close();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("关闭 {} 失败", sink.name(), e);
+        }
+    }
+
+    public String getName() {
+        return sink.name();
+    }
+
+    public int getQueued() {
+        return queue.size() + reissueQueue.size() + (spillQueue != null ? spillQueue.size() : 0);
+    }
+
+    /**
+     * @return 低优先级队列中的补发信息数
+     */
+    public int getQueuedReissue() {
+        return reissueQueue.size();
+    }
+
+    public boolean isSpilling() {
+        return spilling;
+    }
+
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.ime.gbt32960.protocol;
+
+import com.ime.gbt32960.codec.EncryptionType;
+import com.ime.gbt32960.codec.FrameHeader;
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.ResponseTag;
+import com.ime.iov.gbt32960.ControlCommand;
+import com.ime.iov.gbt32960.LoginRequest;
+import com.ime.iov.gbt32960.PlatformMessage;
+import com.ime.iov.gbt32960.TerminalResponse;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Qingxi
+ */
+class ProtocolHandlerTest {
+
+    private static final String VIN = "LSIM0000000000001";
+
+    private static final PlatformMessage CONTROL = PlatformMessage.newBuilder()
+            .setControl(ControlCommand.getDefaultInstance())
+            .build();
+
+    private final SessionRegistry registry = new SessionRegistry(4, 16);
+    private final CommandDispatcher dispatcher = new CommandDispatcher(registry, 30_000);
+    private final EmbeddedChannel channel = new EmbeddedChannel(new ProtocolHandler(registry, dispatcher));
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.close();
+        channel.finishAndReleaseAll();
+    }
+
+    private static GBT32960Message message(RequestType type, String vin, Object payload) {
+        return GBT32960Message.builder()
+                .header(FrameHeader.builder()
+                        .requestType(type)
+                        .responseTag(ResponseTag.COMMAND)
+                        .vin(vin)
+                        .encryptionType(EncryptionType.PLAIN)
+                        .build())
+                .payload(payload)
+                .valid(true)
+                .build();
+    }
+
+    private static void assertClosed(CompletableFuture<TerminalResponse> future) {
+        assertTrue(future.isDone());
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertTrue(e.getCause() instanceof ClosedChannelException);
+    }
+
+    @Test
+    void logoutFailsPendingCommands() {
+        channel.writeInbound(message(RequestType.LOGIN, VIN, LoginRequest.getDefaultInstance()));
+        CompletableFuture<TerminalResponse> future = dispatcher.send(VIN, CONTROL);
+        assertFalse(future.isDone());
+        assertEquals(1, dispatcher.pendingCount());
+
+        channel.writeInbound(message(RequestType.LOGOUT, VIN, null));
+        assertClosed(future);
+        assertEquals(0, dispatcher.pendingCount());
+        assertNull(registry.get(VIN));
+    }
+
+    @Test
+    void reloginWithAnotherVinFailsPendingCommands() {
+        channel.writeInbound(message(RequestType.LOGIN, VIN, LoginRequest.getDefaultInstance()));
+        CompletableFuture<TerminalResponse> future = dispatcher.send(VIN, CONTROL);
+
+        channel.writeInbound(message(RequestType.LOGIN, "LSIM0000000000002", LoginRequest.getDefaultInstance()));
+        assertClosed(future);
+        assertNull(registry.get(VIN));
+    }
+
+    @Test
+    void closeFailsPendingCommands() {
+        channel.writeInbound(message(RequestType.LOGIN, VIN, LoginRequest.getDefaultInstance()));
+        CompletableFuture<TerminalResponse> future = dispatcher.send(VIN, CONTROL);
+
+        dispatcher.close();
+        assertClosed(future);
+        assertEquals(0, dispatcher.pendingCount());
+    }
+
+}
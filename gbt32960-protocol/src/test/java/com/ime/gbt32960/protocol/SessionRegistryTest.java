@@ -0,0 +1,67 @@
+package com.ime.gbt32960.protocol;
+
+import com.ime.iov.gbt32960.LoginRequest;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Qingxi
+ */
+class SessionRegistryTest {
+
+    private static final String VIN_A = "LSIM0000000000001";
+    private static final String VIN_B = "LSIM0000000000002";
+
+    private final SessionRegistry registry = new SessionRegistry(4, 16);
+
+    private static Session session(String vin, EmbeddedChannel channel) {
+        return new Session(VinKey.of(vin), channel, LoginRequest.getDefaultInstance());
+    }
+
+    @Test
+    void reloginWithAnotherVinOnSameChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        Session a = session(VIN_A, channel);
+        assertNull(registry.register(a));
+
+        Session b = session(VIN_B, channel);
+        assertSame(a, registry.register(b));
+        assertNull(registry.get(VIN_A));
+        assertSame(b, registry.get(VIN_B));
+        assertSame(b, SessionRegistry.session(channel));
+        assertEquals(1, registry.size());
+
+        assertSame(b, registry.unregister(channel));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void reloginWithSameVinOnAnotherChannel() {
+        EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel second = new EmbeddedChannel();
+        registry.register(session(VIN_A, first));
+        Session current = session(VIN_A, second);
+        assertNull(registry.register(current));
+
+        assertFalse(first.isOpen());
+        assertNull(SessionRegistry.session(first));
+        assertNull(registry.unregister(first));
+        assertSame(current, registry.get(VIN_A));
+        assertSame(second, registry.channel(VIN_A));
+    }
+
+    @Test
+    void reloginWithSameVinOnSameChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        registry.register(session(VIN_A, channel));
+        Session again = session(VIN_A, channel);
+        assertNull(registry.register(again));
+
+        assertTrue(channel.isOpen());
+        assertSame(again, registry.get(VIN_A));
+        assertEquals(1, registry.size());
+    }
+
+}
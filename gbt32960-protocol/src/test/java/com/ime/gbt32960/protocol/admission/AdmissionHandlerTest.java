@@ -0,0 +1,155 @@
+package com.ime.gbt32960.protocol.admission;
+
+import com.ime.gbt32960.codec.EncryptionType;
+import com.ime.gbt32960.codec.FrameAdmission.Decision;
+import com.ime.gbt32960.codec.FrameHeader;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.ResponseTag;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 准入暂停与解析队列背压（由测试直接切换 autoRead 模拟）交错时，恢复后连接仍能继续读取
+ *
+ * @author Qingxi
+ */
+class AdmissionHandlerTest {
+
+    private static final String VIN = "LSIM0000000000001";
+
+    private static final long PAUSE_MILLIS = 20;
+
+    private static final FrameHeader HEADER = FrameHeader.builder()
+            .requestType(RequestType.REAL_TIME)
+            .responseTag(ResponseTag.COMMAND)
+            .vin(VIN)
+            .encryptionType(EncryptionType.PLAIN)
+            .build();
+
+    private final ReadCounter reads = new ReadCounter();
+
+    private AdmissionHandler handler;
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        AdmissionControl control = new AdmissionControl(AdmissionOptions.builder()
+                .vinFramesPerSecond(1)
+                .vinBurst(1)
+                .ipConnectionsPerSecond(0)
+                .action(AdmissionAction.PAUSE)
+                .maxPauseMillis(PAUSE_MILLIS)
+                .loginRequired(false)
+                .tableSize(64)
+                .build());
+        handler = control.newHandler();
+        // 计数器靠近 head，统计穿过准入处理器的 read
+        channel = new EmbeddedChannel(reads, handler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    /**
+     * 用完突发容量，下一帧触发暂停
+     */
+    private void pause() {
+        assertEquals(Decision.ACCEPT, handler.admit(HEADER));
+        assertEquals(Decision.DEFER, handler.admit(HEADER));
+    }
+
+    private void awaitResume() throws InterruptedException {
+        Thread.sleep(PAUSE_MILLIS + 10);
+        channel.runScheduledPendingTasks();
+    }
+
+    @Test
+    void lanePausedBeforeAdmissionAndResumedDuringPause() throws InterruptedException {
+        // 解析队列积压，先关闭 autoRead
+        channel.config().setAutoRead(false);
+        pause();
+
+        // 暂停期间解析队列恢复，它发出的 read 被拦下
+        int before = reads.count;
+        channel.config().setAutoRead(true);
+        assertEquals(before, reads.count);
+
+        awaitResume();
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(before + 1, reads.count);
+    }
+
+    @Test
+    void laneResumedThenFrameDeferredDuringPause() throws InterruptedException {
+        channel.config().setAutoRead(false);
+        pause();
+        channel.config().setAutoRead(true);
+
+        // 暂停期间又有帧到达，autoRead 被重新关闭，恢复时应交还
+        assertEquals(Decision.DEFER, handler.admit(HEADER));
+        assertFalse(channel.config().isAutoRead());
+
+        int before = reads.count;
+        awaitResume();
+        assertTrue(channel.config().isAutoRead());
+        assertTrue(reads.count > before);
+    }
+
+    @Test
+    void admissionPauseRestoresAutoRead() throws InterruptedException {
+        pause();
+        assertFalse(channel.config().isAutoRead());
+
+        int before = reads.count;
+        awaitResume();
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(before + 1, reads.count);
+    }
+
+    @Test
+    void swallowedReadIsReplayedWhileLaneStillPaused() throws InterruptedException {
+        channel.config().setAutoRead(false);
+        pause();
+
+        // 解码器没有输出时补发的 read
+        int before = reads.count;
+        channel.read();
+        assertEquals(before, reads.count);
+
+        awaitResume();
+        // 解析队列仍在积压，autoRead 留给它恢复，只补发被拦下的 read
+        assertFalse(channel.config().isAutoRead());
+        assertEquals(before + 1, reads.count);
+    }
+
+    @Test
+    void noReadWhileLaneStillPaused() throws InterruptedException {
+        channel.config().setAutoRead(false);
+        pause();
+
+        int before = reads.count;
+        awaitResume();
+        assertFalse(channel.config().isAutoRead());
+        assertEquals(before, reads.count);
+    }
+
+    private static final class ReadCounter extends ChannelOutboundHandlerAdapter {
+
+        private int count;
+
+        @Override
+        public void read(ChannelHandlerContext ctx) throws Exception {
+            count++;
+            super.read(ctx);
+        }
+    }
+
+}
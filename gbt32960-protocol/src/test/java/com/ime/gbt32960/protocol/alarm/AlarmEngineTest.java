@@ -0,0 +1,84 @@
+package com.ime.gbt32960.protocol.alarm;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RealTimeType;
+import com.ime.gbt32960.codec.ReportDecoder;
+import com.ime.iov.gbt32960.RealTimeReport;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Qingxi
+ */
+class AlarmEngineTest {
+
+    private static final int MAX_VOLTAGE = 3;
+    private static final int MIN_VOLTAGE = 4;
+    private static final int MAX_TEMPERATURE = 5;
+    private static final int MIN_TEMPERATURE = 6;
+
+    private final AlarmEngine engine = new AlarmEngine(AlarmEngine.defaultRules(4.2f, 2.8f, 55, -20));
+
+    /**
+     * 只含极值数据的实时信息，经 {@link ReportDecoder} 解析
+     */
+    private static RealTimeReport extremum(int maxVoltage, int minVoltage, int maxTemperature, int minTemperature) {
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            GBT32960Message.writeTime(buf, 1_600_000_000L);
+            buf.writeByte(RealTimeType.EXTREMUM.getValue());
+            buf.writeByte(1).writeByte(10).writeShort(maxVoltage);
+            buf.writeByte(1).writeByte(20).writeShort(minVoltage);
+            buf.writeByte(1).writeByte(3).writeByte(maxTemperature);
+            buf.writeByte(1).writeByte(4).writeByte(minTemperature);
+            return ReportDecoder.decodeFully(buf).build();
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static boolean fired(long result, int rule) {
+        return (result & 1L << rule) != 0;
+    }
+
+    @Test
+    void highRawTemperatureIsNotNegative() {
+        // 0x80 = 128，即 88 ℃，按有符号读取会变成 -168 ℃
+        RealTimeReport report = extremum(3700, 3600, 0x80, 0x80);
+        assertEquals(0x80, report.getExtremum().getMaxTemperature());
+        long result = engine.evaluate(report);
+        assertTrue(fired(result, MAX_TEMPERATURE));
+        assertFalse(fired(result, MIN_TEMPERATURE));
+    }
+
+    @Test
+    void highRawVoltageIsNotNegative() {
+        // 0x8000 = 32.768 V
+        RealTimeReport report = extremum(0x8000, 3600, 65, 60);
+        assertEquals(32.768f, report.getExtremum().getMaxVoltage());
+        long result = engine.evaluate(report);
+        assertTrue(fired(result, MAX_VOLTAGE));
+        assertFalse(fired(result, MIN_VOLTAGE));
+    }
+
+    @Test
+    void abnormalAndInvalidValuesNeverFire() {
+        assertEquals(0, engine.evaluate(extremum(0xFFFE, 0xFFFE, 0xFE, 0xFE)));
+        assertEquals(0, engine.evaluate(extremum(0xFFFF, 0xFFFF, 0xFF, 0xFF)));
+    }
+
+    @Test
+    void normalValuesWithinThresholds() {
+        // 3.7 V / 3.6 V，25 ℃ / 20 ℃
+        assertEquals(0, engine.evaluate(extremum(3700, 3600, 65, 60)));
+        long result = engine.evaluate(extremum(4300, 2700, 96, 19));
+        assertTrue(fired(result, MAX_VOLTAGE));
+        assertTrue(fired(result, MIN_VOLTAGE));
+        assertTrue(fired(result, MAX_TEMPERATURE));
+        assertTrue(fired(result, MIN_TEMPERATURE));
+    }
+
+}
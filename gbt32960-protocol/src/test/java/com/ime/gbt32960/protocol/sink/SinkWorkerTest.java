@@ -0,0 +1,159 @@
+package com.ime.gbt32960.protocol.sink;
+
+import com.ime.gbt32960.codec.EncryptionType;
+import com.ime.gbt32960.codec.FrameHeader;
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.ResponseTag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Qingxi
+ */
+class SinkWorkerTest {
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("sink-worker");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static GBT32960Message message(int i) {
+        return GBT32960Message.builder()
+                .header(FrameHeader.builder()
+                        .requestType(RequestType.REAL_TIME)
+                        .responseTag(ResponseTag.COMMAND)
+                        .vin(String.format("LSIM%013d", i))
+                        .encryptionType(EncryptionType.PLAIN)
+                        .build())
+                .valid(true)
+                .build();
+    }
+
+    private List<String> readVins(String prefix) throws IOException {
+        List<String> vins = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().startsWith(prefix))
+                    .sorted().collect(Collectors.toList())) {
+                FileSink.read(file, m -> vins.add(m.getHeader().getVin()));
+            }
+        }
+        return vins;
+    }
+
+    @Test
+    void spillKeepsOverflowingMessages() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new ArrayList<>();
+        MessageSink blocking = new MessageSink() {
+            @Override
+            public String name() {
+                return "blocking";
+            }
+
+            @Override
+            public void write(List<GBT32960Message> batch) throws Exception {
+                started.countDown();
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+                batch.forEach(m -> written.add(m.getHeader().getVin()));
+            }
+        };
+        SinkWorker worker = new SinkWorker(blocking, SinkOptions.builder()
+                .batchSize(1)
+                .queueCapacity(4)
+                .overflowPolicy(OverflowPolicy.SPILL)
+                .spillDir(dir)
+                .build());
+
+        worker.offer(message(0));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // 1 条正在写出，4 条在队列中，4 条进入溢写队列，都不超过容量
+        int total = 9;
+        for (int i = 1; i < total; i++) {
+            worker.offer(message(i));
+        }
+        assertTrue(worker.isSpilling());
+        assertEquals(0, worker.getDropped());
+        // 溢出的消息由溢写线程写入，放入的线程不等待
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (worker.getSpilled() < total - 1 - 4 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        assertEquals(total - 1 - 4, worker.getSpilled());
+
+        release.countDown();
+        worker.close();
+
+        assertEquals(0, worker.getDropped());
+        assertEquals(total, worker.getDelivered() + worker.getSpilled());
+        List<String> spilled = readVins("blocking-spill");
+        assertEquals(worker.getSpilled(), spilled.size());
+        List<String> all = new ArrayList<>(written);
+        all.addAll(spilled);
+        for (int i = 0; i < total; i++) {
+            assertTrue(all.contains(message(i).getHeader().getVin()), "missing " + i);
+        }
+    }
+
+    @Test
+    void closeWritesEverythingQueued() throws Exception {
+        FileSink file = new FileSink("file", dir, 1 << 20);
+        // 每批写入前的等待与 FileChannel 的写一样会被中断
+        MessageSink slow = new MessageSink() {
+            @Override
+            public String name() {
+                return file.name();
+            }
+
+            @Override
+            public void write(List<GBT32960Message> batch) throws Exception {
+                TimeUnit.MILLISECONDS.sleep(1);
+                file.write(batch);
+            }
+
+            @Override
+            public void close() throws Exception {
+                file.close();
+            }
+        };
+        SinkWorker worker = new SinkWorker(slow, SinkOptions.builder()
+                .batchSize(100)
+                .queueCapacity(100_000)
+                .build());
+        int total = 20_000;
+        for (int i = 0; i < total; i++) {
+            worker.offer(message(i));
+        }
+        worker.close();
+
+        assertEquals(total, worker.getDelivered());
+        assertEquals(total, readVins("file").size());
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.ime.gbt32960;
+
+import com.ime.gbt32960.codec.metrics.GatewayMetrics;
+import com.ime.gbt32960.protocol.CommandDispatcher;
+import com.ime.gbt32960.protocol.ProtocolHandler;
+import com.ime.gbt32960.protocol.SessionRegistry;
+import com.ime.gbt32960.store.LatestStateCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关在容器中共享的组件，其他 Bean（如看板、管理接口）可以直接注入
+ *
+ * @author Qingxi
+ */
+@Configuration
+public class GatewayConfiguration {
+
+    /**
+     * 终端应答平台命令的超时时间
+     */
+    private static final long COMMAND_TIMEOUT_MILLIS = 30_000;
+
+    @Bean
+    public GatewayMetrics gatewayMetrics(GatewayProperties properties) {
+        GatewayProperties.Metrics config = properties.getMetrics();
+        if (!config.isEnabled()) {
+            return GatewayMetrics.disabled();
+        }
+        return new GatewayMetrics(TimeUnit.SECONDS.toMillis(config.getWindowSeconds()), config.getTopVins());
+    }
+
+    /**
+     * 在线终端的会话表，下发命令、查询在线状态都通过它
+     */
+    @Bean
+    public SessionRegistry sessionRegistry() {
+        return new SessionRegistry();
+    }
+
+    /**
+     * 由 {@link InfoServerApplication} 在 EventLoop 停止之后关闭，容器不再关闭一次
+     */
+    @Bean(destroyMethod = "")
+    public CommandDispatcher commandDispatcher(SessionRegistry sessionRegistry) {
+        return new CommandDispatcher(sessionRegistry, COMMAND_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * 所有连接共用的协议处理器，与上面的会话表、命令下发共享状态
+     */
+    @Bean
+    public ProtocolHandler protocolHandler(SessionRegistry sessionRegistry, CommandDispatcher commandDispatcher,
+                                           GatewayMetrics gatewayMetrics) {
+        return new ProtocolHandler(sessionRegistry, commandDispatcher, gatewayMetrics);
+    }
+
+    /**
+     * 每辆车最新已知状态，读取无锁；由 gbt32960.sink.state 出口写入
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "gbt32960.sink.state", name = "enabled", havingValue = "true")
+    public LatestStateCache latestStateCache(GatewayProperties properties) {
+        GatewayProperties.SinkSettings state = properties.getSink().getState();
+        return new LatestStateCache(state.getExpectedVehicles(), state.getMaxIdleSeconds());
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.ime.gbt32960;
+
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.metrics.GatewayMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * 把 {@link GatewayMetrics} 登记到 Actuator 的 MeterRegistry。
+ * 只在类路径上有 Micrometer 时加载，解析耗时以最近一个窗口的分位数导出为 Gauge。
+ * <p>
+ * 上报最频繁的终端按名次导出，VIN 作为标签会让每个出现过的 VIN 都留下一个 Meter，
+ * 当前 Micrometer 版本无法移除，因此 Meter 只有名次和帧数；VIN 见 /metrics 文本输出
+ *
+ * @author Qingxi
+ */
+public class GatewayMeterBinder implements MeterBinder {
+
+    private final GatewayMetrics metrics;
+
+    public GatewayMeterBinder(GatewayMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 容器中有 MeterRegistry 时登记指标
+     * @return 是否已登记
+     */
+    static boolean bindTo(ApplicationContext context, GatewayMetrics metrics) {
+        MeterRegistry registry;
+        try {
+            registry = context.getBean(MeterRegistry.class);
+        } catch (BeansException e) {
+            return false;
+        }
+        new GatewayMeterBinder(metrics).bindTo(registry);
+        return true;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        metrics.getCounters().forEach((name, value) ->
+                FunctionCounter.builder(name, value, LongSupplier::getAsLong).register(registry));
+        metrics.getGauges().forEach((name, value) ->
+                Gauge.builder(name, value, LongSupplier::getAsLong).register(registry));
+        for (RequestType type : RequestType.values()) {
+            FunctionCounter.builder("gbt32960.frames.in.by.type", metrics, m -> m.getFramesIn(type))
+                    .tag("type", type.name())
+                    .register(registry);
+            latency(registry, type, "0.5", GatewayMetrics.Latency::getP50);
+            latency(registry, type, "0.9", GatewayMetrics.Latency::getP90);
+            latency(registry, type, "0.99", GatewayMetrics.Latency::getP99);
+            latency(registry, type, "0.999", GatewayMetrics.Latency::getP999);
+            latency(registry, type, "1", GatewayMetrics.Latency::getMax);
+        }
+        for (int i = 0; i < metrics.getTopN(); i++) {
+            int rank = i;
+            Gauge.builder("gbt32960.noisy.terminal.frames", metrics, m -> noisyFrames(m, rank))
+                    .tag("rank", String.valueOf(rank + 1))
+                    .register(registry);
+        }
+    }
+
+    /**
+     * @return 最近一个完整窗口内第 rank + 1 名终端的上行帧数，不足 rank + 1 个终端时为 0
+     */
+    private static double noisyFrames(GatewayMetrics metrics, int rank) {
+        List<GatewayMetrics.VinCount> terminals = metrics.getNoisyTerminals();
+        return rank < terminals.size() ? terminals.get(rank).getFrames() : 0;
+    }
+
+    private void latency(MeterRegistry registry, RequestType type, String quantile,
+                         ToLongFunction<GatewayMetrics.Latency> value) {
+        Gauge.builder("gbt32960.decode.latency", metrics, m -> value.applyAsLong(m.getDecodeLatency(type)) / 1e9)
+                .tag("type", type.name())
+                .tag("quantile", quantile)
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,397 @@
+package com.ime.gbt32960;
+
+import com.ime.gbt32960.protocol.admission.AdmissionAction;
+import com.ime.gbt32960.protocol.sink.OverflowPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 网关配置，前缀 gbt32960
+ *
+ * @author Qingxi
+ */
+@Data
+@ConfigurationProperties(prefix = "gbt32960")
+public class GatewayProperties {
+
+    private int port = 32960;
+
+    private TransportType transport = TransportType.NIO;
+
+    /**
+     * acceptor 数量；EPOLL 下大于 1 时用 SO_REUSEPORT 多次绑定同一端口，由内核分摊新连接
+     */
+    private int acceptorThreads = 1;
+
+    /**
+     * I/O 线程数，0 表示使用 Netty 默认值
+     */
+    private int workerThreads = 0;
+
+    /**
+     * 全连接队列长度，网络恢复后大量终端同时重连时避免队列溢出；实际值受 net.core.somaxconn 限制
+     */
+    private int backlog = 8192;
+
+    private boolean tcpNoDelay = true;
+
+    private boolean keepAlive = true;
+
+    private int writeBufferLowWaterMark = 32 * 1024;
+
+    private int writeBufferHighWaterMark = 64 * 1024;
+
+    /**
+     * 使用池化的直接内存分配器
+     */
+    private boolean pooledDirect = true;
+
+    /**
+     * 读空闲超时秒数，超时关闭连接
+     */
+    private int readerIdleSeconds = 60 * 5;
+
+    private Flush flush = new Flush();
+
+    private Capture capture = new Capture();
+
+    private Decode decode = new Decode();
+
+    private Sinks sink = new Sinks();
+
+    private Journal journal = new Journal();
+
+    private Dedup dedup = new Dedup();
+
+    private Alarm alarm = new Alarm();
+
+    private Metrics metrics = new Metrics();
+
+    private Relay relay = new Relay();
+
+    private Crypto crypto = new Crypto();
+
+    private Admission admission = new Admission();
+
+    @Data
+    public static class Flush {
+        /**
+         * 关闭时每个应答各自 flush
+         */
+        private boolean enabled = true;
+
+        /**
+         * 一次读循环内最多合并多少次 flush，超过后立即 flush
+         */
+        private int maxConsolidated = 256;
+
+        /**
+         * 不在读循环中的写（如下发命令）是否也合并到下一次事件循环再 flush
+         */
+        private boolean consolidateWhenNoRead = true;
+    }
+
+    @Data
+    public static class Capture {
+        private boolean enabled = false;
+
+        private String dir = "gbt32960_logs/capture";
+
+        private double sampleRate = 0.01;
+
+        /**
+         * 单个 VIN 的采样率，格式 VIN:采样率,VIN:采样率
+         */
+        private String vinSampleRates = "";
+
+        private int queueCapacity = 65536;
+    }
+
+    @Data
+    public static class Decode {
+        /**
+         * 实时/补发信息放到解析线程上解析，I/O 线程只拆帧和校验
+         */
+        private boolean staged = true;
+
+        /**
+         * 解析线程数，同一 VIN 固定在同一线程上
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 补发信息的解析线程数，低优先级
+         */
+        private int reissueThreads = 1;
+
+        /**
+         * 单个解析线程积压达到高水位时暂停相关连接的读取，降到低水位后恢复
+         */
+        private int highWaterMark = 4096;
+
+        private int lowWaterMark = 1024;
+
+        /**
+         * 单体电压、探针温度以原始字节存放，不逐个展开
+         */
+        private boolean packedCells = false;
+    }
+
+    @Data
+    public static class Sinks {
+        /**
+         * 溢写文件目录
+         */
+        private String spillDir = "gbt32960_logs/spill";
+
+        private SinkSettings file = new SinkSettings();
+
+        private SinkSettings queue = new SinkSettings();
+
+        private SinkSettings store = new SinkSettings();
+
+        private SinkSettings state = new SinkSettings();
+    }
+
+    @Data
+    public static class SinkSettings {
+        private boolean enabled = false;
+
+        private int batchSize = 1000;
+
+        private long maxDelayMillis = 100;
+
+        private int queueCapacity = 65536;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+        private int maxRetries = 3;
+
+        /**
+         * 文件出口的目录
+         */
+        private String dir = "gbt32960_logs/sink";
+
+        /**
+         * 文件出口单个文件的大小上限
+         */
+        private long maxFileBytes = 256L * 1024 * 1024;
+
+        /**
+         * 队列出口最多缓存的批次数
+         */
+        private int capacity = 1024;
+
+        /**
+         * 列存出口每块行数，10 秒一帧时 60 行约为 10 分钟
+         */
+        private int blockRows = 60;
+
+        /**
+         * 列存出口缓存的行最多停留的毫秒数
+         */
+        private long flushIntervalMillis = 15 * 60 * 1000;
+
+        /**
+         * 最新状态缓存预计的车辆数
+         */
+        private int expectedVehicles = 100_000;
+
+        /**
+         * 最新状态缓存中超过此秒数没有新数据的车辆被移除，0 表示不移除
+         */
+        private long maxIdleSeconds = 7 * 24 * 3600;
+    }
+
+    @Data
+    public static class Journal {
+        private boolean enabled = false;
+
+        private String dir = "gbt32960_logs/journal";
+
+        /**
+         * 段文件大小
+         */
+        private int segmentBytes = 256 * 1024 * 1024;
+
+        /**
+         * 滚动后压缩旧段
+         */
+        private boolean compress = true;
+    }
+
+    @Data
+    public static class Dedup {
+        private boolean enabled = true;
+
+        /**
+         * 每代过滤器容纳的报文数
+         */
+        private long expectedInsertions = 20_000_000;
+
+        /**
+         * 每代过滤器的误判率，误判的报文会被当作重复丢弃
+         */
+        private double fpp = 0.0001;
+
+        /**
+         * 每代过滤器最长的分钟数
+         */
+        private int generationMinutes = 60;
+
+        /**
+         * 保留的代数，能识别 generations 代以内的重复
+         */
+        private int generations = 3;
+    }
+
+    @Data
+    public static class Alarm {
+        private boolean enabled = true;
+
+        /**
+         * 最高单体电压上限（V）
+         */
+        private float maxCellVoltage = 4.3f;
+
+        /**
+         * 最低单体电压下限（V）
+         */
+        private float minCellVoltage = 2.5f;
+
+        /**
+         * 最高温度上限（℃）
+         */
+        private float maxTemperature = 60;
+
+        /**
+         * 最低温度下限（℃）
+         */
+        private float minTemperature = -30;
+    }
+
+    @Data
+    public static class Metrics {
+        private boolean enabled = true;
+
+        /**
+         * 解析耗时分布和上报排行的统计窗口（秒）
+         */
+        private int windowSeconds = 60;
+
+        /**
+         * 上报排行保留的终端数
+         */
+        private int topVins = 20;
+
+        /**
+         * 没有 Actuator 时 /metrics 文本端点的端口，0 表示不开启
+         */
+        private int httpPort = 9090;
+    }
+
+    @Data
+    public static class Relay {
+        private boolean enabled = false;
+
+        private String host = "";
+
+        private int port = 32960;
+
+        /**
+         * 到上级平台的长连接数
+         */
+        private int connections = 2;
+
+        /**
+         * 平台唯一识别码、用户名（12 字节）和密码（20 字节）
+         */
+        private String platformCode = "";
+
+        private String username = "";
+
+        private String password = "";
+
+        private int heartbeatSeconds = 30;
+
+        private long loginTimeoutMillis = 10_000;
+
+        /**
+         * 断开后重连的退避上限
+         */
+        private long reconnectMaxMillis = 60_000;
+
+        /**
+         * 上级平台不可用时的溢写目录，为空时直接丢弃
+         */
+        private String spillDir = "gbt32960_logs/relay";
+
+        private int spillSegmentBytes = 64 * 1024 * 1024;
+    }
+
+    @Data
+    public static class Crypto {
+        private boolean enabled = false;
+
+        /**
+         * 车辆密钥目录：{VIN}.aes 为 AES128 密钥原文，{VIN}.pub 为终端 RSA 公钥（X.509 DER）
+         */
+        private String keyDir = "gbt32960_keys";
+
+        /**
+         * 平台 RSA 私钥文件（PKCS#8 DER），为空时不接受 RSA 加密的上行帧
+         */
+        private String platformPrivateKey = "";
+
+        /**
+         * 最多缓存多少辆车的密钥
+         */
+        private long maxVehicles = 100_000;
+
+        /**
+         * 密钥缓存的分钟数，更换密钥文件后最迟在此时间后生效
+         */
+        private long expireMinutes = 60;
+    }
+
+    @Data
+    public static class Admission {
+        private boolean enabled = true;
+
+        /**
+         * 单车每秒帧数和突发容量，突发应能容纳一次重连后的补发
+         */
+        private double vinFramesPerSecond = 20;
+
+        private int vinBurst = 600;
+
+        /**
+         * 单个 IP 每秒新建连接数和突发容量，0 表示不限制
+         */
+        private double ipConnectionsPerSecond = 20;
+
+        private int ipBurst = 200;
+
+        /**
+         * 单车超限时的处理：DROP 丢弃，PAUSE 暂停读取，CLOSE 关闭连接并冷却
+         */
+        private AdmissionAction action = AdmissionAction.PAUSE;
+
+        private long cooldownMillis = 60_000;
+
+        private long maxPauseMillis = 10_000;
+
+        /**
+         * 登入前只接受车辆登入
+         */
+        private boolean loginRequired = true;
+
+        private int maxUnauthenticatedFrames = 10;
+
+        /**
+         * 状态表槽位数，每个 8 字节
+         */
+        private int tableSize = 1 << 19;
+    }
+
+}
@@ -1,19 +1,60 @@
 package com.ime.gbt32960;
 
+import com.ime.gbt32960.codec.DecodeExecutor;
+import com.ime.gbt32960.codec.DecodeStage;
+import com.ime.gbt32960.codec.FrameAdmission;
+import com.ime.gbt32960.codec.FrameForwarder;
 import com.ime.gbt32960.codec.GBT32960Decoder;
 import com.ime.gbt32960.codec.GBT32960Encoder;
+import com.ime.gbt32960.codec.PayloadDecoder;
+import com.ime.gbt32960.codec.capture.FrameCapture;
+import com.ime.gbt32960.codec.crypto.DirectoryKeyResolver;
+import com.ime.gbt32960.codec.crypto.PayloadCipher;
+import com.ime.gbt32960.codec.journal.FrameJournal;
+import com.ime.gbt32960.codec.metrics.GatewayMetrics;
+import com.ime.gbt32960.codec.metrics.MetricsHttpHandler;
 import com.ime.gbt32960.protocol.ProtocolHandler;
+import com.ime.gbt32960.protocol.ReportDeduplicator;
+import com.ime.gbt32960.protocol.admission.AdmissionControl;
+import com.ime.gbt32960.protocol.admission.AdmissionHandler;
+import com.ime.gbt32960.protocol.admission.AdmissionOptions;
+import com.ime.gbt32960.protocol.alarm.AlarmEngine;
+import com.ime.gbt32960.protocol.alarm.AlarmHandler;
+import com.ime.gbt32960.protocol.relay.RelayOptions;
+import com.ime.gbt32960.protocol.relay.UpstreamRelay;
+import com.ime.gbt32960.protocol.sink.*;
+import com.ime.gbt32960.store.LatestStateCache;
+import com.ime.gbt32960.store.LatestStateSink;
+import com.ime.gbt32960.store.TelemetrySink;
+import com.ime.gbt32960.store.TelemetryStore;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationContext;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Qingxi
@@ -21,9 +62,37 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 @Slf4j
 @SpringBootApplication
+@EnableConfigurationProperties(GatewayProperties.class)
 public class InfoServerApplication implements CommandLineRunner {
 
-    private static final int LISTEN_PORT = 32960;
+    /**
+     * Actuator 的指标自动配置，存在时指标登记到 MeterRegistry
+     */
+    private static final String METRICS_AUTO_CONFIGURATION =
+            "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration";
+
+    @Autowired
+    private GatewayProperties properties;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private GatewayMetrics metrics;
+
+    @Autowired
+    private ProtocolHandler protocolHandler;
+
+    /**
+     * 启用 gbt32960.sink.state 时由 {@link GatewayConfiguration} 创建，否则为 null
+     */
+    @Autowired(required = false)
+    private LatestStateCache latestStateCache;
+
+    /**
+     * 启用 gbt32960.sink.store 时由 {@link #createSinkDispatcher()} 创建，否则为 null
+     */
+    private TelemetrySink telemetrySink;
 
     public static void main(String[] args) {
         SpringApplication.run(InfoServerApplication.class);
@@ -31,34 +100,322 @@ public class InfoServerApplication implements CommandLineRunner {
 
     @Override
     public void run(String... args) throws Exception {
-        EventLoopGroup bossGroup = new NioEventLoopGroup();
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        TransportType transport = properties.getTransport().resolve();
+        boolean reusePort = transport == TransportType.EPOLL && properties.getAcceptorThreads() > 1;
+        int acceptors = reusePort ? properties.getAcceptorThreads() : 1;
+
+        EventLoopGroup bossGroup = transport.newGroup(acceptors, "gbt32960-boss");
+        EventLoopGroup workerGroup = transport.newGroup(properties.getWorkerThreads(), "gbt32960-worker");
+        FrameCapture capture = createFrameCapture();
+        FrameJournal journal = createFrameJournal();
+        GatewayProperties.Flush flush = properties.getFlush();
+        GatewayProperties.Decode decode = properties.getDecode();
+        PayloadCipher cipher = createPayloadCipher();
+        PayloadDecoder payloadDecoder = new PayloadDecoder(decode.isPackedCells(), metrics, cipher);
+        DecodeExecutor decodeExecutor = new DecodeExecutor(decode.getThreads(), decode.getReissueThreads(),
+                decode.getHighWaterMark(), decode.getLowWaterMark());
+        SinkDispatcher sinkDispatcher = createSinkDispatcher();
+        // 去重只用于出口，没有出口时不分配布隆过滤器
+        ReportDeduplicator deduplicator = sinkDispatcher.isEmpty() ? null : createDeduplicator();
+        SinkHandler sinkHandler = sinkDispatcher.isEmpty() ? null : new SinkHandler(sinkDispatcher, deduplicator);
+        AlarmHandler alarmHandler = createAlarmHandler();
+        AdmissionControl admissionControl = createAdmissionControl();
+        ByteBufAllocator allocator = properties.isPooledDirect()
+                ? new PooledByteBufAllocator(true) : UnpooledByteBufAllocator.DEFAULT;
+
+        Bootstrap clientBoot = new Bootstrap();
+        clientBoot.group(workerGroup);
+        clientBoot.channel(transport.socketChannelClass());
+        clientBoot.option(ChannelOption.ALLOCATOR, allocator);
+        UpstreamRelay relay = createRelay(clientBoot);
+        FrameForwarder forwarder = relay != null ? relay : FrameForwarder.disabled();
+        registerGauges(metrics, protocolHandler, decodeExecutor, sinkDispatcher, deduplicator, alarmHandler, relay,
+                admissionControl);
 
         try {
             ServerBootstrap serverBootstrap = new ServerBootstrap();
             serverBootstrap.group(bossGroup, workerGroup);
-            serverBootstrap.channel(NioServerSocketChannel.class);
-
-            Bootstrap clientBoot = new Bootstrap();
-            clientBoot.group(workerGroup);
+            serverBootstrap.channel(transport.serverChannelClass());
             serverBootstrap.childHandler(new ChannelInitializer<SocketChannel>() {
                 @Override
                 protected void initChannel(SocketChannel ch) throws Exception {
-                    ch.pipeline()
-                            .addLast(new CombinedChannelDuplexHandler<>(new GBT32960Decoder(), new GBT32960Encoder()))
-                            .addLast(new IdleStateHandler(60 * 5, 0, 0))
-                            .addLast(ProtocolHandler.getInstance());
+                    ChannelPipeline pipeline = ch.pipeline();
+                    // 准入控制在最前面，才能拦下解码器补发的 read
+                    AdmissionHandler admission = admissionControl != null ? admissionControl.newHandler() : null;
+                    if (admission != null) {
+                        pipeline.addLast(admission);
+                    }
+                    if (flush.isEnabled()) {
+                        // 应答在 channelReadComplete 时统一 flush，一批读只产生一次写系统调用
+                        pipeline.addLast(new FlushConsolidationHandler(flush.getMaxConsolidated(), flush.isConsolidateWhenNoRead()));
+                    }
+                    pipeline.addLast(new CombinedChannelDuplexHandler<>(
+                            new GBT32960Decoder(payloadDecoder, decode.isStaged(), capture, journal, metrics, forwarder,
+                                    admission != null ? admission : FrameAdmission.disabled()),
+                            new GBT32960Encoder(capture, metrics, cipher)));
+                    if (decode.isStaged()) {
+                        pipeline.addLast(new DecodeStage(decodeExecutor, payloadDecoder));
+                    }
+                    pipeline.addLast(new IdleStateHandler(properties.getReaderIdleSeconds(), 0, 0))
+                            .addLast(protocolHandler);
+                    if (alarmHandler != null) {
+                        pipeline.addLast(alarmHandler);
+                    }
+                    if (sinkHandler != null) {
+                        pipeline.addLast(sinkHandler);
+                    }
                 }
             });
-            serverBootstrap.option(ChannelOption.SO_BACKLOG, 128);
+            serverBootstrap.option(ChannelOption.SO_BACKLOG, properties.getBacklog());
+            serverBootstrap.option(ChannelOption.SO_REUSEADDR, true);
+            serverBootstrap.option(ChannelOption.ALLOCATOR, allocator);
+            if (reusePort) {
+                serverBootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+            serverBootstrap.childOption(ChannelOption.TCP_NODELAY, properties.isTcpNoDelay());
+            serverBootstrap.childOption(ChannelOption.SO_KEEPALIVE, properties.isKeepAlive());
+            serverBootstrap.childOption(ChannelOption.ALLOCATOR, allocator);
+            serverBootstrap.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                    properties.getWriteBufferLowWaterMark(), properties.getWriteBufferHighWaterMark()));
 
-            ChannelFuture f = serverBootstrap.bind(LISTEN_PORT).sync();
-            log.info("server listened on {}", LISTEN_PORT);
-            f.channel().closeFuture().sync();
+            // SO_REUSEPORT 下每次绑定都落在 boss 组的下一个 EventLoop 上，各自 accept
+            List<Channel> serverChannels = new ArrayList<>(acceptors);
+            for (int i = 0; i < acceptors; i++) {
+                serverChannels.add(serverBootstrap.bind(properties.getPort()).sync().channel());
+            }
+            log.info("server listened on {}, transport: {}, acceptors: {}", properties.getPort(), transport, acceptors);
+            exportMetrics(metrics, bossGroup, workerGroup, transport);
+            if (relay != null) {
+                relay.start();
+            }
+            for (Channel serverChannel : serverChannels) {
+                serverChannel.closeFuture().sync();
+            }
         } finally {
-            workerGroup.shutdownGracefully();
-            bossGroup.shutdownGracefully();
+            if (relay != null) {
+                relay.close();
+            }
+            // 等 I/O 线程全部退出后再关闭它们还在写入的解析线程、出口和日志
+            workerGroup.shutdownGracefully().syncUninterruptibly();
+            bossGroup.shutdownGracefully().syncUninterruptibly();
+            protocolHandler.getCommandDispatcher().close();
+            decodeExecutor.close();
+            sinkDispatcher.close();
+            capture.close();
+            journal.close();
+        }
+    }
+
+    private void registerGauges(GatewayMetrics metrics, ProtocolHandler protocolHandler, DecodeExecutor decodeExecutor,
+                                SinkDispatcher sinkDispatcher, ReportDeduplicator deduplicator, AlarmHandler alarmHandler,
+                                UpstreamRelay relay, AdmissionControl admissionControl) {
+        metrics.gauge("gbt32960.sessions", () -> protocolHandler.getSessionRegistry().size());
+        metrics.gauge("gbt32960.decode.queue", decodeExecutor::queueSize);
+        for (SinkWorker worker : sinkDispatcher.getWorkers()) {
+            String prefix = "gbt32960.sink." + worker.getName();
+            metrics.gauge(prefix + ".queued", () -> worker.getQueued() + worker.getQueuedReissue());
+            metrics.gauge(prefix + ".delivered", worker::getDelivered);
+            metrics.gauge(prefix + ".dropped", worker::getDropped);
+            metrics.gauge(prefix + ".spilled", worker::getSpilled);
+        }
+        if (deduplicator != null) {
+            metrics.gauge("gbt32960.dedup.duplicates", deduplicator::getDuplicates);
+        }
+        if (alarmHandler != null) {
+            metrics.gauge("gbt32960.alarm.raised", alarmHandler::getRaised);
+            metrics.gauge("gbt32960.alarm.active.vehicles", alarmHandler::getActiveVehicles);
+        }
+        if (telemetrySink != null) {
+            metrics.gauge("gbt32960.store.rejected", telemetrySink::getRejected);
+        }
+        if (latestStateCache != null) {
+            metrics.gauge("gbt32960.state.vehicles", latestStateCache::size);
+        }
+        if (relay != null) {
+            metrics.gauge("gbt32960.relay.forwarded", relay::getForwarded);
+            metrics.gauge("gbt32960.relay.spilled", relay::getSpilled);
+            metrics.gauge("gbt32960.relay.replayed", relay::getReplayed);
+            metrics.gauge("gbt32960.relay.dropped", relay::getDropped);
+            metrics.gauge("gbt32960.relay.connections.ready", relay::getReadyConnections);
+        }
+        if (admissionControl != null) {
+            metrics.gauge("gbt32960.admission.dropped", admissionControl::getDropped);
+            metrics.gauge("gbt32960.admission.paused", admissionControl::getPaused);
+            metrics.gauge("gbt32960.admission.closed", admissionControl::getClosed);
+            metrics.gauge("gbt32960.admission.unauthenticated", admissionControl::getUnauthenticated);
+            metrics.gauge("gbt32960.admission.connections.refused", admissionControl::getRefusedConnections);
+            metrics.gauge("gbt32960.admission.overflow", admissionControl::getOverflow);
+        }
+    }
+
+    /**
+     * 有 Actuator 时把指标登记到 MeterRegistry，否则在单独的端口上提供 /metrics 文本端点
+     */
+    private void exportMetrics(GatewayMetrics metrics, EventLoopGroup bossGroup, EventLoopGroup workerGroup,
+                               TransportType transport) throws InterruptedException {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        ClassLoader classLoader = getClass().getClassLoader();
+        if (ClassUtils.isPresent(METRICS_AUTO_CONFIGURATION, classLoader)
+                && GatewayMeterBinder.bindTo(applicationContext, metrics)) {
+            log.info("指标已登记到 MeterRegistry");
+            return;
+        }
+        int port = properties.getMetrics().getHttpPort();
+        if (port <= 0) {
+            return;
+        }
+        MetricsHttpHandler handler = new MetricsHttpHandler(metrics);
+        new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(transport.serverChannelClass())
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new HttpServerCodec())
+                                .addLast(new HttpObjectAggregator(4096))
+                                .addLast(handler);
+                    }
+                })
+                .bind(port).sync();
+        log.info("指标端点: http://0.0.0.0:{}{}", port, MetricsHttpHandler.PATH);
+    }
+
+    /**
+     * 转发连接复用 worker 组；一条上级连接承载大量车辆，写缓冲水位比终端连接高
+     */
+    private UpstreamRelay createRelay(Bootstrap clientBoot) throws IOException {
+        GatewayProperties.Relay config = properties.getRelay();
+        if (!config.isEnabled()) {
+            return null;
+        }
+        clientBoot.option(ChannelOption.TCP_NODELAY, true);
+        clientBoot.option(ChannelOption.SO_KEEPALIVE, true);
+        clientBoot.option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(1024 * 1024, 4 * 1024 * 1024));
+        RelayOptions options = RelayOptions.builder()
+                .host(config.getHost())
+                .port(config.getPort())
+                .connections(config.getConnections())
+                .platformCode(config.getPlatformCode())
+                .username(config.getUsername())
+                .password(config.getPassword())
+                .heartbeatSeconds(config.getHeartbeatSeconds())
+                .loginTimeoutMillis(config.getLoginTimeoutMillis())
+                .reconnectMaxMillis(config.getReconnectMaxMillis())
+                .spillDir(config.getSpillDir().isEmpty() ? null : Paths.get(config.getSpillDir()))
+                .spillSegmentBytes(config.getSpillSegmentBytes())
+                .build();
+        return new UpstreamRelay(clientBoot, options);
+    }
+
+    private AdmissionControl createAdmissionControl() {
+        GatewayProperties.Admission config = properties.getAdmission();
+        if (!config.isEnabled()) {
+            return null;
+        }
+        return new AdmissionControl(AdmissionOptions.builder()
+                .vinFramesPerSecond(config.getVinFramesPerSecond())
+                .vinBurst(config.getVinBurst())
+                .ipConnectionsPerSecond(config.getIpConnectionsPerSecond())
+                .ipBurst(config.getIpBurst())
+                .action(config.getAction())
+                .cooldownMillis(config.getCooldownMillis())
+                .maxPauseMillis(config.getMaxPauseMillis())
+                .loginRequired(config.isLoginRequired())
+                .maxUnauthenticatedFrames(config.getMaxUnauthenticatedFrames())
+                .tableSize(config.getTableSize())
+                .build());
+    }
+
+    private PayloadCipher createPayloadCipher() throws Exception {
+        GatewayProperties.Crypto config = properties.getCrypto();
+        if (!config.isEnabled()) {
+            return PayloadCipher.disabled();
+        }
+        DirectoryKeyResolver resolver = new DirectoryKeyResolver(Paths.get(config.getKeyDir()),
+                config.getPlatformPrivateKey().isEmpty() ? null : Paths.get(config.getPlatformPrivateKey()));
+        return new PayloadCipher(resolver, config.getMaxVehicles(), config.getExpireMinutes());
+    }
+
+    private AlarmHandler createAlarmHandler() {
+        GatewayProperties.Alarm config = properties.getAlarm();
+        if (!config.isEnabled()) {
+            return null;
+        }
+        AlarmEngine engine = new AlarmEngine(AlarmEngine.defaultRules(config.getMaxCellVoltage(),
+                config.getMinCellVoltage(), config.getMaxTemperature(), config.getMinTemperature()));
+        return new AlarmHandler(engine, AlarmHandler.loggingListener());
+    }
+
+    private ReportDeduplicator createDeduplicator() {
+        GatewayProperties.Dedup config = properties.getDedup();
+        if (!config.isEnabled()) {
+            return null;
+        }
+        return new ReportDeduplicator(config.getExpectedInsertions(), config.getFpp(),
+                TimeUnit.MINUTES.toMillis(config.getGenerationMinutes()), config.getGenerations());
+    }
+
+    private FrameJournal createFrameJournal() throws Exception {
+        GatewayProperties.Journal config = properties.getJournal();
+        if (!config.isEnabled()) {
+            return FrameJournal.disabled();
+        }
+        return new FrameJournal(Paths.get(config.getDir()), config.getSegmentBytes(), config.isCompress());
+    }
+
+    private SinkDispatcher createSinkDispatcher() {
+        GatewayProperties.Sinks config = properties.getSink();
+        SinkDispatcher dispatcher = new SinkDispatcher();
+        GatewayProperties.SinkSettings file = config.getFile();
+        if (file.isEnabled()) {
+            dispatcher.register(new FileSink("file", Paths.get(file.getDir()), file.getMaxFileBytes()),
+                    sinkOptions(file, config.getSpillDir()));
+        }
+        GatewayProperties.SinkSettings queue = config.getQueue();
+        if (queue.isEnabled()) {
+            dispatcher.register(new QueueSink("queue", queue.getCapacity(), queue.getMaxDelayMillis()),
+                    sinkOptions(queue, config.getSpillDir()));
+        }
+        GatewayProperties.SinkSettings store = config.getStore();
+        if (store.isEnabled()) {
+            TelemetryStore telemetryStore = new TelemetryStore(Paths.get(store.getDir()), store.getBlockRows(), store.getFlushIntervalMillis());
+            telemetrySink = new TelemetrySink(telemetryStore);
+            dispatcher.register(telemetrySink, sinkOptions(store, config.getSpillDir()));
+        }
+        if (latestStateCache != null) {
+            dispatcher.register(new LatestStateSink(latestStateCache), sinkOptions(config.getState(), config.getSpillDir()));
+        }
+        return dispatcher;
+    }
+
+    private static SinkOptions sinkOptions(GatewayProperties.SinkSettings settings, String spillDir) {
+        return SinkOptions.builder()
+                .batchSize(settings.getBatchSize())
+                .maxDelayMillis(settings.getMaxDelayMillis())
+                .queueCapacity(settings.getQueueCapacity())
+                .overflowPolicy(settings.getOverflowPolicy())
+                .maxRetries(settings.getMaxRetries())
+                .spillDir(Paths.get(spillDir))
+                .build();
+    }
+
+    private FrameCapture createFrameCapture() throws Exception {
+        GatewayProperties.Capture config = properties.getCapture();
+        if (!config.isEnabled()) {
+            return FrameCapture.disabled();
+        }
+        String fileName = "capture-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".bin";
+        FrameCapture capture = new FrameCapture(Paths.get(config.getDir(), fileName), config.getSampleRate(), config.getQueueCapacity());
+        for (String entry : config.getVinSampleRates().split(",")) {
+            String[] vinRate = entry.trim().split(":");
+            if (vinRate.length == 2) {
+                capture.setSampleRate(vinRate[0].trim(), Double.parseDouble(vinRate[1].trim()));
+            }
         }
+        return capture;
     }
 
 }
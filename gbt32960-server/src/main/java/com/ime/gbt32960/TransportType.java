@@ -0,0 +1,96 @@
+package com.ime.gbt32960;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 网络传输实现
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public enum TransportType {
+
+    NIO {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public EventLoopGroup newGroup(int threads, String name) {
+            return new NioEventLoopGroup(threads, new DefaultThreadFactory(name));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelClass() {
+            return NioSocketChannel.class;
+        }
+    },
+
+    /**
+     * Linux epoll，支持 SO_REUSEPORT 多个 acceptor 监听同一端口
+     */
+    EPOLL {
+        @Override
+        public boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        @Override
+        public EventLoopGroup newGroup(int threads, String name) {
+            return new EpollEventLoopGroup(threads, new DefaultThreadFactory(name));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelClass() {
+            return EpollSocketChannel.class;
+        }
+    };
+
+    public abstract boolean isAvailable();
+
+    /**
+     * @param threads 线程数，0 表示使用 Netty 默认值（CPU 核数 * 2）
+     * @param name 线程名前缀
+     * @return EventLoopGroup
+     */
+    public abstract EventLoopGroup newGroup(int threads, String name);
+
+    public abstract Class<? extends ServerChannel> serverChannelClass();
+
+    public abstract Class<? extends SocketChannel> socketChannelClass();
+
+    /**
+     * 配置的传输不可用时降级为 NIO
+     * @return 实际使用的传输
+     */
+    public TransportType resolve() {
+        if (isAvailable()) {
+            return this;
+        }
+        log.warn("传输 {} 不可用，改用 {}", this, NIO);
+        return NIO;
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.ime.gbt32960;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationPropertiesBinding;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * 绑定 gbt32960.transport，名称不区分大小写；当前 Netty 版本没有 io_uring 传输，配置为 io_uring 时按 EPOLL 处理
+ *
+ * @author Qingxi
+ */
+@Slf4j
+@Component
+@ConfigurationPropertiesBinding
+public class TransportTypeConverter implements Converter<String, TransportType> {
+
+    private static final String IO_URING = "IO_URING";
+
+    @Override
+    public TransportType convert(String source) {
+        String name = source.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        if (IO_URING.equals(name)) {
+            log.warn("传输 {} 不受支持，改用 {}", source, TransportType.EPOLL);
+            return TransportType.EPOLL;
+        }
+        return TransportType.valueOf(name);
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.ime.gbt32960.simulator;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 模拟器参数，命令行以 --name=value 给出，例如 --vehicles=100000 --local-addresses=4
+ *
+ * @author Qingxi
+ */
+@Getter
+@Builder
+@ToString
+public class SimulatorOptions {
+
+    @Builder.Default
+    private final String host = "127.0.0.1";
+
+    @Builder.Default
+    private final int port = 32960;
+
+    /**
+     * 虚拟车辆数，每辆车一个连接
+     */
+    @Builder.Default
+    private final int vehicles = 1000;
+
+    /**
+     * 本地源地址个数，依次使用 127.0.0.1 ~ 127.0.0.N；每个源地址约有 2.8 万个临时端口，
+     * 超过这个连接数时需要多个源地址
+     */
+    @Builder.Default
+    private final int localAddresses = 1;
+
+    /**
+     * 每秒新建的连接数
+     */
+    @Builder.Default
+    private final int connectRate = 2000;
+
+    @Builder.Default
+    private final long reportIntervalMillis = 10_000;
+
+    @Builder.Default
+    private final int cells = 96;
+
+    @Builder.Default
+    private final int probes = 32;
+
+    /**
+     * 每发送多少帧实时信息插入一次心跳，用心跳应答测量端到端延迟；0 表示不发送
+     */
+    @Builder.Default
+    private final int heartbeatEvery = 6;
+
+    /**
+     * 每发送多少帧实时信息来一次补发突发；0 表示不补发
+     */
+    @Builder.Default
+    private final int reissueEvery = 0;
+
+    /**
+     * 一次补发突发的帧数
+     */
+    @Builder.Default
+    private final int reissueBurst = 10;
+
+    /**
+     * 帧被拆成多个 TCP 段发送的比例，0 ~ 1
+     */
+    @Builder.Default
+    private final double fragmentRate = 0;
+
+    /**
+     * 实时信息校验位被故意改错的比例，0 ~ 1
+     */
+    @Builder.Default
+    private final double corruptRate = 0;
+
+    /**
+     * 运行时长（秒），到时后登出并断开；0 表示一直运行
+     */
+    @Builder.Default
+    private final int durationSeconds = 60;
+
+    @Builder.Default
+    private final int statsIntervalSeconds = 5;
+
+    /**
+     * 0 表示使用 Netty 默认值（CPU 核数 * 2）
+     */
+    @Builder.Default
+    private final int threads = 0;
+
+    /**
+     * VIN 前缀，不足 17 位的部分以车辆序号补齐
+     */
+    @Builder.Default
+    private final String vinPrefix = "LSIM";
+
+    /**
+     * 解析 --name=value 形式的命令行参数，名称与字段名的短横线形式对应
+     * @param args 命令行参数
+     * @return 参数
+     * @throws IllegalArgumentException 无法识别的参数
+     */
+    public static SimulatorOptions parse(String[] args) {
+        SimulatorOptionsBuilder builder = builder();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("参数格式应为 --name=value: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (name) {
+                case "host":
+                    builder.host(value);
+                    break;
+                case "port":
+                    builder.port(Integer.parseInt(value));
+                    break;
+                case "vehicles":
+                    builder.vehicles(Integer.parseInt(value));
+                    break;
+                case "local-addresses":
+                    builder.localAddresses(Integer.parseInt(value));
+                    break;
+                case "connect-rate":
+                    builder.connectRate(Integer.parseInt(value));
+                    break;
+                case "report-interval-millis":
+                    builder.reportIntervalMillis(Long.parseLong(value));
+                    break;
+                case "cells":
+                    builder.cells(Integer.parseInt(value));
+                    break;
+                case "probes":
+                    builder.probes(Integer.parseInt(value));
+                    break;
+                case "heartbeat-every":
+                    builder.heartbeatEvery(Integer.parseInt(value));
+                    break;
+                case "reissue-every":
+                    builder.reissueEvery(Integer.parseInt(value));
+                    break;
+                case "reissue-burst":
+                    builder.reissueBurst(Integer.parseInt(value));
+                    break;
+                case "fragment-rate":
+                    builder.fragmentRate(Double.parseDouble(value));
+                    break;
+                case "corrupt-rate":
+                    builder.corruptRate(Double.parseDouble(value));
+                    break;
+                case "duration-seconds":
+                    builder.durationSeconds(Integer.parseInt(value));
+                    break;
+                case "stats-interval-seconds":
+                    builder.statsIntervalSeconds(Integer.parseInt(value));
+                    break;
+                case "threads":
+                    builder.threads(Integer.parseInt(value));
+                    break;
+                case "vin-prefix":
+                    builder.vinPrefix(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + name);
+            }
+        }
+        return builder.build();
+    }
+
+    public String vin(int index) {
+        String suffix = String.valueOf(index);
+        StringBuilder vin = new StringBuilder(17).append(vinPrefix);
+        for (int i = vinPrefix.length() + suffix.length(); i < 17; i++) {
+            vin.append('0');
+        }
+        return vin.append(suffix).toString();
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.ime.gbt32960.simulator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模拟器的计数和应答延迟。延迟以微秒记入 HdrHistogram，
+ * 定期输出区间内的速率与分位数，结束时输出全程汇总
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class SimulatorStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    final LongAdder connected = new LongAdder();
+    final LongAdder connectFailures = new LongAdder();
+    final LongAdder disconnected = new LongAdder();
+    final LongAdder loggedIn = new LongAdder();
+    final LongAdder framesSent = new LongAdder();
+    final LongAdder bytesSent = new LongAdder();
+    final LongAdder reissueSent = new LongAdder();
+    final LongAdder corruptSent = new LongAdder();
+    final LongAdder fragmentedSent = new LongAdder();
+    final LongAdder skipped = new LongAdder();
+    final LongAdder acks = new LongAdder();
+
+    private final Recorder loginLatency = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Recorder ackLatency = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final Histogram totalLogin = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram totalAck = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private Histogram intervalLogin;
+    private Histogram intervalAck;
+    private long lastNanos = System.nanoTime();
+    private long lastFrames;
+    private long lastBytes;
+    private long lastAcks;
+    private final long startNanos = lastNanos;
+
+    void recordLogin(long nanos) {
+        loginLatency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    void recordAck(long nanos) {
+        acks.increment();
+        ackLatency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    /**
+     * 输出自上次调用以来的区间统计
+     */
+    public synchronized void logInterval() {
+        intervalLogin = loginLatency.getIntervalHistogram(intervalLogin);
+        intervalAck = ackLatency.getIntervalHistogram(intervalAck);
+        totalLogin.add(intervalLogin);
+        totalAck.add(intervalAck);
+
+        long now = System.nanoTime();
+        double seconds = (now - lastNanos) / 1e9;
+        long frames = framesSent.sum();
+        long bytes = bytesSent.sum();
+        long ackCount = acks.sum();
+        log.info("连接 {} 登入 {} 断开 {} | 发送 {} 帧/s {} KB/s 应答 {}/s 跳过 {} | 登入应答 {} | 心跳应答 {}",
+                connected.sum(), loggedIn.sum(), disconnected.sum(),
+                Math.round((frames - lastFrames) / seconds), Math.round((bytes - lastBytes) / seconds / 1024),
+                Math.round((ackCount - lastAcks) / seconds), skipped.sum(),
+                percentiles(intervalLogin), percentiles(intervalAck));
+        lastNanos = now;
+        lastFrames = frames;
+        lastBytes = bytes;
+        lastAcks = ackCount;
+    }
+
+    /**
+     * 输出全程汇总
+     */
+    public synchronized void logSummary() {
+        logInterval();
+        double seconds = (lastNanos - startNanos) / 1e9;
+        log.info("汇总: {} 秒, 发送 {} 帧（补发 {}, 分段 {}, 校验错误 {}）, 平均 {} 帧/s, 连接失败 {}",
+                Math.round(seconds), framesSent.sum(), reissueSent.sum(), fragmentedSent.sum(), corruptSent.sum(),
+                Math.round(framesSent.sum() / seconds), connectFailures.sum());
+        log.info("登入应答延迟: {}", percentiles(totalLogin));
+        log.info("心跳应答延迟: {}", percentiles(totalAck));
+    }
+
+    private static String percentiles(Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return "-";
+        }
+        return String.format("n=%d p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+                histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+}
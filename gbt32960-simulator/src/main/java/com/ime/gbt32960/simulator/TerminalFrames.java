@@ -0,0 +1,58 @@
+package com.ime.gbt32960.simulator;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.ResponseTag;
+import com.ime.gbt32960.codec.UplinkEncoder;
+import com.ime.iov.gbt32960.LoginRequest;
+import com.ime.iov.gbt32960.LogoutRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * 车载终端侧的上行帧：登入、实时信息（含补发）、心跳、登出。
+ * 登入、登出和心跳由 {@link UplinkEncoder} 编码；实时信息直接由 {@link VehicleModel} 写入，
+ * 不经过 RealTimeReport，压测时不为每次上报构造 protobuf 对象
+ *
+ * @author Qingxi
+ */
+public final class TerminalFrames {
+
+    private static final String ICCID = "89860000000000000001";
+    private static final String SUBSYSTEM_CODE = "BAT01";
+
+    private TerminalFrames() {
+    }
+
+    public static ByteBuf login(ByteBufAllocator alloc, String vin, long time, int seq) {
+        return UplinkEncoder.login(alloc, vin, LoginRequest.newBuilder()
+                .setRecordTime(time)
+                .setLoginDaySeq(seq)
+                .setIccid(ICCID)
+                .setSystemCodeLength(SUBSYSTEM_CODE.length())
+                .addChargeableSubsystemCode(SUBSYSTEM_CODE)
+                .build());
+    }
+
+    public static ByteBuf logout(ByteBufAllocator alloc, String vin, long time, int seq) {
+        return UplinkEncoder.logout(alloc, vin, LogoutRequest.newBuilder()
+                .setRecordTime(time)
+                .setLogoutDaySeq(seq)
+                .build());
+    }
+
+    public static ByteBuf heartbeat(ByteBufAllocator alloc, String vin) {
+        return UplinkEncoder.heartbeat(alloc, vin);
+    }
+
+    /**
+     * @param type REAL_TIME 或 REISSUE
+     */
+    public static ByteBuf report(ByteBufAllocator alloc, String vin, RequestType type, VehicleModel model, long time) {
+        int length = UplinkEncoder.FRAME_OVERHEAD + model.payloadLength();
+        ByteBuf out = alloc.buffer(length, length);
+        GBT32960Message.encodeMessage(out, vin, type, ResponseTag.COMMAND, buf -> model.writePayload(buf, time));
+        return out;
+    }
+
+}
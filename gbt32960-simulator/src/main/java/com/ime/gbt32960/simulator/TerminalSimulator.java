@@ -0,0 +1,119 @@
+package com.ime.gbt32960.simulator;
+
+import com.ime.gbt32960.codec.GBT32960Decoder;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 终端模拟器：以大量虚拟车辆连接平台，按真实的登入、上报、心跳、补发节奏产生负载，
+ * 输出客户端发送速率与登入/心跳应答延迟分位数。平台侧的吞吐与解码延迟见网关的 /metrics。
+ * <p>
+ * 单个源地址最多约 6 万个连接，车辆数更多时用 --local-addresses 轮流绑定 127.0.0.1 ~ 127.0.0.N
+ * （本机压测，需平台监听 0.0.0.0 或 127.0.0.1）。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class TerminalSimulator {
+
+    private final SimulatorOptions options;
+    private final SimulatorStats stats = new SimulatorStats();
+    private final List<VirtualVehicle> vehicles = new ArrayList<>();
+
+    public TerminalSimulator(SimulatorOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        SimulatorOptions options = SimulatorOptions.parse(args);
+        log.info("模拟器参数: {}", options);
+        new TerminalSimulator(options).run();
+    }
+
+    public void run() throws InterruptedException {
+        boolean epoll = Epoll.isAvailable();
+        EventLoopGroup group = epoll ? new EpollEventLoopGroup(options.getThreads())
+                : new NioEventLoopGroup(options.getThreads());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Bootstrap bootstrap = new Bootstrap()
+                    .group(group)
+                    .channel(epoll ? EpollSocketChannel.class : NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .option(ChannelOption.SO_REUSEADDR, true)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10_000)
+                    .option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(8 * 1024, 32 * 1024));
+            reporter.scheduleAtFixedRate(stats::logInterval, options.getStatsIntervalSeconds(),
+                    options.getStatsIntervalSeconds(), TimeUnit.SECONDS);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+            connectAll(bootstrap);
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            }
+
+            log.info("运行结束，{} 辆车登出", vehicles.size());
+            vehicles.forEach(VirtualVehicle::logout);
+            TimeUnit.SECONDS.sleep(1);
+        } finally {
+            reporter.shutdownNow();
+            group.shutdownGracefully(0, 5, TimeUnit.SECONDS).syncUninterruptibly();
+            stats.logSummary();
+        }
+    }
+
+    /**
+     * 按 connectRate 匀速发起连接，避免瞬间的 SYN 洪峰打满平台的 accept 队列
+     */
+    private void connectAll(Bootstrap bootstrap) {
+        InetSocketAddress remote = new InetSocketAddress(options.getHost(), options.getPort());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, options.getConnectRate());
+        long next = System.nanoTime();
+        for (int i = 0; i < options.getVehicles(); i++) {
+            VirtualVehicle vehicle = new VirtualVehicle(options.vin(i), options, stats);
+            vehicles.add(vehicle);
+            Bootstrap b = bootstrap.clone().handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) {
+                    ch.pipeline().addLast(new GBT32960Decoder(), vehicle);
+                }
+            });
+            InetSocketAddress local = options.getLocalAddresses() > 1
+                    ? new InetSocketAddress("127.0.0." + (1 + i % options.getLocalAddresses()), 0)
+                    : null;
+            (local != null ? b.connect(remote, local) : b.connect(remote)).addListener(future -> {
+                if (!future.isSuccess()) {
+                    stats.connectFailures.increment();
+                    log.debug("连接失败", future.cause());
+                }
+            });
+
+            next += intervalNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+        log.info("已发起 {} 个连接", options.getVehicles());
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.ime.gbt32960.simulator;
+
+import com.ime.gbt32960.codec.FrameHeader;
+import com.ime.gbt32960.codec.GBT32960Decoder;
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.PayloadDecoder;
+import com.ime.gbt32960.codec.RawFrame;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.codec.ResponseTag;
+import com.ime.gbt32960.codec.UplinkEncoder;
+import com.ime.gbt32960.codec.capture.FrameCapture;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 上级平台的替身，用于测量网关转发的吞吐：应答平台登入和心跳，
+ * 其余帧只校验和计数（实时/补发信息不解析数据单元），定期输出各命令标识的帧速率。
+ * <p>
+ * 参数：--port=32970 --stats-interval-seconds=5
+ *
+ * @author Qingxi
+ */
+@Slf4j
+@ChannelHandler.Sharable
+public class UpstreamStandIn extends ChannelInboundHandlerAdapter {
+
+    private static final RequestType[] TYPES = RequestType.values();
+
+    private final LongAdder[] frames = new LongAdder[TYPES.length];
+    private final LongAdder bytes = new LongAdder();
+    private final long[] lastFrames = new long[TYPES.length];
+    private long lastBytes;
+    private long lastNanos = System.nanoTime();
+
+    public UpstreamStandIn() {
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int port = 32970;
+        int statsIntervalSeconds = 5;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(value);
+            } else if (arg.startsWith("--stats-interval-seconds=")) {
+                statsIntervalSeconds = Integer.parseInt(value);
+            } else {
+                throw new IllegalArgumentException("无法识别的参数: " + arg);
+            }
+        }
+        boolean epoll = Epoll.isAvailable();
+        EventLoopGroup group = epoll ? new EpollEventLoopGroup() : new NioEventLoopGroup();
+        UpstreamStandIn standIn = new UpstreamStandIn();
+        try {
+            new ServerBootstrap()
+                    .group(group)
+                    .channel(epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+                    .childHandler(standIn.initializer())
+                    .bind(port).sync();
+            log.info("上级平台替身监听 {}", port);
+            group.scheduleAtFixedRate(standIn::logInterval, statsIntervalSeconds, statsIntervalSeconds, TimeUnit.SECONDS);
+            group.terminationFuture().sync();
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    public ChannelInitializer<SocketChannel> initializer() {
+        return new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+                // staged 模式下实时/补发信息以 RawFrame 交出，不解析数据单元
+                ch.pipeline().addLast(new GBT32960Decoder(new PayloadDecoder(false), true, FrameCapture.disabled()),
+                        UpstreamStandIn.this);
+            }
+        };
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        log.info("下级平台已连接: {}", ctx.channel().remoteAddress());
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        try {
+            FrameHeader header;
+            if (msg instanceof RawFrame) {
+                header = ((RawFrame) msg).getHeader();
+            } else if (msg instanceof GBT32960Message) {
+                header = ((GBT32960Message) msg).getHeader();
+            } else {
+                return;
+            }
+            RequestType type = header.getRequestType();
+            frames[type.ordinal()].increment();
+            bytes.add(UplinkEncoder.FRAME_OVERHEAD + header.getPayloadLength());
+            if (type == RequestType.PLATFORM_LOGIN || type == RequestType.HEARTBEAT) {
+                log.debug("应答 {} {}", header.getVin(), type);
+                ByteBuf ack = ctx.alloc().buffer(UplinkEncoder.FRAME_OVERHEAD + GBT32960Message.TIME_LENGTH);
+                GBT32960Message.encodeMessage(ack, header.getVin(), type, ResponseTag.SUCCESS,
+                        buf -> GBT32960Message.writeTime(buf, System.currentTimeMillis() / 1000));
+                ctx.writeAndFlush(ack);
+            }
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        log.info("下级平台断开: {}", ctx.channel().remoteAddress());
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.warn("连接异常: {}", cause.toString());
+        ctx.close();
+    }
+
+    /**
+     * 输出区间内各命令标识的帧速率
+     */
+    public synchronized void logInterval() {
+        long now = System.nanoTime();
+        double seconds = (now - lastNanos) / 1e9;
+        StringBuilder rates = new StringBuilder();
+        long total = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            long count = frames[i].sum();
+            long delta = count - lastFrames[i];
+            lastFrames[i] = count;
+            total += delta;
+            if (delta > 0) {
+                rates.append(' ').append(TYPES[i]).append('=').append(Math.round(delta / seconds));
+            }
+        }
+        long byteCount = bytes.sum();
+        log.info("接收 {} 帧/s {} KB/s |{}", Math.round(total / seconds),
+                Math.round((byteCount - lastBytes) / seconds / 1024), rates);
+        lastBytes = byteCount;
+        lastNanos = now;
+    }
+
+    public long getFrames(RequestType type) {
+        return frames[type.ordinal()].sum();
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.ime.gbt32960.simulator;
+
+import com.ime.gbt32960.codec.CellValues;
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RealTimeType;
+import io.netty.buffer.ByteBuf;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 一辆虚拟车辆的行驶状态，按上报间隔随机游走，并写出实时信息数据单元。
+ * <p>
+ * 单体电压和探针温度不逐个保存，由基准值加上与序号相关的偏差生成，
+ * 10 万辆车时每辆车只占几十字节。
+ *
+ * @author Qingxi
+ */
+public class VehicleModel {
+
+    private static final int MOTORS = 2;
+    private static final int MAX_CELLS_PER_SUBSYSTEM = 200;
+
+    private final int cells;
+    private final int probes;
+
+    private int speed;
+    private long mileage;
+    private int soc;
+    private int cellMillivolts;
+    private int temperature;
+    private int longitude;
+    private int latitude;
+    private int tick;
+
+    public VehicleModel(int cells, int probes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.cells = cells;
+        this.probes = probes;
+        this.mileage = random.nextInt(10_000, 2_000_000);
+        this.soc = random.nextInt(30, 100);
+        this.cellMillivolts = 3600 + soc * 5;
+        this.temperature = random.nextInt(15, 35);
+        this.longitude = random.nextInt(116_000_000, 117_000_000);
+        this.latitude = random.nextInt(39_500_000, 40_500_000);
+    }
+
+    /**
+     * 推进一个上报间隔
+     * @param seconds 间隔秒数
+     */
+    public void advance(long seconds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        speed = Math.max(0, Math.min(1200, speed + random.nextInt(-50, 51)));
+        mileage += speed * seconds / 3600;
+        if (random.nextInt(100) == 0) {
+            soc = Math.max(5, soc - 1);
+            cellMillivolts = 3600 + soc * 5;
+        }
+        temperature = Math.max(-20, Math.min(55, temperature + random.nextInt(-1, 2)));
+        longitude += random.nextInt(-200, 201);
+        latitude += random.nextInt(-200, 201);
+        tick++;
+    }
+
+    /**
+     * @return 实时信息数据单元的长度
+     */
+    public int payloadLength() {
+        int subsystems = subsystems();
+        return GBT32960Message.TIME_LENGTH
+                + 1 + 20
+                + 2 + MOTORS * 12
+                + 1 + 9
+                + 1 + 14
+                + 1 + 9
+                + 2 + subsystems * 10 + cells * CellValues.VOLTAGE_BYTES
+                + 2 + 3 + probes;
+    }
+
+    /**
+     * 写出实时信息数据单元
+     * @param out ByteBuf
+     * @param time 数据采集时间，epoch 秒
+     */
+    public void writePayload(ByteBuf out, long time) {
+        GBT32960Message.writeTime(out, time);
+
+        out.writeByte(RealTimeType.VEHICLE.getValue());
+        out.writeByte(speed > 0 ? 1 : 2).writeByte(3).writeByte(1);
+        out.writeShort(speed);
+        out.writeInt((int) mileage);
+        out.writeShort(cellMillivolts * cells / 100);
+        out.writeShort(10_000 + speed / 2);
+        out.writeByte(soc);
+        out.writeByte(1).writeByte(speed > 0 ? 0x0E : 0x0F);
+        out.writeShort(5000);
+        out.writeByte(speed / 12).writeByte(0);
+
+        out.writeByte(RealTimeType.MOTOR.getValue());
+        out.writeByte(MOTORS);
+        for (int i = 1; i <= MOTORS; i++) {
+            out.writeByte(i).writeByte(speed > 0 ? 1 : 3).writeByte(temperature + 30 + 40);
+            out.writeShort(20_000 + speed * 5);
+            out.writeShort(20_000 + speed);
+            out.writeByte(temperature + 35 + 40);
+            out.writeShort(cellMillivolts * cells / 100);
+            out.writeShort(10_000 + speed / 2);
+        }
+
+        out.writeByte(RealTimeType.LOCATION.getValue());
+        out.writeByte(0).writeInt(longitude).writeInt(latitude);
+
+        out.writeByte(RealTimeType.EXTREMUM.getValue());
+        out.writeByte(1).writeByte(1).writeShort(cellVoltage(0));
+        out.writeByte(1).writeByte(2).writeShort(cellVoltage(1));
+        out.writeByte(1).writeByte(1).writeByte(probeTemperature(0) + CellValues.TEMPERATURE_OFFSET);
+        out.writeByte(1).writeByte(2).writeByte(probeTemperature(1) + CellValues.TEMPERATURE_OFFSET);
+
+        out.writeByte(RealTimeType.ALARM.getValue());
+        out.writeByte(0).writeInt(0);
+        out.writeByte(0).writeByte(0).writeByte(0).writeByte(0);
+
+        int subsystems = subsystems();
+        out.writeByte(RealTimeType.BATTERY_VOLTAGE.getValue());
+        out.writeByte(subsystems);
+        for (int s = 0; s < subsystems; s++) {
+            int first = s * MAX_CELLS_PER_SUBSYSTEM;
+            int count = Math.min(MAX_CELLS_PER_SUBSYSTEM, cells - first);
+            out.writeByte(s + 1).writeShort(cellMillivolts * cells / 100).writeShort(10_000 + speed / 2);
+            out.writeShort(cells).writeShort(first + 1).writeByte(count);
+            for (int i = first; i < first + count; i++) {
+                out.writeShort(cellVoltage(i));
+            }
+        }
+
+        out.writeByte(RealTimeType.BATTERY_TEMPERATURE.getValue());
+        out.writeByte(1).writeByte(1).writeShort(probes);
+        for (int i = 0; i < probes; i++) {
+            out.writeByte(probeTemperature(i) + CellValues.TEMPERATURE_OFFSET);
+        }
+    }
+
+    private int subsystems() {
+        return (cells + MAX_CELLS_PER_SUBSYSTEM - 1) / MAX_CELLS_PER_SUBSYSTEM;
+    }
+
+    private int cellVoltage(int index) {
+        return cellMillivolts + (index * 31 + tick * 17) % 21 - 10;
+    }
+
+    private int probeTemperature(int index) {
+        return temperature + (index * 7 + tick) % 3 - 1;
+    }
+
+}
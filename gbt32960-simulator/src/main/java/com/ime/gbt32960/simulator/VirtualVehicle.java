@@ -0,0 +1,178 @@
+package com.ime.gbt32960.simulator;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RequestType;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一辆虚拟车辆：连接建立后登入，收到登入应答后按间隔上报实时信息，
+ * 并按参数插入心跳、补发突发、分段发送和错误校验位。
+ * <p>
+ * 平台对同一连接的应答按请求顺序返回，心跳的发送时间按顺序排队，收到应答时取出计算往返延迟。
+ * 所有状态只在连接的 EventLoop 上访问
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class VirtualVehicle extends ChannelInboundHandlerAdapter {
+
+    private final String vin;
+    private final SimulatorOptions options;
+    private final SimulatorStats stats;
+    private final VehicleModel model;
+
+    private final ArrayDeque<Long> pendingHeartbeats = new ArrayDeque<>();
+
+    private Channel channel;
+    private ScheduledFuture<?> reporter;
+    private long loginSentNanos;
+    private int daySeq = 1;
+    private long reports;
+
+    /**
+     * 补发信息的数据采集时间，从登入前一小时开始向后推进
+     */
+    private long reissueTime;
+
+    public VirtualVehicle(String vin, SimulatorOptions options, SimulatorStats stats) {
+        this.vin = vin;
+        this.options = options;
+        this.stats = stats;
+        this.model = new VehicleModel(options.getCells(), options.getProbes());
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        channel = ctx.channel();
+        stats.connected.increment();
+        loginSentNanos = System.nanoTime();
+        send(TerminalFrames.login(ctx.alloc(), vin, now(), daySeq), false);
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        try {
+            if (!(msg instanceof GBT32960Message)) {
+                return;
+            }
+            RequestType type = ((GBT32960Message) msg).getHeader().getRequestType();
+            if (type == RequestType.LOGIN && reporter == null) {
+                stats.loggedIn.increment();
+                stats.recordLogin(System.nanoTime() - loginSentNanos);
+                reissueTime = now() - TimeUnit.HOURS.toSeconds(1);
+                long interval = options.getReportIntervalMillis();
+                long initialDelay = ThreadLocalRandom.current().nextLong(interval);
+                reporter = ctx.executor().scheduleAtFixedRate(this::report, initialDelay, interval, TimeUnit.MILLISECONDS);
+            } else if (type == RequestType.HEARTBEAT && !pendingHeartbeats.isEmpty()) {
+                stats.recordAck(System.nanoTime() - pendingHeartbeats.poll());
+            }
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        stats.connected.decrement();
+        stats.disconnected.increment();
+        if (reporter != null) {
+            reporter.cancel(false);
+        }
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.debug("{} 连接异常", vin, cause);
+        ctx.close();
+    }
+
+    private void report() {
+        if (!channel.isActive()) {
+            return;
+        }
+        if (!channel.isWritable()) {
+            // 平台读不过来时不继续堆积，计入跳过
+            stats.skipped.increment();
+            return;
+        }
+        model.advance(options.getReportIntervalMillis() / 1000);
+        reports++;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean corrupt = random.nextDouble() < options.getCorruptRate();
+        send(TerminalFrames.report(channel.alloc(), vin, RequestType.REAL_TIME, model, now()), corrupt);
+
+        if (options.getReissueEvery() > 0 && reports % options.getReissueEvery() == 0) {
+            for (int i = 0; i < options.getReissueBurst(); i++) {
+                reissueTime += 10;
+                send(TerminalFrames.report(channel.alloc(), vin, RequestType.REISSUE, model, reissueTime), false);
+                stats.reissueSent.increment();
+            }
+        }
+        if (options.getHeartbeatEvery() > 0 && reports % options.getHeartbeatEvery() == 0) {
+            pendingHeartbeats.add(System.nanoTime());
+            send(TerminalFrames.heartbeat(channel.alloc(), vin), false);
+        }
+    }
+
+    /**
+     * 登出并断开，在 EventLoop 上执行
+     */
+    public void logout() {
+        if (channel == null || !channel.isActive()) {
+            return;
+        }
+        channel.eventLoop().execute(() -> {
+            if (reporter != null) {
+                reporter.cancel(false);
+            }
+            channel.writeAndFlush(TerminalFrames.logout(channel.alloc(), vin, now(), daySeq))
+                    .addListener(future -> channel.close());
+        });
+    }
+
+    private void send(ByteBuf frame, boolean corrupt) {
+        int length = frame.readableBytes();
+        stats.framesSent.increment();
+        stats.bytesSent.add(length);
+        if (corrupt) {
+            int last = frame.writerIndex() - 1;
+            frame.setByte(last, ~frame.getByte(last));
+            stats.corruptSent.increment();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (length > 2 && random.nextDouble() < options.getFragmentRate()) {
+            // 拆成 2 ~ 4 段分别 flush，每段形成单独的 TCP 段
+            stats.fragmentedSent.increment();
+            int pieces = random.nextInt(2, 5);
+            int offset = frame.readerIndex();
+            int end = frame.writerIndex();
+            for (int i = 1; i < pieces && end - offset > 1; i++) {
+                int size = random.nextInt(1, Math.max(2, (end - offset) / (pieces - i + 1) * 2));
+                size = Math.min(size, end - offset - 1);
+                channel.writeAndFlush(frame.retainedSlice(offset, size));
+                offset += size;
+            }
+            channel.writeAndFlush(frame.retainedSlice(offset, end - offset));
+            frame.release();
+        } else {
+            channel.writeAndFlush(frame);
+        }
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.ime.gbt32960.store;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 按位读取 {@link BitOutput} 写入的数据，读过末尾时返回 0
+ *
+ * @author Qingxi
+ */
+final class BitInput {
+
+    private final ByteBuffer in;
+    private int position;
+    private final int limit;
+    private long buffer;
+    private int available;
+
+    /**
+     * @param in 数据
+     * @param offset 开始位置
+     * @param length 字节数
+     */
+    BitInput(ByteBuffer in, int offset, int length) {
+        this.in = in;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * 读取 bits 位
+     * @param bits 位数，1 ~ 64
+     * @return 无符号值
+     */
+    long read(int bits) {
+        if (bits > 32) {
+            long high = read(bits - 32);
+            return high << 32 | read(32);
+        }
+        if (available < bits) {
+            if (position + 4 <= limit) {
+                // available < bits <= 32，补 32 位后不超过 63 位
+                buffer = buffer << 32 | in.getInt(position) & 0xFFFFFFFFL;
+                position += 4;
+                available += 32;
+            } else {
+                while (available < bits) {
+                    buffer = buffer << 8 | (position < limit ? in.get(position++) & 0xFF : 0);
+                    available += 8;
+                }
+            }
+        }
+        available -= bits;
+        return buffer >>> available & ((1L << bits) - 1);
+    }
+
+    boolean readBit() {
+        return read(1) != 0;
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.ime.gbt32960.store;
+
+import java.util.Arrays;
+
+/**
+ * 按位写入，高位在前
+ *
+ * @author Qingxi
+ */
+final class BitOutput {
+
+    private byte[] bytes;
+    private int size;
+    private long acc;
+    private int accBits;
+
+    BitOutput(int initialCapacity) {
+        this.bytes = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    /**
+     * 写入 value 的低 bits 位
+     * @param value 值
+     * @param bits 位数，1 ~ 64
+     */
+    void write(long value, int bits) {
+        if (bits == 64) {
+            write(value >>> 32, 32);
+            write(value, 32);
+            return;
+        }
+        value &= (1L << bits) - 1;
+        int free = 64 - accBits;
+        if (bits < free) {
+            acc = acc << bits | value;
+            accBits += bits;
+        } else {
+            int rest = bits - free;
+            acc = (free == 64 ? 0 : acc << free) | value >>> rest;
+            flushAcc();
+            acc = rest == 0 ? 0 : value & ((1L << rest) - 1);
+            accBits = rest;
+        }
+    }
+
+    void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    private void flushAcc() {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (acc >>> shift);
+        }
+        acc = 0;
+        accBits = 0;
+    }
+
+    private void ensureCapacity(int more) {
+        if (size + more > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(size + more, bytes.length * 2));
+        }
+    }
+
+    /**
+     * @return 写入的全部字节，最后不足一个字节的部分低位补 0
+     */
+    byte[] toByteArray() {
+        int tailBytes = (accBits + 7) >>> 3;
+        byte[] result = Arrays.copyOf(bytes, size + tailBytes);
+        long aligned = accBits == 0 ? 0 : acc << (64 - accBits);
+        for (int i = 0; i < tailBytes; i++) {
+            result[size + i] = (byte) (aligned >>> (56 - i * 8));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.ime.gbt32960.store;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * 存储的列，按所属信息体分组。驱动电机只存第一台；报文中缺少对应信息体时，
+ * FLOAT/DOUBLE 列为 NaN，INT 列为 {@link #ABSENT}，DICT 列为 -1。
+ * <p>
+ * 新增列只能追加在末尾，列的序号即存储格式中的列号。
+ *
+ * @author Qingxi
+ */
+@AllArgsConstructor
+@Getter
+public enum Column {
+
+    // 整车数据
+    OPERATING_STATE(Kind.DICT, Group.VEHICLE),
+    CHARGE_STATE(Kind.DICT, Group.VEHICLE),
+    OPERATION_MODE(Kind.DICT, Group.VEHICLE),
+    SPEED(Kind.FLOAT, Group.VEHICLE),
+    MILEAGE(Kind.DOUBLE, Group.VEHICLE),
+    VOLTAGE(Kind.FLOAT, Group.VEHICLE),
+    CURRENT(Kind.FLOAT, Group.VEHICLE),
+    STATE_OF_CHARGE(Kind.INT, Group.VEHICLE),
+    DC_INVERTER_STATE(Kind.DICT, Group.VEHICLE),
+    GEAR_POSITION(Kind.DICT, Group.VEHICLE),
+    INSULANCE(Kind.INT, Group.VEHICLE),
+    ACCELERATOR_TRAVEL(Kind.INT, Group.VEHICLE),
+    BRAKE_TRAVEL(Kind.INT, Group.VEHICLE),
+
+    // 驱动电机
+    MOTOR_STATUS(Kind.DICT, Group.MOTOR),
+    MOTOR_CONTROLLER_TEMPERATURE(Kind.INT, Group.MOTOR),
+    MOTOR_SPEED(Kind.INT, Group.MOTOR),
+    MOTOR_TORQUE(Kind.FLOAT, Group.MOTOR),
+    MOTOR_TEMPERATURE(Kind.INT, Group.MOTOR),
+    MOTOR_CONTROLLER_VOLTAGE(Kind.FLOAT, Group.MOTOR),
+    MOTOR_CONTROLLER_CURRENT(Kind.FLOAT, Group.MOTOR),
+
+    // 车辆位置
+    LOCATION_VALID(Kind.DICT, Group.LOCATION),
+    LONGITUDE(Kind.DOUBLE, Group.LOCATION),
+    LATITUDE(Kind.DOUBLE, Group.LOCATION),
+
+    // 极值数据
+    MAX_VOLTAGE_SUBSYSTEM(Kind.DICT, Group.EXTREMUM),
+    MAX_VOLTAGE_BATTERY(Kind.INT, Group.EXTREMUM),
+    MAX_VOLTAGE(Kind.FLOAT, Group.EXTREMUM),
+    MIN_VOLTAGE_SUBSYSTEM(Kind.DICT, Group.EXTREMUM),
+    MIN_VOLTAGE_BATTERY(Kind.INT, Group.EXTREMUM),
+    MIN_VOLTAGE(Kind.FLOAT, Group.EXTREMUM),
+    MAX_TEMPERATURE_SUBSYSTEM(Kind.DICT, Group.EXTREMUM),
+    MAX_TEMPERATURE_PROBE(Kind.INT, Group.EXTREMUM),
+    MAX_TEMPERATURE(Kind.INT, Group.EXTREMUM),
+    MIN_TEMPERATURE_SUBSYSTEM(Kind.DICT, Group.EXTREMUM),
+    MIN_TEMPERATURE_PROBE(Kind.INT, Group.EXTREMUM),
+    MIN_TEMPERATURE(Kind.INT, Group.EXTREMUM),
+
+    // 报警数据
+    MAX_ALARM_LEVEL(Kind.DICT, Group.ALARM),
+    ALARM_FLAGS(Kind.INT, Group.ALARM);
+
+    /**
+     * INT 列缺失值
+     */
+    public static final int ABSENT = Integer.MIN_VALUE;
+
+    private static final Column[] VALUES = values();
+
+    static {
+        // 放在 Column 的初始化中，Group 先于 Column 初始化时 VALUES 尚不可用
+        for (Group group : Group.VALUES) {
+            group.columns = Arrays.stream(VALUES).filter(c -> c.group == group).mapToInt(Enum::ordinal).toArray();
+        }
+    }
+
+    private final Kind kind;
+
+    private final Group group;
+
+    public static Column[] all() {
+        return VALUES.clone();
+    }
+
+    static int count() {
+        return VALUES.length;
+    }
+
+    static Column of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * 列所属的信息体，缓存最新状态时按信息体整体合并
+     */
+    public enum Group {
+        VEHICLE,
+        MOTOR,
+        LOCATION,
+        EXTREMUM,
+        ALARM;
+
+        private static final Group[] VALUES = values();
+
+        private int[] columns;
+
+        /**
+         * @return 属于该信息体的列号
+         */
+        int[] columns() {
+            return columns;
+        }
+
+        static Group of(int ordinal) {
+            return VALUES[ordinal];
+        }
+
+        static int count() {
+            return VALUES.length;
+        }
+    }
+
+    public enum Kind {
+        FLOAT,
+        DOUBLE,
+        INT,
+        DICT
+    }
+
+}
@@ -0,0 +1,249 @@
+package com.ime.gbt32960.store;
+
+import java.util.Arrays;
+
+/**
+ * 列编码：
+ * <ul>
+ * <li>时间：二阶差分（delta-of-delta），10 秒一帧的数据每行只占 1 位</li>
+ * <li>FLOAT/DOUBLE：与前值异或后只存有效位（Gorilla XOR）</li>
+ * <li>INT：一阶差分，按大小分档变长存储</li>
+ * <li>DICT：块内字典 + 定长位编码</li>
+ * </ul>
+ * 每列在块内独立编码，值以 long 形式传入（FLOAT 为 floatToRawIntBits，DOUBLE 为 doubleToRawLongBits）。
+ *
+ * @author Qingxi
+ */
+final class ColumnCodec {
+
+    private ColumnCodec() {
+    }
+
+    // ---------------- 时间 ----------------
+
+    static void encodeTimes(long[] times, int count, BitOutput out) {
+        if (count == 0) {
+            return;
+        }
+        out.write(times[0], 64);
+        long prevDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long delta = times[i] - times[i - 1];
+            writeSigned(delta - prevDelta, out);
+            prevDelta = delta;
+        }
+    }
+
+    static void decodeTimes(BitInput in, int count, long[] dst, int offset) {
+        if (count == 0) {
+            return;
+        }
+        long value = in.read(64);
+        dst[offset] = value;
+        long delta = 0;
+        for (int i = 1; i < count; i++) {
+            delta += readSigned(in);
+            value += delta;
+            dst[offset + i] = value;
+        }
+    }
+
+    // ---------------- INT ----------------
+
+    static void encodeInts(long[] values, int count, BitOutput out) {
+        if (count == 0) {
+            return;
+        }
+        out.write(values[0], 32);
+        for (int i = 1; i < count; i++) {
+            writeSigned((long) (int) values[i] - (int) values[i - 1], out);
+        }
+    }
+
+    static void decodeInts(BitInput in, int count, int[] dst, int offset) {
+        if (count == 0) {
+            return;
+        }
+        int value = (int) in.read(32);
+        dst[offset] = value;
+        for (int i = 1; i < count; i++) {
+            value += (int) readSigned(in);
+            dst[offset + i] = value;
+        }
+    }
+
+    /**
+     * 0 占 1 位，其余按 [-63,64]、[-255,256]、[-2047,2048] 分档，超出时存 64 位原值
+     */
+    private static void writeSigned(long value, BitOutput out) {
+        if (value == 0) {
+            out.write(0, 1);
+        } else if (value >= -63 && value <= 64) {
+            out.write(0b10, 2);
+            out.write(value + 63, 7);
+        } else if (value >= -255 && value <= 256) {
+            out.write(0b110, 3);
+            out.write(value + 255, 9);
+        } else if (value >= -2047 && value <= 2048) {
+            out.write(0b1110, 4);
+            out.write(value + 2047, 12);
+        } else {
+            out.write(0b1111, 4);
+            out.write(value, 64);
+        }
+    }
+
+    private static long readSigned(BitInput in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return in.read(7) - 63;
+        }
+        if (!in.readBit()) {
+            return in.read(9) - 255;
+        }
+        if (!in.readBit()) {
+            return in.read(12) - 2047;
+        }
+        return in.read(64);
+    }
+
+    // ---------------- FLOAT / DOUBLE ----------------
+
+    static void encodeXor(long[] values, int count, int width, BitOutput out) {
+        if (count == 0) {
+            return;
+        }
+        int lengthBits = width == 32 ? 5 : 6;
+        long prev = values[0];
+        out.write(prev, width);
+        int prevLeading = -1;
+        int prevTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            long xor = values[i] ^ prev;
+            prev = values[i];
+            if (xor == 0) {
+                out.write(0, 1);
+                continue;
+            }
+            out.write(1, 1);
+            int leading = Long.numberOfLeadingZeros(xor) - (64 - width);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (leading > (1 << lengthBits) - 1) {
+                leading = (1 << lengthBits) - 1;
+            }
+            if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+                out.write(0, 1);
+                out.write(xor >>> prevTrailing, width - prevLeading - prevTrailing);
+            } else {
+                int meaningful = width - leading - trailing;
+                out.write(1, 1);
+                out.write(leading, lengthBits);
+                out.write(meaningful - 1, lengthBits);
+                out.write(xor >>> trailing, meaningful);
+                prevLeading = leading;
+                prevTrailing = trailing;
+            }
+        }
+    }
+
+    /**
+     * 逐个还原 XOR 编码的值
+     */
+    static final class XorDecoder {
+        private final BitInput in;
+        private final int width;
+        private final int lengthBits;
+        private long prev;
+        private boolean first = true;
+        private int leading;
+        private int trailing;
+
+        XorDecoder(BitInput in, int width) {
+            this.in = in;
+            this.width = width;
+            this.lengthBits = width == 32 ? 5 : 6;
+        }
+
+        long next() {
+            if (first) {
+                first = false;
+                prev = in.read(width);
+                return prev;
+            }
+            if (!in.readBit()) {
+                return prev;
+            }
+            if (in.readBit()) {
+                leading = (int) in.read(lengthBits);
+                int meaningful = (int) in.read(lengthBits) + 1;
+                trailing = width - leading - meaningful;
+            }
+            prev ^= in.read(width - leading - trailing) << trailing;
+            return prev;
+        }
+    }
+
+    static void decodeFloats(BitInput in, int count, float[] dst, int offset) {
+        XorDecoder decoder = new XorDecoder(in, 32);
+        for (int i = 0; i < count; i++) {
+            dst[offset + i] = Float.intBitsToFloat((int) decoder.next());
+        }
+    }
+
+    static void decodeDoubles(BitInput in, int count, double[] dst, int offset) {
+        XorDecoder decoder = new XorDecoder(in, 64);
+        for (int i = 0; i < count; i++) {
+            dst[offset + i] = Double.longBitsToDouble(decoder.next());
+        }
+    }
+
+    // ---------------- DICT ----------------
+
+    static void encodeDict(long[] values, int count, BitOutput out) {
+        int[] dictionary = new int[count];
+        for (int i = 0; i < count; i++) {
+            dictionary[i] = (int) values[i];
+        }
+        Arrays.sort(dictionary);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size == 0 || dictionary[size - 1] != dictionary[i]) {
+                dictionary[size++] = dictionary[i];
+            }
+        }
+        out.write(size, 16);
+        for (int i = 0; i < size; i++) {
+            out.write(dictionary[i], 32);
+        }
+        int bits = codeBits(size);
+        if (bits == 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            out.write(Arrays.binarySearch(dictionary, 0, size, (int) values[i]), bits);
+        }
+    }
+
+    static void decodeDict(BitInput in, int count, int[] dst, int offset) {
+        int size = (int) in.read(16);
+        int[] dictionary = new int[size];
+        for (int i = 0; i < size; i++) {
+            dictionary[i] = (int) in.read(32);
+        }
+        int bits = codeBits(size);
+        if (bits == 0) {
+            Arrays.fill(dst, offset, offset + count, size == 0 ? 0 : dictionary[0]);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            dst[offset + i] = dictionary[(int) in.read(bits)];
+        }
+    }
+
+    private static int codeBits(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.ime.gbt32960.store;
+
+import com.ime.iov.gbt32960.RealTimeReport;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 每辆车最新已知状态的内存缓存。
+ * <p>
+ * 实时信息可能只包含部分信息体，补发信息可能早于当前状态，因此按信息体分别比较数据采集时间后合并。
+ * 每辆车的状态是一个 {@link VehicleSnapshot}，以基本类型数组保存（每辆车约 0.5 KB），
+ * 合并时复制后整体替换，读取无锁且总能看到某一时刻完整的状态。
+ * <p>
+ * 长时间没有新数据的车辆（停运、报废）由后台线程定期移除，避免缓存只增不减。
+ *
+ * @author Qingxi
+ */
+public class LatestStateCache implements Closeable {
+
+    private final Map<String, VehicleSnapshot> snapshots;
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * @param expectedVehicles 预计的车辆数
+     */
+    public LatestStateCache(int expectedVehicles) {
+        this(expectedVehicles, 0);
+    }
+
+    /**
+     * @param expectedVehicles 预计的车辆数
+     * @param maxIdleSeconds 最新数据采集时间早于当前时间超过此秒数的车辆被移除，0 表示不移除
+     */
+    public LatestStateCache(int expectedVehicles, long maxIdleSeconds) {
+        this.snapshots = new ConcurrentHashMap<>(expectedVehicles);
+        if (maxIdleSeconds <= 0) {
+            this.evictor = null;
+            return;
+        }
+        this.evictor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("latest-state-evict", true));
+        long period = Math.max(60, maxIdleSeconds / 10);
+        this.evictor.scheduleWithFixedDelay(
+                () -> evictOlderThan(System.currentTimeMillis() / 1000 - maxIdleSeconds), period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 合并一条实时信息或补发信息
+     * @param vin VIN
+     * @param report 实时信息
+     */
+    public void merge(String vin, RealTimeReport report) {
+        long[] row = new long[Column.count()];
+        int groups = TelemetryRow.extract(report, row);
+        if (groups == 0) {
+            return;
+        }
+        long recordTime = report.getRecordTime();
+        snapshots.compute(vin, (key, current) ->
+                (current == null ? VehicleSnapshot.empty(key) : current).merge(row, groups, recordTime));
+    }
+
+    /**
+     * @param vin VIN
+     * @return 最新状态，没有收到过实时信息时返回 null
+     */
+    public VehicleSnapshot get(String vin) {
+        return snapshots.get(vin);
+    }
+
+    public VehicleSnapshot remove(String vin) {
+        return snapshots.remove(vin);
+    }
+
+    /**
+     * 移除最新数据采集时间早于 epochSecond 的车辆；与合并并发时只移除未被替换的快照，不会丢掉刚合并的数据
+     * @param epochSecond 数据采集时间，epoch 秒
+     * @return 移除的车辆数
+     */
+    public int evictOlderThan(long epochSecond) {
+        int evicted = 0;
+        for (Map.Entry<String, VehicleSnapshot> entry : snapshots.entrySet()) {
+            VehicleSnapshot snapshot = entry.getValue();
+            if (snapshot.getLatestRecordTime() < epochSecond && snapshots.remove(entry.getKey(), snapshot)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    public void forEach(Consumer<VehicleSnapshot> consumer) {
+        snapshots.values().forEach(consumer);
+    }
+
+    @Override
+    public void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+
+}
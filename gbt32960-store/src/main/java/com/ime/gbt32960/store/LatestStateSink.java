@@ -0,0 +1,38 @@
+package com.ime.gbt32960.store;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.protocol.sink.MessageSink;
+import com.ime.iov.gbt32960.RealTimeReport;
+
+import java.util.List;
+
+/**
+ * 用实时信息和补发信息更新 {@link LatestStateCache} 的出口
+ *
+ * @author Qingxi
+ */
+public class LatestStateSink implements MessageSink {
+
+    private final LatestStateCache cache;
+
+    public LatestStateSink(LatestStateCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public String name() {
+        return "state";
+    }
+
+    @Override
+    public void write(List<GBT32960Message> batch) {
+        for (GBT32960Message message : batch) {
+            RequestType type = message.getHeader().getRequestType();
+            if (type == RequestType.REAL_TIME || type == RequestType.REISSUE) {
+                cache.merge(message.getHeader().getVin(), (RealTimeReport) message.getPayload());
+            }
+        }
+    }
+
+}
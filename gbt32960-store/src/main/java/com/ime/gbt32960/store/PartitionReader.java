@@ -0,0 +1,72 @@
+package com.ime.gbt32960.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 读取分区文件：按块头的时间范围跳过不相关的块，只解码请求的列
+ *
+ * @author Qingxi
+ */
+final class PartitionReader {
+
+    private PartitionReader() {
+    }
+
+    /**
+     * 把文件中落在 [from, to] 内的行追加到 scan，最后一块不完整（写入中）时忽略
+     */
+    static void scan(Path file, long from, long to, TelemetryScan scan) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int limit = in.limit();
+        if (limit < StoreFormat.FILE_HEADER_LENGTH) {
+            return;
+        }
+        if (in.getInt(0) != StoreFormat.MAGIC) {
+            throw new IOException("Not a telemetry partition: " + file);
+        }
+        short version = in.getShort(4);
+        if (version != StoreFormat.VERSION) {
+            throw new IOException("Unsupported telemetry partition version: " + version);
+        }
+        int columnCount = in.getShort(6);
+        int[] offsets = new int[columnCount];
+        int[] lengths = new int[columnCount];
+        int position = StoreFormat.FILE_HEADER_LENGTH;
+        while (position + StoreFormat.BLOCK_HEADER_LENGTH + 4 <= limit) {
+            int rows = in.getInt(position);
+            long minTime = in.getLong(position + 4);
+            long maxTime = in.getLong(position + 12);
+            int cursor = position + StoreFormat.BLOCK_HEADER_LENGTH;
+            int timeLength = in.getInt(cursor);
+            int timeOffset = cursor + 4;
+            cursor = timeOffset + timeLength;
+            for (int i = 0; i < columnCount && cursor + 4 <= limit; i++) {
+                lengths[i] = in.getInt(cursor);
+                offsets[i] = cursor + 4;
+                cursor = offsets[i] + lengths[i];
+            }
+            if (cursor > limit) {
+                break;
+            }
+            position = cursor;
+            if (maxTime < from || minTime > to) {
+                continue;
+            }
+            scan.ensureCapacity(rows);
+            scan.decodeBlock(ordinal -> {
+                if (ordinal < 0) {
+                    return new BitInput(in, timeOffset, timeLength);
+                }
+                return ordinal < columnCount ? new BitInput(in, offsets[ordinal], lengths[ordinal]) : null;
+            }, rows, from, to);
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.ime.gbt32960.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 一个 VIN 一天的写缓冲：按行缓存，攒满一块后按时间排序、按列编码追加到分区文件
+ *
+ * @author Qingxi
+ */
+final class PartitionWriter {
+
+    private final Path file;
+    private final long epochDay;
+    private final int blockRows;
+
+    private long[] times = new long[16];
+    private final long[][] columns = new long[Column.count()][];
+    private int rows;
+    private long firstAppendMillis;
+
+    PartitionWriter(Path file, long epochDay, int blockRows) {
+        this.file = file;
+        this.epochDay = epochDay;
+        this.blockRows = blockRows;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new long[16];
+        }
+    }
+
+    long getEpochDay() {
+        return epochDay;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    synchronized void append(long time, long[] row) throws IOException {
+        if (rows == times.length) {
+            int capacity = Math.min(blockRows, rows * 2);
+            times = Arrays.copyOf(times, capacity);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Arrays.copyOf(columns[i], capacity);
+            }
+        }
+        if (rows == 0) {
+            firstAppendMillis = System.currentTimeMillis();
+        }
+        times[rows] = time;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i][rows] = row[i];
+        }
+        rows++;
+        if (rows >= blockRows) {
+            flush();
+        }
+    }
+
+    /**
+     * 缓冲的第一行早于 deadlineMillis 时写出
+     * @return 写出后缓冲是否为空
+     */
+    synchronized boolean flushIfOlder(long deadlineMillis) throws IOException {
+        if (rows > 0 && firstAppendMillis <= deadlineMillis) {
+            flush();
+        }
+        return rows == 0;
+    }
+
+    synchronized void flush() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        // 补发数据常常倒序或乱序到达，排序后二阶差分才能保持紧凑
+        int[] order = TimeOrder.permutation(times, rows);
+        if (order != null) {
+            TimeOrder.apply(order, times);
+            for (long[] column : columns) {
+                TimeOrder.apply(order, column);
+            }
+        }
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        for (int i = 0; i < rows; i++) {
+            minTime = Math.min(minTime, times[i]);
+            maxTime = Math.max(maxTime, times[i]);
+        }
+        BitOutput timeOut = new BitOutput(rows);
+        ColumnCodec.encodeTimes(times, rows, timeOut);
+        byte[] timeBytes = timeOut.toByteArray();
+        byte[][] encoded = new byte[columns.length][];
+        int length = StoreFormat.BLOCK_HEADER_LENGTH + 4 + timeBytes.length;
+        for (int i = 0; i < columns.length; i++) {
+            BitOutput out = new BitOutput(rows * 2);
+            encode(Column.of(i).getKind(), columns[i], rows, out);
+            encoded[i] = out.toByteArray();
+            length += 4 + encoded[i].length;
+        }
+
+        boolean created = !Files.exists(file);
+        if (created) {
+            Files.createDirectories(file.getParent());
+            length += StoreFormat.FILE_HEADER_LENGTH;
+        }
+        ByteBuffer block = ByteBuffer.allocate(length);
+        if (created) {
+            StoreFormat.writeFileHeader(block);
+        }
+        block.putInt(rows);
+        block.putLong(minTime);
+        block.putLong(maxTime);
+        block.putInt(timeBytes.length);
+        block.put(timeBytes);
+        for (byte[] column : encoded) {
+            block.putInt(column.length);
+            block.put(column);
+        }
+        block.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+        }
+        rows = 0;
+    }
+
+    private static void encode(Column.Kind kind, long[] values, int count, BitOutput out) {
+        switch (kind) {
+            case FLOAT:
+                ColumnCodec.encodeXor(values, count, 32, out);
+                break;
+            case DOUBLE:
+                ColumnCodec.encodeXor(values, count, 64, out);
+                break;
+            case INT:
+                ColumnCodec.encodeInts(values, count, out);
+                break;
+            default:
+                ColumnCodec.encodeDict(values, count, out);
+        }
+    }
+
+    /**
+     * 把尚未写出的行中落在 [from, to] 内的追加到 scan
+     */
+    synchronized void scanBuffered(long from, long to, TelemetryScan scan) {
+        for (int i = 0; i < rows; i++) {
+            if (times[i] >= from && times[i] <= to) {
+                scan.appendRaw(times[i], columns, i);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.ime.gbt32960.store;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 分区文件格式（大端）。每个 VIN 每天（东八区）一个文件：{目录}/yyyyMMdd/{VIN}.gcol
+ * <pre>
+ * 文件头: magic(4) "GBTP" | version(2) | 列数(2)
+ * 块:     行数(4) | 最小时间(8) | 最大时间(8) | 时间列长度(4) | 时间列 | 按列号依次: 列长度(4) | 列数据
+ * </pre>
+ * 各列编码见 {@link ColumnCodec}。块只追加不修改，读取时按块的时间范围跳过不相关的块，
+ * 按列长度跳过未请求的列。
+ *
+ * @author Qingxi
+ */
+final class StoreFormat {
+
+    static final int MAGIC = 0x47425450;
+    static final short VERSION = 1;
+    static final int FILE_HEADER_LENGTH = 4 + 2 + 2;
+    static final int BLOCK_HEADER_LENGTH = 4 + 8 + 8;
+
+    static final String SUFFIX = ".gcol";
+
+    static final int OFFSET_SECONDS = 8 * 3600;
+    static final int SECONDS_PER_DAY = 86400;
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private StoreFormat() {
+    }
+
+    static void writeFileHeader(ByteBuffer out) {
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.putShort((short) Column.count());
+    }
+
+    /**
+     * @param epochSecond epoch 秒
+     * @return 东八区的 epoch 日
+     */
+    static long epochDay(long epochSecond) {
+        return Math.floorDiv(epochSecond + OFFSET_SECONDS, SECONDS_PER_DAY);
+    }
+
+    static String dayDirectory(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).format(DAY_FORMAT);
+    }
+
+}
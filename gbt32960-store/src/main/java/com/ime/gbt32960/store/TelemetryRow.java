@@ -0,0 +1,107 @@
+package com.ime.gbt32960.store;
+
+import com.ime.iov.gbt32960.*;
+
+import static com.ime.gbt32960.store.Column.*;
+
+/**
+ * 把实时信息展开为一行，每列以 long 存放（FLOAT 为 floatToRawIntBits，DOUBLE 为 doubleToRawLongBits）
+ *
+ * @author Qingxi
+ */
+final class TelemetryRow {
+
+    private static final long FLOAT_NAN = Float.floatToRawIntBits(Float.NaN) & 0xFFFFFFFFL;
+    private static final long DOUBLE_NAN = Double.doubleToRawLongBits(Double.NaN);
+
+    private TelemetryRow() {
+    }
+
+    /**
+     * @param report 实时信息
+     * @param row 长度为 {@link Column#count()} 的数组
+     * @return 报文中包含的信息体，第 n 位对应序号为 n 的 {@link Column.Group}
+     */
+    static int extract(RealTimeReport report, long[] row) {
+        int groups = 0;
+        for (int i = 0; i < Column.count(); i++) {
+            row[i] = absent(Column.of(i).getKind());
+        }
+        if (report.hasVehicleState()) {
+            groups |= 1 << Column.Group.VEHICLE.ordinal();
+            VehicleState state = report.getVehicleState();
+            row[OPERATING_STATE.ordinal()] = state.getOperatingStateValue();
+            row[CHARGE_STATE.ordinal()] = state.getChargingStateValue();
+            row[OPERATION_MODE.ordinal()] = state.getOperationModeValue();
+            row[SPEED.ordinal()] = floatBits(state.getSpeed());
+            row[MILEAGE.ordinal()] = Double.doubleToRawLongBits(state.getMileage());
+            row[VOLTAGE.ordinal()] = floatBits(state.getVoltage());
+            row[CURRENT.ordinal()] = floatBits(state.getCurrent());
+            row[STATE_OF_CHARGE.ordinal()] = state.getStateOfCharge();
+            row[DC_INVERTER_STATE.ordinal()] = state.getDcInverterStateValue();
+            row[GEAR_POSITION.ordinal()] = state.getGearPosition();
+            row[INSULANCE.ordinal()] = state.getInsulance();
+            row[ACCELERATOR_TRAVEL.ordinal()] = state.getAcceleratorTravel();
+            row[BRAKE_TRAVEL.ordinal()] = state.getBrakeTravel();
+        }
+        if (report.getMotorCount() > 0) {
+            groups |= 1 << Column.Group.MOTOR.ordinal();
+            MotorState motor = report.getMotor(0);
+            row[MOTOR_STATUS.ordinal()] = motor.getStatusValue();
+            row[MOTOR_CONTROLLER_TEMPERATURE.ordinal()] = motor.getControllerTemperature();
+            row[MOTOR_SPEED.ordinal()] = motor.getMotorSpeed();
+            row[MOTOR_TORQUE.ordinal()] = floatBits(motor.getMotorTorque());
+            row[MOTOR_TEMPERATURE.ordinal()] = motor.getMotorTemperature();
+            row[MOTOR_CONTROLLER_VOLTAGE.ordinal()] = floatBits(motor.getControllerVoltage());
+            row[MOTOR_CONTROLLER_CURRENT.ordinal()] = floatBits(motor.getControllerCurrent());
+        }
+        if (report.hasLocation()) {
+            groups |= 1 << Column.Group.LOCATION.ordinal();
+            VehicleLocation location = report.getLocation();
+            row[LOCATION_VALID.ordinal()] = location.getIsValid() ? 1 : 0;
+            row[LONGITUDE.ordinal()] = Double.doubleToRawLongBits(location.getLongitude());
+            row[LATITUDE.ordinal()] = Double.doubleToRawLongBits(location.getLatitude());
+        }
+        if (report.hasExtremum()) {
+            groups |= 1 << Column.Group.EXTREMUM.ordinal();
+            Extremum extremum = report.getExtremum();
+            row[MAX_VOLTAGE_SUBSYSTEM.ordinal()] = extremum.getVoltageMaxSubsystem();
+            row[MAX_VOLTAGE_BATTERY.ordinal()] = extremum.getVoltageMaxBattery();
+            row[MAX_VOLTAGE.ordinal()] = floatBits(extremum.getMaxVoltage());
+            row[MIN_VOLTAGE_SUBSYSTEM.ordinal()] = extremum.getVoltageMinSubsystem();
+            row[MIN_VOLTAGE_BATTERY.ordinal()] = extremum.getVoltageMinBattery();
+            row[MIN_VOLTAGE.ordinal()] = floatBits(extremum.getMinVoltage());
+            row[MAX_TEMPERATURE_SUBSYSTEM.ordinal()] = extremum.getTemperatureMaxSubsystem();
+            row[MAX_TEMPERATURE_PROBE.ordinal()] = extremum.getTemperatureMaxProbe();
+            row[MAX_TEMPERATURE.ordinal()] = extremum.getMaxTemperature();
+            row[MIN_TEMPERATURE_SUBSYSTEM.ordinal()] = extremum.getTemperatureMinSubsystem();
+            row[MIN_TEMPERATURE_PROBE.ordinal()] = extremum.getTemperatureMinProbe();
+            row[MIN_TEMPERATURE.ordinal()] = extremum.getMinTemperature();
+        }
+        if (report.hasAlarm()) {
+            groups |= 1 << Column.Group.ALARM.ordinal();
+            Alarm alarm = report.getAlarm();
+            row[MAX_ALARM_LEVEL.ordinal()] = alarm.getMaxAlarmLevel();
+            row[ALARM_FLAGS.ordinal()] = alarm.getAlarmBitIdentify();
+        }
+        return groups;
+    }
+
+    static long absent(Column.Kind kind) {
+        switch (kind) {
+            case FLOAT:
+                return FLOAT_NAN;
+            case DOUBLE:
+                return DOUBLE_NAN;
+            case INT:
+                return ABSENT;
+            default:
+                return -1;
+        }
+    }
+
+    private static long floatBits(float value) {
+        return Float.floatToRawIntBits(value) & 0xFFFFFFFFL;
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.ime.gbt32960.store;
+
+import java.util.Arrays;
+
+/**
+ * 区间查询结果，每个请求的列是一个基本类型数组，下标与 {@link #getTimes()} 对应，前 {@link #size()} 个元素有效。
+ * 行按时间排序；块内已经有序，只有补发数据落在不同块中时才需要整体重排。
+ *
+ * @author Qingxi
+ */
+public final class TelemetryScan {
+
+    private final Column[] columns;
+
+    /**
+     * 列号到 {@link #data} 下标的映射，未请求的列为 -1
+     */
+    private final int[] slots = new int[Column.count()];
+    private final Object[] data;
+    private long[] times;
+    private int size;
+
+    TelemetryScan(Column[] columns, int initialCapacity) {
+        this.columns = columns;
+        this.data = new Object[columns.length];
+        this.times = new long[initialCapacity];
+        Arrays.fill(slots, -1);
+        for (int i = 0; i < columns.length; i++) {
+            slots[columns[i].ordinal()] = i;
+            data[i] = newArray(columns[i].getKind(), initialCapacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long[] getTimes() {
+        return times;
+    }
+
+    public float[] getFloats(Column column) {
+        return (float[]) data[slot(column, Column.Kind.FLOAT)];
+    }
+
+    public double[] getDoubles(Column column) {
+        return (double[]) data[slot(column, Column.Kind.DOUBLE)];
+    }
+
+    /**
+     * @param column INT 或 DICT 列
+     */
+    public int[] getInts(Column column) {
+        if (column.getKind() != Column.Kind.INT && column.getKind() != Column.Kind.DICT) {
+            throw new IllegalArgumentException(column + " is " + column.getKind());
+        }
+        return (int[]) data[slot(column, column.getKind())];
+    }
+
+    private int slot(Column column, Column.Kind kind) {
+        if (column.getKind() != kind) {
+            throw new IllegalArgumentException(column + " is " + column.getKind());
+        }
+        int slot = slots[column.ordinal()];
+        if (slot < 0) {
+            throw new IllegalArgumentException(column + " is not in this scan");
+        }
+        return slot;
+    }
+
+    boolean wants(int columnOrdinal) {
+        return columnOrdinal < slots.length && slots[columnOrdinal] >= 0;
+    }
+
+    /**
+     * 保证还能放下 rows 行
+     */
+    void ensureCapacity(int rows) {
+        int required = size + rows;
+        if (required <= times.length) {
+            return;
+        }
+        int capacity = Math.max(required, times.length * 2);
+        times = Arrays.copyOf(times, capacity);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = copyOf(data[i], capacity);
+        }
+    }
+
+    /**
+     * 在 size 处解码一块的时间列和请求的列，再去掉 [from, to] 之外的行
+     */
+    void decodeBlock(ColumnSource source, int rows, long from, long to) {
+        ColumnCodec.decodeTimes(source.column(-1), rows, times, size);
+        for (int i = 0; i < columns.length; i++) {
+            BitInput in = source.column(columns[i].ordinal());
+            if (in == null) {
+                fillAbsent(i, size, rows);
+                continue;
+            }
+            switch (columns[i].getKind()) {
+                case FLOAT:
+                    ColumnCodec.decodeFloats(in, rows, (float[]) data[i], size);
+                    break;
+                case DOUBLE:
+                    ColumnCodec.decodeDoubles(in, rows, (double[]) data[i], size);
+                    break;
+                case INT:
+                    ColumnCodec.decodeInts(in, rows, (int[]) data[i], size);
+                    break;
+                default:
+                    ColumnCodec.decodeDict(in, rows, (int[]) data[i], size);
+            }
+        }
+        int kept = size;
+        for (int row = size; row < size + rows; row++) {
+            long time = times[row];
+            if (time < from || time > to) {
+                continue;
+            }
+            if (kept != row) {
+                times[kept] = time;
+                for (Object array : data) {
+                    System.arraycopy(array, row, array, kept, 1);
+                }
+            }
+            kept++;
+        }
+        size = kept;
+    }
+
+    /**
+     * 追加一行未编码的数据
+     */
+    void appendRaw(long time, long[][] rawColumns, int row) {
+        ensureCapacity(1);
+        times[size] = time;
+        for (int i = 0; i < columns.length; i++) {
+            long value = rawColumns[columns[i].ordinal()][row];
+            switch (columns[i].getKind()) {
+                case FLOAT:
+                    ((float[]) data[i])[size] = Float.intBitsToFloat((int) value);
+                    break;
+                case DOUBLE:
+                    ((double[]) data[i])[size] = Double.longBitsToDouble(value);
+                    break;
+                default:
+                    ((int[]) data[i])[size] = (int) value;
+            }
+        }
+        size++;
+    }
+
+    /**
+     * 按时间重排所有行，已经有序时不做任何事
+     */
+    void sortByTime() {
+        int[] order = TimeOrder.permutation(times, size);
+        if (order == null) {
+            return;
+        }
+        TimeOrder.apply(order, times);
+        for (Object array : data) {
+            if (array instanceof float[]) {
+                TimeOrder.apply(order, (float[]) array);
+            } else if (array instanceof double[]) {
+                TimeOrder.apply(order, (double[]) array);
+            } else {
+                TimeOrder.apply(order, (int[]) array);
+            }
+        }
+    }
+
+    private void fillAbsent(int slot, int from, int rows) {
+        switch (columns[slot].getKind()) {
+            case FLOAT:
+                Arrays.fill((float[]) data[slot], from, from + rows, Float.NaN);
+                break;
+            case DOUBLE:
+                Arrays.fill((double[]) data[slot], from, from + rows, Double.NaN);
+                break;
+            case INT:
+                Arrays.fill((int[]) data[slot], from, from + rows, Column.ABSENT);
+                break;
+            default:
+                Arrays.fill((int[]) data[slot], from, from + rows, -1);
+        }
+    }
+
+    private static Object newArray(Column.Kind kind, int capacity) {
+        switch (kind) {
+            case FLOAT:
+                return new float[capacity];
+            case DOUBLE:
+                return new double[capacity];
+            default:
+                return new int[capacity];
+        }
+    }
+
+    private static Object copyOf(Object array, int capacity) {
+        if (array instanceof float[]) {
+            return Arrays.copyOf((float[]) array, capacity);
+        }
+        if (array instanceof double[]) {
+            return Arrays.copyOf((double[]) array, capacity);
+        }
+        return Arrays.copyOf((int[]) array, capacity);
+    }
+
+    /**
+     * 一块中各列的数据来源
+     */
+    interface ColumnSource {
+        /**
+         * @param ordinal 列号，-1 表示时间列
+         * @return 列数据，块中没有该列时返回 null
+         */
+        BitInput column(int ordinal);
+    }
+
+}
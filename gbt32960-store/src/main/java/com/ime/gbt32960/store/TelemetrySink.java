@@ -0,0 +1,60 @@
+package com.ime.gbt32960.store;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.gbt32960.codec.RequestType;
+import com.ime.gbt32960.protocol.sink.MessageSink;
+import com.ime.iov.gbt32960.RealTimeReport;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 把实时信息和补发信息写入 {@link TelemetryStore} 的出口，其他消息忽略。
+ * VIN 不能用作分区文件名的消息跳过并计数，不写入存储。
+ *
+ * @author Qingxi
+ */
+public class TelemetrySink implements MessageSink {
+
+    private final TelemetryStore store;
+    private final LongAdder rejected = new LongAdder();
+
+    public TelemetrySink(TelemetryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public String name() {
+        return "store";
+    }
+
+    @Override
+    public void write(List<GBT32960Message> batch) throws IOException {
+        for (GBT32960Message message : batch) {
+            RequestType type = message.getHeader().getRequestType();
+            if (type != RequestType.REAL_TIME && type != RequestType.REISSUE) {
+                continue;
+            }
+            String vin = message.getHeader().getVin();
+            if (!TelemetryStore.isValidVin(vin)) {
+                rejected.increment();
+                continue;
+            }
+            store.append(vin, (RealTimeReport) message.getPayload());
+        }
+    }
+
+    /**
+     * @return 因 VIN 不合法而跳过的消息数
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.ime.gbt32960.store;
+
+import com.ime.gbt32960.codec.GBT32960Message;
+import com.ime.iov.gbt32960.RealTimeReport;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 嵌入式列存：按 VIN 和日期（东八区）分区保存实时信息中的整车、驱动电机、位置和极值数据。
+ * <p>
+ * 每个 VIN 在内存中缓存最近的若干行，攒满 blockRows 行或超过 flushIntervalMillis 后按列编码写出一块；
+ * 尚未写出的行在进程退出前由 {@link #close()} 写出，崩溃时可从原始帧日志回放补回。
+ * 查询把各列直接解码到基本类型数组中，不创建逐行对象。
+ *
+ * @author Qingxi
+ */
+@Slf4j
+public class TelemetryStore implements Closeable {
+
+    private final Path dir;
+    private final int blockRows;
+    private final long flushIntervalMillis;
+    private final Map<String, VehicleWriters> writers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * @param dir 存储目录
+     * @param blockRows 每块行数
+     * @param flushIntervalMillis 缓存的行最多停留的毫秒数
+     */
+    public TelemetryStore(Path dir, int blockRows, long flushIntervalMillis) {
+        this.dir = dir;
+        this.blockRows = blockRows;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("telemetry-store-flush", true));
+        long period = Math.max(1000, flushIntervalMillis / 4);
+        this.flusher.scheduleWithFixedDelay(this::flushExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * VIN 用作分区文件名，只接受非空的字母和数字
+     * @param vin VIN
+     * @return 是否可以写入
+     */
+    public static boolean isValidVin(String vin) {
+        return vin != null && !vin.isEmpty() && GBT32960Message.VIN_CHARS.matchesAllOf(vin);
+    }
+
+    /**
+     * 写入一条实时信息
+     * @param vin VIN
+     * @param report 实时信息
+     * @throws IOException 写出块失败
+     * @throws IllegalArgumentException VIN 不能用作文件名
+     */
+    public void append(String vin, RealTimeReport report) throws IOException {
+        checkVin(vin);
+        long time = report.getRecordTime();
+        long[] row = new long[Column.count()];
+        TelemetryRow.extract(report, row);
+        long epochDay = StoreFormat.epochDay(time);
+        while (!writers.computeIfAbsent(vin, VehicleWriters::new).append(epochDay, time, row)) {
+            // 刚被清理线程移除，重新创建
+        }
+    }
+
+    /**
+     * 查询 [fromEpochSecond, toEpochSecond] 内的数据，包括尚未写出的行，结果按时间排序
+     * @param vin VIN
+     * @param fromEpochSecond 开始时间
+     * @param toEpochSecond 结束时间（含）
+     * @param columns 需要的列
+     * @return 查询结果
+     * @throws IOException 读取失败
+     * @throws IllegalArgumentException VIN 不能用作文件名
+     */
+    public TelemetryScan scan(String vin, long fromEpochSecond, long toEpochSecond, Column... columns) throws IOException {
+        checkVin(vin);
+        TelemetryScan scan = new TelemetryScan(columns, 1024);
+        VehicleWriters vehicle = writers.get(vin);
+        for (long day = StoreFormat.epochDay(fromEpochSecond); day <= StoreFormat.epochDay(toEpochSecond); day++) {
+            if (vehicle != null) {
+                vehicle.scan(day, fromEpochSecond, toEpochSecond, scan);
+            } else {
+                scanFile(partition(vin, day), fromEpochSecond, toEpochSecond, scan);
+            }
+        }
+        scan.sortByTime();
+        return scan;
+    }
+
+    /**
+     * 写出所有缓存的行
+     */
+    public void flush() {
+        flushOlderThan(Long.MAX_VALUE);
+    }
+
+    private void flushExpired() {
+        flushOlderThan(System.currentTimeMillis() - flushIntervalMillis);
+    }
+
+    private void flushOlderThan(long deadlineMillis) {
+        Iterator<VehicleWriters> iterator = writers.values().iterator();
+        while (iterator.hasNext()) {
+            VehicleWriters vehicle = iterator.next();
+            try {
+                if (vehicle.flushIfOlder(deadlineMillis)) {
+                    // 缓冲已空的车辆不再占用内存，下次写入时重建
+                    writers.remove(vehicle.vin, vehicle);
+                }
+            } catch (IOException e) {
+                log.error("写出 {} 的数据失败", vehicle.vin, e);
+            }
+        }
+    }
+
+    private static void scanFile(Path file, long from, long to, TelemetryScan scan) throws IOException {
+        if (Files.exists(file)) {
+            PartitionReader.scan(file, from, to, scan);
+        }
+    }
+
+    private static void checkVin(String vin) {
+        if (!isValidVin(vin)) {
+            throw new IllegalArgumentException("invalid vin: " + vin);
+        }
+    }
+
+    private Path partition(String vin, long epochDay) {
+        checkVin(vin);
+        Path file = dir.resolve(StoreFormat.dayDirectory(epochDay)).resolve(vin + StoreFormat.SUFFIX).normalize();
+        if (!file.startsWith(dir.normalize())) {
+            throw new IllegalArgumentException("partition outside store directory: " + file);
+        }
+        return file;
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 一个 VIN 当天的写缓冲，以及补发历史数据时使用的另一天的写缓冲
+     */
+    private final class VehicleWriters {
+        private final String vin;
+        private PartitionWriter current;
+        private PartitionWriter backfill;
+
+        /**
+         * 已从 writers 中移除，不再接收写入
+         */
+        private boolean retired;
+
+        private VehicleWriters(String vin) {
+            this.vin = vin;
+        }
+
+        /**
+         * @return 已移除时返回 false
+         */
+        synchronized boolean append(long epochDay, long time, long[] row) throws IOException {
+            if (retired) {
+                return false;
+            }
+            writer(epochDay).append(time, row);
+            return true;
+        }
+
+        private PartitionWriter writer(long epochDay) throws IOException {
+            if (current == null || epochDay > current.getEpochDay()) {
+                if (current != null) {
+                    current.flush();
+                }
+                current = new PartitionWriter(partition(vin, epochDay), epochDay, blockRows);
+                return current;
+            }
+            if (epochDay == current.getEpochDay()) {
+                return current;
+            }
+            if (backfill == null || backfill.getEpochDay() != epochDay) {
+                if (backfill != null) {
+                    backfill.flush();
+                }
+                backfill = new PartitionWriter(partition(vin, epochDay), epochDay, blockRows);
+            }
+            return backfill;
+        }
+
+        synchronized boolean flushIfOlder(long deadlineMillis) throws IOException {
+            boolean empty = current == null || current.flushIfOlder(deadlineMillis);
+            if (backfill != null && backfill.flushIfOlder(deadlineMillis)) {
+                backfill = null;
+            }
+            retired = empty && backfill == null;
+            return retired;
+        }
+
+        /**
+         * 持锁读取文件和缓冲，避免两者之间恰好写出一块导致漏读
+         */
+        synchronized void scan(long epochDay, long from, long to, TelemetryScan scan) throws IOException {
+            scanFile(partition(vin, epochDay), from, to, scan);
+            if (current != null && current.getEpochDay() == epochDay) {
+                current.scanBuffered(from, to, scan);
+            }
+            if (backfill != null && backfill.getEpochDay() == epochDay) {
+                backfill.scanBuffered(from, to, scan);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.ime.gbt32960.store;
+
+import java.util.Arrays;
+
+/**
+ * 按时间排序的行序，补发数据写入和查询时使用
+ *
+ * @author Qingxi
+ */
+final class TimeOrder {
+
+    private static final int INDEX_BITS = 29;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private TimeOrder() {
+    }
+
+    /**
+     * @param times 时间
+     * @param count 行数，不超过 2^29
+     * @return 按时间（相同时间按原顺序）排列的行号，已经有序时返回 null
+     */
+    static int[] permutation(long[] times, int count) {
+        long min = Long.MAX_VALUE;
+        boolean sorted = true;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, times[i]);
+            if (i > 0 && times[i] < times[i - 1]) {
+                sorted = false;
+            }
+        }
+        if (sorted) {
+            return null;
+        }
+        // 时间差放在高位、行号放在低位，排序一个 long 数组即可得到稳定的行序
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (times[i] - min) << INDEX_BITS | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) (keys[i] & INDEX_MASK);
+        }
+        return order;
+    }
+
+    static void apply(int[] order, long[] values) {
+        long[] source = Arrays.copyOf(values, order.length);
+        for (int i = 0; i < order.length; i++) {
+            values[i] = source[order[i]];
+        }
+    }
+
+    static void apply(int[] order, int[] values) {
+        int[] source = Arrays.copyOf(values, order.length);
+        for (int i = 0; i < order.length; i++) {
+            values[i] = source[order[i]];
+        }
+    }
+
+    static void apply(int[] order, float[] values) {
+        float[] source = Arrays.copyOf(values, order.length);
+        for (int i = 0; i < order.length; i++) {
+            values[i] = source[order[i]];
+        }
+    }
+
+    static void apply(int[] order, double[] values) {
+        double[] source = Arrays.copyOf(values, order.length);
+        for (int i = 0; i < order.length; i++) {
+            values[i] = source[order[i]];
+        }
+    }
+
+}
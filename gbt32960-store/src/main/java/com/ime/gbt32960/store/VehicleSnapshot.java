@@ -0,0 +1,114 @@
+package com.ime.gbt32960.store;
+
+/**
+ * 一辆车最新已知状态的不可变快照，每个信息体取自数据采集时间最新的那条实时信息
+ *
+ * @author Qingxi
+ */
+public final class VehicleSnapshot {
+
+    private final String vin;
+
+    /**
+     * 按列号存放的值，编码同 {@link TelemetryRow}
+     */
+    private final long[] values;
+
+    /**
+     * 按 {@link Column.Group} 序号存放的数据采集时间，0 表示尚未收到
+     */
+    private final long[] groupTimes;
+
+    VehicleSnapshot(String vin, long[] values, long[] groupTimes) {
+        this.vin = vin;
+        this.values = values;
+        this.groupTimes = groupTimes;
+    }
+
+    static VehicleSnapshot empty(String vin) {
+        long[] values = new long[Column.count()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = TelemetryRow.absent(Column.of(i).getKind());
+        }
+        return new VehicleSnapshot(vin, values, new long[Column.Group.count()]);
+    }
+
+    /**
+     * 合并一条实时信息，只有数据采集时间不早于当前值的信息体才会覆盖
+     * @param row 展开后的实时信息
+     * @param groups 实时信息中包含的信息体
+     * @param recordTime 数据采集时间
+     * @return 合并后的快照，没有任何信息体被覆盖时返回 this
+     */
+    VehicleSnapshot merge(long[] row, int groups, long recordTime) {
+        long[] mergedValues = null;
+        long[] mergedTimes = null;
+        for (int g = 0; g < groupTimes.length; g++) {
+            if ((groups & 1 << g) == 0 || recordTime < groupTimes[g]) {
+                continue;
+            }
+            if (mergedValues == null) {
+                mergedValues = values.clone();
+                mergedTimes = groupTimes.clone();
+            }
+            for (int column : Column.Group.of(g).columns()) {
+                mergedValues[column] = row[column];
+            }
+            mergedTimes[g] = recordTime;
+        }
+        return mergedValues == null ? this : new VehicleSnapshot(vin, mergedValues, mergedTimes);
+    }
+
+    public String getVin() {
+        return vin;
+    }
+
+    /**
+     * @return 信息体的数据采集时间（epoch 秒），尚未收到时为 0
+     */
+    public long getRecordTime(Column.Group group) {
+        return groupTimes[group.ordinal()];
+    }
+
+    /**
+     * @return 各信息体中最新的数据采集时间
+     */
+    public long getLatestRecordTime() {
+        long latest = 0;
+        for (long time : groupTimes) {
+            latest = Math.max(latest, time);
+        }
+        return latest;
+    }
+
+    public boolean has(Column column) {
+        return groupTimes[column.getGroup().ordinal()] != 0;
+    }
+
+    public float getFloat(Column column) {
+        check(column, Column.Kind.FLOAT);
+        return Float.intBitsToFloat((int) values[column.ordinal()]);
+    }
+
+    public double getDouble(Column column) {
+        check(column, Column.Kind.DOUBLE);
+        return Double.longBitsToDouble(values[column.ordinal()]);
+    }
+
+    /**
+     * @param column INT 或 DICT 列
+     */
+    public int getInt(Column column) {
+        if (column.getKind() != Column.Kind.INT && column.getKind() != Column.Kind.DICT) {
+            throw new IllegalArgumentException(column + " is " + column.getKind());
+        }
+        return (int) values[column.ordinal()];
+    }
+
+    private static void check(Column column, Column.Kind kind) {
+        if (column.getKind() != kind) {
+            throw new IllegalArgumentException(column + " is " + column.getKind());
+        }
+    }
+
+}
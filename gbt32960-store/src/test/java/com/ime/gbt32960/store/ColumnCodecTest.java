@@ -0,0 +1,198 @@
+package com.ime.gbt32960.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 各列编码经 {@link BitOutput} 写出、{@link BitInput} 读回后与原值逐位相同
+ *
+ * @author Qingxi
+ */
+class ColumnCodecTest {
+
+    private static BitInput input(BitOutput out) {
+        byte[] bytes = out.toByteArray();
+        return new BitInput(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    private static long floatBits(float value) {
+        return Float.floatToRawIntBits(value) & 0xFFFFFFFFL;
+    }
+
+    @Test
+    void bitsRoundTripAcrossWordBoundaries() {
+        Random random = new Random(32960);
+        int count = 2000;
+        long[] values = new long[count];
+        int[] widths = new int[count];
+        BitOutput out = new BitOutput(1);
+        for (int i = 0; i < count; i++) {
+            widths[i] = 1 + random.nextInt(64);
+            values[i] = widths[i] == 64 ? random.nextLong() : random.nextLong() & ((1L << widths[i]) - 1);
+            out.write(values[i], widths[i]);
+        }
+        BitInput in = input(out);
+        for (int i = 0; i < count; i++) {
+            assertEquals(values[i], in.read(widths[i]), "value " + i + ", width " + widths[i]);
+        }
+        // 读过末尾时返回 0
+        assertEquals(0, in.read(64));
+    }
+
+    @Test
+    void bitsAtNonZeroOffset() {
+        BitOutput out = new BitOutput(16);
+        out.write(0b101, 3);
+        out.writeBit(true);
+        out.write(-1L, 64);
+        byte[] bytes = out.toByteArray();
+        ByteBuffer padded = ByteBuffer.allocate(bytes.length + 7);
+        padded.position(5);
+        padded.put(bytes);
+        BitInput in = new BitInput(padded, 5, bytes.length);
+        assertEquals(0b101, in.read(3));
+        assertTrue(in.readBit());
+        assertEquals(-1L, in.read(64));
+    }
+
+    @Test
+    void timesRoundTripIncludingNonMonotonicReissue() {
+        long start = 1_540_000_000L;
+        long[] times = {start, start + 10, start + 20, start + 30, start + 25, start - 3600, start + 86_399,
+                start + 86_399, Long.MIN_VALUE / 2, start, start + 10};
+        BitOutput out = new BitOutput(times.length);
+        ColumnCodec.encodeTimes(times, times.length, out);
+        long[] decoded = new long[times.length + 3];
+        ColumnCodec.decodeTimes(input(out), times.length, decoded, 3);
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(times[i], decoded[i + 3], "row " + i);
+        }
+    }
+
+    @Test
+    void regularTimesTakeOneBitPerRow() {
+        int count = 1000;
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = 1_540_000_000L + 10L * i;
+        }
+        BitOutput out = new BitOutput(count);
+        ColumnCodec.encodeTimes(times, count, out);
+        // 首个时间 64 位，第一个差分 9 位，其余每行 1 位
+        assertEquals((64 + 2 + 7 + count - 2 + 7) / 8, out.toByteArray().length);
+    }
+
+    @Test
+    void intsRoundTripIncludingAbsentAndExtremes() {
+        long[] values = {0, 1, -1, 64, -63, 65, -64, 256, -255, 2048, -2047, 2049, Column.ABSENT, 100,
+                Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Column.ABSENT, Column.ABSENT, 0};
+        BitOutput out = new BitOutput(values.length);
+        ColumnCodec.encodeInts(values, values.length, out);
+        int[] decoded = new int[values.length];
+        ColumnCodec.decodeInts(input(out), values.length, decoded, 0);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals((int) values[i], decoded[i], "row " + i);
+        }
+    }
+
+    @Test
+    void floatsRoundTripIncludingNaN() {
+        float[] values = {0f, 0f, -0f, 1.5f, 1.5f, 1.75f, -1.75f, Float.NaN, Float.NaN, 3.4e38f, Float.MIN_VALUE,
+                -Float.MAX_VALUE, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, 12.3f, Float.NaN, 12.4f};
+        long[] bits = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bits[i] = floatBits(values[i]);
+        }
+        BitOutput out = new BitOutput(values.length);
+        ColumnCodec.encodeXor(bits, bits.length, 32, out);
+        float[] decoded = new float[values.length];
+        ColumnCodec.decodeFloats(input(out), values.length, decoded, 0);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Float.floatToRawIntBits(values[i]), Float.floatToRawIntBits(decoded[i]), "row " + i);
+        }
+    }
+
+    @Test
+    void doublesRoundTripIncludingNaN() {
+        Random random = new Random(32960);
+        double[] values = new double[500];
+        for (int i = 0; i < values.length; i++) {
+            switch (i % 7) {
+                case 0:
+                    values[i] = Double.NaN;
+                    break;
+                case 1:
+                    values[i] = -values[i - 1];
+                    break;
+                case 2:
+                    values[i] = Double.MAX_VALUE;
+                    break;
+                case 3:
+                    values[i] = Double.MIN_VALUE;
+                    break;
+                default:
+                    values[i] = 116.0 + random.nextDouble();
+            }
+        }
+        long[] bits = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bits[i] = Double.doubleToRawLongBits(values[i]);
+        }
+        BitOutput out = new BitOutput(values.length);
+        ColumnCodec.encodeXor(bits, bits.length, 64, out);
+        double[] decoded = new double[values.length];
+        ColumnCodec.decodeDoubles(input(out), values.length, decoded, 0);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(bits[i], Double.doubleToRawLongBits(decoded[i]), "row " + i);
+        }
+    }
+
+    @Test
+    void dictRoundTripIncludingAbsent() {
+        long[] values = {-1, 1, 1, 2, -1, 0xFE, 0xFF, 1, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        BitOutput out = new BitOutput(values.length);
+        ColumnCodec.encodeDict(values, values.length, out);
+        int[] decoded = new int[values.length];
+        ColumnCodec.decodeDict(input(out), values.length, decoded, 0);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals((int) values[i], decoded[i], "row " + i);
+        }
+    }
+
+    @Test
+    void singleValueDictStoresNoCodes() {
+        long[] values = {-1, -1, -1, -1};
+        BitOutput out = new BitOutput(values.length);
+        ColumnCodec.encodeDict(values, values.length, out);
+        // 字典大小 16 位 + 一个 32 位的值
+        assertEquals(6, out.toByteArray().length);
+        int[] decoded = new int[values.length];
+        ColumnCodec.decodeDict(input(out), values.length, decoded, 0);
+        for (int value : decoded) {
+            assertEquals(-1, value);
+        }
+    }
+
+    @Test
+    void emptyBlocksWriteNothing() {
+        long[] none = new long[0];
+        BitOutput out = new BitOutput(0);
+        ColumnCodec.encodeTimes(none, 0, out);
+        ColumnCodec.encodeInts(none, 0, out);
+        ColumnCodec.encodeXor(none, 0, 32, out);
+        ColumnCodec.encodeXor(none, 0, 64, out);
+        assertEquals(0, out.toByteArray().length);
+
+        ColumnCodec.encodeDict(none, 0, out);
+        BitInput in = input(out);
+        int[] decoded = new int[0];
+        ColumnCodec.decodeDict(in, 0, decoded, 0);
+        ColumnCodec.decodeTimes(in, 0, new long[0], 0);
+        ColumnCodec.decodeFloats(in, 0, new float[0], 0);
+    }
+
+}
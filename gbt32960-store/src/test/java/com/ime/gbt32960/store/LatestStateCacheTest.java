@@ -0,0 +1,130 @@
+package com.ime.gbt32960.store;
+
+import com.ime.iov.gbt32960.Alarm;
+import com.ime.iov.gbt32960.RealTimeReport;
+import com.ime.iov.gbt32960.VehicleLocation;
+import com.ime.iov.gbt32960.VehicleState;
+import org.junit.jupiter.api.Test;
+
+import static com.ime.gbt32960.store.Column.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按信息体的数据采集时间合并，以及长时间没有新数据的车辆被移除
+ *
+ * @author Qingxi
+ */
+class LatestStateCacheTest {
+
+    private static final String VIN = "LJRNL000000000001";
+    private static final long T = 1_540_000_000L;
+
+    private static RealTimeReport.Builder report(long time) {
+        return RealTimeReport.newBuilder().setRecordTime(time);
+    }
+
+    private static VehicleState.Builder vehicle(float speed) {
+        return VehicleState.newBuilder().setSpeed(speed).setStateOfCharge((int) speed);
+    }
+
+    private static VehicleLocation.Builder location(double longitude) {
+        return VehicleLocation.newBuilder().setIsValid(true).setLongitude(longitude).setLatitude(39.9);
+    }
+
+    @Test
+    void newerReportWins() {
+        LatestStateCache cache = new LatestStateCache(16);
+        cache.merge(VIN, report(T).setVehicleState(vehicle(10)).setLocation(location(116.1)).build());
+        cache.merge(VIN, report(T + 10).setVehicleState(vehicle(20)).setLocation(location(116.2)).build());
+
+        VehicleSnapshot snapshot = cache.get(VIN);
+        assertEquals(20f, snapshot.getFloat(SPEED));
+        assertEquals(20, snapshot.getInt(STATE_OF_CHARGE));
+        assertEquals(116.2, snapshot.getDouble(LONGITUDE));
+        assertEquals(T + 10, snapshot.getRecordTime(Column.Group.VEHICLE));
+        assertEquals(T + 10, snapshot.getLatestRecordTime());
+    }
+
+    @Test
+    void olderReissueDoesNotOverwriteNewerBlocks() {
+        LatestStateCache cache = new LatestStateCache(16);
+        cache.merge(VIN, report(T + 10).setVehicleState(vehicle(20)).build());
+        VehicleSnapshot before = cache.get(VIN);
+
+        cache.merge(VIN, report(T).setReissue(true).setVehicleState(vehicle(10)).build());
+        // 没有信息体被覆盖时保留原快照
+        assertSame(before, cache.get(VIN));
+        assertEquals(20f, cache.get(VIN).getFloat(SPEED));
+    }
+
+    @Test
+    void olderReissueFillsMissingBlocks() {
+        LatestStateCache cache = new LatestStateCache(16);
+        cache.merge(VIN, report(T + 10).setVehicleState(vehicle(20)).build());
+        VehicleSnapshot before = cache.get(VIN);
+        assertFalse(before.has(LONGITUDE));
+        assertTrue(Double.isNaN(before.getDouble(LONGITUDE)));
+        assertEquals(-1, before.getInt(MAX_ALARM_LEVEL));
+        assertEquals(Column.ABSENT, before.getInt(ALARM_FLAGS));
+
+        cache.merge(VIN, report(T).setReissue(true)
+                .setVehicleState(vehicle(10))
+                .setLocation(location(116.1))
+                .setAlarm(Alarm.newBuilder().setMaxAlarmLevel(2).setAlarmBitIdentify(0x04))
+                .build());
+
+        VehicleSnapshot after = cache.get(VIN);
+        assertEquals(20f, after.getFloat(SPEED));
+        assertEquals(T + 10, after.getRecordTime(Column.Group.VEHICLE));
+        assertTrue(after.has(LONGITUDE));
+        assertEquals(116.1, after.getDouble(LONGITUDE));
+        assertEquals(2, after.getInt(MAX_ALARM_LEVEL));
+        assertEquals(0x04, after.getInt(ALARM_FLAGS));
+        assertEquals(T, after.getRecordTime(Column.Group.LOCATION));
+        assertEquals(T + 10, after.getLatestRecordTime());
+        // 旧快照不受影响
+        assertFalse(before.has(LONGITUDE));
+    }
+
+    @Test
+    void sameTimeReplacesBlock() {
+        LatestStateCache cache = new LatestStateCache(16);
+        cache.merge(VIN, report(T).setVehicleState(vehicle(10)).build());
+        cache.merge(VIN, report(T).setVehicleState(vehicle(11)).build());
+        assertEquals(11f, cache.get(VIN).getFloat(SPEED));
+    }
+
+    @Test
+    void reportWithoutStoredBlocksIsIgnored() {
+        LatestStateCache cache = new LatestStateCache(16);
+        cache.merge(VIN, report(T).build());
+        assertNull(cache.get(VIN));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsVehiclesWithoutRecentData() {
+        LatestStateCache cache = new LatestStateCache(16);
+        cache.merge("LJRNL000000000001", report(T).setVehicleState(vehicle(10)).build());
+        cache.merge("LJRNL000000000002", report(T - 100).setVehicleState(vehicle(10)).build());
+        // 整车数据陈旧，但位置是新的
+        cache.merge("LJRNL000000000003", report(T - 100).setVehicleState(vehicle(10)).build());
+        cache.merge("LJRNL000000000003", report(T).setLocation(location(116.1)).build());
+        assertEquals(3, cache.size());
+
+        assertEquals(1, cache.evictOlderThan(T - 50));
+        assertNull(cache.get("LJRNL000000000002"));
+        assertNotNull(cache.get("LJRNL000000000001"));
+        assertNotNull(cache.get("LJRNL000000000003"));
+        assertEquals(0, cache.evictOlderThan(T - 50));
+
+        assertEquals(2, cache.evictOlderThan(T + 1));
+        assertEquals(0, cache.size());
+
+        // 移除后再收到数据时重新建立
+        cache.merge("LJRNL000000000002", report(T + 10).setVehicleState(vehicle(30)).build());
+        assertEquals(30f, cache.get("LJRNL000000000002").getFloat(SPEED));
+        cache.close();
+    }
+
+}
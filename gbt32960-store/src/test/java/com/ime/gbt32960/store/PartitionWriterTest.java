@@ -0,0 +1,177 @@
+package com.ime.gbt32960.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.ime.gbt32960.store.Column.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link PartitionWriter} 写出的块由 {@link PartitionReader} 读回
+ *
+ * @author Qingxi
+ */
+class PartitionWriterTest {
+
+    private static final long START = 1_540_000_000L;
+
+    private Path dir;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("partition");
+        file = dir.resolve("20181020").resolve("LJRNL000000000001" + StoreFormat.SUFFIX);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * 第 i 行：速度 i / 2，里程 1000 + i / 10，SOC 为 i，档位在三个值之间轮换；i 为 3 的倍数时缺少整车数据
+     */
+    private static long[] row(int i) {
+        long[] row = new long[Column.count()];
+        for (Column column : Column.all()) {
+            row[column.ordinal()] = TelemetryRow.absent(column.getKind());
+        }
+        if (i % 3 != 0) {
+            row[SPEED.ordinal()] = Float.floatToRawIntBits(i / 2f) & 0xFFFFFFFFL;
+            row[MILEAGE.ordinal()] = Double.doubleToRawLongBits(1000 + i / 10.0);
+            row[STATE_OF_CHARGE.ordinal()] = i;
+            row[GEAR_POSITION.ordinal()] = i % 4 == 0 ? 0x0E : i % 4;
+        }
+        row[ALARM_FLAGS.ordinal()] = i % 2 == 0 ? Integer.MIN_VALUE + 1 : Integer.MAX_VALUE;
+        return row;
+    }
+
+    private static void assertRow(TelemetryScan scan, int index, int i) {
+        assertEquals(START + 10L * i, scan.getTimes()[index], "time of row " + i);
+        if (i % 3 == 0) {
+            assertTrue(Float.isNaN(scan.getFloats(SPEED)[index]));
+            assertTrue(Double.isNaN(scan.getDoubles(MILEAGE)[index]));
+            assertEquals(Column.ABSENT, scan.getInts(STATE_OF_CHARGE)[index]);
+            assertEquals(-1, scan.getInts(GEAR_POSITION)[index]);
+        } else {
+            assertEquals(i / 2f, scan.getFloats(SPEED)[index]);
+            assertEquals(1000 + i / 10.0, scan.getDoubles(MILEAGE)[index]);
+            assertEquals(i, scan.getInts(STATE_OF_CHARGE)[index]);
+            assertEquals(i % 4 == 0 ? 0x0E : i % 4, scan.getInts(GEAR_POSITION)[index]);
+        }
+        assertEquals(i % 2 == 0 ? Integer.MIN_VALUE + 1 : Integer.MAX_VALUE, scan.getInts(ALARM_FLAGS)[index]);
+    }
+
+    private static TelemetryScan newScan() {
+        return new TelemetryScan(new Column[]{SPEED, MILEAGE, STATE_OF_CHARGE, GEAR_POSITION, ALARM_FLAGS}, 4);
+    }
+
+    @Test
+    void blocksRoundTripAllColumnKinds() throws IOException {
+        PartitionWriter writer = new PartitionWriter(file, StoreFormat.epochDay(START), 4);
+        for (int i = 0; i < 10; i++) {
+            writer.append(START + 10L * i, row(i));
+        }
+        writer.flush();
+
+        TelemetryScan scan = newScan();
+        PartitionReader.scan(file, Long.MIN_VALUE, Long.MAX_VALUE, scan);
+        assertEquals(10, scan.size());
+        for (int i = 0; i < 10; i++) {
+            assertRow(scan, i, i);
+        }
+    }
+
+    @Test
+    void scanKeepsOnlyRowsInRange() throws IOException {
+        PartitionWriter writer = new PartitionWriter(file, StoreFormat.epochDay(START), 4);
+        for (int i = 0; i < 12; i++) {
+            writer.append(START + 10L * i, row(i));
+        }
+
+        TelemetryScan scan = newScan();
+        PartitionReader.scan(file, START + 30, START + 60, scan);
+        assertEquals(4, scan.size());
+        for (int i = 0; i < 4; i++) {
+            assertRow(scan, i, i + 3);
+        }
+
+        TelemetryScan none = newScan();
+        PartitionReader.scan(file, START + 1000, START + 2000, none);
+        assertEquals(0, none.size());
+    }
+
+    @Test
+    void reissuedRowsAreSortedWithinBlock() throws IOException {
+        PartitionWriter writer = new PartitionWriter(file, StoreFormat.epochDay(START), 8);
+        int[] arrival = {5, 6, 7, 0, 2, 1, 4, 3};
+        for (int i : arrival) {
+            writer.append(START + 10L * i, row(i));
+        }
+
+        TelemetryScan scan = newScan();
+        PartitionReader.scan(file, Long.MIN_VALUE, Long.MAX_VALUE, scan);
+        assertEquals(8, scan.size());
+        for (int i = 0; i < 8; i++) {
+            assertRow(scan, i, i);
+        }
+    }
+
+    @Test
+    void bufferedRowsAreScannedBeforeFlush() throws IOException {
+        PartitionWriter writer = new PartitionWriter(file, StoreFormat.epochDay(START), 100);
+        for (int i = 0; i < 5; i++) {
+            writer.append(START + 10L * i, row(i));
+        }
+        assertFalse(Files.exists(file));
+
+        TelemetryScan scan = newScan();
+        writer.scanBuffered(START + 10, START + 30, scan);
+        assertEquals(3, scan.size());
+        for (int i = 0; i < 3; i++) {
+            assertRow(scan, i, i + 1);
+        }
+    }
+
+    @Test
+    void emptyFlushWritesNothing() throws IOException {
+        PartitionWriter writer = new PartitionWriter(file, StoreFormat.epochDay(START), 4);
+        writer.flush();
+        assertTrue(writer.flushIfOlder(Long.MAX_VALUE));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void incompleteLastBlockIsIgnored() throws IOException {
+        PartitionWriter writer = new PartitionWriter(file, StoreFormat.epochDay(START), 4);
+        for (int i = 0; i < 8; i++) {
+            writer.append(START + 10L * i, row(i));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        TelemetryScan scan = newScan();
+        PartitionReader.scan(file, Long.MIN_VALUE, Long.MAX_VALUE, scan);
+        assertEquals(4, scan.size());
+        for (int i = 0; i < 4; i++) {
+            assertRow(scan, i, i);
+        }
+    }
+
+}
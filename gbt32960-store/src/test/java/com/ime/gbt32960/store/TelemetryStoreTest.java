@@ -0,0 +1,147 @@
+package com.ime.gbt32960.store;
+
+import com.ime.iov.gbt32960.RealTimeReport;
+import com.ime.iov.gbt32960.VehicleLocation;
+import com.ime.iov.gbt32960.VehicleState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.ime.gbt32960.store.Column.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Qingxi
+ */
+class TelemetryStoreTest {
+
+    private static final String VIN = "LJRNL000000000001";
+
+    /**
+     * 东八区 2018-10-20 00:00:00
+     */
+    private static final long DAY_START = 1_539_964_800L;
+
+    private Path dir;
+    private TelemetryStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("telemetry-store");
+        // 攒满 4 行写出一块，缓冲中的行不会因超时被写出
+        store = new TelemetryStore(dir, 4, 3_600_000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * 第 i 行：时间为当天第 10 * i 秒，SOC 为 i；i 为奇数时带位置
+     */
+    private static RealTimeReport report(int i) {
+        RealTimeReport.Builder builder = RealTimeReport.newBuilder()
+                .setRecordTime(DAY_START + 10L * i)
+                .setVehicleState(VehicleState.newBuilder().setSpeed(i * 1.5f).setStateOfCharge(i));
+        if (i % 2 == 1) {
+            builder.setLocation(VehicleLocation.newBuilder().setIsValid(true).setLongitude(116 + i / 1000.0));
+        }
+        return builder.build();
+    }
+
+    private void append(int... rows) throws IOException {
+        for (int i : rows) {
+            store.append(VIN, report(i));
+        }
+    }
+
+    private TelemetryScan scanDay() throws IOException {
+        return store.scan(VIN, DAY_START, DAY_START + StoreFormat.SECONDS_PER_DAY - 1,
+                SPEED, STATE_OF_CHARGE, LONGITUDE);
+    }
+
+    private static void assertRows(TelemetryScan scan, int... rows) {
+        assertEquals(rows.length, scan.size());
+        for (int index = 0; index < rows.length; index++) {
+            int i = rows[index];
+            assertEquals(DAY_START + 10L * i, scan.getTimes()[index], "time of row " + i);
+            assertEquals(i * 1.5f, scan.getFloats(SPEED)[index]);
+            assertEquals(i, scan.getInts(STATE_OF_CHARGE)[index]);
+            if (i % 2 == 1) {
+                assertEquals(116 + i / 1000.0, scan.getDoubles(LONGITUDE)[index]);
+            } else {
+                assertTrue(Double.isNaN(scan.getDoubles(LONGITUDE)[index]));
+            }
+        }
+    }
+
+    @Test
+    void scanMergesFlushedBlocksWithBufferedRows() throws IOException {
+        append(0, 1, 2, 3, 4, 5);
+        // 前 4 行已写出，后 2 行仍在缓冲中
+        assertTrue(Files.exists(dir.resolve("20181020").resolve(VIN + StoreFormat.SUFFIX)));
+        assertRows(scanDay(), 0, 1, 2, 3, 4, 5);
+
+        TelemetryScan range = store.scan(VIN, DAY_START + 20, DAY_START + 40, SPEED, STATE_OF_CHARGE, LONGITUDE);
+        assertRows(range, 2, 3, 4);
+    }
+
+    @Test
+    void reissuedRowsInBufferAreSortedWithFlushedRows() throws IOException {
+        append(10, 11, 12, 13, 14);
+        // 补发的旧数据落在缓冲中，时间早于已写出的块
+        append(1, 0);
+        assertRows(scanDay(), 0, 1, 10, 11, 12, 13, 14);
+    }
+
+    @Test
+    void scanAfterCloseReadsFlushedFile() throws IOException {
+        append(0, 1, 2, 3, 4, 5);
+        store.close();
+        store = new TelemetryStore(dir, 4, 3_600_000);
+        assertRows(scanDay(), 0, 1, 2, 3, 4, 5);
+    }
+
+    @Test
+    void backfilledDayIsWrittenToItsOwnPartition() throws IOException {
+        append(0, 1);
+        RealTimeReport yesterday = report(2).toBuilder().setRecordTime(DAY_START - 10).build();
+        store.append(VIN, yesterday);
+        store.flush();
+
+        assertTrue(Files.exists(dir.resolve("20181019").resolve(VIN + StoreFormat.SUFFIX)));
+        TelemetryScan scan = store.scan(VIN, DAY_START - 100, DAY_START + 100, STATE_OF_CHARGE);
+        assertEquals(3, scan.size());
+        assertEquals(DAY_START - 10, scan.getTimes()[0]);
+        assertArrayEquals(new int[]{2, 0, 1}, Arrays.copyOf(scan.getInts(STATE_OF_CHARGE), 3));
+    }
+
+    @Test
+    void rejectsVinsThatAreNotFileNames() throws IOException {
+        assertTrue(TelemetryStore.isValidVin(VIN));
+        for (String vin : new String[]{"", "../../etc/passwd", "LJRNL/0000000001", "LJRNL\\000000001", "LJRNL 00000001"}) {
+            assertFalse(TelemetryStore.isValidVin(vin), vin);
+            assertThrows(IllegalArgumentException.class, () -> store.append(vin, report(0)), vin);
+            assertThrows(IllegalArgumentException.class, () -> store.scan(vin, DAY_START, DAY_START + 10, SPEED), vin);
+        }
+        assertFalse(TelemetryStore.isValidVin(null));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+}